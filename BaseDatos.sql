@@ -1,5 +1,7 @@
 -- BaseDatos.sql
 -- Script de creación de base de datos para la aplicación bancaria
+-- La aplicación crea y actualiza el esquema con Flyway (bank-app/src/main/resources/db/migration);
+-- este script queda para montar una base a mano con datos de ejemplo y refleja la última migración.
 
 -- Crear base de datos (ejecutar como administrador)
 -- CREATE DATABASE bankdb;
@@ -24,28 +26,105 @@ CREATE TABLE IF NOT EXISTS cuentas (
     numero_cuenta VARCHAR(50) NOT NULL UNIQUE,
     tipo_cuenta VARCHAR(50) NOT NULL,
     saldo_inicial DECIMAL(10,2) NOT NULL,
+    saldo_actual DECIMAL(10,2),
+    hash_ultimo_movimiento VARCHAR(64),
+    archivado_hasta DATE,
+    version BIGINT NOT NULL DEFAULT 0,
     estado BOOLEAN NOT NULL,
     cliente_id BIGINT NOT NULL,
     CONSTRAINT fk_cliente FOREIGN KEY (cliente_id) REFERENCES clientes(cliente_id) ON DELETE CASCADE
 );
 
--- Tabla Movimientos
+-- Secuencia de movimientos (incremento 50 = allocationSize de JPA, permite INSERT por lotes)
+CREATE SEQUENCE IF NOT EXISTS movimientos_seq START WITH 1 INCREMENT BY 50;
+
+-- Tabla Movimientos, particionada por mes de fecha (ver V3__particiones_movimientos.sql).
+-- La clave primaria incluye la fecha; el reverso único se comprueba con la cuenta bloqueada.
 CREATE TABLE IF NOT EXISTS movimientos (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT NOT NULL,
     fecha TIMESTAMP NOT NULL,
     tipo_movimiento VARCHAR(50) NOT NULL,
     valor DECIMAL(10,2) NOT NULL,
     saldo DECIMAL(10,2) NOT NULL,
     cuenta_id BIGINT NOT NULL,
-    CONSTRAINT fk_cuenta FOREIGN KEY (cuenta_id) REFERENCES cuentas(id) ON DELETE CASCADE
+    reverso_de BIGINT,
+    hash VARCHAR(64),
+    CONSTRAINT pk_movimientos PRIMARY KEY (id, fecha),
+    CONSTRAINT fk_movimientos_cuenta FOREIGN KEY (cuenta_id) REFERENCES cuentas(id) ON DELETE CASCADE
+) PARTITION BY RANGE (fecha);
+
+-- Particiones mensuales desde los datos de ejemplo hasta tres meses después del actual;
+-- la aplicación crea las siguientes (app.particiones.*) y separa las antiguas al esquema archivo
+CREATE SCHEMA IF NOT EXISTS archivo;
+DO $$
+DECLARE
+    mes DATE := DATE '2022-01-01';
+BEGIN
+    WHILE mes < date_trunc('month', now()) + INTERVAL '4 months' LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF movimientos FOR VALUES FROM (%L) TO (%L)',
+                       'movimientos_' || to_char(mes, 'YYYY_MM'), mes, (mes + INTERVAL '1 month')::date);
+        mes := (mes + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+-- Tabla Retiros Diarios (acumulado de retiros por cuenta y día para el cupo diario)
+CREATE TABLE IF NOT EXISTS retiros_diarios (
+    id BIGSERIAL PRIMARY KEY,
+    fecha DATE NOT NULL,
+    total DECIMAL(10,2) NOT NULL,
+    cuenta_id BIGINT NOT NULL,
+    CONSTRAINT fk_retiros_diarios_cuenta FOREIGN KEY (cuenta_id) REFERENCES cuentas(id) ON DELETE CASCADE,
+    CONSTRAINT uk_retiros_diarios_cuenta_fecha UNIQUE (cuenta_id, fecha)
 );
 
--- Índices para mejorar el rendimiento
-CREATE INDEX IF NOT EXISTS idx_clientes_identificacion ON clientes(identificacion);
-CREATE INDEX IF NOT EXISTS idx_cuentas_numero ON cuentas(numero_cuenta);
-CREATE INDEX IF NOT EXISTS idx_cuentas_cliente ON cuentas(cliente_id);
-CREATE INDEX IF NOT EXISTS idx_movimientos_cuenta ON movimientos(cuenta_id);
-CREATE INDEX IF NOT EXISTS idx_movimientos_fecha ON movimientos(fecha);
+-- Tabla Saldos Diarios (snapshot por cuenta y día para los reportes de resumen)
+CREATE TABLE IF NOT EXISTS saldos_diarios (
+    id BIGSERIAL PRIMARY KEY,
+    fecha DATE NOT NULL,
+    saldo_apertura DECIMAL(10,2) NOT NULL,
+    saldo_cierre DECIMAL(10,2) NOT NULL,
+    total_creditos DECIMAL(12,2) NOT NULL,
+    total_debitos DECIMAL(12,2) NOT NULL,
+    cantidad_movimientos INTEGER NOT NULL,
+    cuenta_id BIGINT NOT NULL,
+    CONSTRAINT fk_saldos_diarios_cuenta FOREIGN KEY (cuenta_id) REFERENCES cuentas(id) ON DELETE CASCADE,
+    CONSTRAINT uk_saldos_diarios_cuenta_fecha UNIQUE (cuenta_id, fecha)
+);
+
+-- Tabla Claves de Idempotencia (reintentos de POST /movimientos con Idempotency-Key)
+CREATE TABLE IF NOT EXISTS claves_idempotencia (
+    clave VARCHAR(100) PRIMARY KEY,
+    huella VARCHAR(255) NOT NULL,
+    movimiento_id BIGINT NOT NULL,
+    creada_en TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_claves_idempotencia_creada ON claves_idempotencia(creada_en);
+
+-- Migración de bases existentes: saldo materializado y versión de la cuenta
+ALTER TABLE cuentas ADD COLUMN IF NOT EXISTS saldo_actual DECIMAL(10,2);
+ALTER TABLE cuentas ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Migración de bases existentes: libro encadenado por hash y reversos
+-- (los movimientos previos se sellan con el job app.ledger.sellado-cron)
+ALTER TABLE cuentas ADD COLUMN IF NOT EXISTS hash_ultimo_movimiento VARCHAR(64);
+ALTER TABLE movimientos ADD COLUMN IF NOT EXISTS reverso_de BIGINT;
+ALTER TABLE movimientos ADD COLUMN IF NOT EXISTS hash VARCHAR(64);
+
+-- Migración de bases existentes: movimientos antiguos archivados en disco (app.archivo.*)
+ALTER TABLE cuentas ADD COLUMN IF NOT EXISTS archivado_hasta DATE;
+
+-- Índices para mejorar el rendimiento (ver V2__indices_consultas.sql)
+-- Extracto por cuenta, paginación por cursor y reporte: cubre las columnas leídas
+CREATE INDEX IF NOT EXISTS idx_movimientos_cuenta_fecha_id
+    ON movimientos(cuenta_id, fecha DESC, id DESC) INCLUDE (tipo_movimiento, valor, saldo);
+CREATE INDEX IF NOT EXISTS idx_movimientos_fecha_id ON movimientos(fecha DESC, id DESC);
+-- Suma de retiros del día: índice parcial solo con débitos
+CREATE INDEX IF NOT EXISTS idx_movimientos_retiros_cuenta_fecha
+    ON movimientos(cuenta_id, fecha) INCLUDE (valor) WHERE valor < 0;
+-- Reverso ya registrado
+CREATE INDEX IF NOT EXISTS idx_movimientos_reverso_de ON movimientos(reverso_de) WHERE reverso_de IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_cuentas_cliente
+    ON cuentas(cliente_id) INCLUDE (numero_cuenta, tipo_cuenta, saldo_inicial, estado);
 
 -- Datos de ejemplo (Caso de uso 1: Creación de Usuarios)
 INSERT INTO clientes (nombre, genero, edad, identificacion, direccion, telefono, contrasena, estado)
@@ -72,21 +151,58 @@ ON CONFLICT (numero_cuenta) DO NOTHING;
 
 -- Datos de ejemplo (Caso de uso 4: Realizar los siguientes movimientos)
 -- Nota: En producción estos se crearían a través de la API, aquí solo para demostración
-INSERT INTO movimientos (fecha, tipo_movimiento, valor, saldo, cuenta_id)
+INSERT INTO movimientos (id, fecha, tipo_movimiento, valor, saldo, cuenta_id)
 VALUES 
     -- Retiro de 575 de cuenta 478758 (Jose Lema - Ahorro)
-    (TIMESTAMP '2022-02-10 10:00:00', 'Retiro', -575.00, 1425.00, (SELECT id FROM cuentas WHERE numero_cuenta = '478758')),
+    (1, TIMESTAMP '2022-02-10 10:00:00', 'Retiro', -575.00, 1425.00, (SELECT id FROM cuentas WHERE numero_cuenta = '478758')),
     -- Depósito de 600 en cuenta 225487 (Marianela Montalvo - Corriente)
-    (TIMESTAMP '2022-02-10 11:00:00', 'Depósito', 600.00, 700.00, (SELECT id FROM cuentas WHERE numero_cuenta = '225487')),
+    (2, TIMESTAMP '2022-02-10 11:00:00', 'Depósito', 600.00, 700.00, (SELECT id FROM cuentas WHERE numero_cuenta = '225487')),
     -- Depósito de 150 en cuenta 495878 (Juan Osorio - Ahorros)
-    (TIMESTAMP '2022-02-10 12:00:00', 'Depósito', 150.00, 150.00, (SELECT id FROM cuentas WHERE numero_cuenta = '495878')),
+    (3, TIMESTAMP '2022-02-10 12:00:00', 'Depósito', 150.00, 150.00, (SELECT id FROM cuentas WHERE numero_cuenta = '495878')),
     -- Retiro de 540 de cuenta 496825 (Marianela Montalvo - Ahorros)
-    (TIMESTAMP '2022-02-08 09:00:00', 'Retiro', -540.00, 0.00, (SELECT id FROM cuentas WHERE numero_cuenta = '496825'));
+    (4, TIMESTAMP '2022-02-08 09:00:00', 'Retiro', -540.00, 0.00, (SELECT id FROM cuentas WHERE numero_cuenta = '496825'));
+
+-- La secuencia debe continuar después de los ids ya existentes
+SELECT setval('movimientos_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM movimientos));
+
+-- Saldo materializado: último saldo registrado o saldo inicial si la cuenta no tiene movimientos
+UPDATE cuentas c
+SET saldo_actual = COALESCE(
+    (SELECT m.saldo FROM movimientos m WHERE m.cuenta_id = c.id ORDER BY m.fecha DESC, m.id DESC LIMIT 1),
+    c.saldo_inicial)
+WHERE c.saldo_actual IS NULL;
+
+-- Acumulados de retiros de los últimos días a partir de los movimientos existentes
+INSERT INTO retiros_diarios (fecha, total, cuenta_id)
+SELECT CAST(m.fecha AS DATE), SUM(ABS(m.valor)), m.cuenta_id
+FROM movimientos m
+WHERE m.valor < 0 AND m.fecha >= CURRENT_DATE - 7
+GROUP BY CAST(m.fecha AS DATE), m.cuenta_id
+ON CONFLICT (cuenta_id, fecha) DO NOTHING;
+
+-- Snapshots diarios del historial existente (backfill; también disponible como job: app.saldos-diarios.backfill-cron)
+INSERT INTO saldos_diarios (fecha, saldo_apertura, saldo_cierre, total_creditos, total_debitos, cantidad_movimientos, cuenta_id)
+SELECT d.fecha, d.saldo_apertura, d.saldo_cierre, d.total_creditos, d.total_debitos, d.cantidad, d.cuenta_id
+FROM (
+    SELECT CAST(m.fecha AS DATE) AS fecha,
+           m.cuenta_id,
+           FIRST_VALUE(m.saldo - m.valor) OVER dia AS saldo_apertura,
+           LAST_VALUE(m.saldo) OVER dia AS saldo_cierre,
+           SUM(CASE WHEN m.valor > 0 THEN m.valor ELSE 0 END) OVER dia AS total_creditos,
+           SUM(CASE WHEN m.valor < 0 THEN -m.valor ELSE 0 END) OVER dia AS total_debitos,
+           COUNT(*) OVER dia AS cantidad,
+           ROW_NUMBER() OVER dia AS fila
+    FROM movimientos m
+    WINDOW dia AS (PARTITION BY m.cuenta_id, CAST(m.fecha AS DATE) ORDER BY m.fecha, m.id
+                   ROWS BETWEEN UNBOUNDED PRECEDING AND UNBOUNDED FOLLOWING)
+) d
+WHERE d.fila = 1
+ON CONFLICT (cuenta_id, fecha) DO NOTHING;
 
 -- Comentarios sobre las reglas de negocio implementadas:
 -- 1. Los créditos tienen valores positivos, los débitos negativos
--- 2. El saldo se calcula y almacena en cada transacción
+-- 2. El saldo se calcula y almacena en cada transacción (y se materializa en cuentas.saldo_actual)
 -- 3. Si el saldo < 0 al intentar un débito, se rechaza con "Saldo no disponible"
 -- 4. Límite diario de retiro: $1000
--- 5. Si se excede el cupo diario: "Cupo diario Excedido"
+-- 5. Si se excede el cupo diario: "Cupo diario Excedido" (acumulado en retiros_diarios)
 -- 6. Los reportes se generan por rango de fechas y cliente
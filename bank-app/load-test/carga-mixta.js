@@ -0,0 +1,70 @@
+// Carga mixta para comparar hilos de plataforma y hilos virtuales.
+//
+//   k6 run load-test/carga-mixta.js                         # 1000 clientes, 3 minutos
+//   k6 run -e CLIENTES=200 -e DURACION=1m load-test/carga-mixta.js
+//
+// Cada cliente registra movimientos pequeños en las cuentas de ejemplo y uno de
+// cada diez pide además un reporte de todo el historial, que es la consulta
+// lenta que agota los hilos de Tomcat en modo plataforma.
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+import { Trend } from 'k6/metrics';
+
+const BASE = __ENV.BASE_URL || 'http://localhost:8080/api';
+const CLIENTES = parseInt(__ENV.CLIENTES || '1000', 10);
+const DURACION = __ENV.DURACION || '3m';
+
+const CUENTAS = ['478758', '225487', '495878', '496825', '585545'];
+const CLIENTES_REPORTE = [1, 2, 3];
+
+const registro = new Trend('banco_registro_ms', true);
+const reporte = new Trend('banco_reporte_ms', true);
+
+export const options = {
+    scenarios: {
+        registro: {
+            executor: 'constant-vus',
+            exec: 'registrar',
+            vus: Math.ceil(CLIENTES * 0.9),
+            duration: DURACION,
+        },
+        reportes: {
+            executor: 'constant-vus',
+            exec: 'reportar',
+            vus: Math.floor(CLIENTES * 0.1),
+            duration: DURACION,
+        },
+    },
+    thresholds: {
+        // El registro no debe degradarse por los reportes
+        'banco_registro_ms': ['p(99)<1000'],
+        'checks{escenario:registro}': ['rate>0.99'],
+    },
+};
+
+export function registrar() {
+    const cuenta = CUENTAS[Math.floor(Math.random() * CUENTAS.length)];
+    // Depósitos y retiros del mismo monto: el saldo y el cupo diario se mantienen estables
+    const valor = Math.random() < 0.5 ? 1.0 : -1.0;
+    const res = http.post(`${BASE}/movimientos`, JSON.stringify({
+        numeroCuenta: cuenta,
+        tipoMovimiento: valor > 0 ? 'Deposito' : 'Retiro',
+        valor: valor,
+    }), { headers: { 'Content-Type': 'application/json' }, tags: { escenario: 'registro' } });
+    registro.add(res.timings.duration);
+    // 400 es un rechazo de negocio (saldo o cupo), no un fallo de capacidad
+    check(res, { 'registro atendido': (r) => r.status === 201 || r.status === 400 }, { escenario: 'registro' });
+    // Tiempo de reflexión de un cliente real entre operaciones
+    sleep(0.5);
+}
+
+export function reportar() {
+    const cliente = CLIENTES_REPORTE[Math.floor(Math.random() * CLIENTES_REPORTE.length)];
+    const res = http.get(`${BASE}/reportes?clienteId=${cliente}`
+        + '&fechaInicio=2000-01-01T00:00:00&fechaFin=2100-01-01T00:00:00',
+        { tags: { escenario: 'reportes' } });
+    reporte.add(res.timings.duration);
+    // 503 es el limitador de reportes protegiendo el pool de conexiones
+    check(res, { 'reporte atendido o limitado': (r) => r.status === 200 || r.status === 503 },
+        { escenario: 'reportes' });
+}
@@ -0,0 +1,100 @@
+package com.bank.app.service;
+
+import com.bank.app.BankAppApplication;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Application context shared by the benchmarks of one trial.
+ * Boots the application on embedded H2 and seeds one client with one account
+ * holding {@code historia} movements, one per minute, so the hot paths can be
+ * measured at several history sizes.
+ */
+@State(Scope.Benchmark)
+public class ContextoBenchmark {
+    
+    static final LocalDateTime INICIO_HISTORIA = LocalDateTime.of(2020, 1, 1, 0, 0);
+    static final BigDecimal SALDO_INICIAL = new BigDecimal("1000.00");
+    
+    /** Number of movements already posted to the account. */
+    @Param({"1000", "100000", "1000000"})
+    public int historia;
+    
+    ConfigurableApplicationContext context;
+    Cliente cliente;
+    Cuenta cuenta;
+    
+    @Setup(Level.Trial)
+    public void iniciar() {
+        context = new SpringApplicationBuilder(BankAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("jmh")
+                .run();
+        sembrar();
+    }
+    
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        context.close();
+    }
+    
+    <T> T bean(Class<T> tipo) {
+        return context.getBean(tipo);
+    }
+    
+    /** Start of the window that holds the newest 1000 movements. */
+    LocalDateTime inicioUltimosMil() {
+        return INICIO_HISTORIA.plusMinutes(Math.max(1, historia - 999L));
+    }
+    
+    /** Time of the newest seeded movement. */
+    LocalDateTime finHistoria() {
+        return INICIO_HISTORIA.plusMinutes(historia);
+    }
+    
+    private void sembrar() {
+        cliente = new Cliente();
+        cliente.setNombre("Cliente Benchmark");
+        cliente.setGenero("Femenino");
+        cliente.setEdad(45);
+        cliente.setIdentificacion("BENCH-" + historia);
+        cliente.setDireccion("Quito");
+        cliente.setTelefono("0990000000");
+        cliente.setContrasena("hash");
+        cliente.setEstado(true);
+        bean(ClienteRepository.class).save(cliente);
+        
+        cuenta = new Cuenta();
+        cuenta.setNumeroCuenta("BENCH" + historia);
+        cuenta.setTipoCuenta("Ahorro");
+        cuenta.setSaldoInicial(SALDO_INICIAL);
+        cuenta.setSaldoActual(SALDO_INICIAL.add(BigDecimal.valueOf(historia)));
+        cuenta.setEstado(true);
+        cuenta.setCliente(cliente);
+        bean(CuentaRepository.class).save(cuenta);
+        
+        // Inserción en bloque del lado de la base: un millón de filas por JPA tardaría minutos
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO movimientos (id, fecha, tipo_movimiento, valor, saldo, cuenta_id) " +
+                        "SELECT x, DATEADD('MINUTE', x, ?), 'Deposito', 1.00, ? + x, ? " +
+                        "FROM SYSTEM_RANGE(1, ?)",
+                INICIO_HISTORIA, SALDO_INICIAL, cuenta.getId(), historia);
+        // Los ids generados por Hibernate deben quedar por encima de los sembrados
+        jdbc.execute("ALTER SEQUENCE movimientos_seq RESTART WITH " + (historia + 100));
+    }
+}
@@ -0,0 +1,70 @@
+package com.bank.app.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client onboarding throughput, in passwords hashed per second, for each
+ * BCrypt cost: one after another on the calling thread, as sign-ups did
+ * inside the request, against the hashing pool used by the import endpoint.
+ * Compare the costs to pick {@code app.seguridad.bcrypt-costo}: each step
+ * halves the throughput of both variants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ContrasenaBenchmark {
+    
+    private static final int CONTRASENAS = 64;
+    
+    @Param({"4", "8", "10", "12"})
+    private int costo;
+    
+    private BCryptPasswordEncoder passwordEncoder;
+    private CodificadorContrasenas codificador;
+    private List<String> contrasenas;
+    
+    @Setup
+    public void preparar() {
+        passwordEncoder = new BCryptPasswordEncoder(costo);
+        codificador = new CodificadorContrasenas(passwordEncoder, 0, CONTRASENAS);
+        contrasenas = new ArrayList<>(CONTRASENAS);
+        for (int i = 0; i < CONTRASENAS; i++) {
+            contrasenas.add("contrasena-" + i);
+        }
+    }
+    
+    @TearDown
+    public void detener() throws InterruptedException {
+        codificador.detener();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(CONTRASENAS)
+    public List<String> secuencial() {
+        List<String> codificadas = new ArrayList<>(CONTRASENAS);
+        for (String contrasena : contrasenas) {
+            codificadas.add(passwordEncoder.encode(contrasena));
+        }
+        return codificadas;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(CONTRASENAS)
+    public List<String> pool() {
+        return codificador.codificarTodas(contrasenas);
+    }
+}
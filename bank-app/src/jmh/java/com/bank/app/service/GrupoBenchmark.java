@@ -0,0 +1,117 @@
+package com.bank.app.service;
+
+import com.bank.app.BankAppApplication;
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Movement posting at 1, 16 and 256 concurrent posters, with one transaction
+ * per post ({@code tamano=1}) and with group commit. Throughput is reported in
+ * posts per millisecond and SampleTime adds the latency distribution; compare
+ * {@code p0.99} across the rows. H2 in memory has no log flush, so the gain
+ * measured here is the shared lock and round-trip only; against PostgreSQL
+ * each shared commit also saves one WAL fsync per post.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GrupoBenchmark {
+    
+    private static final int CUENTAS = 16;
+    
+    /** Maximum posts per commit; 1 disables group commit. */
+    @Param({"1", "64"})
+    public int tamano;
+    
+    private ConfigurableApplicationContext context;
+    private AgrupadorMovimientos agrupador;
+    private final List<String> numeros = new ArrayList<>(CUENTAS);
+    
+    @Setup(Level.Trial)
+    public void iniciar() {
+        context = new SpringApplicationBuilder(BankAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("jmh")
+                // Conexiones suficientes para que 256 clientes sin grupo no esperen al pool
+                .properties("app.posting.grupo.tamano=" + tamano,
+                        "spring.datasource.hikari.maximum-pool-size=64")
+                .run();
+        agrupador = context.getBean(AgrupadorMovimientos.class);
+        
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Cliente Grupo");
+        cliente.setGenero("Femenino");
+        cliente.setEdad(31);
+        cliente.setIdentificacion("GRUPO-" + tamano);
+        cliente.setDireccion("Quito");
+        cliente.setTelefono("0990000001");
+        cliente.setContrasena("hash");
+        cliente.setEstado(true);
+        context.getBean(ClienteRepository.class).save(cliente);
+        
+        for (int i = 0; i < CUENTAS; i++) {
+            Cuenta cuenta = new Cuenta();
+            cuenta.setNumeroCuenta("GRUPO" + tamano + "-" + i);
+            cuenta.setTipoCuenta("Ahorro");
+            cuenta.setSaldoInicial(ContextoBenchmark.SALDO_INICIAL);
+            cuenta.setSaldoActual(ContextoBenchmark.SALDO_INICIAL);
+            cuenta.setEstado(true);
+            cuenta.setCliente(cliente);
+            numeros.add(context.getBean(CuentaRepository.class).save(cuenta).getNumeroCuenta());
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        context.close();
+    }
+    
+    private MovimientoDTO postear() {
+        MovimientoDTO dto = new MovimientoDTO();
+        dto.setTipoMovimiento("Deposito");
+        dto.setValor(BigDecimal.ONE);
+        dto.setNumeroCuenta(numeros.get(ThreadLocalRandom.current().nextInt(CUENTAS)));
+        return agrupador.registrar(dto);
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public MovimientoDTO postores1() {
+        return postear();
+    }
+    
+    @Benchmark
+    @Threads(16)
+    public MovimientoDTO postores16() {
+        return postear();
+    }
+    
+    @Benchmark
+    @Threads(256)
+    public MovimientoDTO postores256() {
+        return postear();
+    }
+}
@@ -0,0 +1,141 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.ClienteDTO;
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.dto.ReporteMovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.mapper.ClienteMapper;
+import com.bank.app.mapper.ClienteMapperImpl;
+import com.bank.app.mapper.MovimientoMapper;
+import com.bank.app.mapper.MovimientoMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Microbenchmarks for the pure code on the hot paths: DTO mapping, CSV row
+ * formatting and the BigDecimal arithmetic of the balance rules.
+ * No database or Spring context is involved. Run with the GC profiler
+ * (enabled in build.gradle) to compare allocations: gc.alloc.rate.norm is
+ * the number of bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapeoBenchmark {
+    
+    private static final int VALORES = 1000;
+    private static final int CLIENTES = 1000;
+    
+    private final MovimientoMapper movimientoMapper = new MovimientoMapperImpl();
+    private final ClienteMapper clienteMapper = new ClienteMapperImpl();
+    private final ReporteService reporteService = new ReporteService();
+    
+    private Movimiento movimiento;
+    private ReporteMovimientoDTO filaReporte;
+    private BigDecimal saldo;
+    private BigDecimal limiteDiario;
+    private BigDecimal retirosHoy;
+    private BigDecimal[] valores;
+    private List<Cliente> clientes;
+    
+    @Setup
+    public void preparar() {
+        Cuenta cuenta = new Cuenta();
+        cuenta.setId(1L);
+        cuenta.setNumeroCuenta("478758");
+        
+        movimiento = new Movimiento();
+        movimiento.setId(10L);
+        movimiento.setFecha(LocalDateTime.of(2026, 2, 10, 9, 30));
+        movimiento.setTipoMovimiento("Retiro");
+        movimiento.setValor(new BigDecimal("-575.00"));
+        movimiento.setSaldo(new BigDecimal("1425.00"));
+        movimiento.setCuenta(cuenta);
+        
+        filaReporte = new ReporteMovimientoDTO(movimiento.getFecha(), "Marianela Montalvo", "478758",
+                "Ahorro", new BigDecimal("2000.00"), true, movimiento.getValor(), movimiento.getSaldo());
+        
+        saldo = new BigDecimal("1425.00");
+        limiteDiario = new BigDecimal("1000");
+        retirosHoy = new BigDecimal("300.00");
+        valores = new BigDecimal[VALORES];
+        for (int i = 0; i < VALORES; i++) {
+            valores[i] = BigDecimal.valueOf((i % 200) - 100, 0).add(new BigDecimal("0.25"));
+        }
+        
+        clientes = new ArrayList<>(CLIENTES);
+        for (int i = 0; i < CLIENTES; i++) {
+            Cliente cliente = new Cliente();
+            cliente.setClienteId((long) i);
+            cliente.setNombre("Cliente " + i);
+            cliente.setGenero("Femenino");
+            cliente.setEdad(30);
+            cliente.setIdentificacion("ID" + i);
+            cliente.setDireccion("Quito");
+            cliente.setTelefono("0999999999");
+            cliente.setContrasena("hash");
+            cliente.setEstado(true);
+            clientes.add(cliente);
+        }
+    }
+    
+    @Benchmark
+    public MovimientoDTO movimientoToDTO() {
+        return movimientoMapper.toDTO(movimiento);
+    }
+    
+    /** Listing of 1000 clients with the generated mapper: presized list, no stream. */
+    @Benchmark
+    public List<ClienteDTO> listadoClientes() {
+        return clienteMapper.toDTOs(clientes);
+    }
+    
+    /** Baseline: the stream pipeline the services used before the generated mappers. */
+    @Benchmark
+    public List<ClienteDTO> listadoClientesConStream() {
+        return clientes.stream()
+                .map(clienteMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+    
+    @Benchmark
+    public String reporteToCsv() {
+        return reporteService.toCsv(filaReporte);
+    }
+    
+    /** The arithmetic of one withdrawal: new balance, sign check and daily limit check. */
+    @Benchmark
+    public void reglasDeRetiro(Blackhole blackhole) {
+        BigDecimal valor = valores[7].negate();
+        BigDecimal nuevoSaldo = saldo.add(valor);
+        blackhole.consume(nuevoSaldo.compareTo(BigDecimal.ZERO) < 0);
+        blackhole.consume(retirosHoy.add(valor.abs()).compareTo(limiteDiario) > 0);
+        blackhole.consume(nuevoSaldo);
+    }
+    
+    /** Running balance over 1000 movements, as a reconciliation would compute it. */
+    @Benchmark
+    public BigDecimal saldoAcumulado() {
+        BigDecimal acumulado = saldo;
+        for (BigDecimal valor : valores) {
+            acumulado = acumulado.add(valor);
+        }
+        return acumulado.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,55 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoBatchResultadoDTO;
+import com.bank.app.dto.MovimientoDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Movement posting and balance lookup against a seeded account.
+ * With the materialized balance, none of these should get slower as the
+ * history grows; compare the scores across the {@code historia} values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostingBenchmark {
+    
+    private static final int FILAS_LOTE = 1000;
+    
+    private static MovimientoDTO deposito(ContextoBenchmark contexto) {
+        MovimientoDTO dto = new MovimientoDTO();
+        dto.setTipoMovimiento("Deposito");
+        dto.setValor(BigDecimal.ONE);
+        dto.setNumeroCuenta(contexto.cuenta.getNumeroCuenta());
+        return dto;
+    }
+    
+    @Benchmark
+    public MovimientoDTO save(ContextoBenchmark contexto) {
+        return contexto.bean(MovimientoService.class).save(deposito(contexto));
+    }
+    
+    /** Same rows as {@link #save}, posted through the batch endpoint; score is per row. */
+    @Benchmark
+    @OperationsPerInvocation(FILAS_LOTE)
+    public List<MovimientoBatchResultadoDTO> saveBatch(ContextoBenchmark contexto) {
+        List<MovimientoDTO> filas = new ArrayList<>(FILAS_LOTE);
+        for (int i = 0; i < FILAS_LOTE; i++) {
+            filas.add(deposito(contexto));
+        }
+        return contexto.bean(MovimientoBatchService.class).procesar(filas);
+    }
+    
+    @Benchmark
+    public BigDecimal calcularSaldo(ContextoBenchmark contexto) {
+        return contexto.bean(ConciliacionService.class).calcularSaldo(contexto.cuenta);
+    }
+}
@@ -0,0 +1,36 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.FormatoReporte;
+import com.bank.app.dto.ReporteMovimientoDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report generation against a seeded account.
+ * {@link #generarReporteUltimosMil} reads a fixed window and should not depend
+ * on the history size; {@link #streamCsvCompleto} covers the whole history.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReporteBenchmark {
+    
+    @Benchmark
+    public List<ReporteMovimientoDTO> generarReporteUltimosMil(ContextoBenchmark contexto) {
+        return contexto.bean(ReporteService.class).generarReporte(
+                contexto.cliente.getClienteId(), contexto.inicioUltimosMil(), contexto.finHistoria());
+    }
+    
+    @Benchmark
+    public void streamCsvCompleto(ContextoBenchmark contexto) throws IOException {
+        contexto.bean(ReporteService.class).escribirReporte(
+                contexto.cliente.getClienteId(), ContextoBenchmark.INICIO_HISTORIA, contexto.finHistoria(),
+                FormatoReporte.CSV, OutputStream.nullOutputStream());
+    }
+}
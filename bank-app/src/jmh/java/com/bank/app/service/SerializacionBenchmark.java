@@ -0,0 +1,60 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a 100k-movement listing: databind over the whole list, as
+ * the listing endpoints did, against the generator writer they use now.
+ * Sample mode reports the p99 next to the mean, and the GC profiler the bytes
+ * allocated per response. Both sides start from rows already in memory; the
+ * endpoints also stop holding the list itself, which is not measured here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerializacionBenchmark {
+    
+    private static final int MOVIMIENTOS = 100_000;
+    
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final EscritorJson escritorJson = new EscritorJson(objectMapper);
+    
+    private List<MovimientoDTO> movimientos;
+    
+    @Setup
+    public void preparar() {
+        LocalDateTime inicio = LocalDateTime.of(2026, 1, 1, 0, 0);
+        movimientos = new ArrayList<>(MOVIMIENTOS);
+        for (int i = 0; i < MOVIMIENTOS; i++) {
+            movimientos.add(new MovimientoDTO((long) i, inicio.plusMinutes(i), i % 2 == 0 ? "Deposito" : "Retiro",
+                    BigDecimal.valueOf(i % 2 == 0 ? 2500 : -1000, 2), BigDecimal.valueOf(100_000 + i, 2), "478758"));
+        }
+    }
+    
+    @Benchmark
+    public void databindLista() {
+        // databind cierra la salida al terminar: una nueva por operación
+        objectMapper.writeValue(OutputStream.nullOutputStream(), movimientos);
+    }
+    
+    @Benchmark
+    public void generador() {
+        escritorJson.escribirMovimientos(movimientos.stream(), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,52 @@
+package com.bank.app.config;
+
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Configuration of the in-process read cache for accounts and clients.
+ * Caches are bounded Caffeine caches with a TTL and hit/miss statistics.
+ * They are transaction-aware: puts and evictions issued inside a transaction
+ * are applied only after it commits, so a rolled-back write never evicts or
+ * publishes data that was not persisted.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    
+    /** Account id by account number, used by movement posting. */
+    public static final String CUENTA_ID_POR_NUMERO = "cuentaIdPorNumero";
+    
+    /** CuentaDTO by account id. */
+    public static final String CUENTAS = "cuentas";
+    
+    /** CuentaDTO by account number. */
+    public static final String CUENTAS_POR_NUMERO = "cuentasPorNumero";
+    
+    /** ClienteDTO by client id. */
+    public static final String CLIENTES = "clientes";
+    
+    /**
+     * Provides the cache manager with a fixed set of caches.
+     * 
+     * @param spec Caffeine spec applied to every cache (size bound, TTL, stats)
+     * @return transaction-aware CacheManager
+     */
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.spec:maximumSize=10000,expireAfterWrite=10m,recordStats}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeineSpec(CaffeineSpec.parse(spec));
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setCacheNames(List.of(CUENTA_ID_POR_NUMERO, CUENTAS, CUENTAS_POR_NUMERO, CLIENTES));
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,80 @@
+package com.bank.app.config;
+
+import com.bank.app.service.EnrutamientoLecturas;
+import com.bank.app.service.EnrutamientoLecturas.Destino;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Read/write split, enabled by setting {@code app.replica.url}.
+ * The primary keeps the {@code spring.datasource.*} settings and pool; the
+ * replica gets its own pool ({@code app.replica.hikari.*}), so long report
+ * queries no longer take connections from posting. The application data
+ * source opens the physical connection on the first statement, once the
+ * transaction is known to be read-only, and {@link EnrutamientoLecturas}
+ * chooses the database for it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.replica", name = "url")
+public class ReplicaConfig {
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primariaDataSource(@Value("${spring.datasource.url}") String url,
+                                               @Value("${spring.datasource.username}") String username,
+                                               @Value("${spring.datasource.password}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("primaria");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        return dataSource;
+    }
+    
+    @Bean
+    @ConfigurationProperties("app.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${app.replica.url}") String url,
+                                              @Value("${app.replica.username:${spring.datasource.username}}") String username,
+                                              @Value("${app.replica.password:${spring.datasource.password}}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+    
+    /**
+     * Data source used by JPA, Flyway and JdbcTemplate. Work outside a
+     * transaction, such as migrations and schema validation, stays on the primary.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primariaDataSource") DataSource primaria,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 EnrutamientoLecturas enrutamientoLecturas) {
+        AbstractRoutingDataSource enrutador = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return enrutamientoLecturas.destino();
+            }
+        };
+        enrutador.setTargetDataSources(Map.of(Destino.PRIMARIA, primaria, Destino.REPLICA, replica));
+        enrutador.setDefaultTargetDataSource(primaria);
+        enrutador.afterPropertiesSet();
+        // Sin el proxy, la conexión se elegiría al iniciar la transacción, antes de marcarla de solo lectura
+        return new LazyConnectionDataSourceProxy(enrutador);
+    }
+}
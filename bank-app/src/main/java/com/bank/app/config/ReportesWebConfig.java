@@ -0,0 +1,22 @@
+package com.bank.app.config;
+
+import com.bank.app.controller.PermisoReporteInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the interceptor that releases report slots on every way a report request can end.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class ReportesWebConfig implements WebMvcConfigurer {
+    
+    private final PermisoReporteInterceptor permisoReporteInterceptor;
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(permisoReporteInterceptor).addPathPatterns("/reportes/**");
+    }
+}
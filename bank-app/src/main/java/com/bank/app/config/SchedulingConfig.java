@@ -0,0 +1,13 @@
+package com.bank.app.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled background jobs (balance reconciliation, housekeeping).
+ * Each job is disabled by default and activated through its cron property.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
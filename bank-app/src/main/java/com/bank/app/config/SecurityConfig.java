@@ -1,5 +1,6 @@
 package com.bank.app.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -15,11 +16,15 @@ public class SecurityConfig {
     /**
      * Provides a BCrypt password encoder bean for password encryption.
      * BCrypt is a strong adaptive hash function designed for password hashing.
+     * Each step of the cost doubles the hashing time. The cost is stored in
+     * every hash, so raising it only affects passwords set from then on and
+     * existing hashes keep matching.
      * 
+     * @param costo BCrypt work factor (log2 rounds, 4 to 31)
      * @return PasswordEncoder instance using BCrypt algorithm
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.seguridad.bcrypt-costo:10}") int costo) {
+        return new BCryptPasswordEncoder(costo);
     }
 }
@@ -1,16 +1,20 @@
 package com.bank.app.controller;
 
 import com.bank.app.dto.ClienteDTO;
-import com.bank.app.exception.BusinessException;
+import com.bank.app.dto.ClienteImportacionResultadoDTO;
+import com.bank.app.dto.PaginaDTO;
+import com.bank.app.service.AltaClientesService;
 import com.bank.app.service.ClienteService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST Controller for Cliente entity operations.
@@ -23,8 +27,20 @@ import java.util.List;
 public class ClienteController {
     
     private final ClienteService clienteService;
+    private final AltaClientesService altaClientesService;
     
     @GetMapping
+    public ResponseEntity<PaginaDTO<ClienteDTO>> getClientes(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamano) {
+        PaginaDTO<ClienteDTO> pagina = clienteService.findPagina(cursor, tamano);
+        return ResponseEntity.ok(pagina);
+    }
+    
+    /**
+     * Returns every client in one response; requires {@code todos=true}.
+     */
+    @GetMapping(params = "todos=true")
     public ResponseEntity<List<ClienteDTO>> getAllClientes() {
         List<ClienteDTO> clientes = clienteService.findAll();
         return ResponseEntity.ok(clientes);
@@ -36,29 +52,39 @@ public class ClienteController {
         return ResponseEntity.ok(cliente);
     }
     
+    /**
+     * Creates a client. The password is hashed on the hashing pool, so the
+     * request thread is released until the client has been saved.
+     */
     @PostMapping
-    public ResponseEntity<ClienteDTO> createCliente(@Valid @RequestBody ClienteDTO clienteDTO) {
-        // La contraseña es obligatoria solo al crear
-        if (clienteDTO.getContrasena() == null || clienteDTO.getContrasena().trim().isEmpty()) {
-            throw new BusinessException("La contraseña es obligatoria");
-        }
-        ClienteDTO savedCliente = clienteService.save(clienteDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedCliente);
+    public CompletableFuture<ResponseEntity<ClienteDTO>> createCliente(@Valid @RequestBody ClienteDTO clienteDTO) {
+        return altaClientesService.crear(clienteDTO)
+                .thenApply(savedCliente -> ResponseEntity.status(HttpStatus.CREATED).body(savedCliente));
+    }
+    
+    /**
+     * Creates many clients in one request; each row is accepted or rejected on its own.
+     */
+    @PostMapping("/importacion")
+    public ResponseEntity<List<ClienteImportacionResultadoDTO>> importarClientes(
+            @RequestBody List<ClienteDTO> clientes) {
+        return ResponseEntity.ok(altaClientesService.importar(clientes));
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<ClienteDTO> updateCliente(
+    public CompletableFuture<ResponseEntity<ClienteDTO>> updateCliente(
             @PathVariable Long id,
             @Valid @RequestBody ClienteDTO clienteDTO) {
-        ClienteDTO updatedCliente = clienteService.update(id, clienteDTO);
-        return ResponseEntity.ok(updatedCliente);
+        return altaClientesService.actualizar(id, clienteDTO).thenApply(ResponseEntity::ok);
     }
     
     @PatchMapping("/{id}")
-    public ResponseEntity<ClienteDTO> patchCliente(
+    public CompletableFuture<ResponseEntity<ClienteDTO>> patchCliente(
             @PathVariable Long id,
             @RequestBody ClienteDTO clienteDTO) {
-        ClienteDTO currentCliente = clienteService.findById(id);
+        // Copia: la instancia devuelta puede estar compartida con la caché
+        ClienteDTO currentCliente = new ClienteDTO();
+        BeanUtils.copyProperties(clienteService.findById(id), currentCliente);
         
         if (clienteDTO.getNombre() != null) currentCliente.setNombre(clienteDTO.getNombre());
         if (clienteDTO.getGenero() != null) currentCliente.setGenero(clienteDTO.getGenero());
@@ -68,8 +94,7 @@ public class ClienteController {
         if (clienteDTO.getContrasena() != null) currentCliente.setContrasena(clienteDTO.getContrasena());
         if (clienteDTO.getEstado() != null) currentCliente.setEstado(clienteDTO.getEstado());
         
-        ClienteDTO updatedCliente = clienteService.update(id, currentCliente);
-        return ResponseEntity.ok(updatedCliente);
+        return altaClientesService.actualizar(id, currentCliente).thenApply(ResponseEntity::ok);
     }
     
     @DeleteMapping("/{id}")
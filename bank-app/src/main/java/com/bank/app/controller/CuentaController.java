@@ -1,13 +1,17 @@
 package com.bank.app.controller;
 
 import com.bank.app.dto.CuentaDTO;
+import com.bank.app.dto.PaginaDTO;
 import com.bank.app.service.CuentaService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -24,9 +28,23 @@ public class CuentaController {
     private final CuentaService cuentaService;
     
     @GetMapping
-    public ResponseEntity<List<CuentaDTO>> getAllCuentas() {
-        List<CuentaDTO> cuentas = cuentaService.findAll();
-        return ResponseEntity.ok(cuentas);
+    public ResponseEntity<PaginaDTO<CuentaDTO>> getCuentas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamano) {
+        PaginaDTO<CuentaDTO> pagina = cuentaService.findPagina(cursor, tamano);
+        return ResponseEntity.ok(pagina);
+    }
+    
+    /**
+     * Returns every account in one response; requires {@code todos=true}.
+     * The array is written while the cursor is read.
+     */
+    @GetMapping(params = "todos=true")
+    public ResponseEntity<StreamingResponseBody> getAllCuentas() {
+        StreamingResponseBody cuerpo = cuentaService::escribirTodas;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cuerpo);
     }
     
     @GetMapping("/{id}")
@@ -65,7 +83,9 @@ public class CuentaController {
     public ResponseEntity<CuentaDTO> patchCuenta(
             @PathVariable Long id,
             @RequestBody CuentaDTO cuentaDTO) {
-        CuentaDTO currentCuenta = cuentaService.findById(id);
+        // Copia: la instancia devuelta puede estar compartida con la caché
+        CuentaDTO currentCuenta = new CuentaDTO();
+        BeanUtils.copyProperties(cuentaService.findById(id), currentCuenta);
         
         if (cuentaDTO.getTipoCuenta() != null) currentCuenta.setTipoCuenta(cuentaDTO.getTipoCuenta());
         if (cuentaDTO.getSaldoInicial() != null) currentCuenta.setSaldoInicial(cuentaDTO.getSaldoInicial());
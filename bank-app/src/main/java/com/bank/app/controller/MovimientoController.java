@@ -1,14 +1,32 @@
 package com.bank.app.controller;
 
+import com.bank.app.dto.MovimientoBatchResultadoDTO;
 import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.dto.PaginaDTO;
+import com.bank.app.dto.VerificacionLedgerDTO;
+import com.bank.app.service.AgrupadorMovimientos;
+import com.bank.app.service.IdempotenciaService;
+import com.bank.app.service.MotorCuentas;
+import com.bank.app.service.MovimientoBatchService;
 import com.bank.app.service.MovimientoService;
+import com.bank.app.service.VerificacionLedgerService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,11 +40,37 @@ import java.util.List;
 public class MovimientoController {
     
     private final MovimientoService movimientoService;
+    private final MovimientoBatchService movimientoBatchService;
+    private final VerificacionLedgerService verificacionLedgerService;
+    private final IdempotenciaService idempotenciaService;
+    private final MotorCuentas motorCuentas;
+    private final AgrupadorMovimientos agrupadorMovimientos;
+    private final ObjectMapper objectMapper;
     
     @GetMapping
-    public ResponseEntity<List<MovimientoDTO>> getAllMovimientos() {
-        List<MovimientoDTO> movimientos = movimientoService.findAll();
-        return ResponseEntity.ok(movimientos);
+    public ResponseEntity<PaginaDTO<MovimientoDTO>> getMovimientos(
+            @RequestParam(required = false) Long cuentaId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) String tipoMovimiento,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamano) {
+        PaginaDTO<MovimientoDTO> pagina = movimientoService.findPagina(
+                cuentaId, desde, hasta, tipoMovimiento, cursor, tamano);
+        return ResponseEntity.ok(pagina);
+    }
+    
+    /**
+     * Returns every movement in one response; clients must opt in explicitly
+     * with {@code todos=true}. The array is written while the cursor is read,
+     * so the response is never held in memory as a whole.
+     */
+    @GetMapping(params = "todos=true")
+    public ResponseEntity<StreamingResponseBody> getAllMovimientos() {
+        StreamingResponseBody cuerpo = movimientoService::escribirTodos;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cuerpo);
     }
     
     @GetMapping("/{id}")
@@ -35,18 +79,79 @@ public class MovimientoController {
         return ResponseEntity.ok(movimiento);
     }
     
+    /**
+     * Audits the hash chain and running balance of every account.
+     */
+    @GetMapping("/verificacion")
+    public ResponseEntity<VerificacionLedgerDTO> verificarLedger() {
+        VerificacionLedgerDTO resultado = verificacionLedgerService.verificar();
+        return ResponseEntity.ok(resultado);
+    }
+    
     @GetMapping("/cuenta/{cuentaId}")
     public ResponseEntity<List<MovimientoDTO>> getMovimientosByCuenta(@PathVariable Long cuentaId) {
         List<MovimientoDTO> movimientos = movimientoService.findByCuentaId(cuentaId);
         return ResponseEntity.ok(movimientos);
     }
     
+    /**
+     * Posts a movement. With an {@code Idempotency-Key} header, retries of the
+     * same request return the movement posted by the first one. Accounts of
+     * the in-memory engine answer 202 once the movement is in its log; the
+     * row, and its id, are written shortly after. Other posts share a
+     * transaction with the posts that arrive at the same time.
+     */
     @PostMapping
-    public ResponseEntity<MovimientoDTO> createMovimiento(@Valid @RequestBody MovimientoDTO movimientoDTO) {
-        MovimientoDTO savedMovimiento = movimientoService.save(movimientoDTO);
+    public ResponseEntity<MovimientoDTO> createMovimiento(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody MovimientoDTO movimientoDTO) {
+        if (idempotencyKey == null && motorCuentas.gestiona(movimientoDTO.getNumeroCuenta())) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(motorCuentas.registrar(movimientoDTO));
+        }
+        MovimientoDTO savedMovimiento = idempotencyKey != null
+                ? idempotenciaService.registrar(idempotencyKey, movimientoDTO)
+                : agrupadorMovimientos.registrar(movimientoDTO);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedMovimiento);
     }
     
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<MovimientoBatchResultadoDTO>> createMovimientosBatch(
+            @RequestBody List<MovimientoDTO> movimientos) {
+        List<MovimientoBatchResultadoDTO> resultados = movimientoBatchService.procesar(movimientos);
+        return ResponseEntity.ok(resultados);
+    }
+    
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<MovimientoBatchResultadoDTO>> createMovimientosBatchNdjson(
+            HttpServletRequest request) throws IOException {
+        List<MovimientoDTO> movimientos = new ArrayList<>();
+        BufferedReader reader = request.getReader();
+        String linea;
+        while ((linea = reader.readLine()) != null) {
+            if (linea.isBlank()) {
+                continue;
+            }
+            try {
+                movimientos.add(objectMapper.readValue(linea, MovimientoDTO.class));
+            } catch (JacksonException ex) {
+                // La fila se reporta como rechazada sin interrumpir el resto del archivo
+                movimientos.add(null);
+            }
+        }
+        
+        List<MovimientoBatchResultadoDTO> resultados = movimientoBatchService.procesar(movimientos);
+        return ResponseEntity.ok(resultados);
+    }
+    
+    /**
+     * Corrects a movement with a reversing movement; the original is kept.
+     */
+    @PostMapping("/{id}/reverso")
+    public ResponseEntity<MovimientoDTO> revertirMovimiento(@PathVariable Long id) {
+        MovimientoDTO reverso = movimientoService.revertir(id);
+        return ResponseEntity.status(HttpStatus.CREATED).body(reverso);
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<MovimientoDTO> updateMovimiento(
             @PathVariable Long id,
@@ -0,0 +1,49 @@
+package com.bank.app.controller;
+
+import com.bank.app.service.LimitadorReportes;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Releases the report slot of a streamed report when its request ends.
+ * The streaming body releases the slot after the last row, but the body may
+ * never run: the async executor can reject it, the async request can time
+ * out or fail, or writing the headers can fail before async processing
+ * starts. Releasing twice is harmless, so every path simply closes the slot.
+ */
+@Component
+public class PermisoReporteInterceptor implements HandlerInterceptor {
+    
+    private static final String ATRIBUTO = PermisoReporteInterceptor.class.getName() + ".permiso";
+    
+    /**
+     * Ties a slot to the current request, so it is released when async
+     * processing ends or, if the request never went async, when it completes.
+     * 
+     * @param request the report request
+     * @param permiso the slot taken for it
+     */
+    public void retener(HttpServletRequest request, LimitadorReportes.Permiso permiso) {
+        request.setAttribute(ATRIBUTO, permiso);
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ATRIBUTO, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                permiso.close();
+            }
+        });
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ATRIBUTO) instanceof LimitadorReportes.Permiso permiso) {
+            permiso.close();
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.bank.app.controller;
 
-import com.bank.app.dto.ReporteMovimientoDTO;
+import com.bank.app.dto.FormatoReporte;
+import com.bank.app.dto.GeneracionExtractosDTO;
+import com.bank.app.dto.PeriodoResumen;
+import com.bank.app.dto.ResumenSaldoDTO;
+import com.bank.app.service.GeneracionExtractosService;
+import com.bank.app.service.LimitadorReportes;
 import com.bank.app.service.ReporteService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -21,14 +32,112 @@ import java.util.List;
 public class ReporteController {
     
     private final ReporteService reporteService;
+    private final LimitadorReportes limitadorReportes;
+    private final GeneracionExtractosService generacionExtractosService;
+    private final PermisoReporteInterceptor permisoReporteInterceptor;
     
+    /**
+     * Returns the report as a JSON array, written while the rows are read.
+     * Holds a report slot like the downloadable formats.
+     */
     @GetMapping
-    public ResponseEntity<List<ReporteMovimientoDTO>> generarReporte(
+    public ResponseEntity<StreamingResponseBody> generarReporte(
             @RequestParam Long clienteId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            HttpServletRequest request) {
         
-        List<ReporteMovimientoDTO> reporte = reporteService.generarReporte(clienteId, fechaInicio, fechaFin);
+        reporteService.verificarCliente(clienteId);
+        
+        LimitadorReportes.Permiso permiso = adquirirPermiso(request);
+        StreamingResponseBody cuerpo = salida -> {
+            try (permiso) {
+                reporteService.escribirReporte(clienteId, fechaInicio, fechaFin, FormatoReporte.JSON, salida);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cuerpo);
+    }
+    
+    /**
+     * Balance and totals per account per day or month, answered from the
+     * daily snapshots. The range covers whole days.
+     */
+    @GetMapping(params = {"resumen", "!formato"})
+    public ResponseEntity<List<ResumenSaldoDTO>> generarResumen(
+            @RequestParam Long clienteId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestParam String resumen) {
+        
+        List<ResumenSaldoDTO> reporte = reporteService.generarResumen(clienteId,
+                fechaInicio.toLocalDate(), fechaFin.toLocalDate(), PeriodoResumen.desde(resumen));
         return ResponseEntity.ok(reporte);
     }
+    
+    /**
+     * Streams the report as a JSON, NDJSON or CSV download while it is read from the database,
+     * so large date ranges do not have to fit in memory. The report slot is
+     * taken before the response starts, so a busy server answers 503 instead
+     * of an empty download, and is held until the last row is written or the
+     * request ends without writing it.
+     */
+    @GetMapping(params = "formato")
+    public ResponseEntity<StreamingResponseBody> generarReporteStream(
+            @RequestParam Long clienteId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestParam String formato,
+            HttpServletRequest request) {
+        
+        FormatoReporte formatoReporte = FormatoReporte.desde(formato);
+        reporteService.verificarCliente(clienteId);
+        
+        LimitadorReportes.Permiso permiso = adquirirPermiso(request);
+        StreamingResponseBody cuerpo = salida -> {
+            try (permiso) {
+                reporteService.escribirReporte(clienteId, fechaInicio, fechaFin, formatoReporte, salida);
+            }
+        };
+        
+        String archivo = "reporte-" + clienteId + "." + formatoReporte.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formatoReporte.getMediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(archivo).build().toString())
+                .body(cuerpo);
+    }
+    
+    private LimitadorReportes.Permiso adquirirPermiso(HttpServletRequest request) {
+        LimitadorReportes.Permiso permiso = limitadorReportes.adquirir();
+        permisoReporteInterceptor.retener(request, permiso);
+        return permiso;
+    }
+    
+    /**
+     * Starts writing the statement of every client to one file per client.
+     * Runs in the background; the response is {@code 202} with the progress
+     * URL in the Location header. Repeating the request for the same range
+     * and format resumes with the clients that have no file yet.
+     */
+    @PostMapping("/extractos")
+    public ResponseEntity<GeneracionExtractosDTO> generarExtractos(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestParam(defaultValue = "csv") String formato) {
+        
+        GeneracionExtractosDTO generacion = generacionExtractosService.iniciar(
+                fechaInicio, fechaFin, FormatoReporte.desde(formato));
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                        .path("/{id}").replaceQuery(null).buildAndExpand(generacion.getId()).toUri())
+                .body(generacion);
+    }
+    
+    @GetMapping("/extractos/{id}")
+    public ResponseEntity<GeneracionExtractosDTO> getGeneracionExtractos(@PathVariable String id) {
+        GeneracionExtractosDTO generacion = generacionExtractosService.estado(id);
+        return ResponseEntity.ok(generacion);
+    }
 }
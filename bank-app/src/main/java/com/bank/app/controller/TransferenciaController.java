@@ -0,0 +1,50 @@
+package com.bank.app.controller;
+
+import com.bank.app.dto.TransferenciaDTO;
+import com.bank.app.dto.TransferenciaResultadoDTO;
+import com.bank.app.service.TransferenciaService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * REST Controller for transfers between accounts.
+ */
+@RestController
+@RequestMapping("/transferencias")
+@RequiredArgsConstructor
+@Slf4j
+public class TransferenciaController {
+    
+    private final TransferenciaService transferenciaService;
+    
+    /**
+     * Posts a transfer. With {@code async=true} the transfer is queued and the
+     * response is {@code 202} with the status URL in the Location header.
+     */
+    @PostMapping
+    public ResponseEntity<TransferenciaResultadoDTO> createTransferencia(
+            @RequestParam(defaultValue = "false") boolean async,
+            @Valid @RequestBody TransferenciaDTO transferenciaDTO) {
+        if (!async) {
+            TransferenciaResultadoDTO resultado = transferenciaService.transferir(transferenciaDTO);
+            return ResponseEntity.status(HttpStatus.CREATED).body(resultado);
+        }
+        
+        TransferenciaResultadoDTO pendiente = transferenciaService.encolar(transferenciaDTO);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                        .path("/{id}").replaceQuery(null).buildAndExpand(pendiente.getId()).toUri())
+                .body(pendiente);
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<TransferenciaResultadoDTO> getTransferencia(@PathVariable String id) {
+        TransferenciaResultadoDTO resultado = transferenciaService.estado(id);
+        return ResponseEntity.ok(resultado);
+    }
+}
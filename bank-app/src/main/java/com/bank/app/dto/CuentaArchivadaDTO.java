@@ -0,0 +1,18 @@
+package com.bank.app.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * An account of a report whose older months are archived on disk, with the
+ * columns a report row repeats from the account and the archive watermark.
+ */
+public record CuentaArchivadaDTO(
+        Long cuentaId,
+        String cliente,
+        String numeroCuenta,
+        String tipoCuenta,
+        BigDecimal saldoInicial,
+        Boolean estado,
+        LocalDate archivadoHasta) {
+}
@@ -0,0 +1,36 @@
+package com.bank.app.dto;
+
+import com.bank.app.exception.BusinessException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Output formats supported by the streaming report.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum FormatoReporte {
+    
+    JSON("application/json", "json"),
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+    
+    private final String mediaType;
+    private final String extension;
+    
+    /**
+     * Resolves a format from its request parameter value, case-insensitively.
+     * 
+     * @param valor the requested format (json, ndjson or csv)
+     * @return the matching format
+     * @throws BusinessException if the format is not supported
+     */
+    public static FormatoReporte desde(String valor) {
+        for (FormatoReporte formato : values()) {
+            if (formato.name().equalsIgnoreCase(valor)) {
+                return formato;
+            }
+        }
+        throw new BusinessException("Formato de reporte no soportado: " + valor);
+    }
+}
@@ -0,0 +1,33 @@
+package com.bank.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeneracionExtractosDTO {
+    
+    public static final String EN_CURSO = "EN_CURSO";
+    public static final String COMPLETADA = "COMPLETADA";
+    public static final String CON_ERRORES = "CON_ERRORES";
+    public static final String INTERRUMPIDA = "INTERRUMPIDA";
+    
+    private String id;
+    private String estado;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+    private String formato;
+    private String directorio;
+    private int hilos;
+    private int totalClientes;
+    private long generados;
+    private long omitidos;
+    private long fallidos;
+    private LocalDateTime iniciada;
+    private LocalDateTime finalizada;
+    private double clientesPorSegundo;
+}
@@ -0,0 +1,21 @@
+package com.bank.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * First point where the ledger of an account stops matching its hash chain
+ * or its running balance. movimientoId is null when the problem is the
+ * account's chain tail rather than a specific movement.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InconsistenciaLedgerDTO {
+    
+    private Long cuentaId;
+    private String numeroCuenta;
+    private Long movimientoId;
+    private String motivo;
+}
@@ -0,0 +1,19 @@
+package com.bank.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovimientoBatchResultadoDTO {
+    
+    public static final String REGISTRADO = "REGISTRADO";
+    public static final String RECHAZADO = "RECHAZADO";
+    
+    private int indice;
+    private String estado;
+    private MovimientoDTO movimiento;
+    private String error;
+}
@@ -1,7 +1,9 @@
 package com.bank.app.dto;
 
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,14 +16,19 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class MovimientoDTO {
     
+    /** Length of movimientos.tipo_movimiento. */
+    public static final int LONGITUD_TIPO = 50;
+    
     private Long id;
     
     private LocalDateTime fecha;
     
     @NotBlank(message = "El tipo de movimiento es obligatorio")
+    @Size(max = LONGITUD_TIPO, message = "El tipo de movimiento admite hasta " + LONGITUD_TIPO + " caracteres")
     private String tipoMovimiento;
     
     @NotNull(message = "El valor es obligatorio")
+    @Digits(integer = 8, fraction = 2, message = "El valor admite hasta 8 enteros y 2 decimales")
     private BigDecimal valor;
     
     private BigDecimal saldo;
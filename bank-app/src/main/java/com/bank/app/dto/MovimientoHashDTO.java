@@ -0,0 +1,17 @@
+package com.bank.app.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a movement covered by the ledger hash, read by the verification job.
+ */
+public record MovimientoHashDTO(
+        Long id,
+        LocalDateTime fecha,
+        String tipoMovimiento,
+        BigDecimal valor,
+        BigDecimal saldo,
+        Long reversoDe,
+        String hash) {
+}
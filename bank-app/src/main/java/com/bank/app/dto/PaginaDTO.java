@@ -0,0 +1,22 @@
+package com.bank.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ * The next page is requested by sending {@code siguienteCursor} back as the
+ * {@code cursor} parameter; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+    
+    private List<T> contenido;
+    private int tamano;
+    private String siguienteCursor;
+}
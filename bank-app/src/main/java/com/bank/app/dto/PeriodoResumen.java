@@ -0,0 +1,40 @@
+package com.bank.app.dto;
+
+import com.bank.app.exception.BusinessException;
+
+import java.time.LocalDate;
+
+/**
+ * Grouping periods supported by the summary report.
+ */
+public enum PeriodoResumen {
+    
+    DIA,
+    MES;
+    
+    /**
+     * Returns the first day of the period that contains the given day.
+     * 
+     * @param fecha any day of the period
+     * @return the day that identifies the period
+     */
+    public LocalDate inicio(LocalDate fecha) {
+        return this == MES ? fecha.withDayOfMonth(1) : fecha;
+    }
+    
+    /**
+     * Resolves a period from its request parameter value, case-insensitively.
+     * 
+     * @param valor the requested period (dia or mes)
+     * @return the matching period
+     * @throws BusinessException if the period is not supported
+     */
+    public static PeriodoResumen desde(String valor) {
+        for (PeriodoResumen periodo : values()) {
+            if (periodo.name().equalsIgnoreCase(valor)) {
+                return periodo;
+            }
+        }
+        throw new BusinessException("Periodo de resumen no soportado: " + valor);
+    }
+}
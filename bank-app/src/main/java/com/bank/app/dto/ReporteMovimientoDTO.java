@@ -1,23 +1,19 @@
 package com.bank.app.dto;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class ReporteMovimientoDTO {
-    
-    private LocalDateTime fecha;
-    private String cliente;
-    private String numeroCuenta;
-    private String tipo;
-    private BigDecimal saldoInicial;
-    private Boolean estado;
-    private BigDecimal movimiento;
-    private BigDecimal saldoDisponible;
+/**
+ * One report row, built directly by the report query. Immutable: rows are
+ * only read and serialized, so there are no setters or default constructor.
+ */
+public record ReporteMovimientoDTO(
+        LocalDateTime fecha,
+        String cliente,
+        String numeroCuenta,
+        String tipo,
+        BigDecimal saldoInicial,
+        Boolean estado,
+        BigDecimal movimiento,
+        BigDecimal saldoDisponible) {
 }
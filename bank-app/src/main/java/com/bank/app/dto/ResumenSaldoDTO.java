@@ -0,0 +1,23 @@
+package com.bank.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenSaldoDTO {
+    
+    private LocalDate periodo;
+    private String numeroCuenta;
+    private String tipoCuenta;
+    private BigDecimal saldoApertura;
+    private BigDecimal saldoCierre;
+    private BigDecimal totalCreditos;
+    private BigDecimal totalDebitos;
+    private Integer cantidadMovimientos;
+}
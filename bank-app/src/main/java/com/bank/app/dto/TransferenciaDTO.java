@@ -0,0 +1,28 @@
+package com.bank.app.dto;
+
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferenciaDTO {
+    
+    @NotBlank(message = "La cuenta de origen es obligatoria")
+    private String numeroCuentaOrigen;
+    
+    @NotBlank(message = "La cuenta de destino es obligatoria")
+    private String numeroCuentaDestino;
+    
+    @NotNull(message = "El valor es obligatorio")
+    @Positive(message = "El valor de la transferencia debe ser positivo")
+    @Digits(integer = 8, fraction = 2, message = "El valor admite hasta 8 enteros y 2 decimales")
+    private BigDecimal valor;
+}
@@ -0,0 +1,26 @@
+package com.bank.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferenciaResultadoDTO {
+    
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String COMPLETADA = "COMPLETADA";
+    public static final String RECHAZADA = "RECHAZADA";
+    public static final String FALLIDA = "FALLIDA";
+    
+    private String id;
+    private String estado;
+    private LocalDateTime solicitada;
+    private TransferenciaDTO transferencia;
+    private MovimientoDTO debito;
+    private MovimientoDTO credito;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package com.bank.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerificacionLedgerDTO {
+    
+    private int cuentasVerificadas;
+    private long movimientosVerificados;
+    private int hilos;
+    private long duracionMs;
+    private List<InconsistenciaLedgerDTO> inconsistencias;
+}
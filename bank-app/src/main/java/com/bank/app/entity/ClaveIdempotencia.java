@@ -0,0 +1,50 @@
+package com.bank.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency key of a posted movement. The row is inserted in the same
+ * transaction as the movement, so a key exists exactly when its movement was
+ * committed, and the primary key makes a second posting with the same key fail.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "claves_idempotencia", indexes = @Index(name = "idx_claves_idempotencia_creada", columnList = "creada_en"))
+public class ClaveIdempotencia implements Persistable<String> {
+    
+    @Id
+    @Column(length = 100)
+    private String clave;
+    
+    /** Cuenta, tipo y valor de la solicitud original. */
+    @Column(nullable = false)
+    private String huella;
+    
+    @Column(nullable = false)
+    private Long movimientoId;
+    
+    @Column(nullable = false)
+    private LocalDateTime creadaEn;
+    
+    @Override
+    public String getId() {
+        return clave;
+    }
+    
+    /**
+     * Keys are only ever inserted: always persist, never merge, so saving does
+     * not read the row first and a duplicate surfaces as a key violation.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
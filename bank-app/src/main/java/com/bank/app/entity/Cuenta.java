@@ -6,8 +6,10 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,7 +17,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "cuentas")
+@Table(name = "cuentas", indexes = @Index(name = "idx_cuentas_cliente", columnList = "cliente_id"))
 public class Cuenta {
     
     @Id
@@ -34,6 +36,32 @@ public class Cuenta {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal saldoInicial;
     
+    /**
+     * Saldo vigente de la cuenta, actualizado en la misma transacción que registra
+     * cada movimiento. Puede ser null en cuentas creadas antes de que existiera la
+     * columna; en ese caso se reconstruye desde el último movimiento.
+     */
+    @Column(precision = 10, scale = 2)
+    private BigDecimal saldoActual;
+    
+    /**
+     * Hash del último movimiento de la cuenta: el eslabón al que se encadena el
+     * siguiente movimiento sin tener que leer el historial.
+     */
+    @Column(length = 64)
+    private String hashUltimoMovimiento;
+    
+    /**
+     * Primer día que sigue en la tabla de movimientos: los meses anteriores están
+     * en el archivo en disco (ArchivoMovimientos). Null si nada se ha archivado.
+     */
+    private LocalDate archivadoHasta;
+    
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
     @NotNull(message = "El estado es obligatorio")
     @Column(nullable = false)
     private Boolean estado;
@@ -14,11 +14,20 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "movimientos")
+@Table(name = "movimientos", indexes = {
+        @Index(name = "idx_movimientos_cuenta_fecha_id", columnList = "cuenta_id, fecha DESC, id DESC"),
+        @Index(name = "idx_movimientos_fecha_id", columnList = "fecha DESC, id DESC"),
+        @Index(name = "idx_movimientos_reverso_de", columnList = "reverso_de")
+})
 public class Movimiento {
     
+    /**
+     * Único por la secuencia. En PostgreSQL la tabla está particionada por mes de
+     * {@code fecha} y la clave primaria es (id, fecha); ver V3__particiones_movimientos.sql.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimientos_seq")
+    @SequenceGenerator(name = "movimientos_seq", sequenceName = "movimientos_seq", allocationSize = 50)
     private Long id;
     
     @NotNull(message = "La fecha es obligatoria")
@@ -26,7 +35,7 @@ public class Movimiento {
     private LocalDateTime fecha;
     
     @NotBlank(message = "El tipo de movimiento es obligatorio")
-    @Column(nullable = false)
+    @Column(nullable = false, length = 50)
     private String tipoMovimiento;
     
     @NotNull(message = "El valor es obligatorio")
@@ -41,6 +50,20 @@ public class Movimiento {
     @JoinColumn(name = "cuenta_id", nullable = false)
     private Cuenta cuenta;
     
+    /**
+     * Id del movimiento que este reverso corrige; null en movimientos normales.
+     * Un movimiento se revierte a lo sumo una vez: se comprueba con la cuenta
+     * bloqueada, porque la tabla particionada no admite un UNIQUE sin la fecha.
+     */
+    private Long reversoDe;
+    
+    /**
+     * SHA-256 del movimiento encadenado con el hash del movimiento anterior de la
+     * misma cuenta. Null solo en movimientos anteriores al libro encadenado.
+     */
+    @Column(length = 64)
+    private String hash;
+    
     @PrePersist
     protected void onCreate() {
         if (fecha == null) {
@@ -0,0 +1,43 @@
+package com.bank.app.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Running total of the withdrawals of one account on one day.
+ * A new row is started the first time the account is debited on a given date,
+ * which is how the daily limit rolls over at the day boundary.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "retiros_diarios",
+       uniqueConstraints = @UniqueConstraint(name = "uk_retiros_diarios_cuenta_fecha", columnNames = {"cuenta_id", "fecha"}))
+public class RetiroDiario {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotNull(message = "La fecha es obligatoria")
+    @Column(nullable = false)
+    private LocalDate fecha;
+    
+    @NotNull(message = "El total es obligatorio")
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal total;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cuenta_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Cuenta cuenta;
+}
@@ -0,0 +1,59 @@
+package com.bank.app.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Daily snapshot of one account: balances at the start and end of the day
+ * and the totals of the movements posted that day. A row exists only for
+ * days with movements; it is maintained by the posting transaction, so
+ * summary statements read one row per day instead of every movement.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "saldos_diarios",
+       uniqueConstraints = @UniqueConstraint(name = "uk_saldos_diarios_cuenta_fecha", columnNames = {"cuenta_id", "fecha"}))
+public class SaldoDiario {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotNull(message = "La fecha es obligatoria")
+    @Column(nullable = false)
+    private LocalDate fecha;
+    
+    @NotNull(message = "El saldo de apertura es obligatorio")
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal saldoApertura;
+    
+    @NotNull(message = "El saldo de cierre es obligatorio")
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal saldoCierre;
+    
+    @NotNull(message = "El total de créditos es obligatorio")
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalCreditos;
+    
+    @NotNull(message = "El total de débitos es obligatorio")
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalDebitos;
+    
+    @Column(nullable = false)
+    private int cantidadMovimientos;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cuenta_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Cuenta cuenta;
+}
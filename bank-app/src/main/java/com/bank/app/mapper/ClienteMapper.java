@@ -0,0 +1,30 @@
+package com.bank.app.mapper;
+
+import com.bank.app.dto.ClienteDTO;
+import com.bank.app.entity.Cliente;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper(config = MapeoConfig.class)
+public interface ClienteMapper {
+    
+    /**
+     * The password is never exposed in responses.
+     */
+    @Mapping(target = "contrasena", ignore = true)
+    ClienteDTO toDTO(Cliente cliente);
+    
+    /**
+     * Maps into a list presized to the source, without an intermediate stream.
+     */
+    List<ClienteDTO> toDTOs(List<Cliente> clientes);
+    
+    /**
+     * The password is left empty: the service stores it encoded, never as received.
+     */
+    @Mapping(target = "contrasena", ignore = true)
+    @Mapping(target = "cuentas", ignore = true)
+    Cliente toEntity(ClienteDTO clienteDTO);
+}
@@ -0,0 +1,27 @@
+package com.bank.app.mapper;
+
+import com.bank.app.dto.CuentaDTO;
+import com.bank.app.entity.Cuenta;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapeoConfig.class)
+public interface CuentaMapper {
+    
+    @Mapping(target = "clienteId", source = "cliente.clienteId")
+    @Mapping(target = "clienteNombre", source = "cliente.nombre")
+    CuentaDTO toDTO(Cuenta cuenta);
+    
+    /**
+     * Balance, hash chain, archive watermark and version are maintained by the
+     * posting engine and the jobs, and the client is resolved by the service,
+     * so none of them come from the request.
+     */
+    @Mapping(target = "saldoActual", ignore = true)
+    @Mapping(target = "hashUltimoMovimiento", ignore = true)
+    @Mapping(target = "archivadoHasta", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "cliente", ignore = true)
+    @Mapping(target = "movimientos", ignore = true)
+    Cuenta toEntity(CuentaDTO cuentaDTO);
+}
@@ -0,0 +1,15 @@
+package com.bank.app.mapper;
+
+import org.mapstruct.MapperConfig;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * Shared settings of the generated mappers: Spring beans, and a compile
+ * error when a target property is neither mapped nor explicitly ignored, so
+ * a new field cannot be dropped silently.
+ */
+@MapperConfig(componentModel = MappingConstants.ComponentModel.SPRING,
+              unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface MapeoConfig {
+}
@@ -0,0 +1,13 @@
+package com.bank.app.mapper;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Movimiento;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MapeoConfig.class)
+public interface MovimientoMapper {
+    
+    @Mapping(target = "numeroCuenta", source = "cuenta.numeroCuenta")
+    MovimientoDTO toDTO(Movimiento movimiento);
+}
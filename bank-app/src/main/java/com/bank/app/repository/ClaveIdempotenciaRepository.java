@@ -0,0 +1,22 @@
+package com.bank.app.repository;
+
+import com.bank.app.entity.ClaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ClaveIdempotenciaRepository extends JpaRepository<ClaveIdempotencia, String> {
+    
+    @Modifying
+    @Query("DELETE FROM ClaveIdempotencia c WHERE c.creadaEn < :limite")
+    int deleteByCreadaEnBefore(@Param("limite") LocalDateTime limite);
+    
+    @Modifying
+    @Query("DELETE FROM ClaveIdempotencia c WHERE c.clave = :clave AND c.creadaEn < :limite")
+    int deleteVencida(@Param("clave") String clave, @Param("limite") LocalDateTime limite);
+}
@@ -1,13 +1,25 @@
 package com.bank.app.repository;
 
 import com.bank.app.entity.Cliente;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     Optional<Cliente> findByIdentificacion(String identificacion);
     boolean existsByIdentificacion(String identificacion);
+    List<Cliente> findByClienteIdGreaterThanOrderByClienteIdAsc(Long clienteId, Limit limit);
+    
+    @Query("SELECT c.clienteId FROM Cliente c ORDER BY c.clienteId")
+    List<Long> findAllIds();
+    
+    @Query("SELECT c.identificacion FROM Cliente c WHERE c.identificacion IN :identificaciones")
+    List<String> findIdentificacionesExistentes(@Param("identificaciones") Collection<String> identificaciones);
 }
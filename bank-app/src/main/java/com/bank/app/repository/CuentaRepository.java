@@ -1,15 +1,83 @@
 package com.bank.app.repository;
 
+import com.bank.app.config.CacheConfig;
+import com.bank.app.dto.CuentaArchivadaDTO;
+import com.bank.app.dto.CuentaDTO;
 import com.bank.app.entity.Cuenta;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CuentaRepository extends JpaRepository<Cuenta, Long> {
     Optional<Cuenta> findByNumeroCuenta(String numeroCuenta);
     List<Cuenta> findByClienteClienteId(Long clienteId);
     boolean existsByNumeroCuenta(String numeroCuenta);
+    
+    String CUENTA_DTO = "SELECT new com.bank.app.dto.CuentaDTO(" +
+            "c.id, c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado, cl.clienteId, cl.nombre) " +
+            "FROM Cuenta c JOIN c.cliente cl ";
+    
+    @Query(CUENTA_DTO + "ORDER BY c.id")
+    List<CuentaDTO> findAllAsDTO();
+    
+    /**
+     * Streams every account from the cursor. Must be consumed inside a
+     * transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(CUENTA_DTO + "ORDER BY c.id")
+    Stream<CuentaDTO> streamAllAsDTO();
+    
+    @Query(CUENTA_DTO + "WHERE c.id = :id")
+    Optional<CuentaDTO> findDTOById(@Param("id") Long id);
+    
+    @Query(CUENTA_DTO + "WHERE c.numeroCuenta = :numeroCuenta")
+    Optional<CuentaDTO> findDTOByNumeroCuenta(@Param("numeroCuenta") String numeroCuenta);
+    
+    @Query(CUENTA_DTO + "WHERE cl.clienteId = :clienteId ORDER BY c.id")
+    List<CuentaDTO> findDTOByClienteId(@Param("clienteId") Long clienteId);
+    
+    @Query(CUENTA_DTO + "WHERE c.id > :despuesDe ORDER BY c.id")
+    List<CuentaDTO> findPaginaDTO(@Param("despuesDe") Long despuesDe, Limit limit);
+    
+    @Query("SELECT c.id FROM Cuenta c ORDER BY c.id")
+    List<Long> findAllIds();
+    
+    /**
+     * Accounts of a client with archived months after the given day, that is,
+     * whose archive covers part of a report range starting that day.
+     */
+    @Query("SELECT new com.bank.app.dto.CuentaArchivadaDTO(" +
+           "c.id, cl.nombre, c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado, c.archivadoHasta) " +
+           "FROM Cuenta c JOIN c.cliente cl " +
+           "WHERE cl.clienteId = :clienteId AND c.archivadoHasta > :desde ORDER BY c.id")
+    List<CuentaArchivadaDTO> findArchivadasByCliente(@Param("clienteId") Long clienteId,
+                                                     @Param("desde") LocalDate desde);
+    
+    /**
+     * Resolves an account number to its id. Cached: the mapping never changes
+     * while the account exists, and posting always re-reads the account row
+     * under lock, so the cache cannot hide a change of estado or saldo.
+     */
+    @Cacheable(cacheNames = CacheConfig.CUENTA_ID_POR_NUMERO, key = "#p0", unless = "#result == null")
+    @Query("SELECT c.id FROM Cuenta c WHERE c.numeroCuenta = :numeroCuenta")
+    Optional<Long> findIdByNumeroCuenta(@Param("numeroCuenta") String numeroCuenta);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cuenta c WHERE c.id = :id")
+    Optional<Cuenta> findByIdForUpdate(@Param("id") Long id);
 }
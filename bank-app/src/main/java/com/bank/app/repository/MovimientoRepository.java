@@ -1,33 +1,168 @@
 package com.bank.app.repository;
 
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.dto.MovimientoHashDTO;
+import com.bank.app.dto.ReporteMovimientoDTO;
 import com.bank.app.entity.Movimiento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface MovimientoRepository extends JpaRepository<Movimiento, Long> {
+public interface MovimientoRepository extends JpaRepository<Movimiento, Long>, MovimientoRepositoryCustom {
+    
+    String MOVIMIENTO_DTO = "SELECT new com.bank.app.dto.MovimientoDTO(" +
+            "m.id, m.fecha, m.tipoMovimiento, m.valor, m.saldo, c.numeroCuenta) " +
+            "FROM Movimiento m JOIN m.cuenta c ";
+    
+    String REPORTE_DTO = "SELECT new com.bank.app.dto.ReporteMovimientoDTO(" +
+            "m.fecha, cl.nombre, c.numeroCuenta, c.tipoCuenta, c.saldoInicial, c.estado, m.valor, m.saldo) " +
+            "FROM Movimiento m JOIN m.cuenta c JOIN c.cliente cl " +
+            "WHERE cl.clienteId = :clienteId " +
+            "AND m.fecha BETWEEN :fechaInicio AND :fechaFin " +
+            "ORDER BY m.fecha DESC, m.id DESC";
     
     List<Movimiento> findByCuentaIdOrderByFechaDesc(Long cuentaId);
     
-    @Query("SELECT m FROM Movimiento m " +
-           "WHERE m.cuenta.cliente.clienteId = :clienteId " +
-           "AND m.fecha BETWEEN :fechaInicio AND :fechaFin " +
-           "ORDER BY m.fecha DESC")
-    List<Movimiento> findByClienteAndFechaBetween(
+    Optional<Movimiento> findFirstByCuentaIdOrderByFechaDescIdDesc(Long cuentaId);
+    
+    @Query(MOVIMIENTO_DTO + "ORDER BY m.id")
+    List<MovimientoDTO> findAllAsDTO();
+    
+    /**
+     * Streams every movement from the cursor. Must be consumed inside a
+     * transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(MOVIMIENTO_DTO + "ORDER BY m.id")
+    Stream<MovimientoDTO> streamAllAsDTO();
+    
+    @Query(MOVIMIENTO_DTO + "WHERE m.id = :id")
+    Optional<MovimientoDTO> findDTOById(@Param("id") Long id);
+    
+    @Query(MOVIMIENTO_DTO + "WHERE c.id = :cuentaId ORDER BY m.fecha DESC")
+    List<MovimientoDTO> findDTOByCuentaId(@Param("cuentaId") Long cuentaId);
+    
+    /**
+     * Report rows of a client, built by a single query that joins the account
+     * and the client, so the number of statements does not grow with the rows.
+     */
+    @Query(REPORTE_DTO)
+    List<ReporteMovimientoDTO> findReporteByCliente(
+        @Param("clienteId") Long clienteId,
+        @Param("fechaInicio") LocalDateTime fechaInicio,
+        @Param("fechaFin") LocalDateTime fechaFin
+    );
+    
+    /**
+     * Streams the report rows of a client straight from the cursor.
+     * Rows are built as DTOs by the query, so nothing is kept in the
+     * persistence context and memory stays flat for any date range.
+     * Must be consumed inside a transaction and closed by the caller.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(REPORTE_DTO)
+    Stream<ReporteMovimientoDTO> streamReporteByCliente(
         @Param("clienteId") Long clienteId,
         @Param("fechaInicio") LocalDateTime fechaInicio,
         @Param("fechaFin") LocalDateTime fechaFin
     );
     
+    /**
+     * Movements of an account in posting order within [desde, hasta).
+     */
+    @Query(MOVIMIENTO_DTO + "WHERE c.id = :cuentaId AND m.fecha >= :desde AND m.fecha < :hasta " +
+           "ORDER BY m.fecha, m.id")
+    List<MovimientoDTO> findDTOByCuentaIdBetween(
+        @Param("cuentaId") Long cuentaId,
+        @Param("desde") LocalDateTime desde,
+        @Param("hasta") LocalDateTime hasta
+    );
+    
+    /**
+     * Streams the whole history of an account in posting order.
+     * Must be consumed inside a transaction and closed by the caller.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(MOVIMIENTO_DTO + "WHERE c.id = :cuentaId ORDER BY m.fecha, m.id")
+    Stream<MovimientoDTO> streamDTOByCuentaId(@Param("cuentaId") Long cuentaId);
+    
+    /**
+     * Streams the hashed fields of an account's movements in chain order.
+     * Must be consumed inside a transaction and closed by the caller.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.bank.app.dto.MovimientoHashDTO(" +
+           "m.id, m.fecha, m.tipoMovimiento, m.valor, m.saldo, m.reversoDe, m.hash) " +
+           "FROM Movimiento m WHERE m.cuenta.id = :cuentaId ORDER BY m.fecha, m.id")
+    Stream<MovimientoHashDTO> streamCadenaByCuentaId(@Param("cuentaId") Long cuentaId);
+    
+    /**
+     * Streams the movements of an account before a date in chain order, for
+     * the archive job. Must be consumed inside a transaction and closed by the caller.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.bank.app.dto.MovimientoHashDTO(" +
+           "m.id, m.fecha, m.tipoMovimiento, m.valor, m.saldo, m.reversoDe, m.hash) " +
+           "FROM Movimiento m WHERE m.cuenta.id = :cuentaId AND m.fecha < :hasta ORDER BY m.fecha, m.id")
+    Stream<MovimientoHashDTO> streamCadenaByCuentaIdBefore(@Param("cuentaId") Long cuentaId,
+                                                           @Param("hasta") LocalDateTime hasta);
+    
+    @Modifying
+    @Query("DELETE FROM Movimiento m WHERE m.cuenta.id = :cuentaId AND m.fecha < :hasta")
+    int deleteByCuentaIdBefore(@Param("cuentaId") Long cuentaId, @Param("hasta") LocalDateTime hasta);
+    
+    /**
+     * First movements of an account in chain order, for sealing the chain a
+     * block at a time; {@link #findSiguientesEnCadena} reads the next blocks.
+     */
+    List<Movimiento> findByCuentaIdOrderByFechaAscIdAsc(Long cuentaId, Limit limite);
+    
+    /**
+     * Movements of an account that follow (fecha, id) in chain order.
+     */
+    @Query("SELECT m FROM Movimiento m WHERE m.cuenta.id = :cuentaId " +
+           "AND (m.fecha > :fecha OR (m.fecha = :fecha AND m.id > :id)) ORDER BY m.fecha, m.id")
+    List<Movimiento> findSiguientesEnCadena(@Param("cuentaId") Long cuentaId,
+                                            @Param("fecha") LocalDateTime fecha,
+                                            @Param("id") Long id,
+                                            Limit limite);
+    
+    boolean existsByCuentaIdAndHashIsNull(Long cuentaId);
+    
+    /**
+     * Whether the movement already has a reversal. A reversal is always posted
+     * after its original, so the lower bound on the date lets the planner skip
+     * the monthly partitions before the original.
+     */
+    boolean existsByReversoDeAndFechaGreaterThanEqual(Long reversoDe, LocalDateTime fecha);
+    
+    /**
+     * Withdrawals of an account in [desde, hasta) that count towards the daily
+     * limit, with the same rule as posting: a reversal never counts (reversing
+     * a deposit is not a withdrawal) and a reversed withdrawal no longer
+     * counts on the day it was withdrawn.
+     */
     @Query("SELECT COALESCE(SUM(ABS(m.valor)), 0) FROM Movimiento m " +
            "WHERE m.cuenta.id = :cuentaId " +
-           "AND m.valor < 0 " +
-           "AND CAST(m.fecha AS date) = CURRENT_DATE")
-    BigDecimal sumWithdrawalsToday(@Param("cuentaId") Long cuentaId);
+           "AND m.valor < 0 AND m.reversoDe IS NULL " +
+           "AND m.fecha >= :desde AND m.fecha < :hasta " +
+           "AND NOT EXISTS (SELECT r.id FROM Movimiento r WHERE r.reversoDe = m.id AND r.fecha >= m.fecha)")
+    BigDecimal sumWithdrawalsBetween(
+        @Param("cuentaId") Long cuentaId,
+        @Param("desde") LocalDateTime desde,
+        @Param("hasta") LocalDateTime hasta
+    );
 }
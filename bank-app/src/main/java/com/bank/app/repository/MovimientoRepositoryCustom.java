@@ -0,0 +1,29 @@
+package com.bank.app.repository;
+
+import com.bank.app.dto.MovimientoDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Queries on movements that are built at runtime.
+ */
+public interface MovimientoRepositoryCustom {
+    
+    /**
+     * Reads one keyset page of movements, newest first (fecha, id descending).
+     * Only the filters that are present are added to the query, so each
+     * combination gets a plan that can use the matching index.
+     * 
+     * @param cuentaId account filter, may be null
+     * @param desde lower bound of fecha (inclusive), may be null
+     * @param hasta upper bound of fecha (inclusive), may be null
+     * @param tipoMovimiento movement type filter, may be null
+     * @param fechaCursor fecha of the last row of the previous page, null for the first page
+     * @param idCursor id of the last row of the previous page, null for the first page
+     * @param limite maximum number of rows to return
+     * @return the rows of the page
+     */
+    List<MovimientoDTO> findPagina(Long cuentaId, LocalDateTime desde, LocalDateTime hasta, String tipoMovimiento,
+                                   LocalDateTime fechaCursor, Long idCursor, int limite);
+}
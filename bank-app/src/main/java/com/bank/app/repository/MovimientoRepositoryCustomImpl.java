@@ -0,0 +1,52 @@
+package com.bank.app.repository;
+
+import com.bank.app.dto.MovimientoDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class MovimientoRepositoryCustomImpl implements MovimientoRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<MovimientoDTO> findPagina(Long cuentaId, LocalDateTime desde, LocalDateTime hasta, String tipoMovimiento,
+                                          LocalDateTime fechaCursor, Long idCursor, int limite) {
+        StringBuilder jpql = new StringBuilder(MovimientoRepository.MOVIMIENTO_DTO).append("WHERE 1 = 1");
+        Map<String, Object> parametros = new HashMap<>();
+        
+        if (cuentaId != null) {
+            jpql.append(" AND c.id = :cuentaId");
+            parametros.put("cuentaId", cuentaId);
+        }
+        if (desde != null) {
+            jpql.append(" AND m.fecha >= :desde");
+            parametros.put("desde", desde);
+        }
+        if (hasta != null) {
+            jpql.append(" AND m.fecha <= :hasta");
+            parametros.put("hasta", hasta);
+        }
+        if (tipoMovimiento != null) {
+            jpql.append(" AND m.tipoMovimiento = :tipoMovimiento");
+            parametros.put("tipoMovimiento", tipoMovimiento);
+        }
+        if (fechaCursor != null && idCursor != null) {
+            // Continúa justo después de la última fila entregada
+            jpql.append(" AND (m.fecha < :fechaCursor OR (m.fecha = :fechaCursor AND m.id < :idCursor))");
+            parametros.put("fechaCursor", fechaCursor);
+            parametros.put("idCursor", idCursor);
+        }
+        jpql.append(" ORDER BY m.fecha DESC, m.id DESC");
+        
+        TypedQuery<MovimientoDTO> query = entityManager.createQuery(jpql.toString(), MovimientoDTO.class);
+        parametros.forEach(query::setParameter);
+        return query.setMaxResults(limite).getResultList();
+    }
+}
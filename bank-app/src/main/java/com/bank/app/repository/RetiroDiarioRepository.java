@@ -0,0 +1,21 @@
+package com.bank.app.repository;
+
+import com.bank.app.entity.RetiroDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface RetiroDiarioRepository extends JpaRepository<RetiroDiario, Long> {
+    
+    Optional<RetiroDiario> findByCuentaIdAndFecha(Long cuentaId, LocalDate fecha);
+    
+    @Modifying
+    @Query("DELETE FROM RetiroDiario r WHERE r.fecha < :fecha")
+    int deleteByFechaBefore(@Param("fecha") LocalDate fecha);
+}
@@ -0,0 +1,47 @@
+package com.bank.app.repository;
+
+import com.bank.app.dto.ResumenSaldoDTO;
+import com.bank.app.entity.SaldoDiario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SaldoDiarioRepository extends JpaRepository<SaldoDiario, Long> {
+    
+    /**
+     * The posting transaction keeps the snapshots it already read, so the
+     * lookup of another day or account does not flush the pending updates.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    Optional<SaldoDiario> findByCuentaIdAndFecha(Long cuentaId, LocalDate fecha);
+    
+    /**
+     * Daily rows of every account of a client, grouped by account and in date order.
+     */
+    @Query("SELECT new com.bank.app.dto.ResumenSaldoDTO(s.fecha, c.numeroCuenta, c.tipoCuenta, "
+            + "s.saldoApertura, s.saldoCierre, s.totalCreditos, s.totalDebitos, s.cantidadMovimientos) "
+            + "FROM SaldoDiario s JOIN s.cuenta c "
+            + "WHERE c.cliente.clienteId = :clienteId AND s.fecha BETWEEN :desde AND :hasta "
+            + "ORDER BY c.numeroCuenta, s.fecha")
+    List<ResumenSaldoDTO> findResumenDiario(@Param("clienteId") Long clienteId,
+                                            @Param("desde") LocalDate desde,
+                                            @Param("hasta") LocalDate hasta);
+    
+    @Modifying
+    @Query("DELETE FROM SaldoDiario s WHERE s.cuenta.id = :cuentaId")
+    int deleteByCuentaId(@Param("cuentaId") Long cuentaId);
+    
+    @Modifying
+    @Query("DELETE FROM SaldoDiario s WHERE s.cuenta.id = :cuentaId AND s.fecha >= :desde")
+    int deleteByCuentaIdFrom(@Param("cuentaId") Long cuentaId, @Param("desde") LocalDate desde);
+}
@@ -0,0 +1,312 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.exception.ServiceUnavailableException;
+import com.bank.app.mapper.MovimientoMapper;
+import com.bank.app.repository.MovimientoRepository;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Group commit for {@code POST /movimientos}.
+ * Instead of one transaction per post, each committer thread takes the posts
+ * queued meanwhile, up to {@code app.posting.grupo.tamano}, locks their
+ * accounts once, applies them in arrival order with
+ * {@link MovimientoService#registrar} (so two posts to one account see each
+ * other's balance and daily withdrawals), inserts the accepted ones with one
+ * JDBC batch and commits. Every caller is answered after that shared commit,
+ * so under concurrency many posts share one round-trip and one log flush.
+ *
+ * A committer only waits for more posts, at most {@code app.posting.grupo.espera},
+ * when its previous group had more than one: a lone poster is never delayed.
+ * A post to a missing account is answered 404 before the group locks its
+ * accounts. A group that fails as a whole (an account deleted meanwhile, a
+ * lock timeout) is retried one post at a time, so a post only ever fails for
+ * its own reasons.
+ * With {@code app.posting.grupo.tamano=1} every post runs its own transaction.
+ *
+ * A caller waits at most {@code app.posting.grupo.espera-maxima}. A post that
+ * no committer took by then is dropped and answered 503; one already in a
+ * group is also answered 503, and its outcome is known only from the ledger.
+ */
+@Service
+@Slf4j
+public class AgrupadorMovimientos {
+    
+    private final MovimientoService movimientoService;
+    private final MovimientoRepository movimientoRepository;
+    private final MovimientoMapper movimientoMapper;
+    private final MetricasBanco metricas;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamano;
+    private final long esperaNanos;
+    private final long esperaMaximaMillis;
+    private final int cantidadHilos;
+    private final ArrayBlockingQueue<Pendiente> porRegistrar;
+    private final List<Thread> hilos = new ArrayList<>();
+    private volatile boolean detenido;
+    
+    public AgrupadorMovimientos(MovimientoService movimientoService,
+                                MovimientoRepository movimientoRepository,
+                                MovimientoMapper movimientoMapper,
+                                MetricasBanco metricas,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.posting.grupo.tamano:64}") int tamano,
+                                @Value("${app.posting.grupo.espera:2ms}") Duration espera,
+                                @Value("${app.posting.grupo.hilos:4}") int hilos,
+                                @Value("${app.posting.grupo.cola:10000}") int capacidadCola,
+                                @Value("${app.posting.grupo.espera-maxima:30s}") Duration esperaMaxima) {
+        this.movimientoService = movimientoService;
+        this.movimientoRepository = movimientoRepository;
+        this.movimientoMapper = movimientoMapper;
+        this.metricas = metricas;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamano = tamano;
+        this.esperaNanos = espera.toNanos();
+        this.esperaMaximaMillis = esperaMaxima.toMillis();
+        this.cantidadHilos = hilos;
+        this.porRegistrar = new ArrayBlockingQueue<>(capacidadCola);
+    }
+    
+    /**
+     * Starts the committer threads once the bean is fully built.
+     * Until then, and with {@code app.posting.grupo.tamano=1}, posts run on
+     * the caller's thread.
+     */
+    @PostConstruct
+    public void iniciar() {
+        if (tamano > 1) {
+            for (int i = 0; i < cantidadHilos; i++) {
+                hilos.add(Thread.ofPlatform().name("grupo-movimientos-" + i).daemon(true).start(this::agrupar));
+            }
+        }
+    }
+    
+    /**
+     * Posts a movement and waits for the commit of the group it joined.
+     *
+     * @param movimientoDTO the movement
+     * @return the posted movement
+     * @throws BusinessException if a business rule rejects the movement
+     * @throws ResourceNotFoundException if the account does not exist
+     * @throws ServiceUnavailableException if the queue is full or the group did not
+     *         commit within {@code app.posting.grupo.espera-maxima}
+     */
+    public MovimientoDTO registrar(MovimientoDTO movimientoDTO) {
+        if (hilos.isEmpty()) {
+            return movimientoService.save(movimientoDTO);
+        }
+        Pendiente pendiente = new Pendiente(movimientoDTO, metricas.iniciarRegistro());
+        if (detenido || !porRegistrar.offer(pendiente)) {
+            throw new ServiceUnavailableException("Demasiados movimientos en proceso, intente nuevamente");
+        }
+        try {
+            return pendiente.resultado.get(esperaMaximaMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw abandonar(pendiente);
+        } catch (TimeoutException ex) {
+            throw abandonar(pendiente);
+        }
+    }
+    
+    /**
+     * Gives up waiting for a post. If no committer took it yet it is never
+     * posted; otherwise its group decides and the caller cannot know the outcome.
+     */
+    private ServiceUnavailableException abandonar(Pendiente pendiente) {
+        if (pendiente.tomado.compareAndSet(false, true)) {
+            metricas.finalizarRegistro(pendiente.muestra, false);
+            return new ServiceUnavailableException("Demasiados movimientos en proceso, intente nuevamente");
+        }
+        log.warn("Movement post timed out inside a group commit; its outcome is unknown to the caller");
+        return new ServiceUnavailableException(
+                "El movimiento no se confirmó a tiempo; consulte los movimientos de la cuenta antes de reintentar");
+    }
+    
+    private void agrupar() {
+        List<Pendiente> grupo = new ArrayList<>(tamano);
+        int anterior = 1;
+        while (true) {
+            try {
+                Pendiente primero = porRegistrar.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    if (detenido) {
+                        return;
+                    }
+                    continue;
+                }
+                grupo.add(primero);
+                porRegistrar.drainTo(grupo, tamano - 1);
+                // Solo se espera cuando hay concurrencia: un cliente solo nunca paga la ventana
+                if (anterior > 1 && esperaNanos > 0) {
+                    long limite = System.nanoTime() + esperaNanos;
+                    while (grupo.size() < tamano) {
+                        Pendiente siguiente = porRegistrar.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (siguiente == null) {
+                            break;
+                        }
+                        grupo.add(siguiente);
+                        porRegistrar.drainTo(grupo, tamano - grupo.size());
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                grupo.forEach(p -> p.resultado.completeExceptionally(
+                        new ServiceUnavailableException("Demasiados movimientos en proceso, intente nuevamente")));
+                return;
+            }
+            
+            // Los que el llamador abandonó por tiempo ya no se registran
+            grupo.removeIf(p -> !p.tomado.compareAndSet(false, true));
+            if (grupo.isEmpty()) {
+                continue;
+            }
+            anterior = grupo.size();
+            metricas.grupo(grupo.size());
+            try {
+                try {
+                    confirmar(grupo);
+                } catch (RuntimeException ex) {
+                    log.warn("Movement group of {} failed as a whole, posting one by one: {}",
+                            grupo.size(), ex.getMessage());
+                    grupo.forEach(this::registrarSolo);
+                }
+            } catch (Throwable ex) {
+                // Un Error no termina el hilo: otros grupos siguen llegando a esta cola
+                log.error("Movement group of {} failed unexpectedly", grupo.size(), ex);
+            } finally {
+                // Ningún cliente del grupo queda esperando, sea cual sea el fallo
+                ServiceUnavailableException error =
+                        new ServiceUnavailableException("No se pudo registrar el movimiento, intente nuevamente");
+                grupo.forEach(p -> p.resultado.completeExceptionally(error));
+                grupo.clear();
+            }
+        }
+    }
+    
+    /**
+     * Applies and inserts a group in one transaction, then answers every post.
+     */
+    private void confirmar(List<Pendiente> grupo) {
+        Map<Pendiente, Object> resultados = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> numeros = new ArrayList<>(new LinkedHashSet<>(
+                    grupo.stream().map(p -> p.movimiento.getNumeroCuenta()).toList()));
+            // Una cuenta inexistente rechaza solo sus movimientos; bloquearCuentas fallaría el grupo
+            Set<String> existentes = movimientoService.cuentasExistentes(numeros);
+            numeros.retainAll(existentes);
+            // Todas las cuentas del grupo se bloquean juntas, en orden ascendente
+            List<Cuenta> cuentas = movimientoService.bloquearCuentas(numeros);
+            Map<String, Cuenta> porNumero = new HashMap<>();
+            for (int i = 0; i < numeros.size(); i++) {
+                porNumero.put(numeros.get(i), cuentas.get(i));
+            }
+            
+            List<Movimiento> aceptados = new ArrayList<>(grupo.size());
+            List<Pendiente> pendientesAceptados = new ArrayList<>(grupo.size());
+            for (Pendiente pendiente : grupo) {
+                MovimientoDTO dto = pendiente.movimiento;
+                if (!existentes.contains(dto.getNumeroCuenta())) {
+                    resultados.put(pendiente, new ResourceNotFoundException(
+                            "Cuenta no encontrada con número: " + dto.getNumeroCuenta()));
+                    continue;
+                }
+                try {
+                    aceptados.add(movimientoService.registrar(porNumero.get(dto.getNumeroCuenta()),
+                            dto.getTipoMovimiento(), dto.getValor()));
+                    pendientesAceptados.add(pendiente);
+                } catch (BusinessException ex) {
+                    resultados.put(pendiente, ex);
+                }
+            }
+            
+            // Los ids vienen de la secuencia, así que los INSERT se envían en lotes al confirmar
+            List<Movimiento> guardados = movimientoRepository.saveAll(aceptados);
+            for (int k = 0; k < guardados.size(); k++) {
+                resultados.put(pendientesAceptados.get(k), guardados.get(k));
+            }
+        });
+        
+        // Solo tras el commit compartido se responde a cada cliente
+        for (Pendiente pendiente : grupo) {
+            Object resultado = resultados.get(pendiente);
+            if (resultado instanceof Movimiento movimiento) {
+                metricas.finalizarRegistro(pendiente.muestra, true);
+                pendiente.resultado.complete(movimientoMapper.toDTO(movimiento));
+            } else {
+                metricas.finalizarRegistro(pendiente.muestra, false);
+                pendiente.resultado.completeExceptionally((RuntimeException) resultado);
+            }
+        }
+    }
+    
+    /** Posts on its own transaction; {@link MovimientoService#save} records the post metrics. */
+    private void registrarSolo(Pendiente pendiente) {
+        try {
+            pendiente.resultado.complete(movimientoService.save(pendiente.movimiento));
+        } catch (RuntimeException ex) {
+            pendiente.resultado.completeExceptionally(ex);
+        }
+    }
+    
+    /**
+     * Stops taking posts; the committers finish what is already queued.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        detenido = true;
+        for (Thread hilo : hilos) {
+            hilo.join(Duration.ofSeconds(30));
+        }
+        // Lo encolado mientras los hilos terminaban no queda esperando para siempre
+        List<Pendiente> restantes = new ArrayList<>();
+        porRegistrar.drainTo(restantes);
+        restantes.forEach(p -> p.resultado.completeExceptionally(
+                new ServiceUnavailableException("El servicio se está deteniendo, intente nuevamente")));
+    }
+    
+    /** A post waiting for its group's commit. */
+    private static final class Pendiente {
+        
+        private final MovimientoDTO movimiento;
+        private final Timer.Sample muestra;
+        private final CompletableFuture<MovimientoDTO> resultado = new CompletableFuture<>();
+        // Lo marca el primero entre el hilo que lo agrupa y el llamador que deja de esperar
+        private final AtomicBoolean tomado = new AtomicBoolean();
+        
+        private Pendiente(MovimientoDTO movimiento, Timer.Sample muestra) {
+            this.movimiento = movimiento;
+            this.muestra = muestra;
+        }
+    }
+}
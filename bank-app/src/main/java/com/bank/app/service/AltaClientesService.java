@@ -0,0 +1,188 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.ClienteDTO;
+import com.bank.app.dto.ClienteImportacionResultadoDTO;
+import com.bank.app.exception.BusinessException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Client onboarding: creation, password changes and bulk import.
+ * Passwords are hashed on {@link CodificadorContrasenas} and only then is the
+ * client written, so no request thread or database connection waits on BCrypt.
+ * Cheap checks (validation, duplicate identification) run first, so a request
+ * that will be rejected never spends a hash.
+ */
+@Service
+@Slf4j
+public class AltaClientesService {
+    
+    private final ClienteService clienteService;
+    private final CodificadorContrasenas codificadorContrasenas;
+    private final Validator validator;
+    private final int chunkSize;
+    
+    public AltaClientesService(ClienteService clienteService,
+                               CodificadorContrasenas codificadorContrasenas,
+                               Validator validator,
+                               @Value("${app.batch.chunk-size:1000}") int chunkSize) {
+        this.clienteService = clienteService;
+        this.codificadorContrasenas = codificadorContrasenas;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * Creates a client once its password has been hashed.
+     *
+     * @param clienteDTO the client data with the raw password
+     * @return the saved client, completed on the hashing pool
+     * @throws BusinessException if the password is missing or the identification exists
+     */
+    public CompletableFuture<ClienteDTO> crear(ClienteDTO clienteDTO) {
+        if (!tieneContrasena(clienteDTO)) {
+            throw new BusinessException("La contraseña es obligatoria");
+        }
+        clienteService.verificarIdentificacionDisponible(clienteDTO.getIdentificacion());
+        
+        // El INSERT corre en el hilo que terminó el hash: es breve frente al hash
+        return codificadorContrasenas.codificar(clienteDTO.getContrasena())
+                .thenApply(codificada -> clienteService.save(clienteDTO, codificada));
+    }
+    
+    /**
+     * Updates a client; a new password, if any, is hashed first.
+     *
+     * @param id the client ID
+     * @param clienteDTO the updated data; an empty password keeps the current one
+     * @return the updated client
+     */
+    public CompletableFuture<ClienteDTO> actualizar(Long id, ClienteDTO clienteDTO) {
+        if (!tieneContrasena(clienteDTO)) {
+            return CompletableFuture.completedFuture(clienteService.update(id, clienteDTO, null));
+        }
+        return codificadorContrasenas.codificar(clienteDTO.getContrasena())
+                .thenApply(codificada -> clienteService.update(id, clienteDTO, codificada));
+    }
+    
+    /**
+     * Validates and creates a batch of clients.
+     * Rows are taken in chunks: the identifications of a chunk are checked
+     * with one query, the passwords of the valid rows are hashed in parallel
+     * on every hashing thread, and the chunk is inserted in one transaction.
+     * A rejected row never affects the other rows.
+     *
+     * @param clientes rows to create, with raw passwords
+     * @return one result per row, in request order
+     */
+    public List<ClienteImportacionResultadoDTO> importar(List<ClienteDTO> clientes) {
+        log.info("Importing {} clientes", clientes.size());
+        long inicio = System.nanoTime();
+        ClienteImportacionResultadoDTO[] resultados = new ClienteImportacionResultadoDTO[clientes.size()];
+        
+        List<Integer> validos = new ArrayList<>(clientes.size());
+        Set<String> vistas = new HashSet<>();
+        for (int i = 0; i < clientes.size(); i++) {
+            String error = validar(clientes.get(i));
+            if (error == null && !vistas.add(clientes.get(i).getIdentificacion())) {
+                error = "Identificación repetida en la importación: " + clientes.get(i).getIdentificacion();
+            }
+            if (error != null) {
+                resultados[i] = rechazado(i, error);
+            } else {
+                validos.add(i);
+            }
+        }
+        
+        for (int desde = 0; desde < validos.size(); desde += chunkSize) {
+            importarChunk(validos.subList(desde, Math.min(desde + chunkSize, validos.size())), clientes, resultados);
+        }
+        
+        long registrados = Arrays.stream(resultados)
+                .filter(r -> ClienteImportacionResultadoDTO.REGISTRADO.equals(r.getEstado()))
+                .count();
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("Cliente import finished: {} created, {} rejected in {} ms with {} hashing threads",
+                registrados, resultados.length - registrados, duracionMs, codificadorContrasenas.getHilos());
+        return Arrays.asList(resultados);
+    }
+    
+    private void importarChunk(List<Integer> indices, List<ClienteDTO> clientes,
+                               ClienteImportacionResultadoDTO[] resultados) {
+        Set<String> existentes = new HashSet<>(clienteService.identificacionesRegistradas(
+                indices.stream().map(i -> clientes.get(i).getIdentificacion()).toList()));
+        
+        List<Integer> nuevos = new ArrayList<>(indices.size());
+        for (Integer i : indices) {
+            String identificacion = clientes.get(i).getIdentificacion();
+            if (existentes.contains(identificacion)) {
+                resultados[i] = rechazado(i, "Ya existe un cliente con la identificación: " + identificacion);
+            } else {
+                nuevos.add(i);
+            }
+        }
+        if (nuevos.isEmpty()) {
+            return;
+        }
+        
+        List<ClienteDTO> dtos = nuevos.stream().map(clientes::get).toList();
+        List<String> codificadas = codificadorContrasenas.codificarTodas(
+                dtos.stream().map(ClienteDTO::getContrasena).toList());
+        
+        try {
+            List<ClienteDTO> guardados = clienteService.saveAll(dtos, codificadas);
+            for (int k = 0; k < guardados.size(); k++) {
+                int i = nuevos.get(k);
+                resultados[i] = new ClienteImportacionResultadoDTO(i, ClienteImportacionResultadoDTO.REGISTRADO,
+                        guardados.get(k), null);
+            }
+        } catch (DataIntegrityViolationException ex) {
+            // Otra petición registró alguna identificación del chunk: se reintenta fila por fila
+            log.warn("Cliente import chunk hit a concurrent duplicate, retrying row by row");
+            for (int k = 0; k < nuevos.size(); k++) {
+                int i = nuevos.get(k);
+                try {
+                    resultados[i] = new ClienteImportacionResultadoDTO(i, ClienteImportacionResultadoDTO.REGISTRADO,
+                            clienteService.save(dtos.get(k), codificadas.get(k)), null);
+                } catch (BusinessException | DataIntegrityViolationException fila) {
+                    resultados[i] = rechazado(i,
+                            "Ya existe un cliente con la identificación: " + dtos.get(k).getIdentificacion());
+                }
+            }
+        }
+    }
+    
+    private String validar(ClienteDTO dto) {
+        if (dto == null) {
+            return "Registro con formato inválido";
+        }
+        Set<ConstraintViolation<ClienteDTO>> violaciones = validator.validate(dto);
+        if (!violaciones.isEmpty()) {
+            return violaciones.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        return tieneContrasena(dto) ? null : "La contraseña es obligatoria";
+    }
+    
+    private boolean tieneContrasena(ClienteDTO dto) {
+        return dto.getContrasena() != null && !dto.getContrasena().trim().isEmpty();
+    }
+    
+    private ClienteImportacionResultadoDTO rechazado(int indice, String error) {
+        return new ClienteImportacionResultadoDTO(indice, ClienteImportacionResultadoDTO.RECHAZADO, null, error);
+    }
+}
@@ -0,0 +1,420 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.CuentaArchivadaDTO;
+import com.bank.app.dto.MovimientoHashDTO;
+import com.bank.app.dto.ReporteMovimientoDTO;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.service.SegmentoArchivo.Columna;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Moves cold movement history out of the database into compressed columnar
+ * files on local disk, one {@link SegmentoArchivo} per account and month
+ * ({@code app.archivo.directorio}/cuentaId/AAAA-MM.seg).
+ *
+ * The job archives whole months older than {@code app.archivo.horizonte}.
+ * Per account, the files are written and forced to disk first, together with
+ * the directory entries that name them; then, in one
+ * transaction under the account lock, the rows are deleted and
+ * {@code cuentas.archivado_hasta} is moved forward. Readers only trust files
+ * of months before that watermark, so files left by a run that failed before
+ * the commit are ignored and rewritten by the next run. The month of the
+ * latest movement of an account always stays in the table: the current
+ * balance is read from that movement.
+ *
+ * Reports merge the archived rows back transparently; ledger verification
+ * walks the archived chain before the rows in the table.
+ */
+@Service
+@Slf4j
+public class ArchivoMovimientos {
+    
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final String EXTENSION = ".seg";
+    
+    /** Report order: newest first, then highest id. */
+    private static final Comparator<Fila> ORDEN_REPORTE = Comparator
+            .comparing((Fila fila) -> fila.reporte().fecha())
+            .thenComparingLong(Fila::id)
+            .reversed();
+    
+    /** A report row and the id of its movement, used to break ties on the date. */
+    private record Fila(ReporteMovimientoDTO reporte, long id) {
+    }
+    
+    private final CuentaRepository cuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final CuentaLockManager cuentaLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directorio;
+    private final Duration horizonte;
+    
+    public ArchivoMovimientos(CuentaRepository cuentaRepository,
+                              MovimientoRepository movimientoRepository,
+                              CuentaLockManager cuentaLockManager,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.archivo.directorio:archivo}") Path directorio,
+                              @Value("${app.archivo.horizonte:90d}") Duration horizonte) {
+        this.cuentaRepository = cuentaRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.cuentaLockManager = cuentaLockManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.directorio = directorio;
+        this.horizonte = horizonte;
+    }
+    
+    /**
+     * Scheduled entry point for the archive job.
+     * Disabled unless {@code app.archivo.cron} is configured.
+     */
+    @Scheduled(cron = "${app.archivo.cron:-}")
+    public void archivoProgramado() {
+        archivar(YearMonth.from(LocalDate.now().minusDays(horizonte.toDays())).atDay(1));
+    }
+    
+    /**
+     * Archives the movements of every account dated before {@code corte}.
+     * Each account is archived in its own transaction, so postings to other
+     * accounts continue.
+     *
+     * @param corte first day kept in the table; the first day of a month
+     * @return number of movements archived
+     */
+    public int archivar(LocalDate corte) {
+        log.info("Archiving movimientos before {}", corte);
+        // Desde la primaria, como el resto del job: con réplica una cuenta nueva podría faltar
+        List<Long> cuentaIds = transactionTemplate.execute(status -> cuentaRepository.findAllIds());
+        int archivados = 0;
+        for (Long cuentaId : cuentaIds) {
+            Integer cantidad = transactionTemplate.execute(status -> archivarCuenta(cuentaId, corte));
+            archivados += cantidad != null ? cantidad : 0;
+        }
+        log.info("Archived {} movimientos of {} cuentas to {}", archivados, cuentaIds.size(), directorio);
+        return archivados;
+    }
+    
+    private int archivarCuenta(Long cuentaId, LocalDate corte) {
+        cuentaLockManager.bloquear(cuentaId);
+        Cuenta cuenta = cuentaRepository.findByIdForUpdate(cuentaId).orElse(null);
+        if (cuenta == null) {
+            return 0;
+        }
+        Movimiento ultimo = movimientoRepository.findFirstByCuentaIdOrderByFechaDescIdDesc(cuentaId).orElse(null);
+        if (ultimo == null) {
+            return 0;
+        }
+        LocalDate mesUltimo = ultimo.getFecha().toLocalDate().withDayOfMonth(1);
+        LocalDate hasta = corte.isBefore(mesUltimo) ? corte : mesUltimo;
+        if (cuenta.getArchivadoHasta() != null && !hasta.isAfter(cuenta.getArchivadoHasta())) {
+            return 0;
+        }
+        // El archivo guarda la cadena tal cual: sin sellar no podría verificarse después
+        if (movimientoRepository.existsByCuentaIdAndHashIsNull(cuentaId)) {
+            log.warn("Skipping cuenta {}: movimientos not sealed into the hash chain", cuentaId);
+            return 0;
+        }
+        
+        int archivados = 0;
+        try (Stream<MovimientoHashDTO> filas = movimientoRepository.streamCadenaByCuentaIdBefore(
+                cuentaId, hasta.atStartOfDay())) {
+            boolean nueva = Files.notExists(carpeta(cuentaId));
+            Path carpeta = Files.createDirectories(carpeta(cuentaId));
+            descartarSinConfirmar(carpeta, cuenta.getArchivadoHasta());
+            List<MovimientoHashDTO> mes = new ArrayList<>();
+            YearMonth actual = null;
+            Iterator<MovimientoHashDTO> it = filas.iterator();
+            while (it.hasNext()) {
+                MovimientoHashDTO fila = it.next();
+                YearMonth mesFila = YearMonth.from(fila.fecha());
+                if (actual != null && !actual.equals(mesFila)) {
+                    SegmentoArchivo.escribir(carpeta.resolve(nombre(actual)), mes);
+                    archivados += mes.size();
+                    mes.clear();
+                }
+                actual = mesFila;
+                mes.add(fila);
+            }
+            if (!mes.isEmpty()) {
+                SegmentoArchivo.escribir(carpeta.resolve(nombre(actual)), mes);
+                archivados += mes.size();
+            }
+            // Los renombres deben estar en disco antes de borrar las filas que reemplazan
+            SegmentoArchivo.sincronizarDirectorio(carpeta);
+            if (nueva) {
+                SegmentoArchivo.sincronizarDirectorio(directorio);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo archivar la cuenta " + cuentaId, ex);
+        }
+        
+        int eliminados = movimientoRepository.deleteByCuentaIdBefore(cuentaId, hasta.atStartOfDay());
+        if (eliminados != archivados) {
+            // Con la cuenta bloqueada no debería ocurrir; el rollback deja la marca donde estaba
+            throw new IllegalStateException("Cuenta " + cuentaId + ": " + archivados
+                    + " movimientos archivados y " + eliminados + " eliminados");
+        }
+        cuenta.setArchivadoHasta(hasta);
+        return archivados;
+    }
+    
+    /**
+     * Accounts of a client whose archive covers part of a report range.
+     * Read after the report rows, so the watermark is at least as new as them.
+     *
+     * @param clienteId the client ID
+     * @param fechaInicio start of the report range
+     * @return the accounts to merge, empty when the range is entirely in the table
+     */
+    public List<CuentaArchivadaDTO> cuentasArchivadas(Long clienteId, LocalDateTime fechaInicio) {
+        return cuentaRepository.findArchivadasByCliente(clienteId, fechaInicio.toLocalDate());
+    }
+    
+    /**
+     * Merges the report rows read from the table with the archived rows of the
+     * given accounts in the range, in report order. Table rows of a month that
+     * was archived after they were read are skipped, since the archive has
+     * them. Archive months are read one at a time as the result is consumed.
+     *
+     * @param cuentas accounts returned by {@link #cuentasArchivadas}
+     * @param fechaInicio start of the range (inclusive)
+     * @param fechaFin end of the range (inclusive)
+     * @param recientes report rows from the table, in report order; closed with the result
+     * @return the merged rows; must be closed
+     */
+    public Stream<ReporteMovimientoDTO> combinar(List<CuentaArchivadaDTO> cuentas, LocalDateTime fechaInicio,
+                                                 LocalDateTime fechaFin, Stream<ReporteMovimientoDTO> recientes) {
+        Map<String, LocalDateTime> marcas = new HashMap<>();
+        List<Iterator<Fila>> fuentes = new ArrayList<>();
+        for (CuentaArchivadaDTO cuenta : cuentas) {
+            marcas.put(cuenta.numeroCuenta(), cuenta.archivadoHasta().atStartOfDay());
+        }
+        // La tabla no da el id: en la misma fecha sus filas van primero
+        fuentes.add(recientes
+                .filter(fila -> {
+                    LocalDateTime marca = marcas.get(fila.numeroCuenta());
+                    return marca == null || !fila.fecha().isBefore(marca);
+                })
+                .map(fila -> new Fila(fila, Long.MAX_VALUE))
+                .iterator());
+        for (CuentaArchivadaDTO cuenta : cuentas) {
+            fuentes.add(new LecturaArchivo(cuenta, fechaInicio, fechaFin));
+        }
+        
+        Iterator<ReporteMovimientoDTO> combinadas = new Combinacion(fuentes);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(combinadas,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(recientes::close);
+    }
+    
+    /**
+     * Archived movements of an account in chain order, for ledger verification.
+     *
+     * @param cuenta the account, read in the same transaction as its movements
+     * @return the archived chain, empty when nothing is archived
+     */
+    public Stream<MovimientoHashDTO> cadena(Cuenta cuenta) {
+        if (cuenta.getArchivadoHasta() == null) {
+            return Stream.empty();
+        }
+        YearMonth limite = YearMonth.from(cuenta.getArchivadoHasta());
+        List<Path> segmentos;
+        try (Stream<Path> archivos = Files.list(carpeta(cuenta.getId()))) {
+            segmentos = archivos.filter(archivo -> {
+                        YearMonth mes = mes(archivo);
+                        return mes != null && mes.isBefore(limite);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo leer el archivo de la cuenta " + cuenta.getId(), ex);
+        }
+        return segmentos.stream().flatMap(archivo -> {
+            SegmentoArchivo segmento = leer(archivo, EnumSet.allOf(Columna.class));
+            return IntStream.range(0, segmento.filas()).mapToObj(segmento::movimiento);
+        });
+    }
+    
+    /**
+     * Deletes the segments of months at or after the committed watermark, left
+     * by a run that failed before its commit. A month that no longer has rows
+     * would otherwise keep its stale file.
+     */
+    private static void descartarSinConfirmar(Path carpeta, LocalDate archivadoHasta) throws IOException {
+        YearMonth limite = archivadoHasta != null ? YearMonth.from(archivadoHasta) : null;
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            for (Path archivo : archivos.toList()) {
+                YearMonth mes = mes(archivo);
+                if (mes != null && (limite == null || !mes.isBefore(limite))) {
+                    Files.delete(archivo);
+                }
+            }
+        }
+    }
+    
+    private Path carpeta(Long cuentaId) {
+        return directorio.resolve(String.valueOf(cuentaId));
+    }
+    
+    private static String nombre(YearMonth mes) {
+        return mes.format(FORMATO_MES) + EXTENSION;
+    }
+    
+    /** Month of a segment file, or null for any other file (such as a temporary one). */
+    private static YearMonth mes(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        if (!nombre.endsWith(EXTENSION)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(nombre.substring(0, nombre.length() - EXTENSION.length()), FORMATO_MES);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+    
+    private static SegmentoArchivo leer(Path archivo, Set<Columna> columnas) {
+        try {
+            return SegmentoArchivo.leer(archivo, columnas);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo leer el segmento " + archivo, ex);
+        }
+    }
+    
+    /**
+     * Archived report rows of one account in the range, newest first. Walks
+     * the months backwards from the end of the range and maps one segment at
+     * a time; months without movements have no file.
+     */
+    private final class LecturaArchivo implements Iterator<Fila> {
+        
+        private final CuentaArchivadaDTO cuenta;
+        private final LocalDateTime fechaInicio;
+        private final LocalDateTime fechaFin;
+        private final YearMonth primerMes;
+        private YearMonth mes;
+        private SegmentoArchivo segmento;
+        private int fila = -1;
+        private Fila siguiente;
+        
+        private LecturaArchivo(CuentaArchivadaDTO cuenta, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+            this.cuenta = cuenta;
+            this.fechaInicio = fechaInicio;
+            this.fechaFin = fechaFin;
+            this.primerMes = YearMonth.from(fechaInicio);
+            YearMonth ultimoArchivado = YearMonth.from(cuenta.archivadoHasta()).minusMonths(1);
+            YearMonth ultimoPedido = YearMonth.from(fechaFin);
+            this.mes = ultimoPedido.isBefore(ultimoArchivado) ? ultimoPedido : ultimoArchivado;
+            avanzar();
+        }
+        
+        private void avanzar() {
+            siguiente = null;
+            while (siguiente == null) {
+                if (fila < 0) {
+                    if (mes.isBefore(primerMes)) {
+                        return;
+                    }
+                    Path archivo = carpeta(cuenta.cuentaId()).resolve(nombre(mes));
+                    mes = mes.minusMonths(1);
+                    if (!Files.exists(archivo)) {
+                        continue;
+                    }
+                    segmento = leer(archivo, SegmentoArchivo.REPORTE);
+                    fila = segmento.filas() - 1;
+                    continue;
+                }
+                LocalDateTime fecha = segmento.fecha(fila);
+                if (!fecha.isAfter(fechaFin) && !fecha.isBefore(fechaInicio)) {
+                    siguiente = new Fila(new ReporteMovimientoDTO(fecha, cuenta.cliente(), cuenta.numeroCuenta(),
+                            cuenta.tipoCuenta(), cuenta.saldoInicial(), cuenta.estado(),
+                            segmento.valor(fila), segmento.saldo(fila)), segmento.id(fila));
+                }
+                fila--;
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return siguiente != null;
+        }
+        
+        @Override
+        public Fila next() {
+            if (siguiente == null) {
+                throw new NoSuchElementException();
+            }
+            Fila actual = siguiente;
+            avanzar();
+            return actual;
+        }
+    }
+    
+    /** K-way merge of sources already in report order. */
+    private static final class Combinacion implements Iterator<ReporteMovimientoDTO> {
+        
+        private record Cabeza(Fila fila, int fuente, Iterator<Fila> resto) {
+        }
+        
+        private final PriorityQueue<Cabeza> cabezas = new PriorityQueue<>(
+                Comparator.comparing(Cabeza::fila, ORDEN_REPORTE).thenComparingInt(Cabeza::fuente));
+        
+        private Combinacion(List<Iterator<Fila>> fuentes) {
+            for (int i = 0; i < fuentes.size(); i++) {
+                Iterator<Fila> fuente = fuentes.get(i);
+                if (fuente.hasNext()) {
+                    cabezas.add(new Cabeza(fuente.next(), i, fuente));
+                }
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return !cabezas.isEmpty();
+        }
+        
+        @Override
+        public ReporteMovimientoDTO next() {
+            Cabeza cabeza = cabezas.poll();
+            if (cabeza == null) {
+                throw new NoSuchElementException();
+            }
+            if (cabeza.resto().hasNext()) {
+                cabezas.add(new Cabeza(cabeza.resto().next(), cabeza.fuente(), cabeza.resto()));
+            }
+            return cabeza.fila().reporte();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.bank.app.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Write-ahead log and snapshot files of {@link MotorCuentas}.
+ *
+ * The log is a sequence of segment files named after the sequence number of
+ * their first record. Every record carries its length and a CRC32C, so a
+ * record torn by a crash is recognised and dropped: it was never acknowledged,
+ * because a batch is only acknowledged after {@link FileChannel#force}.
+ *
+ * A snapshot holds the state of every account up to a sequence number; the
+ * segments entirely below it are deleted, which bounds the log replayed on
+ * the next start.
+ */
+@Slf4j
+public final class BitacoraMovimientos implements Closeable {
+    
+    /** One accepted movement, in log order. The hash is not stored: replay recomputes it. */
+    public record Registro(long secuencia, long cuentaId, LocalDateTime fecha, String tipoMovimiento,
+                           BigDecimal valor, BigDecimal saldo) {
+    }
+    
+    /** State of one account after a given movement. */
+    public record Estado(long cuentaId, String numeroCuenta, boolean activa, BigDecimal saldo, String hash,
+                         LocalDate diaRetiros, BigDecimal retirosDia) {
+    }
+    
+    /** Account states after every record up to {@code secuencia}. */
+    public record Instantanea(long secuencia, List<Estado> cuentas) {
+    }
+    
+    private static final String PREFIJO_SEGMENTO = "bitacora-";
+    private static final String EXTENSION_SEGMENTO = ".log";
+    private static final String INSTANTANEA = "instantanea.bin";
+    private static final int MAGIA_INSTANTANEA = 0x4D4F5431;
+    private static final int CABECERA = Integer.BYTES * 2;
+    // Tipo de hasta 50 caracteres e importes de la precisión de la columna
+    private static final int MAXIMO_REGISTRO = 4096;
+    
+    private final Path directorio;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+    private final CRC32C crc = new CRC32C();
+    private FileChannel segmento;
+    private long siguienteSecuencia = 1;
+    
+    public BitacoraMovimientos(Path directorio) throws IOException {
+        this.directorio = Files.createDirectories(directorio);
+    }
+    
+    /**
+     * Reads every record after a sequence number, in log order, and positions
+     * the next sequence after the last one read. A torn record at the end of
+     * the last segment is cut off.
+     *
+     * @param secuencia sequence of the snapshot the records apply to
+     * @return the records with a higher sequence
+     * @throws IllegalStateException if a segment other than the last is damaged
+     */
+    public List<Registro> leerDesde(long secuencia) throws IOException {
+        List<Registro> registros = new ArrayList<>();
+        List<Path> segmentos = segmentos();
+        siguienteSecuencia = secuencia + 1;
+        for (int i = 0; i < segmentos.size(); i++) {
+            Path archivo = segmentos.get(i);
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long valido = leerSegmento(canal, secuencia, registros);
+                if (valido < canal.size()) {
+                    if (i < segmentos.size() - 1) {
+                        throw new IllegalStateException("Segmento de la bitácora dañado: " + archivo);
+                    }
+                    log.warn("Dropping {} bytes of a torn record at the end of {}", canal.size() - valido, archivo);
+                    canal.truncate(valido);
+                    canal.force(true);
+                }
+            }
+        }
+        if (!registros.isEmpty()) {
+            siguienteSecuencia = Math.max(siguienteSecuencia, registros.getLast().secuencia() + 1);
+        }
+        return registros;
+    }
+    
+    private long leerSegmento(FileChannel canal, long secuencia, List<Registro> registros) throws IOException {
+        // Lectura mapeada: el segmento se recorre sin copiarlo a un buffer propio
+        MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        while (datos.remaining() >= CABECERA) {
+            int inicio = datos.position();
+            int longitud = datos.getInt();
+            int suma = datos.getInt();
+            if (longitud <= 0 || longitud > datos.remaining()) {
+                return inicio;
+            }
+            ByteBuffer contenido = datos.slice(datos.position(), longitud);
+            crc.reset();
+            crc.update(contenido.duplicate());
+            if ((int) crc.getValue() != suma) {
+                return inicio;
+            }
+            Registro registro = decodificar(contenido);
+            if (registro.secuencia() > secuencia) {
+                registros.add(registro);
+            }
+            datos.position(datos.position() + longitud);
+        }
+        return datos.position();
+    }
+    
+    /**
+     * Starts a new segment; the following records are appended to it. The
+     * directory is forced after the segment is created, so the records
+     * synced into it cannot be lost with a directory entry that never
+     * reached the disk.
+     */
+    public synchronized void rotar() throws IOException {
+        if (segmento != null) {
+            segmento.close();
+        }
+        Path archivo = directorio.resolve(PREFIJO_SEGMENTO + String.format("%020d", siguienteSecuencia) + EXTENSION_SEGMENTO);
+        segmento = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        sincronizarDirectorio();
+    }
+    
+    /**
+     * Numbers and appends a group of records and forces them to disk with a
+     * single fsync. When the append fails the segment is cut back to its
+     * previous size, so none of the group's records is replayed on the next
+     * start, and their sequence numbers are reused.
+     *
+     * @param registros records without sequence, in acceptance order
+     * @return the same records with their sequence numbers
+     */
+    public synchronized List<Registro> anexar(List<Registro> registros) throws IOException {
+        long tamano = segmento.size();
+        long primera = siguienteSecuencia;
+        List<Registro> numerados = new ArrayList<>(registros.size());
+        buffer.clear();
+        try {
+            for (Registro registro : registros) {
+                Registro numerado = new Registro(siguienteSecuencia++, registro.cuentaId(), registro.fecha(),
+                        registro.tipoMovimiento(), registro.valor(), registro.saldo());
+                if (buffer.remaining() < MAXIMO_REGISTRO) {
+                    volcar();
+                }
+                codificar(numerado);
+                numerados.add(numerado);
+            }
+            volcar();
+            segmento.force(false);
+        } catch (IOException | RuntimeException ex) {
+            descartarAnexo(tamano, primera, ex);
+            throw ex;
+        }
+        return numerados;
+    }
+    
+    /**
+     * Cuts a failed append off the segment. Part of it may already be on
+     * disk, and its callers are told it failed.
+     */
+    private void descartarAnexo(long tamano, long primera, Exception causa) {
+        siguienteSecuencia = primera;
+        buffer.clear();
+        try {
+            segmento.truncate(tamano);
+            segmento.force(true);
+        } catch (IOException | RuntimeException ex) {
+            causa.addSuppressed(ex);
+            log.error("Could not cut a failed append off the log; records from sequence {} may be replayed",
+                    primera, ex);
+        }
+    }
+    
+    private void volcar() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmento.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    private void codificar(Registro registro) {
+        int inicio = buffer.position();
+        buffer.position(inicio + CABECERA);
+        buffer.putLong(registro.secuencia());
+        buffer.putLong(registro.cuentaId());
+        buffer.putLong(registro.fecha().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(registro.fecha().getNano());
+        decimal(registro.valor());
+        decimal(registro.saldo());
+        byte[] tipo = registro.tipoMovimiento().getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) tipo.length);
+        buffer.put(tipo);
+        
+        int longitud = buffer.position() - inicio - CABECERA;
+        crc.reset();
+        crc.update(buffer.slice(inicio + CABECERA, longitud));
+        buffer.putInt(inicio, longitud);
+        buffer.putInt(inicio + Integer.BYTES, (int) crc.getValue());
+    }
+    
+    private void decimal(BigDecimal valor) {
+        byte[] sinEscala = valor.unscaledValue().toByteArray();
+        buffer.putInt(valor.scale());
+        buffer.put((byte) sinEscala.length);
+        buffer.put(sinEscala);
+    }
+    
+    private Registro decodificar(ByteBuffer contenido) {
+        long secuencia = contenido.getLong();
+        long cuentaId = contenido.getLong();
+        LocalDateTime fecha = LocalDateTime.ofEpochSecond(contenido.getLong(), contenido.getInt(), ZoneOffset.UTC);
+        BigDecimal valor = decimal(contenido);
+        BigDecimal saldo = decimal(contenido);
+        byte[] tipo = new byte[contenido.getShort()];
+        contenido.get(tipo);
+        return new Registro(secuencia, cuentaId, fecha, new String(tipo, StandardCharsets.UTF_8), valor, saldo);
+    }
+    
+    private BigDecimal decimal(ByteBuffer contenido) {
+        int escala = contenido.getInt();
+        byte[] sinEscala = new byte[Byte.toUnsignedInt(contenido.get())];
+        contenido.get(sinEscala);
+        return new BigDecimal(new BigInteger(sinEscala), escala);
+    }
+    
+    /**
+     * Writes a snapshot under a temporary name and renames it when it is on
+     * disk, so the previous snapshot stays valid until the new one is complete.
+     * The rename is forced with the directory before returning: the caller
+     * discards the segments the snapshot covers right after, and those are
+     * what a start from the previous snapshot would replay.
+     */
+    public void escribirInstantanea(Instantanea instantanea) throws IOException {
+        Path temporal = directorio.resolve(INSTANTANEA + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream verificada = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(canal)), new CRC32C());
+            DataOutputStream salida = new DataOutputStream(verificada);
+            salida.writeInt(MAGIA_INSTANTANEA);
+            salida.writeLong(instantanea.secuencia());
+            salida.writeInt(instantanea.cuentas().size());
+            for (Estado estado : instantanea.cuentas()) {
+                salida.writeLong(estado.cuentaId());
+                salida.writeUTF(estado.numeroCuenta());
+                salida.writeBoolean(estado.activa());
+                decimal(salida, estado.saldo());
+                salida.writeUTF(estado.hash());
+                salida.writeLong(estado.diaRetiros() != null ? estado.diaRetiros().toEpochDay() : Long.MIN_VALUE);
+                decimal(salida, estado.retirosDia());
+            }
+            salida.flush();
+            salida.writeLong(verificada.getChecksum().getValue());
+            salida.flush();
+            canal.force(true);
+        }
+        Files.move(temporal, directorio.resolve(INSTANTANEA), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        sincronizarDirectorio();
+    }
+    
+    // Las altas y renombres viven en el directorio: force() del archivo no los persiste
+    private void sincronizarDirectorio() throws IOException {
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        }
+    }
+    
+    /**
+     * Reads the last snapshot.
+     *
+     * @return the snapshot, empty when none was written yet
+     * @throws IllegalStateException if the snapshot is damaged
+     */
+    public Optional<Instantanea> leerInstantanea() throws IOException {
+        try (InputStream archivo = Files.newInputStream(directorio.resolve(INSTANTANEA))) {
+            CheckedInputStream verificada = new CheckedInputStream(new BufferedInputStream(archivo), new CRC32C());
+            DataInputStream entrada = new DataInputStream(verificada);
+            if (entrada.readInt() != MAGIA_INSTANTANEA) {
+                throw new IllegalStateException("Instantánea del motor con formato desconocido");
+            }
+            long secuencia = entrada.readLong();
+            int cantidad = entrada.readInt();
+            List<Estado> cuentas = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                long cuentaId = entrada.readLong();
+                String numeroCuenta = entrada.readUTF();
+                boolean activa = entrada.readBoolean();
+                BigDecimal saldo = decimal(entrada);
+                String hash = entrada.readUTF();
+                long dia = entrada.readLong();
+                BigDecimal retirosDia = decimal(entrada);
+                cuentas.add(new Estado(cuentaId, numeroCuenta, activa, saldo, hash,
+                        dia != Long.MIN_VALUE ? LocalDate.ofEpochDay(dia) : null, retirosDia));
+            }
+            long esperada = verificada.getChecksum().getValue();
+            if (entrada.readLong() != esperada) {
+                throw new IllegalStateException("Instantánea del motor dañada");
+            }
+            return Optional.of(new Instantanea(secuencia, cuentas));
+        } catch (NoSuchFileException ex) {
+            return Optional.empty();
+        }
+    }
+    
+    private void decimal(DataOutputStream salida, BigDecimal valor) throws IOException {
+        byte[] sinEscala = valor.unscaledValue().toByteArray();
+        salida.writeInt(valor.scale());
+        salida.writeByte(sinEscala.length);
+        salida.write(sinEscala);
+    }
+    
+    private BigDecimal decimal(DataInputStream entrada) throws IOException {
+        int escala = entrada.readInt();
+        byte[] sinEscala = new byte[entrada.readUnsignedByte()];
+        entrada.readFully(sinEscala);
+        return new BigDecimal(new BigInteger(sinEscala), escala);
+    }
+    
+    /**
+     * Deletes the segments whose records are all covered by a snapshot.
+     * The current segment is always kept.
+     *
+     * @param secuencia sequence of the last snapshot written
+     */
+    public void descartarHasta(long secuencia) throws IOException {
+        List<Path> segmentos = segmentos();
+        for (int i = 0; i < segmentos.size() - 1; i++) {
+            // Un segmento termina justo antes del primer registro del siguiente
+            if (primeraSecuencia(segmentos.get(i + 1)) - 1 <= secuencia) {
+                Files.delete(segmentos.get(i));
+            }
+        }
+    }
+    
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(archivo -> {
+                        String nombre = archivo.getFileName().toString();
+                        return nombre.startsWith(PREFIJO_SEGMENTO) && nombre.endsWith(EXTENSION_SEGMENTO);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+    
+    private long primeraSecuencia(Path segmento) {
+        String nombre = segmento.getFileName().toString();
+        return Long.parseLong(nombre.substring(PREFIJO_SEGMENTO.length(), nombre.length() - EXTENSION_SEGMENTO.length()));
+    }
+    
+    public synchronized long getSiguienteSecuencia() {
+        return siguienteSecuencia;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (segmento != null) {
+            segmento.close();
+            segmento = null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.bank.app.service;
+
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+/**
+ * Hash chain of the movement ledger. Each movement is hashed together with
+ * the hash of the previous movement of its account, so editing, removing or
+ * reordering any row changes every later hash of that account.
+ */
+@Component
+public class CadenaHash {
+    
+    /** Previous hash of the first movement of an account. */
+    public static final String GENESIS = "0".repeat(64);
+    
+    /**
+     * Seals a new movement onto the chain of its account and advances the
+     * account's chain tail. Must run under the account lock.
+     * 
+     * @param cuenta the locked account
+     * @param movimiento the movement being posted
+     */
+    public void encadenar(Cuenta cuenta, Movimiento movimiento) {
+        String anterior = cuenta.getHashUltimoMovimiento() != null ? cuenta.getHashUltimoMovimiento() : GENESIS;
+        String hash = calcular(cuenta.getId(), anterior, movimiento.getFecha(), movimiento.getValor(),
+                movimiento.getSaldo(), movimiento.getReversoDe(), movimiento.getTipoMovimiento());
+        movimiento.setHash(hash);
+        cuenta.setHashUltimoMovimiento(hash);
+    }
+    
+    /**
+     * Computes the hash of one movement. Amounts are rounded to the scale of
+     * their columns, the way the database stores them, so the value hashed when
+     * posting and the value read back by the verification job give the same
+     * hash. The free-text type goes last so fields cannot run together.
+     * 
+     * @return the lowercase hex SHA-256
+     */
+    public String calcular(Long cuentaId, String hashAnterior, LocalDateTime fecha, BigDecimal valor,
+                           BigDecimal saldo, Long reversoDe, String tipoMovimiento) {
+        String contenido = cuentaId + "|" + hashAnterior + "|" + fecha + "|"
+                + normalizar(valor) + "|" + normalizar(saldo) + "|"
+                + (reversoDe != null ? reversoDe : "") + "|" + tipoMovimiento;
+        return HexFormat.of().formatHex(sha256().digest(contenido.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    private String normalizar(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+    
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -1,22 +1,28 @@
 package com.bank.app.service;
 
+import com.bank.app.config.CacheConfig;
 import com.bank.app.dto.ClienteDTO;
+import com.bank.app.dto.PaginaDTO;
 import com.bank.app.entity.Cliente;
 import com.bank.app.exception.BusinessException;
 import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.mapper.ClienteMapper;
 import com.bank.app.repository.ClienteRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Service layer for Cliente entity operations.
- * Handles business logic, validations, and password encryption.
+ * Handles business logic and validations. Passwords are hashed by
+ * {@link CodificadorContrasenas} before they reach this service.
  */
 @Service
 @Transactional
@@ -25,7 +31,10 @@ import java.util.stream.Collectors;
 public class ClienteService {
     
     private final ClienteRepository clienteRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final CursorPaginacion cursorPaginacion;
+    private final InvalidacionCache invalidacionCache;
+    private final ClienteMapper clienteMapper;
+    private final EnrutamientoLecturas enrutamientoLecturas;
     
     /**
      * Retrieves all clients from the database.
@@ -35,9 +44,26 @@ public class ClienteService {
     @Transactional(readOnly = true)
     public List<ClienteDTO> findAll() {
         log.debug("Finding all clientes");
-        return clienteRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return clienteMapper.toDTOs(clienteRepository.findAll());
+    }
+    
+    /**
+     * Retrieves clients ordered by ID, one keyset page at a time.
+     * 
+     * @param cursor cursor from the previous page, null for the first page
+     * @param tamano requested page size, null for the default
+     * @return the page and the cursor of the next one
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<ClienteDTO> findPagina(String cursor, Integer tamano) {
+        log.debug("Finding clientes page after cursor: {}", cursor);
+        int limite = cursorPaginacion.tamano(tamano);
+        Long despuesDe = cursor == null ? 0L
+                : cursorPaginacion.leer(cursorPaginacion.decodificar(cursor, 1)[0], Long::valueOf);
+        
+        List<ClienteDTO> filas = clienteMapper.toDTOs(clienteRepository
+                .findByClienteIdGreaterThanOrderByClienteIdAsc(despuesDe, Limit.of(limite + 1)));
+        return cursorPaginacion.pagina(filas, limite, c -> cursorPaginacion.codificar(c.getClienteId()));
     }
     
     /**
@@ -48,21 +74,51 @@ public class ClienteService {
      * @throws ResourceNotFoundException if client not found
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.CLIENTES, key = "#id")
     public ClienteDTO findById(Long id) {
         log.debug("Finding cliente with id: {}", id);
+        // Lo que se lee aquí queda en caché: tras una escritura se lee de la primaria
+        enrutamientoLecturas.preferirPrimaria(id);
         Cliente cliente = clienteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cliente no encontrado con ID: " + id));
-        return convertToDTO(cliente);
+        return clienteMapper.toDTO(cliente);
+    }
+    
+    /**
+     * Checks that no client has the identification yet, so a sign-up can be
+     * rejected before its password is hashed. Runs read-write, so with a read
+     * replica it reads the primary and sees a client registered moments ago.
+     * 
+     * @param identificacion the identification to register
+     * @throws BusinessException if identification already exists
+     */
+    public void verificarIdentificacionDisponible(String identificacion) {
+        if (clienteRepository.existsByIdentificacion(identificacion)) {
+            throw new BusinessException("Ya existe un cliente con la identificación: " + identificacion);
+        }
     }
     
     /**
-     * Creates a new client with encrypted password.
+     * Identifications among the given ones that are already registered, read
+     * from the primary like {@link #verificarIdentificacionDisponible}.
+     * 
+     * @param identificaciones the identifications to check
+     * @return the registered ones
+     */
+    public List<String> identificacionesRegistradas(Collection<String> identificaciones) {
+        return clienteRepository.findIdentificacionesExistentes(identificaciones);
+    }
+    
+    /**
+     * Creates a new client. The password arrives already encoded, so the
+     * transaction only covers the insert.
      * 
      * @param clienteDTO the client data
+     * @param contrasenaCodificada the encoded password
      * @return saved ClienteDTO object
      * @throws BusinessException if identification already exists
      */
-    public ClienteDTO save(ClienteDTO clienteDTO) {
+    public ClienteDTO save(ClienteDTO clienteDTO, String contrasenaCodificada) {
         log.info("Creating new cliente with identificacion: {}", clienteDTO.getIdentificacion());
         
         if (clienteDTO.getClienteId() == null && 
@@ -70,22 +126,38 @@ public class ClienteService {
             throw new BusinessException("Ya existe un cliente con la identificación: " + clienteDTO.getIdentificacion());
         }
         
-        Cliente cliente = convertToEntity(clienteDTO);
+        Cliente cliente = convertToEntity(clienteDTO, contrasenaCodificada);
         Cliente savedCliente = clienteRepository.save(cliente);
         log.info("Cliente created successfully with id: {}", savedCliente.getClienteId());
-        return convertToDTO(savedCliente);
+        return clienteMapper.toDTO(savedCliente);
+    }
+    
+    /**
+     * Creates a group of clients in one transaction. Identifications must
+     * already be checked; a duplicate rolls back the whole group.
+     * 
+     * @param clientes the client data
+     * @param contrasenasCodificadas the encoded passwords, in the same order
+     * @return the saved clients, in the same order
+     */
+    public List<ClienteDTO> saveAll(List<ClienteDTO> clientes, List<String> contrasenasCodificadas) {
+        List<Cliente> entidades = new ArrayList<>(clientes.size());
+        for (int i = 0; i < clientes.size(); i++) {
+            entidades.add(convertToEntity(clientes.get(i), contrasenasCodificadas.get(i)));
+        }
+        return clienteMapper.toDTOs(clienteRepository.saveAll(entidades));
     }
     
     /**
      * Updates an existing client.
-     * If a new password is provided, it will be encrypted.
      * 
      * @param id the client ID
      * @param clienteDTO the updated client data
+     * @param contrasenaCodificada the new encoded password, or null to keep the current one
      * @return updated ClienteDTO object
      * @throws ResourceNotFoundException if client not found
      */
-    public ClienteDTO update(Long id, ClienteDTO clienteDTO) {
+    public ClienteDTO update(Long id, ClienteDTO clienteDTO, String contrasenaCodificada) {
         log.info("Updating cliente with id: {}", id);
         Cliente cliente = clienteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cliente no encontrado con ID: " + id));
@@ -96,16 +168,17 @@ public class ClienteService {
         cliente.setDireccion(clienteDTO.getDireccion());
         cliente.setTelefono(clienteDTO.getTelefono());
         
-        // Only update password if provided (not empty)
-        if (clienteDTO.getContrasena() != null && !clienteDTO.getContrasena().isEmpty()) {
-            cliente.setContrasena(passwordEncoder.encode(clienteDTO.getContrasena()));
+        if (contrasenaCodificada != null) {
+            cliente.setContrasena(contrasenaCodificada);
         }
         
         cliente.setEstado(clienteDTO.getEstado());
         
         Cliente updatedCliente = clienteRepository.save(cliente);
+        invalidacionCache.clienteActualizado(updatedCliente);
+        enrutamientoLecturas.registrarEscritura(id);
         log.info("Cliente updated successfully with id: {}", id);
-        return convertToDTO(updatedCliente);
+        return clienteMapper.toDTO(updatedCliente);
     }
     
     /**
@@ -118,50 +191,21 @@ public class ClienteService {
         log.info("Deleting cliente with id: {}", id);
         Cliente cliente = clienteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cliente no encontrado con ID: " + id));
+        invalidacionCache.clienteEliminado(cliente);
         clienteRepository.delete(cliente);
         log.info("Cliente deleted successfully with id: {}", id);
     }
     
     /**
-     * Converts Cliente entity to ClienteDTO.
-     * Note: Password is intentionally NOT included in DTO for security.
-     * 
-     * @param cliente the entity
-     * @return ClienteDTO object
-     */
-    private ClienteDTO convertToDTO(Cliente cliente) {
-        ClienteDTO dto = new ClienteDTO();
-        dto.setClienteId(cliente.getClienteId());
-        dto.setNombre(cliente.getNombre());
-        dto.setGenero(cliente.getGenero());
-        dto.setEdad(cliente.getEdad());
-        dto.setIdentificacion(cliente.getIdentificacion());
-        dto.setDireccion(cliente.getDireccion());
-        dto.setTelefono(cliente.getTelefono());
-        // Do NOT expose password in responses
-        dto.setContrasena(null);
-        dto.setEstado(cliente.getEstado());
-        return dto;
-    }
-    
-    /**
-     * Converts ClienteDTO to Cliente entity with encrypted password.
+     * Builds the entity from the request with the encoded password.
      * 
      * @param dto the DTO
+     * @param contrasenaCodificada the encoded password
      * @return Cliente entity
      */
-    private Cliente convertToEntity(ClienteDTO dto) {
-        Cliente cliente = new Cliente();
-        cliente.setClienteId(dto.getClienteId());
-        cliente.setNombre(dto.getNombre());
-        cliente.setGenero(dto.getGenero());
-        cliente.setEdad(dto.getEdad());
-        cliente.setIdentificacion(dto.getIdentificacion());
-        cliente.setDireccion(dto.getDireccion());
-        cliente.setTelefono(dto.getTelefono());
-        // Encrypt password before storing
-        cliente.setContrasena(passwordEncoder.encode(dto.getContrasena()));
-        cliente.setEstado(dto.getEstado());
+    private Cliente convertToEntity(ClienteDTO dto, String contrasenaCodificada) {
+        Cliente cliente = clienteMapper.toEntity(dto);
+        cliente.setContrasena(contrasenaCodificada);
         return cliente;
     }
 }
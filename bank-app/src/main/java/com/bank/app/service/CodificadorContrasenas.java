@@ -0,0 +1,114 @@
+package com.bank.app.service;
+
+import com.bank.app.exception.ServiceUnavailableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password hashing on a dedicated, bounded pool.
+ * BCrypt is CPU-bound by design and takes tens of milliseconds per password
+ * at the default cost, so it runs here instead of on the request threads: a
+ * burst of sign-ups queues on this pool while other requests keep being served.
+ * A full queue is rejected immediately instead of growing without limit.
+ */
+@Component
+@Slf4j
+public class CodificadorContrasenas {
+    
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int hilos;
+    
+    public CodificadorContrasenas(PasswordEncoder passwordEncoder,
+                                  @Value("${app.seguridad.hash-hilos:0}") int hilos,
+                                  @Value("${app.seguridad.hash-cola:1000}") int capacidadCola) {
+        this.passwordEncoder = passwordEncoder;
+        // Más hilos que núcleos no agrega capacidad: el hash solo usa CPU
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(this.hilos, this.hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                Thread.ofPlatform().name("hash-contrasena-", 0).daemon(true).factory());
+    }
+    
+    /**
+     * Hashes one password on the pool.
+     *
+     * @param contrasena the raw password
+     * @return the encoded password, completed on a pool thread
+     * @throws ServiceUnavailableException if the queue is full
+     */
+    public CompletableFuture<String> codificar(String contrasena) {
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(contrasena), executor);
+        } catch (RejectedExecutionException ex) {
+            throw new ServiceUnavailableException("Demasiadas solicitudes de registro en proceso, intente nuevamente");
+        }
+    }
+    
+    /**
+     * Hashes a list of passwords using every pool thread and waits for all of them.
+     * The list is split into one contiguous slice per thread, so a bulk import
+     * takes only as many queue slots as there are threads.
+     *
+     * @param contrasenas raw passwords; a null entry stays null
+     * @return the encoded passwords, in the same order
+     * @throws ServiceUnavailableException if the queue is full
+     */
+    public List<String> codificarTodas(List<String> contrasenas) {
+        String[] codificadas = new String[contrasenas.size()];
+        int porHilo = Math.max(1, (contrasenas.size() + hilos - 1) / hilos);
+        
+        List<CompletableFuture<Void>> partes = new ArrayList<>(hilos);
+        try {
+            for (int desde = 0; desde < contrasenas.size(); desde += porHilo) {
+                int inicio = desde;
+                int fin = Math.min(desde + porHilo, contrasenas.size());
+                partes.add(CompletableFuture.runAsync(() -> {
+                    for (int i = inicio; i < fin; i++) {
+                        String contrasena = contrasenas.get(i);
+                        codificadas[i] = contrasena != null ? passwordEncoder.encode(contrasena) : null;
+                    }
+                }, executor));
+            }
+        } catch (RejectedExecutionException ex) {
+            partes.forEach(parte -> parte.cancel(false));
+            throw new ServiceUnavailableException("Demasiadas solicitudes de registro en proceso, intente nuevamente");
+        }
+        
+        try {
+            CompletableFuture.allOf(partes.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw ex;
+        }
+        return Arrays.asList(codificadas);
+    }
+    
+    public int getHilos() {
+        return hilos;
+    }
+    
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} queued password hashes were not processed before shutdown", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+}
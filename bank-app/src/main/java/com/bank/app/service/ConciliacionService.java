@@ -0,0 +1,134 @@
+package com.bank.app.service;
+
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Keeps the materialized {@code saldoActual} column of each Cuenta (and the
+ * withdrawal accumulator of the current day) consistent with the movement history.
+ * The running balance is defined by the saldo of the most recent movement,
+ * or by the initial balance when the account has no movements.
+ */
+@Service
+@Transactional
+@Slf4j
+public class ConciliacionService {
+    
+    private final CuentaRepository cuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final CuentaLockManager cuentaLockManager;
+    private final RetiroDiarioService retiroDiarioService;
+    private final TransactionTemplate transactionTemplate;
+    
+    public ConciliacionService(CuentaRepository cuentaRepository,
+                               MovimientoRepository movimientoRepository,
+                               CuentaLockManager cuentaLockManager,
+                               RetiroDiarioService retiroDiarioService,
+                               PlatformTransactionManager transactionManager) {
+        this.cuentaRepository = cuentaRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.cuentaLockManager = cuentaLockManager;
+        this.retiroDiarioService = retiroDiarioService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Computes the balance of an account from its latest movement.
+     * Only the newest row is read, so the cost does not depend on the history size.
+     *
+     * @param cuenta the account
+     * @return the balance derived from the movements table
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal calcularSaldo(Cuenta cuenta) {
+        return movimientoRepository.findFirstByCuentaIdOrderByFechaDescIdDesc(cuenta.getId())
+                .map(Movimiento::getSaldo)
+                .orElse(cuenta.getSaldoInicial());
+    }
+    
+    /**
+     * Rebuilds the materialized balance of a single account.
+     * Must be called inside the transaction that changed the account history.
+     *
+     * @param cuenta the managed account entity
+     * @return the rebuilt balance
+     */
+    public BigDecimal recalcular(Cuenta cuenta) {
+        BigDecimal saldo = calcularSaldo(cuenta);
+        cuenta.setSaldoActual(saldo);
+        return saldo;
+    }
+    
+    /**
+     * Scheduled entry point for the reconciliation job.
+     * Disabled unless {@code app.conciliacion.cron} is configured.
+     */
+    @Scheduled(cron = "${app.conciliacion.cron:-}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void conciliacionProgramada() {
+        conciliarTodas();
+    }
+    
+    /**
+     * Verifies every account against its movements and fixes drifted balances.
+     * Each account is reconciled in its own transaction under the account lock,
+     * so the job never holds more than one account at a time.
+     *
+     * @return number of accounts whose balance was corrected
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int conciliarTodas() {
+        log.info("Starting balance reconciliation");
+        List<Long> cuentaIds = cuentaRepository.findAllIds();
+        int corregidas = 0;
+        
+        for (Long cuentaId : cuentaIds) {
+            try {
+                Boolean corregida = transactionTemplate.execute(status -> conciliarCuenta(cuentaId));
+                if (Boolean.TRUE.equals(corregida)) {
+                    corregidas++;
+                }
+            } catch (OptimisticLockingFailureException ex) {
+                // The account was modified outside the posting locks; it will be checked on the next run
+                log.debug("Skipping cuenta {} modified during reconciliation", cuentaId);
+            }
+        }
+        
+        log.info("Balance reconciliation finished: {} of {} cuentas corrected", corregidas, cuentaIds.size());
+        return corregidas;
+    }
+    
+    private boolean conciliarCuenta(Long cuentaId) {
+        cuentaLockManager.bloquear(cuentaId);
+        Cuenta cuenta = cuentaRepository.findByIdForUpdate(cuentaId).orElse(null);
+        if (cuenta == null) {
+            return false;
+        }
+        
+        // The daily withdrawal accumulator is cheap to rebuild and is kept in step as well
+        retiroDiarioService.reconstruir(cuenta, LocalDate.now());
+        
+        BigDecimal esperado = calcularSaldo(cuenta);
+        if (cuenta.getSaldoActual() != null && cuenta.getSaldoActual().compareTo(esperado) == 0) {
+            return false;
+        }
+        
+        log.warn("Saldo drift on cuenta {}: stored={}, expected={}", cuentaId, cuenta.getSaldoActual(), esperado);
+        cuenta.setSaldoActual(esperado);
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+package com.bank.app.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes writers per account with a fixed set of striped in-process locks.
+ * Locks are taken inside the caller's transaction and released only after it
+ * commits or rolls back, so the next writer always reads the committed balance.
+ * Accounts mapped to different stripes post fully in parallel.
+ */
+@Component
+@Slf4j
+public class CuentaLockManager {
+    
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+    
+    public CuentaLockManager(
+            @Value("${app.posting.lock-stripes:1024}") int stripeCount,
+            @Value("${app.posting.lock-timeout-ms:5000}") long timeoutMillis) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * Locks the given accounts until the current transaction completes.
+     * Stripes are always acquired in ascending order, which prevents deadlocks
+     * when a transaction needs more than one account.
+     *
+     * @param cuentaIds ids of the accounts to lock
+     * @throws IllegalStateException if there is no active transaction
+     * @throws CannotAcquireLockException if a lock is not obtained within the timeout
+     */
+    public void bloquear(Long... cuentaIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Account locks require an active transaction");
+        }
+        
+        int[] indices = Arrays.stream(cuentaIds)
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+        
+        int adquiridos = 0;
+        try {
+            for (int index : indices) {
+                if (!stripes[index].tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new CannotAcquireLockException("Tiempo de espera agotado al bloquear la cuenta");
+                }
+                adquiridos++;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Bloqueo de cuenta interrumpido", ex);
+        } finally {
+            if (adquiridos < indices.length) {
+                liberar(indices, adquiridos);
+            }
+        }
+        
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                liberar(indices, indices.length);
+            }
+        });
+    }
+    
+    private void liberar(int[] indices, int cantidad) {
+        for (int i = cantidad - 1; i >= 0; i--) {
+            stripes[indices[i]].unlock();
+        }
+    }
+    
+    private int stripeIndex(Long cuentaId) {
+        return Math.floorMod(Long.hashCode(cuentaId) * 0x9E3779B9, stripes.length);
+    }
+}
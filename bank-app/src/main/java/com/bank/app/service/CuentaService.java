@@ -1,18 +1,24 @@
 package com.bank.app.service;
 
+import com.bank.app.config.CacheConfig;
 import com.bank.app.dto.CuentaDTO;
+import com.bank.app.dto.PaginaDTO;
 import com.bank.app.entity.Cliente;
 import com.bank.app.entity.Cuenta;
 import com.bank.app.exception.BusinessException;
 import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.mapper.CuentaMapper;
 import com.bank.app.repository.ClienteRepository;
 import com.bank.app.repository.CuentaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -24,28 +30,76 @@ public class CuentaService {
     @Autowired
     private ClienteRepository clienteRepository;
     
+    @Autowired
+    private ConciliacionService conciliacionService;
+    
+    @Autowired
+    private CuentaLockManager cuentaLockManager;
+    
+    @Autowired
+    private CursorPaginacion cursorPaginacion;
+    
+    @Autowired
+    private InvalidacionCache invalidacionCache;
+    
+    @Autowired
+    private CuentaMapper cuentaMapper;
+    
+    @Autowired
+    private EscritorJson escritorJson;
+    
+    @Autowired
+    private MotorCuentas motorCuentas;
+    
+    @Autowired
+    private EnrutamientoLecturas enrutamientoLecturas;
+    
     public List<CuentaDTO> findAll() {
-        return cuentaRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return cuentaRepository.findAllAsDTO();
+    }
+    
+    /**
+     * Writes every account as a JSON array while the cursor is read.
+     * 
+     * @param salida response body; flushed but not closed
+     */
+    @Transactional(readOnly = true)
+    public void escribirTodas(OutputStream salida) {
+        try (Stream<CuentaDTO> cuentas = cuentaRepository.streamAllAsDTO()) {
+            escritorJson.escribirCuentas(cuentas, salida);
+        }
+    }
+    
+    /**
+     * Lists accounts by id, one keyset page at a time.
+     * 
+     * @param cursor cursor from the previous page, null for the first page
+     * @param tamano requested page size, null for the default
+     * @return the page and the cursor of the next one
+     */
+    public PaginaDTO<CuentaDTO> findPagina(String cursor, Integer tamano) {
+        int limite = cursorPaginacion.tamano(tamano);
+        Long despuesDe = cursor == null ? 0L
+                : cursorPaginacion.leer(cursorPaginacion.decodificar(cursor, 1)[0], Long::valueOf);
+        
+        List<CuentaDTO> filas = cuentaRepository.findPaginaDTO(despuesDe, Limit.of(limite + 1));
+        return cursorPaginacion.pagina(filas, limite, c -> cursorPaginacion.codificar(c.getId()));
     }
     
+    @Cacheable(cacheNames = CacheConfig.CUENTAS, key = "#id")
     public CuentaDTO findById(Long id) {
-        Cuenta cuenta = cuentaRepository.findById(id)
+        return cuentaRepository.findDTOById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cuenta no encontrada con ID: " + id));
-        return convertToDTO(cuenta);
     }
     
+    @Cacheable(cacheNames = CacheConfig.CUENTAS_POR_NUMERO, key = "#numeroCuenta")
     public CuentaDTO findByNumeroCuenta(String numeroCuenta) {
-        Cuenta cuenta = cuentaRepository.findByNumeroCuenta(numeroCuenta)
+        return cuentaRepository.findDTOByNumeroCuenta(numeroCuenta)
                 .orElseThrow(() -> new ResourceNotFoundException("Cuenta no encontrada con número: " + numeroCuenta));
-        return convertToDTO(cuenta);
     }
     
     public List<CuentaDTO> findByClienteId(Long clienteId) {
-        return cuentaRepository.findByClienteClienteId(clienteId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return cuentaRepository.findDTOByClienteId(clienteId);
     }
     
     public CuentaDTO save(CuentaDTO cuentaDTO) {
@@ -57,50 +111,39 @@ public class CuentaService {
         Cliente cliente = clienteRepository.findById(cuentaDTO.getClienteId())
                 .orElseThrow(() -> new ResourceNotFoundException("Cliente no encontrado con ID: " + cuentaDTO.getClienteId()));
         
-        Cuenta cuenta = convertToEntity(cuentaDTO);
+        Cuenta cuenta = cuentaMapper.toEntity(cuentaDTO);
         cuenta.setCliente(cliente);
+        cuenta.setSaldoActual(cuenta.getSaldoInicial());
         
         Cuenta savedCuenta = cuentaRepository.save(cuenta);
-        return convertToDTO(savedCuenta);
+        enrutamientoLecturas.registrarEscritura(savedCuenta);
+        return cuentaMapper.toDTO(savedCuenta);
     }
     
     public CuentaDTO update(Long id, CuentaDTO cuentaDTO) {
-        Cuenta cuenta = cuentaRepository.findById(id)
+        motorCuentas.verificarNoGestionada(id);
+        cuentaLockManager.bloquear(id);
+        Cuenta cuenta = cuentaRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cuenta no encontrada con ID: " + id));
         
         cuenta.setTipoCuenta(cuentaDTO.getTipoCuenta());
         cuenta.setSaldoInicial(cuentaDTO.getSaldoInicial());
         cuenta.setEstado(cuentaDTO.getEstado());
         
+        // Sin movimientos, el saldo vigente sigue al saldo inicial
+        conciliacionService.recalcular(cuenta);
+        
         Cuenta updatedCuenta = cuentaRepository.save(cuenta);
-        return convertToDTO(updatedCuenta);
+        invalidacionCache.cuentaActualizada(updatedCuenta);
+        enrutamientoLecturas.registrarEscritura(updatedCuenta);
+        return cuentaMapper.toDTO(updatedCuenta);
     }
     
     public void delete(Long id) {
+        motorCuentas.verificarNoGestionada(id);
         Cuenta cuenta = cuentaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cuenta no encontrada con ID: " + id));
         cuentaRepository.delete(cuenta);
-    }
-    
-    private CuentaDTO convertToDTO(Cuenta cuenta) {
-        CuentaDTO dto = new CuentaDTO();
-        dto.setId(cuenta.getId());
-        dto.setNumeroCuenta(cuenta.getNumeroCuenta());
-        dto.setTipoCuenta(cuenta.getTipoCuenta());
-        dto.setSaldoInicial(cuenta.getSaldoInicial());
-        dto.setEstado(cuenta.getEstado());
-        dto.setClienteId(cuenta.getCliente().getClienteId());
-        dto.setClienteNombre(cuenta.getCliente().getNombre());
-        return dto;
-    }
-    
-    private Cuenta convertToEntity(CuentaDTO dto) {
-        Cuenta cuenta = new Cuenta();
-        cuenta.setId(dto.getId());
-        cuenta.setNumeroCuenta(dto.getNumeroCuenta());
-        cuenta.setTipoCuenta(dto.getTipoCuenta());
-        cuenta.setSaldoInicial(dto.getSaldoInicial());
-        cuenta.setEstado(dto.getEstado());
-        return cuenta;
+        invalidacionCache.cuentaEliminada(cuenta);
     }
 }
@@ -0,0 +1,116 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.PaginaDTO;
+import com.bank.app.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helpers for keyset (cursor) pagination.
+ * A cursor is the opaque encoding of the sort key of the last row returned,
+ * so the next page starts with an index seek instead of skipping rows and
+ * costs the same no matter how deep the client has paged.
+ */
+@Component
+public class CursorPaginacion {
+    
+    private static final String SEPARADOR = "|";
+    
+    private final int tamanoPorDefecto;
+    private final int tamanoMaximo;
+    
+    public CursorPaginacion(
+            @Value("${app.paginacion.tamano-por-defecto:50}") int tamanoPorDefecto,
+            @Value("${app.paginacion.tamano-maximo:500}") int tamanoMaximo) {
+        this.tamanoPorDefecto = tamanoPorDefecto;
+        this.tamanoMaximo = tamanoMaximo;
+    }
+    
+    /**
+     * Resolves the requested page size, applying the default and the maximum.
+     * 
+     * @param solicitado page size sent by the client, may be null
+     * @return the effective page size
+     * @throws BusinessException if the size is not positive
+     */
+    public int tamano(Integer solicitado) {
+        if (solicitado == null) {
+            return tamanoPorDefecto;
+        }
+        if (solicitado < 1) {
+            throw new BusinessException("El tamaño de página debe ser mayor a cero");
+        }
+        return Math.min(solicitado, tamanoMaximo);
+    }
+    
+    public String codificar(Object... partes) {
+        StringBuilder valor = new StringBuilder();
+        for (Object parte : partes) {
+            if (valor.length() > 0) {
+                valor.append(SEPARADOR);
+            }
+            valor.append(parte);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(valor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decodes a cursor produced by {@link #codificar}.
+     * 
+     * @param cursor the cursor sent by the client
+     * @param partes expected number of key parts
+     * @return the key parts, in the order they were encoded
+     * @throws BusinessException if the cursor is malformed
+     */
+    public String[] decodificar(String cursor, int partes) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] resultado = valor.split("\\" + SEPARADOR, -1);
+            if (resultado.length == partes) {
+                return resultado;
+            }
+        } catch (IllegalArgumentException ex) {
+            // Se reporta abajo como cursor inválido
+        }
+        throw new BusinessException("Cursor de paginación inválido");
+    }
+    
+    /**
+     * Parses one part of a decoded cursor.
+     * 
+     * @param parte the cursor part
+     * @param parser converts the text into the key value
+     * @return the key value
+     * @throws BusinessException if the part cannot be parsed
+     */
+    public <T> T leer(String parte, Function<String, T> parser) {
+        try {
+            return parser.apply(parte);
+        } catch (RuntimeException ex) {
+            throw new BusinessException("Cursor de paginación inválido");
+        }
+    }
+    
+    /**
+     * Builds a page from a query that fetched one row more than the page size.
+     * The extra row only tells whether there is a next page and is dropped.
+     * 
+     * @param filas rows returned by the query (at most {@code tamano + 1})
+     * @param tamano page size
+     * @param cursorDe builds the cursor of a row
+     * @return the page
+     */
+    public <T> PaginaDTO<T> pagina(List<T> filas, int tamano, Function<T, String> cursorDe) {
+        if (filas.size() <= tamano) {
+            return new PaginaDTO<>(filas, tamano, null);
+        }
+        List<T> contenido = filas.subList(0, tamano);
+        return new PaginaDTO<>(List.copyOf(contenido), tamano, cursorDe.apply(contenido.get(tamano - 1)));
+    }
+}
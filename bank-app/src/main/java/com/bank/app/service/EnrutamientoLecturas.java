@@ -0,0 +1,167 @@
+package com.bank.app.service;
+
+import com.bank.app.entity.Cuenta;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which database serves each connection when a read replica is
+ * configured ({@code app.replica.url}): read-write transactions and work
+ * outside a transaction go to the primary, read-only transactions to the
+ * replica.
+ *
+ * The replica lags behind the primary, so every committed write marks its
+ * client for {@code app.replica.retraso-maximo}. A read-only transaction that
+ * declares its client with {@link #preferirPrimaria} while it is marked stays
+ * on the primary: a statement requested right after a post includes it.
+ * Connections handed out are counted in {@code banco.datasource.conexiones}
+ * by destination and reason.
+ */
+@Component
+public class EnrutamientoLecturas {
+    
+    /** Database that serves a connection. */
+    public enum Destino {
+        PRIMARIA, REPLICA
+    }
+    
+    /** Why a connection went where it went. */
+    private enum Motivo {
+        ESCRITURA("escritura", Destino.PRIMARIA),
+        ESCRITURA_RECIENTE("escritura_reciente", Destino.PRIMARIA),
+        LECTURA("lectura", Destino.REPLICA);
+        
+        private final String tag;
+        private final Destino destino;
+        
+        Motivo(String tag, Destino destino) {
+            this.tag = tag;
+            this.destino = destino;
+        }
+    }
+    
+    // Recursos de la transacción en curso
+    private static final Object CLIENTES_ESCRITOS = new Object();
+    private static final Object PRIMARIA_FORZADA = new Object();
+    
+    private final Cache<Long, Boolean> escriturasRecientes;
+    private final Map<Motivo, Counter> conexiones = new EnumMap<>(Motivo.class);
+    
+    public EnrutamientoLecturas(MeterRegistry registry,
+                                @Value("${app.replica.retraso-maximo:5s}") Duration retrasoMaximo) {
+        this.escriturasRecientes = Caffeine.newBuilder()
+                .expireAfterWrite(retrasoMaximo)
+                .maximumSize(100_000)
+                .build();
+        for (Motivo motivo : Motivo.values()) {
+            conexiones.put(motivo, Counter.builder("banco.datasource.conexiones")
+                    .description("Connections handed out by the read/write routing")
+                    .tag("destino", motivo.destino.name().toLowerCase())
+                    .tag("motivo", motivo.tag)
+                    .register(registry));
+        }
+    }
+    
+    /**
+     * Marks the client of an account as recently written; see {@link #registrarEscritura(Long)}.
+     *
+     * @param cuenta the written account
+     */
+    public void registrarEscritura(Cuenta cuenta) {
+        // El id del cliente se lee del proxy sin cargarlo
+        if (cuenta.getCliente() != null) {
+            registrarEscritura(cuenta.getCliente().getClienteId());
+        }
+    }
+    
+    /**
+     * Marks a client as recently written. Inside a transaction the mark is
+     * set on commit, so the window starts when the data becomes visible.
+     *
+     * @param clienteId the written client
+     */
+    public void registrarEscritura(Long clienteId) {
+        if (clienteId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            escriturasRecientes.put(clienteId, Boolean.TRUE);
+            return;
+        }
+        
+        @SuppressWarnings("unchecked")
+        Set<Long> clientes = (Set<Long>) TransactionSynchronizationManager.getResource(CLIENTES_ESCRITOS);
+        if (clientes == null) {
+            // Una sola sincronización por transacción, aunque escriba miles de movimientos
+            Set<Long> nuevos = new HashSet<>();
+            clientes = nuevos;
+            TransactionSynchronizationManager.bindResource(CLIENTES_ESCRITOS, nuevos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    nuevos.forEach(id -> escriturasRecientes.put(id, Boolean.TRUE));
+                }
+                
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CLIENTES_ESCRITOS);
+                }
+            });
+        }
+        clientes.add(clienteId);
+    }
+    
+    /**
+     * Keeps the current read-only transaction on the primary if the client
+     * was written within {@code app.replica.retraso-maximo}. Must be called
+     * before the transaction's first query, which picks the database.
+     *
+     * @param clienteId the client the transaction reads
+     */
+    public void preferirPrimaria(Long clienteId) {
+        if (clienteId == null
+                || escriturasRecientes.getIfPresent(clienteId) == null
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(PRIMARIA_FORZADA)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(PRIMARIA_FORZADA, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PRIMARIA_FORZADA);
+            }
+        });
+    }
+    
+    /**
+     * Picks the database for a connection being opened and counts it.
+     *
+     * @return the destination of the connection
+     */
+    public Destino destino() {
+        Motivo motivo;
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            motivo = Motivo.ESCRITURA;
+        } else if (TransactionSynchronizationManager.hasResource(PRIMARIA_FORZADA)) {
+            motivo = Motivo.ESCRITURA_RECIENTE;
+        } else {
+            motivo = Motivo.LECTURA;
+        }
+        conexiones.get(motivo).increment();
+        return motivo.destino;
+    }
+}
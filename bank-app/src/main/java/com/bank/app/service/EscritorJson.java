@@ -0,0 +1,190 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.CuentaDTO;
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.dto.ReporteMovimientoDTO;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.SerializableString;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.core.io.SerializedString;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Writes large listings straight to the response with the Jackson generator.
+ * Rows are written as they come out of the database cursor: no list, tree or
+ * intermediate String is built, and the generator's output buffer comes from
+ * Jackson's buffer pool, so it is reused across requests instead of being
+ * allocated per response.
+ *
+ * The output matches what databind produces for the same DTOs: property names,
+ * ISO dates and BigDecimal values with their scale. Field names are encoded
+ * once, when the class is loaded. Adding a field to one of these DTOs requires
+ * adding it here as well.
+ */
+@Component
+public class EscritorJson {
+    
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString FECHA = new SerializedString("fecha");
+    private static final SerializableString TIPO_MOVIMIENTO = new SerializedString("tipoMovimiento");
+    private static final SerializableString VALOR = new SerializedString("valor");
+    private static final SerializableString SALDO = new SerializedString("saldo");
+    private static final SerializableString NUMERO_CUENTA = new SerializedString("numeroCuenta");
+    private static final SerializableString TIPO_CUENTA = new SerializedString("tipoCuenta");
+    private static final SerializableString SALDO_INICIAL = new SerializedString("saldoInicial");
+    private static final SerializableString ESTADO = new SerializedString("estado");
+    private static final SerializableString CLIENTE_ID = new SerializedString("clienteId");
+    private static final SerializableString CLIENTE_NOMBRE = new SerializedString("clienteNombre");
+    private static final SerializableString CLIENTE = new SerializedString("cliente");
+    private static final SerializableString TIPO = new SerializedString("tipo");
+    private static final SerializableString MOVIMIENTO = new SerializedString("movimiento");
+    private static final SerializableString SALDO_DISPONIBLE = new SerializedString("saldoDisponible");
+    
+    private final ObjectWriter writer;
+    
+    public EscritorJson(ObjectMapper objectMapper) {
+        // El cuerpo de la respuesta lo cierra el contenedor, no el generador
+        this.writer = objectMapper.writer().without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+    }
+    
+    /**
+     * Writes the movements as one JSON array.
+     *
+     * @param movimientos rows to write; consumed but not closed
+     * @param salida response body; flushed but not closed
+     */
+    public void escribirMovimientos(Stream<MovimientoDTO> movimientos, OutputStream salida) {
+        escribirArreglo(movimientos, salida, this::escribirMovimiento);
+    }
+    
+    /**
+     * Writes the accounts as one JSON array.
+     *
+     * @param cuentas rows to write; consumed but not closed
+     * @param salida response body; flushed but not closed
+     */
+    public void escribirCuentas(Stream<CuentaDTO> cuentas, OutputStream salida) {
+        escribirArreglo(cuentas, salida, this::escribirCuenta);
+    }
+    
+    /**
+     * Writes the report rows as one JSON array.
+     *
+     * @param filas rows to write; consumed but not closed
+     * @param salida response body; flushed but not closed
+     */
+    public void escribirReporte(Stream<ReporteMovimientoDTO> filas, OutputStream salida) {
+        escribirArreglo(filas, salida, this::escribirFilaReporte);
+    }
+    
+    /**
+     * Writes the report rows as NDJSON: one object per line.
+     *
+     * @param filas rows to write; consumed but not closed
+     * @param salida response body; flushed but not closed
+     */
+    public void escribirReporteNdjson(Stream<ReporteMovimientoDTO> filas, OutputStream salida) {
+        try (JsonGenerator generador = writer.createGenerator(salida)) {
+            filas.forEach(fila -> {
+                escribirFilaReporte(generador, fila);
+                generador.writeRaw('\n');
+            });
+        }
+    }
+    
+    private <T> void escribirArreglo(Stream<T> filas, OutputStream salida, BiConsumer<JsonGenerator, T> escribirFila) {
+        try (JsonGenerator generador = writer.createGenerator(salida)) {
+            generador.writeStartArray();
+            filas.forEach(fila -> escribirFila.accept(generador, fila));
+            generador.writeEndArray();
+        }
+    }
+    
+    private void escribirMovimiento(JsonGenerator generador, MovimientoDTO movimiento) {
+        generador.writeStartObject();
+        numero(generador, ID, movimiento.getId());
+        fecha(generador, FECHA, movimiento.getFecha());
+        generador.writeName(TIPO_MOVIMIENTO);
+        generador.writeString(movimiento.getTipoMovimiento());
+        generador.writeName(VALOR);
+        generador.writeNumber(movimiento.getValor());
+        generador.writeName(SALDO);
+        generador.writeNumber(movimiento.getSaldo());
+        generador.writeName(NUMERO_CUENTA);
+        generador.writeString(movimiento.getNumeroCuenta());
+        generador.writeEndObject();
+    }
+    
+    private void escribirCuenta(JsonGenerator generador, CuentaDTO cuenta) {
+        generador.writeStartObject();
+        numero(generador, ID, cuenta.getId());
+        generador.writeName(NUMERO_CUENTA);
+        generador.writeString(cuenta.getNumeroCuenta());
+        generador.writeName(TIPO_CUENTA);
+        generador.writeString(cuenta.getTipoCuenta());
+        generador.writeName(SALDO_INICIAL);
+        generador.writeNumber(cuenta.getSaldoInicial());
+        booleano(generador, ESTADO, cuenta.getEstado());
+        numero(generador, CLIENTE_ID, cuenta.getClienteId());
+        generador.writeName(CLIENTE_NOMBRE);
+        generador.writeString(cuenta.getClienteNombre());
+        generador.writeEndObject();
+    }
+    
+    private void escribirFilaReporte(JsonGenerator generador, ReporteMovimientoDTO fila) {
+        generador.writeStartObject();
+        fecha(generador, FECHA, fila.fecha());
+        generador.writeName(CLIENTE);
+        generador.writeString(fila.cliente());
+        generador.writeName(NUMERO_CUENTA);
+        generador.writeString(fila.numeroCuenta());
+        generador.writeName(TIPO);
+        generador.writeString(fila.tipo());
+        generador.writeName(SALDO_INICIAL);
+        generador.writeNumber(fila.saldoInicial());
+        booleano(generador, ESTADO, fila.estado());
+        generador.writeName(MOVIMIENTO);
+        generador.writeNumber(fila.movimiento());
+        generador.writeName(SALDO_DISPONIBLE);
+        generador.writeNumber(fila.saldoDisponible());
+        generador.writeEndObject();
+    }
+    
+    // writeString y writeNumber(BigDecimal) ya escriben null; los tipos envueltos no tienen sobrecarga
+    
+    private void numero(JsonGenerator generador, SerializableString nombre, Long valor) {
+        generador.writeName(nombre);
+        if (valor == null) {
+            generador.writeNull();
+        } else {
+            generador.writeNumber(valor);
+        }
+    }
+    
+    private void booleano(JsonGenerator generador, SerializableString nombre, Boolean valor) {
+        generador.writeName(nombre);
+        if (valor == null) {
+            generador.writeNull();
+        } else {
+            generador.writeBoolean(valor);
+        }
+    }
+    
+    private void fecha(JsonGenerator generador, SerializableString nombre, LocalDateTime valor) {
+        generador.writeName(nombre);
+        if (valor == null) {
+            generador.writeNull();
+        } else {
+            // Mismo formato que el serializador de java.time de Jackson
+            generador.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(valor));
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.FormatoReporte;
+import com.bank.app.dto.GeneracionExtractosDTO;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.exception.ServiceUnavailableException;
+import com.bank.app.repository.ClienteRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes the statement of every client for a date range, one file per client,
+ * instead of calling the report endpoint client by client.
+ *
+ * Clients are independent, so a fixed number of workers take the next client
+ * id from a shared counter until the list is exhausted; a client with a long
+ * history only delays the worker that took it. Each client is read through the
+ * report's read-only streaming cursor, in its own transaction.
+ *
+ * A file is written under a temporary name and renamed when complete, so an
+ * existing file always means a finished client. Running the job again for the
+ * same range and format, after a crash or a failed client, skips those files
+ * and resumes with the clients that are still missing.
+ */
+@Service
+@Slf4j
+public class GeneracionExtractosService {
+    
+    private static final DateTimeFormatter NOMBRE_RANGO = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final String TEMPORAL = ".tmp";
+    
+    private final ClienteRepository clienteRepository;
+    private final ReporteService reporteService;
+    private final Path directorioBase;
+    private final FormatoReporte formatoProgramado;
+    private final int hilos;
+    private final Cache<String, Generacion> generaciones;
+    private final AtomicReference<Generacion> enCurso = new AtomicReference<>();
+    private volatile boolean detenido;
+    
+    public GeneracionExtractosService(ClienteRepository clienteRepository,
+                                      ReporteService reporteService,
+                                      @Value("${app.extractos.directorio:extractos}") Path directorioBase,
+                                      @Value("${app.extractos.formato:csv}") String formatoProgramado,
+                                      @Value("${app.extractos.hilos:0}") int hilos) {
+        this.clienteRepository = clienteRepository;
+        this.reporteService = reporteService;
+        this.directorioBase = directorioBase;
+        this.formatoProgramado = FormatoReporte.desde(formatoProgramado);
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.generaciones = Caffeine.newBuilder()
+                .maximumSize(100)
+                .build();
+    }
+    
+    /**
+     * Scheduled entry point: statements of the previous calendar month.
+     * Disabled unless {@code app.extractos.cron} is configured.
+     */
+    @Scheduled(cron = "${app.extractos.cron:-}")
+    public void generacionProgramada() {
+        LocalDate inicioMes = LocalDate.now().withDayOfMonth(1);
+        iniciar(inicioMes.minusMonths(1).atStartOfDay(), inicioMes.atStartOfDay().minusNanos(1), formatoProgramado);
+    }
+    
+    /**
+     * Starts generating the statements of every client in the background.
+     *
+     * @param fechaInicio start of the range (inclusive)
+     * @param fechaFin end of the range (inclusive)
+     * @param formato file format
+     * @return the progress of the new run
+     * @throws BusinessException if the range is invalid
+     * @throws ServiceUnavailableException if another run is in progress
+     */
+    public GeneracionExtractosDTO iniciar(LocalDateTime fechaInicio, LocalDateTime fechaFin, FormatoReporte formato) {
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new BusinessException("La fecha de fin debe ser posterior a la fecha de inicio");
+        }
+        
+        Path directorio = directorioBase.resolve(NOMBRE_RANGO.format(fechaInicio) + "-" + NOMBRE_RANGO.format(fechaFin));
+        Generacion generacion = new Generacion(UUID.randomUUID().toString(), fechaInicio, fechaFin, formato, directorio);
+        if (!enCurso.compareAndSet(null, generacion)) {
+            throw new ServiceUnavailableException("Ya hay una generación de extractos en curso");
+        }
+        
+        try {
+            Files.createDirectories(directorio);
+            generacion.clienteIds = clienteRepository.findAllIds();
+            generacion.existentes = existentes(directorio, formato);
+        } catch (IOException | RuntimeException ex) {
+            enCurso.set(null);
+            throw new IllegalStateException("No se pudo preparar la generación de extractos en " + directorio, ex);
+        }
+        generaciones.put(generacion.id, generacion);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(hilos,
+                Thread.ofPlatform().name("extracto-", 0).daemon(true).factory());
+        AtomicInteger siguiente = new AtomicInteger();
+        CompletableFuture<?>[] trabajadores = new CompletableFuture<?>[hilos];
+        for (int i = 0; i < hilos; i++) {
+            trabajadores[i] = CompletableFuture.runAsync(() -> procesar(generacion, siguiente), executor);
+        }
+        generacion.termino = CompletableFuture.allOf(trabajadores).whenComplete((r, ex) -> {
+            executor.shutdown();
+            enCurso.set(null);
+            generacion.finNanos = System.nanoTime();
+            generacion.finalizada = LocalDateTime.now();
+            GeneracionExtractosDTO resultado = generacion.estado();
+            log.info("Statement run {} finished: {} generated, {} skipped, {} failed of {} clientes, {} clientes/s with {} threads",
+                    resultado.getId(), resultado.getGenerados(), resultado.getOmitidos(), resultado.getFallidos(),
+                    resultado.getTotalClientes(), String.format("%.1f", resultado.getClientesPorSegundo()), hilos);
+        });
+        
+        log.info("Statement run {} started for {} clientes into {}", generacion.id, generacion.clienteIds.size(), directorio);
+        return generacion.estado();
+    }
+    
+    public GeneracionExtractosDTO estado(String id) {
+        Generacion generacion = generaciones.getIfPresent(id);
+        if (generacion == null) {
+            throw new ResourceNotFoundException("Generación de extractos no encontrada con ID: " + id);
+        }
+        return generacion.estado();
+    }
+    
+    private Set<String> existentes(Path directorio, FormatoReporte formato) throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.map(archivo -> archivo.getFileName().toString())
+                    .filter(nombre -> nombre.endsWith("." + formato.getExtension()))
+                    .collect(Collectors.toSet());
+        }
+    }
+    
+    private void procesar(Generacion generacion, AtomicInteger siguiente) {
+        List<Long> clienteIds = generacion.clienteIds;
+        int i;
+        while (!detenido && (i = siguiente.getAndIncrement()) < clienteIds.size()) {
+            Long clienteId = clienteIds.get(i);
+            String nombre = "extracto-" + clienteId + "." + generacion.formato.getExtension();
+            if (generacion.existentes.contains(nombre)) {
+                generacion.omitidos.increment();
+                continue;
+            }
+            
+            try {
+                escribir(generacion, clienteId, generacion.directorio.resolve(nombre));
+                generacion.generados.increment();
+            } catch (IOException | RuntimeException ex) {
+                // El cliente queda sin archivo y se reintenta al volver a ejecutar la generación
+                log.warn("Statement of cliente {} failed in run {}", clienteId, generacion.id, ex);
+                generacion.fallidos.increment();
+            }
+        }
+    }
+    
+    private void escribir(Generacion generacion, Long clienteId, Path archivo) throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + TEMPORAL);
+        try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(temporal), 64 * 1024)) {
+            reporteService.escribirReporte(clienteId, generacion.fechaInicio, generacion.fechaFin,
+                    generacion.formato, salida);
+        }
+        // El nombre final solo aparece con el archivo completo
+        Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * Stops handing out clients and waits for the ones being written; the
+     * remaining clients are picked up by the next run of the same range.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        detenido = true;
+        Generacion generacion = enCurso.get();
+        if (generacion == null || generacion.termino == null) {
+            return;
+        }
+        try {
+            generacion.termino.get(30, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            log.warn("Statement run {} did not stop before shutdown", generacion.id);
+        } catch (ExecutionException ex) {
+            log.warn("Statement run {} ended with an error", generacion.id, ex.getCause());
+        }
+    }
+    
+    /**
+     * Progress of one run. Counters are updated by the workers and read by
+     * {@link #estado}; the snapshot is consistent enough for monitoring.
+     */
+    private final class Generacion {
+        
+        private final String id;
+        private final LocalDateTime fechaInicio;
+        private final LocalDateTime fechaFin;
+        private final FormatoReporte formato;
+        private final Path directorio;
+        private final LocalDateTime iniciada = LocalDateTime.now();
+        private final long inicioNanos = System.nanoTime();
+        private final LongAdder generados = new LongAdder();
+        private final LongAdder omitidos = new LongAdder();
+        private final LongAdder fallidos = new LongAdder();
+        private List<Long> clienteIds = List.of();
+        private Set<String> existentes = Set.of();
+        private volatile CompletableFuture<Void> termino;
+        private volatile LocalDateTime finalizada;
+        private volatile long finNanos;
+        
+        private Generacion(String id, LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                           FormatoReporte formato, Path directorio) {
+            this.id = id;
+            this.fechaInicio = fechaInicio;
+            this.fechaFin = fechaFin;
+            this.formato = formato;
+            this.directorio = directorio;
+        }
+        
+        private GeneracionExtractosDTO estado() {
+            long procesados = generados.sum() + omitidos.sum() + fallidos.sum();
+            String estado;
+            if (finalizada == null) {
+                estado = GeneracionExtractosDTO.EN_CURSO;
+            } else if (procesados < clienteIds.size()) {
+                estado = GeneracionExtractosDTO.INTERRUMPIDA;
+            } else if (fallidos.sum() > 0) {
+                estado = GeneracionExtractosDTO.CON_ERRORES;
+            } else {
+                estado = GeneracionExtractosDTO.COMPLETADA;
+            }
+            
+            // Solo cuentan los clientes escritos en esta ejecución, no los omitidos
+            long fin = finalizada == null ? System.nanoTime() : finNanos;
+            double segundos = Math.max(fin - inicioNanos, 1) / 1_000_000_000.0;
+            return new GeneracionExtractosDTO(id, estado, fechaInicio, fechaFin, formato.name(),
+                    directorio.toAbsolutePath().toString(), hilos, clienteIds.size(), generados.sum(),
+                    omitidos.sum(), fallidos.sum(), iniciada, finalizada, generados.sum() / segundos);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.ClaveIdempotencia;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.repository.ClaveIdempotenciaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Deduplicates movement postings retried with the same {@code Idempotency-Key}.
+ * <ul>
+ *   <li>Recent keys are answered from an in-memory map with time-based
+ *       eviction, without touching the database.</li>
+ *   <li>Copies of a request that arrive while the first one is still posting
+ *       wait for it and share its outcome.</li>
+ *   <li>The key row is written in the posting transaction. On a cache miss
+ *       (after a restart, or when another instance posted the key) the row is
+ *       read before posting and the stored movement is returned; its primary
+ *       key only settles two instances posting the same key at once.</li>
+ * </ul>
+ * A key dedupes for {@code app.idempotencia.ventana} after it was stored,
+ * whether or not the purge job has removed it yet.
+ * Stored keys are always read in a read-write transaction, so with a read
+ * replica configured they come from the primary: a retry within the
+ * replica lag must still see the key its first attempt committed.
+ */
+@Service
+@Slf4j
+public class IdempotenciaService {
+    
+    private static final int LONGITUD_MAXIMA = 100;
+    
+    private final MovimientoService movimientoService;
+    private final MovimientoRepository movimientoRepository;
+    private final ClaveIdempotenciaRepository claveIdempotenciaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, Registro> recientes;
+    private final ConcurrentHashMap<String, EnCurso> enCurso = new ConcurrentHashMap<>();
+    private final Duration ventana;
+    private final long esperaMillis;
+    
+    public IdempotenciaService(MovimientoService movimientoService,
+                               MovimientoRepository movimientoRepository,
+                               ClaveIdempotenciaRepository claveIdempotenciaRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.idempotencia.ventana:24h}") Duration ventana,
+                               @Value("${app.idempotencia.max-claves:100000}") long maxClaves,
+                               @Value("${app.idempotencia.espera-ms:10000}") long esperaMillis) {
+        this.movimientoService = movimientoService;
+        this.movimientoRepository = movimientoRepository;
+        this.claveIdempotenciaRepository = claveIdempotenciaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recientes = Caffeine.newBuilder()
+                .expireAfterWrite(ventana)
+                .maximumSize(maxClaves)
+                .build();
+        this.ventana = ventana;
+        this.esperaMillis = esperaMillis;
+    }
+    
+    /**
+     * Posts a movement at most once per key.
+     * 
+     * @param clave the Idempotency-Key header
+     * @param movimientoDTO the request body
+     * @return the posted movement, or the original one when the key was already used
+     * @throws BusinessException if the key is invalid or was used with a different request
+     */
+    public MovimientoDTO registrar(String clave, MovimientoDTO movimientoDTO) {
+        if (clave.isBlank() || clave.length() > LONGITUD_MAXIMA) {
+            throw new BusinessException("Idempotency-Key debe tener entre 1 y " + LONGITUD_MAXIMA + " caracteres");
+        }
+        String huella = huella(movimientoDTO);
+        
+        Registro registro = recientes.getIfPresent(clave);
+        if (vigente(registro)) {
+            return repetir(registro.huella, huella, registro.movimiento);
+        }
+        
+        EnCurso propio = new EnCurso(huella);
+        EnCurso existente = enCurso.putIfAbsent(clave, propio);
+        if (existente != null) {
+            return esperar(existente, huella);
+        }
+        
+        try {
+            MovimientoDTO resultado = ejecutar(clave, huella, movimientoDTO);
+            propio.resultado.complete(resultado);
+            return resultado;
+        } catch (RuntimeException ex) {
+            propio.resultado.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            enCurso.remove(clave, propio);
+        }
+    }
+    
+    private MovimientoDTO ejecutar(String clave, String huella, MovimientoDTO movimientoDTO) {
+        // Otra copia pudo terminar entre la consulta al mapa y el registro en curso
+        Registro registro = recientes.getIfPresent(clave);
+        if (vigente(registro)) {
+            return repetir(registro.huella, huella, registro.movimiento);
+        }
+        
+        // Tras un reinicio o desde otra instancia la clave solo está en la base
+        MovimientoDTO almacenado = transactionTemplate.execute(status -> almacenado(clave, huella));
+        if (almacenado != null) {
+            return almacenado;
+        }
+        
+        MovimientoDTO resultado;
+        LocalDateTime creadaEn = LocalDateTime.now();
+        try {
+            resultado = transactionTemplate.execute(status -> {
+                MovimientoDTO guardado = movimientoService.save(movimientoDTO);
+                claveIdempotenciaRepository.saveAndFlush(
+                        new ClaveIdempotencia(clave, huella, guardado.getId(), creadaEn));
+                return guardado;
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // Otra instancia confirmó la misma clave en paralelo: el movimiento nuevo se revirtió
+            log.info("Idempotency-Key {} committed concurrently, returning the stored movement", clave);
+            MovimientoDTO guardado = transactionTemplate.execute(status -> almacenado(clave, huella));
+            if (guardado == null) {
+                throw ex;
+            }
+            return guardado;
+        }
+        
+        recientes.put(clave, new Registro(huella, resultado, creadaEn));
+        return resultado;
+    }
+    
+    /**
+     * The movement stored for a key, or null when the key is not stored or
+     * is older than the window. Runs inside a read-write transaction, which
+     * keeps it on the primary.
+     */
+    private MovimientoDTO almacenado(String clave, String huella) {
+        ClaveIdempotencia guardada = claveIdempotenciaRepository.findById(clave).orElse(null);
+        if (guardada == null) {
+            return null;
+        }
+        LocalDateTime limite = LocalDateTime.now().minus(ventana);
+        if (guardada.getCreadaEn().isBefore(limite)) {
+            // Vencida aunque la purga no haya corrido: se borra para que la clave pueda registrarse de nuevo
+            claveIdempotenciaRepository.deleteVencida(clave, limite);
+            return null;
+        }
+        MovimientoDTO original = movimientoRepository.findDTOById(guardada.getMovimientoId())
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Movimiento no encontrado con ID: " + guardada.getMovimientoId()));
+        recientes.put(clave, new Registro(guardada.getHuella(), original, guardada.getCreadaEn()));
+        return repetir(guardada.getHuella(), huella, original);
+    }
+    
+    /** Whether a remembered key is still inside the window it was stored with. */
+    private boolean vigente(Registro registro) {
+        return registro != null && !registro.creadaEn.isBefore(LocalDateTime.now().minus(ventana));
+    }
+    
+    private MovimientoDTO esperar(EnCurso existente, String huella) {
+        verificarHuella(existente.huella, huella);
+        try {
+            return existente.resultado.get(esperaMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Espera de la solicitud original interrumpida", ex);
+        } catch (TimeoutException ex) {
+            throw new BusinessException("La solicitud original con esta Idempotency-Key sigue en proceso");
+        }
+    }
+    
+    private MovimientoDTO repetir(String huellaOriginal, String huella, MovimientoDTO movimiento) {
+        verificarHuella(huellaOriginal, huella);
+        return movimiento;
+    }
+    
+    private void verificarHuella(String huellaOriginal, String huella) {
+        if (!huellaOriginal.equals(huella)) {
+            throw new BusinessException("La Idempotency-Key ya se usó con una solicitud diferente");
+        }
+    }
+    
+    private String huella(MovimientoDTO dto) {
+        return dto.getNumeroCuenta() + "|" + dto.getTipoMovimiento() + "|"
+                + dto.getValor().stripTrailingZeros().toPlainString();
+    }
+    
+    /**
+     * Drops stored keys older than the dedupe window.
+     */
+    @Scheduled(cron = "${app.idempotencia.purga-cron:0 30 0 * * *}")
+    @Transactional
+    public void purgar() {
+        int eliminadas = claveIdempotenciaRepository.deleteByCreadaEnBefore(LocalDateTime.now().minus(ventana));
+        log.info("Purged {} idempotency keys", eliminadas);
+    }
+    
+    private static final class Registro {
+        
+        private final String huella;
+        private final MovimientoDTO movimiento;
+        private final LocalDateTime creadaEn;
+        
+        private Registro(String huella, MovimientoDTO movimiento, LocalDateTime creadaEn) {
+            this.huella = huella;
+            this.movimiento = movimiento;
+            this.creadaEn = creadaEn;
+        }
+    }
+    
+    private static final class EnCurso {
+        
+        private final String huella;
+        private final CompletableFuture<MovimientoDTO> resultado = new CompletableFuture<>();
+        
+        private EnCurso(String huella) {
+            this.huella = huella;
+        }
+    }
+}
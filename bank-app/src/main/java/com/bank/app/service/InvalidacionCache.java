@@ -0,0 +1,83 @@
+package com.bank.app.service;
+
+import com.bank.app.config.CacheConfig;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts exactly the cache entries affected by a write to an account or a client.
+ * Account entries are keyed both by id and by number, so eviction needs the
+ * entity rather than just the id. Evictions inside a transaction take effect
+ * after commit (see {@link CacheConfig}).
+ */
+@Component
+@RequiredArgsConstructor
+public class InvalidacionCache {
+    
+    private final CacheManager cacheManager;
+    
+    /**
+     * Evicts the DTO entries of an account that was updated.
+     * The number-to-id mapping is kept: neither can change on update.
+     * 
+     * @param cuenta the updated account
+     */
+    public void cuentaActualizada(Cuenta cuenta) {
+        evictar(CacheConfig.CUENTAS, cuenta.getId());
+        evictar(CacheConfig.CUENTAS_POR_NUMERO, cuenta.getNumeroCuenta());
+    }
+    
+    /**
+     * Evicts every entry of an account that was deleted.
+     * 
+     * @param cuenta the deleted account
+     */
+    public void cuentaEliminada(Cuenta cuenta) {
+        cuentaActualizada(cuenta);
+        evictar(CacheConfig.CUENTA_ID_POR_NUMERO, cuenta.getNumeroCuenta());
+    }
+    
+    /**
+     * Evicts a client and the DTOs of its accounts, which embed the client name.
+     * 
+     * @param cliente the updated client
+     */
+    public void clienteActualizado(Cliente cliente) {
+        evictar(CacheConfig.CLIENTES, cliente.getClienteId());
+        cliente.getCuentas().forEach(this::cuentaActualizada);
+    }
+    
+    /**
+     * Evicts a client and every entry of its accounts, deleted in cascade.
+     * 
+     * @param cliente the deleted client
+     */
+    public void clienteEliminado(Cliente cliente) {
+        evictar(CacheConfig.CLIENTES, cliente.getClienteId());
+        cliente.getCuentas().forEach(this::cuentaEliminada);
+    }
+    
+    /**
+     * Drops a cached number-to-id mapping that points to a missing account.
+     * Applied immediately, because the calling transaction is about to roll back.
+     * 
+     * @param numeroCuenta the account number
+     */
+    public void numeroCuentaObsoleto(String numeroCuenta) {
+        Cache cache = cacheManager.getCache(CacheConfig.CUENTA_ID_POR_NUMERO);
+        if (cache != null) {
+            cache.evictIfPresent(numeroCuenta);
+        }
+    }
+    
+    private void evictar(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+}
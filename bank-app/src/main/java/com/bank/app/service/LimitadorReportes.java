@@ -0,0 +1,69 @@
+package com.bank.app.service;
+
+import com.bank.app.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps how many reports read from the database at the same time.
+ * A report holds a pooled connection for the whole query (and for the whole
+ * download when streamed), so without a cap a burst of reports takes every
+ * connection and movement posting queues behind it. This matters most with
+ * virtual threads, where request concurrency is no longer bounded by the
+ * Tomcat worker pool and the connection pool becomes the only limit.
+ */
+@Component
+public class LimitadorReportes {
+    
+    private final Semaphore permisos;
+    private final long esperaMillis;
+    
+    public LimitadorReportes(
+            @Value("${app.reportes.max-concurrentes:2}") int maxConcurrentes,
+            @Value("${app.reportes.espera-ms:2000}") long esperaMillis) {
+        this.permisos = new Semaphore(maxConcurrentes, true);
+        this.esperaMillis = esperaMillis;
+    }
+    
+    /**
+     * Takes a report slot, waiting up to the configured time for one to free up.
+     * 
+     * @return the slot, released by closing it
+     * @throws ServiceUnavailableException if no slot frees up in time
+     */
+    public Permiso adquirir() {
+        try {
+            if (!permisos.tryAcquire(esperaMillis, TimeUnit.MILLISECONDS)) {
+                throw new ServiceUnavailableException("Demasiados reportes en curso, intente nuevamente");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Generación de reporte interrumpida");
+        }
+        return new Permiso();
+    }
+    
+    int disponibles() {
+        return permisos.availablePermits();
+    }
+    
+    /** A report slot; closing it more than once releases it only once. */
+    public final class Permiso implements AutoCloseable {
+        
+        private final AtomicBoolean liberado = new AtomicBoolean();
+        
+        private Permiso() {
+        }
+        
+        @Override
+        public void close() {
+            if (liberado.compareAndSet(false, true)) {
+                permisos.release();
+            }
+        }
+    }
+}
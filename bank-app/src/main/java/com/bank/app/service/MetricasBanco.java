@@ -0,0 +1,157 @@
+package com.bank.app.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for movement posting and report generation.
+ * Every meter is registered once at startup and kept in an EnumMap, so the
+ * hot path never builds tags or looks meters up in the registry. Timers
+ * publish a bucketed histogram bounded to the expected latency range instead
+ * of client-side percentiles; percentiles are computed by Prometheus with
+ * {@code histogram_quantile}.
+ */
+@Component
+public class MetricasBanco {
+    
+    /** Phases of a movement post, in execution order. */
+    public enum Fase {
+        BUSQUEDA_CUENTA("busqueda_cuenta"),
+        BLOQUEO("bloqueo"),
+        LECTURA_SALDO("lectura_saldo"),
+        CUPO_DIARIO("cupo_diario"),
+        SALDO_DIARIO("saldo_diario"),
+        /** Flush of the movement row together with the account, limit and snapshot updates. */
+        INSERCION("insercion");
+        
+        private final String tag;
+        
+        Fase(String tag) {
+            this.tag = tag;
+        }
+    }
+    
+    /** Business rules that reject a movement. */
+    public enum Rechazo {
+        CUENTA_INACTIVA("cuenta_inactiva"),
+        SALDO_NO_DISPONIBLE("saldo_no_disponible"),
+        CUPO_DIARIO_EXCEDIDO("cupo_diario_excedido");
+        
+        private final String tag;
+        
+        Rechazo(String tag) {
+            this.tag = tag;
+        }
+    }
+    
+    /** Report output formats, including the JSON list endpoint. */
+    public enum TipoReporte {
+        JSON("json"),
+        NDJSON("ndjson"),
+        CSV("csv");
+        
+        private final String tag;
+        
+        TipoReporte(String tag) {
+            this.tag = tag;
+        }
+    }
+    
+    private final Map<Fase, Timer> fases = new EnumMap<>(Fase.class);
+    private final Map<Rechazo, Counter> rechazos = new EnumMap<>(Rechazo.class);
+    private final Map<TipoReporte, Timer> reportes = new EnumMap<>(TipoReporte.class);
+    private final Timer registrados;
+    private final Timer rechazados;
+    private final DistributionSummary grupos;
+    
+    public MetricasBanco(MeterRegistry registry) {
+        for (Fase fase : Fase.values()) {
+            fases.put(fase, Timer.builder("banco.movimiento.fase")
+                    .description("Duration of each phase of a movement post")
+                    .tag("fase", fase.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(1))
+                    .register(registry));
+        }
+        for (Rechazo rechazo : Rechazo.values()) {
+            rechazos.put(rechazo, Counter.builder("banco.movimiento.rechazos")
+                    .description("Movements rejected by a business rule")
+                    .tag("motivo", rechazo.tag)
+                    .register(registry));
+        }
+        for (TipoReporte tipo : TipoReporte.values()) {
+            reportes.put(tipo, Timer.builder("banco.reporte.generacion")
+                    .description("Time to generate a client report")
+                    .tag("formato", tipo.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(10))
+                    .maximumExpectedValue(Duration.ofMinutes(2))
+                    .register(registry));
+        }
+        registrados = registroTimer(registry, "registrado");
+        rechazados = registroTimer(registry, "rechazado");
+        grupos = DistributionSummary.builder("banco.movimiento.grupo")
+                .description("Movements committed together by the posting pipeline")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1000.0)
+                .register(registry);
+    }
+    
+    private static Timer registroTimer(MeterRegistry registry, String resultado) {
+        return Timer.builder("banco.movimiento.registro")
+                .description("Duration of a movement post, from lookup to insert")
+                .tag("resultado", resultado)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry);
+    }
+    
+    public <T> T medir(Fase fase, Supplier<T> operacion) {
+        return fases.get(fase).record(operacion);
+    }
+    
+    public void medir(Fase fase, Runnable operacion) {
+        fases.get(fase).record(operacion);
+    }
+    
+    public <T> T medir(TipoReporte tipo, Supplier<T> operacion) {
+        return reportes.get(tipo).record(operacion);
+    }
+    
+    public Timer reporte(TipoReporte tipo) {
+        return reportes.get(tipo);
+    }
+    
+    public Timer.Sample iniciarRegistro() {
+        return Timer.start();
+    }
+    
+    /**
+     * Stops a post sample started with {@link #iniciarRegistro}.
+     * 
+     * @param muestra the running sample
+     * @param aceptado whether the movement was posted
+     */
+    public void finalizarRegistro(Timer.Sample muestra, boolean aceptado) {
+        muestra.stop(aceptado ? registrados : rechazados);
+    }
+    
+    public void rechazo(Rechazo motivo) {
+        rechazos.get(motivo).increment();
+    }
+    
+    public void grupo(int movimientos) {
+        grupos.record(movimientos);
+    }
+}
@@ -0,0 +1,664 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.entity.RetiroDiario;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.exception.ServiceUnavailableException;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.service.BitacoraMovimientos.Estado;
+import com.bank.app.service.BitacoraMovimientos.Instantanea;
+import com.bank.app.service.BitacoraMovimientos.Registro;
+import com.bank.app.service.MetricasBanco.Rechazo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posting engine for the highest-volume accounts, listed in
+ * {@code app.motor.cuentas}. The balance, hash-chain tail and daily
+ * withdrawals of each listed account live in memory, so a post checks the
+ * same rules as {@link MovimientoService#registrar} without a database
+ * round-trip:
+ * <ol>
+ *   <li>the movement is validated and applied under the account's monitor;</li>
+ *   <li>a single writer thread appends the movements accepted meanwhile to
+ *       the {@link BitacoraMovimientos write-ahead log} with one fsync (group
+ *       commit), and only then is the request answered;</li>
+ *   <li>a second thread inserts the logged movements into {@code movimientos}
+ *       in batches, with the account balance, daily snapshot and withdrawal
+ *       accumulator, every {@code app.motor.persistencia-ms}.</li>
+ * </ol>
+ *
+ * Every {@code app.motor.instantanea-intervalo} the state of the rows already
+ * inserted is written as a snapshot and older log segments are dropped. On
+ * start the log after the snapshot is replayed; the rows whose hash is past
+ * the {@code hash_ultimo_movimiento} of their account were not inserted yet
+ * and are inserted before the engine accepts posts.
+ *
+ * A row that cannot be inserted holds back only its own account: the rows of
+ * that account stay in memory and in the log, in order, and are retried on
+ * every pass, while the other accounts keep being inserted. No snapshot is
+ * taken while rows are held, so the log keeps them across restarts.
+ *
+ * While listed, an account only accepts {@code POST /movimientos}: every other
+ * write path would bypass the in-memory state and is rejected.
+ */
+@Service
+@Slf4j
+public class MotorCuentas {
+    
+    private final CuentaRepository cuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final ConciliacionService conciliacionService;
+    private final RetiroDiarioService retiroDiarioService;
+    private final SaldoDiarioService saldoDiarioService;
+    private final CuentaLockManager cuentaLockManager;
+    private final CadenaHash cadenaHash;
+    private final EnrutamientoLecturas enrutamientoLecturas;
+    private final MetricasBanco metricas;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final List<String> numerosCuenta;
+    private final Path directorio;
+    private final int lote;
+    private final long persistenciaMillis;
+    private final Duration intervaloInstantanea;
+    private final BigDecimal limiteDiario;
+    
+    private final Map<String, CuentaMotor> porNumero = new ConcurrentHashMap<>();
+    private final Set<Long> gestionadas = ConcurrentHashMap.newKeySet();
+    private final LinkedBlockingQueue<Aceptado> porPersistir = new LinkedBlockingQueue<>();
+    // Solo los usa el hilo de persistencia (y el arranque y la detención, sin ese hilo activo)
+    private final Map<Long, Estado> persistidos = new HashMap<>();
+    // Filas de cada cuenta cuya inserción falla, en orden: la cuenta no avanza hasta que entren
+    private final Map<Long, List<Aceptado>> retenidos = new LinkedHashMap<>();
+    private final CountDownLatch detencion = new CountDownLatch(1);
+    private ArrayBlockingQueue<Pendiente> porEscribir;
+    private BitacoraMovimientos bitacora;
+    private Thread escritor;
+    private Thread persistidor;
+    private long secuenciaPersistida;
+    private long ultimaInstantanea;
+    private volatile boolean detenido;
+    private volatile boolean fallido;
+    
+    public MotorCuentas(CuentaRepository cuentaRepository,
+                        MovimientoRepository movimientoRepository,
+                        ConciliacionService conciliacionService,
+                        RetiroDiarioService retiroDiarioService,
+                        SaldoDiarioService saldoDiarioService,
+                        CuentaLockManager cuentaLockManager,
+                        CadenaHash cadenaHash,
+                        EnrutamientoLecturas enrutamientoLecturas,
+                        MetricasBanco metricas,
+                        MeterRegistry meterRegistry,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${app.motor.cuentas:}") List<String> numerosCuenta,
+                        @Value("${app.motor.directorio:motor}") Path directorio,
+                        @Value("${app.motor.cola:10000}") int capacidadCola,
+                        @Value("${app.motor.lote:500}") int lote,
+                        @Value("${app.motor.persistencia-ms:200}") long persistenciaMillis,
+                        @Value("${app.motor.instantanea-intervalo:5m}") Duration intervaloInstantanea,
+                        @Value("${app.daily-withdrawal-limit}") BigDecimal limiteDiario) {
+        this.cuentaRepository = cuentaRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.conciliacionService = conciliacionService;
+        this.retiroDiarioService = retiroDiarioService;
+        this.saldoDiarioService = saldoDiarioService;
+        this.cuentaLockManager = cuentaLockManager;
+        this.cadenaHash = cadenaHash;
+        this.enrutamientoLecturas = enrutamientoLecturas;
+        this.metricas = metricas;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.numerosCuenta = numerosCuenta.stream().map(String::trim).filter(n -> !n.isEmpty()).toList();
+        this.directorio = directorio;
+        this.porEscribir = new ArrayBlockingQueue<>(capacidadCola);
+        this.lote = lote;
+        this.persistenciaMillis = persistenciaMillis;
+        this.intervaloInstantanea = intervaloInstantanea;
+        this.limiteDiario = limiteDiario;
+    }
+    
+    /**
+     * Recovers from the snapshot and the log, inserts the movements that
+     * were logged but not inserted, loads the listed accounts and starts the
+     * writer and persistence threads. Does nothing when no account is listed.
+     */
+    @PostConstruct
+    public void iniciar() throws IOException {
+        if (numerosCuenta.isEmpty()) {
+            return;
+        }
+        bitacora = new BitacoraMovimientos(directorio);
+        recuperar();
+        
+        List<Estado> estados = transactionTemplate.execute(status -> numerosCuenta.stream().map(this::cargar).toList());
+        for (Estado estado : estados) {
+            // Una cuenta con filas retenidas parte de la última aceptada, no de la base
+            List<Aceptado> pendientes = retenidos.get(estado.cuentaId());
+            porNumero.put(estado.numeroCuenta(),
+                    new CuentaMotor(pendientes != null ? pendientes.getLast().estado : estado));
+            gestionadas.add(estado.cuentaId());
+            persistidos.put(estado.cuentaId(), estado);
+        }
+        // Lo registrado ya está en la base o retenido: la bitácora vuelve a empezar desde aquí
+        secuenciaPersistida = bitacora.getSiguienteSecuencia() - 1;
+        tomarInstantanea();
+        
+        escritor = Thread.ofPlatform().name("motor-bitacora").daemon(true).start(this::escribir);
+        persistidor = Thread.ofPlatform().name("motor-persistencia").daemon(true).start(this::persistirPeriodicamente);
+        Gauge.builder("banco.motor.pendientes", porPersistir, Collection::size)
+                .description("Movements logged by the in-memory engine and not yet inserted")
+                .register(meterRegistry);
+        log.info("In-memory engine started for {} cuentas, log in {}", estados.size(), directorio.toAbsolutePath());
+    }
+    
+    private void recuperar() throws IOException {
+        Optional<Instantanea> instantanea = bitacora.leerInstantanea();
+        Map<Long, Estado> estados = new LinkedHashMap<>();
+        instantanea.ifPresent(i -> i.cuentas().forEach(e -> estados.put(e.cuentaId(), e)));
+        List<Registro> registros = bitacora.leerDesde(instantanea.map(Instantanea::secuencia).orElse(0L));
+        if (registros.isEmpty()) {
+            return;
+        }
+        
+        Map<Long, Estado> iniciales = new HashMap<>(estados);
+        List<Aceptado> reproducidos = new ArrayList<>(registros.size());
+        for (Registro registro : registros) {
+            Estado estado = estados.get(registro.cuentaId());
+            if (estado == null) {
+                throw new IllegalStateException("La bitácora del motor tiene movimientos de la cuenta "
+                        + registro.cuentaId() + ", ausente de la instantánea");
+            }
+            Estado siguiente = reproducir(estado, registro);
+            estados.put(registro.cuentaId(), siguiente);
+            reproducidos.add(new Aceptado(registro, siguiente));
+        }
+        
+        // Lo insertado llega hasta el hash que la cuenta tiene como último en la base
+        Map<Long, String> insertados = transactionTemplate.execute(status -> {
+            Map<Long, String> colas = new HashMap<>();
+            cuentaRepository.findAllById(estados.keySet()).forEach(c -> colas.put(c.getId(),
+                    c.getHashUltimoMovimiento() != null ? c.getHashUltimoMovimiento() : CadenaHash.GENESIS));
+            return colas;
+        });
+        Map<Long, Integer> ultimoInsertado = new HashMap<>();
+        for (int i = 0; i < reproducidos.size(); i++) {
+            Aceptado aceptado = reproducidos.get(i);
+            if (aceptado.estado.hash().equals(insertados.get(aceptado.registro.cuentaId()))) {
+                ultimoInsertado.put(aceptado.registro.cuentaId(), i);
+            }
+        }
+        for (Map.Entry<Long, Estado> inicial : iniciales.entrySet()) {
+            Long cuentaId = inicial.getKey();
+            if (!ultimoInsertado.containsKey(cuentaId) && !inicial.getValue().hash().equals(insertados.get(cuentaId))) {
+                throw new IllegalStateException("La cuenta " + cuentaId + " no coincide con la bitácora del motor");
+            }
+            persistidos.put(cuentaId, inicial.getValue());
+        }
+        
+        for (int i = 0; i < reproducidos.size(); i++) {
+            Aceptado aceptado = reproducidos.get(i);
+            if (i <= ultimoInsertado.getOrDefault(aceptado.registro.cuentaId(), -1)) {
+                persistidos.put(aceptado.registro.cuentaId(), aceptado.estado);
+            } else {
+                porPersistir.add(aceptado);
+            }
+        }
+        log.info("Replayed {} logged movements, {} were not inserted yet", reproducidos.size(), porPersistir.size());
+        persistirPendientes();
+    }
+    
+    private Estado cargar(String numeroCuenta) {
+        Cuenta cuenta = cuentaRepository.findByNumeroCuenta(numeroCuenta)
+                .orElseThrow(() -> new IllegalStateException("Cuenta del motor no encontrada: " + numeroCuenta));
+        BigDecimal saldo = cuenta.getSaldoActual() != null
+                ? cuenta.getSaldoActual()
+                : conciliacionService.calcularSaldo(cuenta);
+        LocalDate hoy = LocalDate.now();
+        BigDecimal retirosHoy = retiroDiarioService.acumuladoDelDia(cuenta, hoy).getTotal();
+        return new Estado(cuenta.getId(), numeroCuenta, cuenta.getEstado(), saldo,
+                cuenta.getHashUltimoMovimiento() != null ? cuenta.getHashUltimoMovimiento() : CadenaHash.GENESIS,
+                hoy, retirosHoy);
+    }
+    
+    public boolean gestiona(String numeroCuenta) {
+        return porNumero.containsKey(numeroCuenta);
+    }
+    
+    /**
+     * Rejects a write that would bypass the engine for one of its accounts.
+     *
+     * @param cuentaId the account being written
+     * @throws BusinessException if the account belongs to the engine
+     */
+    public void verificarNoGestionada(Long cuentaId) {
+        if (gestionadas.contains(cuentaId)) {
+            throw new BusinessException("La cuenta es gestionada por el motor en memoria y solo admite "
+                    + "movimientos sin Idempotency-Key");
+        }
+    }
+    
+    /**
+     * Posts a movement to an account of the engine and returns once it is in
+     * the log on disk. The row is inserted later, so the result has no id.
+     *
+     * @param movimientoDTO the movement
+     * @return the accepted movement with its balance
+     * @throws BusinessException if a business rule rejects the movement
+     * @throws ServiceUnavailableException if the log queue is full, the engine stopped or the
+     *         log write failed; in every case the movement is not applied
+     */
+    public MovimientoDTO registrar(MovimientoDTO movimientoDTO) {
+        CuentaMotor cuenta = porNumero.get(movimientoDTO.getNumeroCuenta());
+        if (cuenta == null) {
+            throw new ResourceNotFoundException("Cuenta no encontrada con número: " + movimientoDTO.getNumeroCuenta());
+        }
+        
+        Timer.Sample muestra = metricas.iniciarRegistro();
+        boolean aceptado = false;
+        try {
+            Pendiente pendiente;
+            synchronized (cuenta) {
+                if (detenido || fallido) {
+                    throw new ServiceUnavailableException("El motor de cuentas no está disponible, intente nuevamente");
+                }
+                pendiente = aceptar(cuenta.estado, movimientoDTO.getTipoMovimiento(), movimientoDTO.getValor());
+                if (!porEscribir.offer(pendiente)) {
+                    throw new ServiceUnavailableException("Demasiados movimientos en proceso, intente nuevamente");
+                }
+                // El siguiente movimiento de la cuenta parte de este, aunque aún no esté en disco
+                cuenta.estado = pendiente.estado;
+            }
+            
+            try {
+                pendiente.escrito.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException causa) {
+                    throw causa;
+                }
+                throw ex;
+            }
+            aceptado = true;
+            Registro registro = pendiente.registro;
+            return new MovimientoDTO(null, registro.fecha(), registro.tipoMovimiento(), registro.valor(),
+                    registro.saldo(), movimientoDTO.getNumeroCuenta());
+        } finally {
+            metricas.finalizarRegistro(muestra, aceptado);
+        }
+    }
+    
+    /**
+     * Applies the rules of {@link MovimientoService#registrar} to the state
+     * in memory; the column checks are the same methods it calls.
+     */
+    private Pendiente aceptar(Estado estado, String tipoMovimiento, BigDecimal valorMovimiento) {
+        if (!estado.activa()) {
+            metricas.rechazo(Rechazo.CUENTA_INACTIVA);
+            throw new BusinessException("La cuenta está inactiva");
+        }
+        // Misma escala que las columnas: el saldo en memoria es el que se leería de la base
+        BigDecimal valor = MovimientoService.validarValor(tipoMovimiento, valorMovimiento);
+        LocalDateTime fecha = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        BigDecimal nuevoSaldo = estado.saldo().add(valor);
+        
+        if (valor.signum() < 0) {
+            if (nuevoSaldo.signum() < 0) {
+                metricas.rechazo(Rechazo.SALDO_NO_DISPONIBLE);
+                throw new BusinessException("Saldo no disponible");
+            }
+            LocalDate dia = fecha.toLocalDate();
+            BigDecimal retirosDia = dia.equals(estado.diaRetiros()) ? estado.retirosDia() : BigDecimal.ZERO;
+            if (retirosDia.add(valor.negate()).compareTo(limiteDiario) > 0) {
+                metricas.rechazo(Rechazo.CUPO_DIARIO_EXCEDIDO);
+                throw new BusinessException("Cupo diario Excedido");
+            }
+        }
+        MovimientoService.validarSaldo(nuevoSaldo);
+        
+        Registro registro = new Registro(0, estado.cuentaId(), fecha, tipoMovimiento, valor, nuevoSaldo);
+        return new Pendiente(registro, aplicar(estado, registro));
+    }
+    
+    /**
+     * Replays a logged movement; the balance it recorded must follow from the previous one.
+     */
+    private Estado reproducir(Estado estado, Registro registro) {
+        if (estado.saldo().add(registro.valor()).compareTo(registro.saldo()) != 0) {
+            throw new IllegalStateException("El movimiento " + registro.secuencia()
+                    + " de la bitácora no continúa el saldo de la cuenta " + registro.cuentaId());
+        }
+        return aplicar(estado, registro);
+    }
+    
+    private Estado aplicar(Estado estado, Registro registro) {
+        String hash = cadenaHash.calcular(estado.cuentaId(), estado.hash(), registro.fecha(), registro.valor(),
+                registro.saldo(), null, registro.tipoMovimiento());
+        LocalDate diaRetiros = estado.diaRetiros();
+        BigDecimal retirosDia = estado.retirosDia();
+        if (registro.valor().signum() < 0) {
+            LocalDate dia = registro.fecha().toLocalDate();
+            if (!dia.equals(diaRetiros)) {
+                diaRetiros = dia;
+                retirosDia = BigDecimal.ZERO;
+            }
+            retirosDia = retirosDia.add(registro.valor().negate());
+        }
+        return new Estado(estado.cuentaId(), estado.numeroCuenta(), estado.activa(), registro.saldo(), hash,
+                diaRetiros, retirosDia);
+    }
+    
+    /**
+     * Writer thread: every pass takes whatever was accepted since the last
+     * one, so under load many posts share a single fsync.
+     */
+    private void escribir() {
+        List<Pendiente> grupo = new ArrayList<>(lote);
+        while (true) {
+            try {
+                Pendiente primero = porEscribir.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    if (detenido) {
+                        return;
+                    }
+                    continue;
+                }
+                grupo.add(primero);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            porEscribir.drainTo(grupo, lote - 1);
+            
+            List<Registro> escritos;
+            try {
+                escritos = bitacora.anexar(grupo.stream().map(p -> p.registro).toList());
+            } catch (IOException | RuntimeException ex) {
+                // El grupo se cortó de la bitácora, pero el estado en memoria ya lo incluye: se deja de aceptar
+                log.error("In-memory engine log write failed; posts are rejected until restart", ex);
+                fallido = true;
+                cerrarAceptacion();
+                ServiceUnavailableException error =
+                        new ServiceUnavailableException("El motor de cuentas no está disponible, intente nuevamente");
+                grupo.forEach(p -> p.escrito.completeExceptionally(error));
+                List<Pendiente> restantes = new ArrayList<>();
+                porEscribir.drainTo(restantes);
+                restantes.forEach(p -> p.escrito.completeExceptionally(error));
+                return;
+            }
+            for (int i = 0; i < grupo.size(); i++) {
+                porPersistir.add(new Aceptado(escritos.get(i), grupo.get(i).estado));
+                grupo.get(i).escrito.complete(null);
+            }
+            grupo.clear();
+        }
+    }
+    
+    private void persistirPeriodicamente() {
+        while (true) {
+            try {
+                if (detencion.await(persistenciaMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                persistirPendientes();
+                if (System.nanoTime() - ultimaInstantanea >= intervaloInstantanea.toNanos()) {
+                    tomarInstantanea();
+                }
+            } catch (IOException | RuntimeException ex) {
+                // Los movimientos siguen en la bitácora y en la cola: se reintenta en la próxima pasada
+                log.error("In-memory engine could not insert logged movements, retrying", ex);
+            }
+        }
+    }
+    
+    /**
+     * Inserts every logged movement still pending, {@code app.motor.lote} rows
+     * per transaction. When a group fails its rows are inserted one by one,
+     * and an account whose row still fails is held back from that row on; the
+     * held accounts are retried first on every call.
+     */
+    private void persistirPendientes() {
+        reintentarRetenidos();
+        List<Aceptado> grupo = new ArrayList<>(lote);
+        while (porPersistir.drainTo(grupo, lote) > 0) {
+            List<Aceptado> insertables = new ArrayList<>(grupo.size());
+            for (Aceptado aceptado : grupo) {
+                // Detrás de una fila retenida: insertarla antes rompería el orden de la cadena
+                List<Aceptado> pendientes = retenidos.get(aceptado.registro.cuentaId());
+                if (pendientes != null) {
+                    pendientes.add(aceptado);
+                } else {
+                    insertables.add(aceptado);
+                }
+            }
+            grupo.clear();
+            try {
+                insertarGrupo(insertables);
+            } catch (RuntimeException ex) {
+                log.warn("In-memory engine could not insert a group of {} movements, inserting one by one",
+                        insertables.size(), ex);
+                Map<Long, List<Aceptado>> porCuenta = new LinkedHashMap<>();
+                insertables.forEach(a -> porCuenta.computeIfAbsent(a.registro.cuentaId(), id -> new ArrayList<>())
+                        .add(a));
+                porCuenta.forEach(this::insertarUnoPorUno);
+            }
+        }
+    }
+    
+    /**
+     * Inserts the rows of one account one per transaction; from the first
+     * row that fails on, the account's rows are held back.
+     */
+    private void insertarUnoPorUno(Long cuentaId, List<Aceptado> filas) {
+        for (int i = 0; i < filas.size(); i++) {
+            try {
+                insertarGrupo(filas.subList(i, i + 1));
+            } catch (RuntimeException ex) {
+                log.error("In-memory engine holds back cuenta {} from movement {}: it cannot be inserted",
+                        cuentaId, filas.get(i).registro.secuencia(), ex);
+                retenidos.put(cuentaId, new ArrayList<>(filas.subList(i, filas.size())));
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Retries the held accounts in posting order; an account is released once
+     * all its rows are inserted.
+     */
+    private void reintentarRetenidos() {
+        Iterator<List<Aceptado>> cuentas = retenidos.values().iterator();
+        while (cuentas.hasNext()) {
+            List<Aceptado> pendientes = cuentas.next();
+            try {
+                while (!pendientes.isEmpty()) {
+                    List<Aceptado> bloque = pendientes.subList(0, Math.min(lote, pendientes.size()));
+                    insertarGrupo(bloque);
+                    bloque.clear();
+                }
+                cuentas.remove();
+            } catch (RuntimeException ex) {
+                log.debug("Held movements of cuenta {} still cannot be inserted",
+                        pendientes.getFirst().registro.cuentaId(), ex);
+            }
+        }
+    }
+    
+    private void insertarGrupo(List<Aceptado> grupo) {
+        if (grupo.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> insertar(grupo));
+        for (Aceptado aceptado : grupo) {
+            persistidos.put(aceptado.registro.cuentaId(), aceptado.estado);
+        }
+        // Con filas retenidas el orden de inserción no es el de la bitácora
+        secuenciaPersistida = Math.max(secuenciaPersistida, grupo.getLast().registro.secuencia());
+    }
+    
+    /**
+     * Writes a group of logged movements with the same side effects as the
+     * regular posting path: account balance and chain tail, daily snapshot and
+     * daily withdrawal accumulator.
+     */
+    private void insertar(List<Aceptado> grupo) {
+        Long[] cuentaIds = grupo.stream().map(a -> a.registro.cuentaId()).distinct().toArray(Long[]::new);
+        cuentaLockManager.bloquear(cuentaIds);
+        Map<Long, Cuenta> cuentas = new HashMap<>();
+        for (Long cuentaId : cuentaIds) {
+            cuentas.put(cuentaId, cuentaRepository.findByIdForUpdate(cuentaId)
+                    .orElseThrow(() -> new IllegalStateException("Cuenta del motor eliminada: " + cuentaId)));
+        }
+        
+        Map<String, RetiroDiario> retiros = new HashMap<>();
+        List<Movimiento> movimientos = new ArrayList<>(grupo.size());
+        for (Aceptado aceptado : grupo) {
+            Registro registro = aceptado.registro;
+            Cuenta cuenta = cuentas.get(registro.cuentaId());
+            Movimiento movimiento = new Movimiento();
+            movimiento.setFecha(registro.fecha());
+            movimiento.setTipoMovimiento(registro.tipoMovimiento());
+            movimiento.setValor(registro.valor());
+            movimiento.setSaldo(registro.saldo());
+            movimiento.setCuenta(cuenta);
+            movimiento.setHash(aceptado.estado.hash());
+            
+            saldoDiarioService.registrar(movimiento);
+            if (registro.valor().signum() < 0) {
+                LocalDate dia = registro.fecha().toLocalDate();
+                RetiroDiario acumulado = retiros.computeIfAbsent(cuenta.getId() + "|" + dia,
+                        clave -> retiroDiarioService.acumuladoDelDia(cuenta, dia));
+                retiroDiarioService.sumar(acumulado, registro.valor().negate());
+            }
+            cuenta.setSaldoActual(registro.saldo());
+            cuenta.setHashUltimoMovimiento(aceptado.estado.hash());
+            movimientos.add(movimiento);
+        }
+        movimientoRepository.saveAll(movimientos);
+        cuentas.values().forEach(enrutamientoLecturas::registrarEscritura);
+    }
+    
+    /**
+     * Snapshots the state of the inserted rows and drops the log segments it
+     * covers. While rows are held back only the segment is rotated: the last
+     * snapshot stays, so the held rows are replayed on the next start.
+     */
+    private void tomarInstantanea() throws IOException {
+        bitacora.rotar();
+        ultimaInstantanea = System.nanoTime();
+        if (!retenidos.isEmpty()) {
+            return;
+        }
+        bitacora.escribirInstantanea(new Instantanea(secuenciaPersistida, List.copyOf(persistidos.values())));
+        bitacora.descartarHasta(secuenciaPersistida);
+    }
+    
+    /**
+     * Stops accepting posts, writes what is queued to the log, inserts every
+     * pending row and leaves a final snapshot. Anything that cannot be
+     * inserted now is replayed from the log on the next start.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        if (bitacora == null) {
+            return;
+        }
+        detenido = true;
+        cerrarAceptacion();
+        escritor.join(Duration.ofSeconds(30));
+        // Sin interrupción: una inserción en curso termina antes de que se persista el resto
+        detencion.countDown();
+        persistidor.join();
+        try {
+            persistirPendientes();
+            tomarInstantanea();
+        } catch (IOException | RuntimeException ex) {
+            log.warn("In-memory engine stopped with movements to insert; they are replayed on the next start", ex);
+        }
+        try {
+            bitacora.close();
+        } catch (IOException ex) {
+            log.warn("Could not close the in-memory engine log", ex);
+        }
+    }
+    
+    /**
+     * Waits until every post that found the engine available is queued:
+     * after passing each account's monitor, nothing is queued anymore.
+     */
+    private void cerrarAceptacion() {
+        for (CuentaMotor cuenta : porNumero.values()) {
+            synchronized (cuenta) {
+                cuenta.estado.cuentaId();
+            }
+        }
+    }
+    
+    /** In-memory state of one account; replaced, never modified, under the object's monitor. */
+    private static final class CuentaMotor {
+        
+        private Estado estado;
+        
+        private CuentaMotor(Estado estado) {
+            this.estado = estado;
+        }
+    }
+    
+    /** Movement accepted in memory and waiting for the log. */
+    private static final class Pendiente {
+        
+        private final Registro registro;
+        private final Estado estado;
+        private final CompletableFuture<Void> escrito = new CompletableFuture<>();
+        
+        private Pendiente(Registro registro, Estado estado) {
+            this.registro = registro;
+            this.estado = estado;
+        }
+    }
+    
+    /** Movement in the log, with the account state after it, waiting to be inserted. */
+    private record Aceptado(Registro registro, Estado estado) {
+    }
+}
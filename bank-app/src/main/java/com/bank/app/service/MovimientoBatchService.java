@@ -0,0 +1,148 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoBatchResultadoDTO;
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.mapper.MovimientoMapper;
+import com.bank.app.repository.MovimientoRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk ingestion of movements (end-of-day files).
+ * Rows are grouped by account and applied in arrival order with the same
+ * balance and daily-limit rules as {@link MovimientoService#save}. Each account
+ * is posted in chunks, one transaction per chunk, and the accepted movements of
+ * a chunk are inserted with a single JDBC batch.
+ */
+@Service
+@Slf4j
+public class MovimientoBatchService {
+    
+    private final MovimientoService movimientoService;
+    private final MovimientoRepository movimientoRepository;
+    private final MovimientoMapper movimientoMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    
+    public MovimientoBatchService(MovimientoService movimientoService,
+                                  MovimientoRepository movimientoRepository,
+                                  MovimientoMapper movimientoMapper,
+                                  Validator validator,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.batch.chunk-size:1000}") int chunkSize) {
+        this.movimientoService = movimientoService;
+        this.movimientoRepository = movimientoRepository;
+        this.movimientoMapper = movimientoMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * Validates and posts a batch of movements.
+     * A rejected row never affects the other rows; every row gets a result at
+     * the same position it had in the request.
+     * 
+     * @param movimientos rows to post (a null row stands for an unreadable input line)
+     * @return one result per row, in request order
+     */
+    public List<MovimientoBatchResultadoDTO> procesar(List<MovimientoDTO> movimientos) {
+        log.info("Processing movement batch with {} rows", movimientos.size());
+        MovimientoBatchResultadoDTO[] resultados = new MovimientoBatchResultadoDTO[movimientos.size()];
+        
+        // Agrupar por cuenta preservando el orden de llegada
+        Map<String, List<Integer>> porCuenta = new LinkedHashMap<>();
+        for (int i = 0; i < movimientos.size(); i++) {
+            String error = validar(movimientos.get(i));
+            if (error != null) {
+                resultados[i] = rechazado(i, error);
+            } else {
+                porCuenta.computeIfAbsent(movimientos.get(i).getNumeroCuenta(), k -> new ArrayList<>()).add(i);
+            }
+        }
+        
+        for (Map.Entry<String, List<Integer>> entry : porCuenta.entrySet()) {
+            List<Integer> indices = entry.getValue();
+            for (int desde = 0; desde < indices.size(); desde += chunkSize) {
+                List<Integer> chunk = indices.subList(desde, Math.min(desde + chunkSize, indices.size()));
+                try {
+                    transactionTemplate.executeWithoutResult(
+                            status -> procesarChunk(entry.getKey(), chunk, movimientos, resultados));
+                } catch (ResourceNotFoundException ex) {
+                    chunk.forEach(i -> resultados[i] = rechazado(i, ex.getMessage()));
+                } catch (ConcurrencyFailureException ex) {
+                    log.warn("Could not lock cuenta {} for batch posting", entry.getKey());
+                    chunk.forEach(i -> resultados[i] = rechazado(i, "La cuenta está siendo modificada por otra operación"));
+                }
+            }
+        }
+        
+        long registrados = Arrays.stream(resultados)
+                .filter(r -> MovimientoBatchResultadoDTO.REGISTRADO.equals(r.getEstado()))
+                .count();
+        log.info("Movement batch finished: {} posted, {} rejected", registrados, resultados.length - registrados);
+        return Arrays.asList(resultados);
+    }
+    
+    private void procesarChunk(String numeroCuenta, List<Integer> indices,
+                               List<MovimientoDTO> movimientos, MovimientoBatchResultadoDTO[] resultados) {
+        Cuenta cuenta = movimientoService.bloquearCuenta(numeroCuenta);
+        
+        List<Movimiento> aceptados = new ArrayList<>(indices.size());
+        List<Integer> indicesAceptados = new ArrayList<>(indices.size());
+        for (Integer i : indices) {
+            MovimientoDTO dto = movimientos.get(i);
+            try {
+                aceptados.add(movimientoService.registrar(cuenta, dto.getTipoMovimiento(), dto.getValor()));
+                indicesAceptados.add(i);
+            } catch (BusinessException ex) {
+                resultados[i] = rechazado(i, ex.getMessage());
+            }
+        }
+        
+        // Los ids vienen de la secuencia, así que los INSERT se envían en lotes al confirmar
+        List<Movimiento> guardados = movimientoRepository.saveAll(aceptados);
+        for (int k = 0; k < guardados.size(); k++) {
+            int i = indicesAceptados.get(k);
+            resultados[i] = new MovimientoBatchResultadoDTO(i, MovimientoBatchResultadoDTO.REGISTRADO,
+                    movimientoMapper.toDTO(guardados.get(k)), null);
+        }
+    }
+    
+    private String validar(MovimientoDTO dto) {
+        if (dto == null) {
+            return "Registro con formato inválido";
+        }
+        Set<ConstraintViolation<MovimientoDTO>> violaciones = validator.validate(dto);
+        if (violaciones.isEmpty()) {
+            return null;
+        }
+        return violaciones.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+    
+    private MovimientoBatchResultadoDTO rechazado(int indice, String error) {
+        return new MovimientoBatchResultadoDTO(indice, MovimientoBatchResultadoDTO.RECHAZADO, null, error);
+    }
+}
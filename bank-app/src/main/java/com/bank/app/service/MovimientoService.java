@@ -1,101 +1,431 @@
 package com.bank.app.service;
 
 import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.dto.PaginaDTO;
 import com.bank.app.entity.Cuenta;
 import com.bank.app.entity.Movimiento;
+import com.bank.app.entity.RetiroDiario;
 import com.bank.app.exception.BusinessException;
 import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.mapper.MovimientoMapper;
 import com.bank.app.repository.CuentaRepository;
 import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.service.MetricasBanco.Fase;
+import com.bank.app.service.MetricasBanco.Rechazo;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class MovimientoService {
     
+    /** Tipo de los movimientos que corrigen a otro en el libro de solo anexado. */
+    public static final String TIPO_REVERSO = "Reverso";
+    
+    // Precisión de las columnas valor y saldo: numeric(10, 2)
+    private static final BigDecimal MAXIMO = new BigDecimal("99999999.99");
+    
     @Autowired
     private MovimientoRepository movimientoRepository;
     
     @Autowired
     private CuentaRepository cuentaRepository;
     
+    @Autowired
+    private ConciliacionService conciliacionService;
+    
+    @Autowired
+    private CuentaLockManager cuentaLockManager;
+    
+    @Autowired
+    private RetiroDiarioService retiroDiarioService;
+    
+    @Autowired
+    private SaldoDiarioService saldoDiarioService;
+    
+    @Autowired
+    private CursorPaginacion cursorPaginacion;
+    
+    @Autowired
+    private InvalidacionCache invalidacionCache;
+    
+    @Autowired
+    private MetricasBanco metricas;
+    
+    @Autowired
+    private CadenaHash cadenaHash;
+    
+    @Autowired
+    private MovimientoMapper movimientoMapper;
+    
+    @Autowired
+    private EscritorJson escritorJson;
+    
+    @Autowired
+    private MotorCuentas motorCuentas;
+    
+    @Autowired
+    private EnrutamientoLecturas enrutamientoLecturas;
+    
     @Value("${app.daily-withdrawal-limit}")
     private BigDecimal dailyWithdrawalLimit;
     
+    @Value("${app.ledger.solo-anexar:false}")
+    private boolean soloAnexar;
+    
     public List<MovimientoDTO> findAll() {
-        return movimientoRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return movimientoRepository.findAllAsDTO();
+    }
+    
+    /**
+     * Writes every movement as a JSON array while the cursor is read, so the
+     * response does not have to fit in memory.
+     * 
+     * @param salida response body; flushed but not closed
+     */
+    @Transactional(readOnly = true)
+    public void escribirTodos(OutputStream salida) {
+        try (Stream<MovimientoDTO> movimientos = movimientoRepository.streamAllAsDTO()) {
+            escritorJson.escribirMovimientos(movimientos, salida);
+        }
+    }
+    
+    /**
+     * Lists movements newest first, one keyset page at a time.
+     * 
+     * @param cuentaId account filter, may be null
+     * @param desde lower bound of fecha, may be null
+     * @param hasta upper bound of fecha, may be null
+     * @param tipoMovimiento movement type filter, may be null
+     * @param cursor cursor from the previous page, null for the first page
+     * @param tamano requested page size, null for the default
+     * @return the page and the cursor of the next one
+     */
+    public PaginaDTO<MovimientoDTO> findPagina(Long cuentaId, LocalDateTime desde, LocalDateTime hasta,
+                                               String tipoMovimiento, String cursor, Integer tamano) {
+        int limite = cursorPaginacion.tamano(tamano);
+        LocalDateTime fechaCursor = null;
+        Long idCursor = null;
+        if (cursor != null) {
+            String[] partes = cursorPaginacion.decodificar(cursor, 2);
+            fechaCursor = cursorPaginacion.leer(partes[0], LocalDateTime::parse);
+            idCursor = cursorPaginacion.leer(partes[1], Long::valueOf);
+        }
+        
+        List<MovimientoDTO> filas = movimientoRepository.findPagina(
+                cuentaId, desde, hasta, tipoMovimiento, fechaCursor, idCursor, limite + 1);
+        return cursorPaginacion.pagina(filas, limite, m -> cursorPaginacion.codificar(m.getFecha(), m.getId()));
     }
     
     public MovimientoDTO findById(Long id) {
-        Movimiento movimiento = movimientoRepository.findById(id)
+        return movimientoRepository.findDTOById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movimiento no encontrado con ID: " + id));
-        return convertToDTO(movimiento);
     }
     
     public List<MovimientoDTO> findByCuentaId(Long cuentaId) {
-        return movimientoRepository.findByCuentaIdOrderByFechaDesc(cuentaId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return movimientoRepository.findDTOByCuentaId(cuentaId);
     }
     
     public MovimientoDTO save(MovimientoDTO movimientoDTO) {
-        Cuenta cuenta = cuentaRepository.findByNumeroCuenta(movimientoDTO.getNumeroCuenta())
-                .orElseThrow(() -> new ResourceNotFoundException("Cuenta no encontrada con número: " + movimientoDTO.getNumeroCuenta()));
+        Timer.Sample muestra = metricas.iniciarRegistro();
+        boolean aceptado = false;
+        try {
+            Cuenta cuenta = bloquearCuenta(movimientoDTO.getNumeroCuenta());
+            Movimiento movimiento = registrar(cuenta, movimientoDTO.getTipoMovimiento(), movimientoDTO.getValor());
+            
+            // Con ids de secuencia save() solo hace persist: el INSERT (y los UPDATE de
+            // cuenta, cupo y snapshot) se ejecutan en el flush, que debe quedar medido
+            Movimiento savedMovimiento = metricas.medir(Fase.INSERCION, () -> movimientoRepository.saveAndFlush(movimiento));
+            aceptado = true;
+            return movimientoMapper.toDTO(savedMovimiento);
+        } finally {
+            metricas.finalizarRegistro(muestra, aceptado);
+        }
+    }
+    
+    /**
+     * Locks an account for the rest of the current transaction and reads its
+     * committed state. Only one writer per account passes this point at a time.
+     * 
+     * @param numeroCuenta the account number
+     * @return the locked, managed account
+     * @throws ResourceNotFoundException if the account does not exist
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Cuenta bloquearCuenta(String numeroCuenta) {
+        Long cuentaId = metricas.medir(Fase.BUSQUEDA_CUENTA, () -> cuentaRepository.findIdByNumeroCuenta(numeroCuenta))
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta no encontrada con número: " + numeroCuenta));
+        motorCuentas.verificarNoGestionada(cuentaId);
         
+        // Un solo escritor por cuenta: el saldo y el estado se leen ya bloqueados y
+        // confirmados, nunca desde la caché de número a id
+        return metricas.medir(Fase.BLOQUEO, () -> {
+                    cuentaLockManager.bloquear(cuentaId);
+                    return cuentaRepository.findByIdForUpdate(cuentaId);
+                })
+                .orElseThrow(() -> {
+                    // La cuenta fue eliminada desde otra instancia: descartar el id en caché
+                    invalidacionCache.numeroCuentaObsoleto(numeroCuenta);
+                    return new ResourceNotFoundException("Cuenta no encontrada con número: " + numeroCuenta);
+                });
+    }
+    
+    /**
+     * Account numbers, among the given ones, of accounts that exist. Lets a
+     * group of posts answer the ones to a missing account on their own before
+     * {@link #bloquearCuentas} is called for the rest.
+     *
+     * @param numerosCuenta the account numbers
+     * @return the numbers that resolve to an account
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<String> cuentasExistentes(Collection<String> numerosCuenta) {
+        Set<String> existentes = new HashSet<>();
+        for (String numeroCuenta : numerosCuenta) {
+            metricas.medir(Fase.BUSQUEDA_CUENTA, () -> cuentaRepository.findIdByNumeroCuenta(numeroCuenta))
+                    .ifPresent(cuentaId -> existentes.add(numeroCuenta));
+        }
+        return existentes;
+    }
+    
+    /**
+     * Locks several accounts for the rest of the current transaction, for
+     * postings that touch more than one account atomically. The in-process
+     * locks and the database row locks are both taken in ascending order, so
+     * two transactions over the same accounts in opposite directions cannot
+     * deadlock.
+     *
+     * @param numerosCuenta the account numbers, all different
+     * @return the locked, managed accounts in the order of the arguments
+     * @throws ResourceNotFoundException if an account does not exist
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Cuenta> bloquearCuentas(List<String> numerosCuenta) {
+        Long[] cuentaIds = new Long[numerosCuenta.size()];
+        for (int i = 0; i < cuentaIds.length; i++) {
+            String numeroCuenta = numerosCuenta.get(i);
+            cuentaIds[i] = metricas.medir(Fase.BUSQUEDA_CUENTA, () -> cuentaRepository.findIdByNumeroCuenta(numeroCuenta))
+                    .orElseThrow(() -> new ResourceNotFoundException("Cuenta no encontrada con número: " + numeroCuenta));
+            motorCuentas.verificarNoGestionada(cuentaIds[i]);
+        }
+        
+        return metricas.medir(Fase.BLOQUEO, () -> {
+            cuentaLockManager.bloquear(cuentaIds);
+            Map<Long, Cuenta> bloqueadas = new HashMap<>();
+            Arrays.stream(cuentaIds).sorted().forEach(cuentaId ->
+                    cuentaRepository.findByIdForUpdate(cuentaId).ifPresent(c -> bloqueadas.put(cuentaId, c)));
+            
+            List<Cuenta> cuentas = new ArrayList<>(cuentaIds.length);
+            for (int i = 0; i < cuentaIds.length; i++) {
+                Cuenta cuenta = bloqueadas.get(cuentaIds[i]);
+                if (cuenta == null) {
+                    invalidacionCache.numeroCuentaObsoleto(numerosCuenta.get(i));
+                    throw new ResourceNotFoundException("Cuenta no encontrada con número: " + numerosCuenta.get(i));
+                }
+                cuentas.add(cuenta);
+            }
+            return cuentas;
+        });
+    }
+    
+    /**
+     * Applies the balance and daily-limit rules to a locked account and builds
+     * the resulting movement. The account balance, the day accumulator and the
+     * daily snapshot are updated in place; persisting the returned movement is up
+     * to the caller, which allows several movements of one account to be
+     * inserted as a batch. A rejected movement leaves the account untouched and
+     * does not mark the surrounding transaction for rollback.
+     * 
+     * @param cuenta account returned by {@link #bloquearCuenta}
+     * @param tipoMovimiento movement type
+     * @param valorMovimiento signed amount (credits positive, debits negative)
+     * @return the new, not yet persisted movement
+     * @throws BusinessException if a business rule rejects the movement or it
+     *         does not fit the movimientos columns
+     */
+    @Transactional(propagation = Propagation.MANDATORY, noRollbackFor = BusinessException.class)
+    public Movimiento registrar(Cuenta cuenta, String tipoMovimiento, BigDecimal valorMovimiento) {
         if (!cuenta.getEstado()) {
+            metricas.rechazo(Rechazo.CUENTA_INACTIVA);
             throw new BusinessException("La cuenta está inactiva");
         }
+        BigDecimal valor = validarValor(tipoMovimiento, valorMovimiento);
         
-        // Calcular saldo actual
-        BigDecimal saldoActual = calcularSaldoActual(cuenta);
+        // Saldo materializado en la cuenta, sin recorrer el historial de movimientos
+        BigDecimal saldoActual = cuenta.getSaldoActual() != null
+                ? cuenta.getSaldoActual()
+                : metricas.medir(Fase.LECTURA_SALDO, () -> conciliacionService.calcularSaldo(cuenta));
         
-        // Validar movimiento
-        BigDecimal valorMovimiento = movimientoDTO.getValor();
+        // Precisión de la columna TIMESTAMP: el hash se calcula sobre el valor que se almacena
+        LocalDateTime fecha = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        RetiroDiario retirosHoy = null;
         
         // Créditos son positivos, débitos son negativos
-        if (valorMovimiento.compareTo(BigDecimal.ZERO) < 0) {
+        if (valor.compareTo(BigDecimal.ZERO) < 0) {
             // Es un débito (retiro)
-            BigDecimal saldoNuevo = saldoActual.add(valorMovimiento);
+            BigDecimal saldoNuevo = saldoActual.add(valor);
             
             if (saldoNuevo.compareTo(BigDecimal.ZERO) < 0) {
+                metricas.rechazo(Rechazo.SALDO_NO_DISPONIBLE);
                 throw new BusinessException("Saldo no disponible");
             }
             
-            // Validar límite diario
-            BigDecimal retirosHoy = movimientoRepository.sumWithdrawalsToday(cuenta.getId());
-            BigDecimal totalRetiros = retirosHoy.add(valorMovimiento.abs());
+            // Validar límite diario con el acumulado del día (O(1))
+            retirosHoy = metricas.medir(Fase.CUPO_DIARIO,
+                    () -> retiroDiarioService.acumuladoDelDia(cuenta, fecha.toLocalDate()));
+            BigDecimal totalRetiros = retirosHoy.getTotal().add(valor.abs());
             
             if (totalRetiros.compareTo(dailyWithdrawalLimit) > 0) {
+                metricas.rechazo(Rechazo.CUPO_DIARIO_EXCEDIDO);
                 throw new BusinessException("Cupo diario Excedido");
             }
         }
         
         // Calcular nuevo saldo
-        BigDecimal nuevoSaldo = saldoActual.add(valorMovimiento);
+        BigDecimal nuevoSaldo = saldoActual.add(valor);
+        validarSaldo(nuevoSaldo);
+        
+        Movimiento movimiento = crearMovimiento(cuenta, fecha, tipoMovimiento, valor, nuevoSaldo, null);
+        if (retirosHoy != null) {
+            retiroDiarioService.sumar(retirosHoy, valor.abs());
+        }
+        return movimiento;
+    }
+    
+    /**
+     * Checks a movement against the movimientos columns: the type length and
+     * an amount of at most 2 decimals within numeric(10, 2). Shared by
+     * {@link #registrar} and {@link MotorCuentas}, so an account in the
+     * in-memory engine accepts and rejects exactly the posts any other account does.
+     * 
+     * @param tipoMovimiento movement type
+     * @param valorMovimiento signed amount
+     * @return the amount at the scale of the column
+     * @throws BusinessException if the movement does not fit the columns
+     */
+    static BigDecimal validarValor(String tipoMovimiento, BigDecimal valorMovimiento) {
+        if (tipoMovimiento.length() > MovimientoDTO.LONGITUD_TIPO) {
+            throw new BusinessException("El tipo de movimiento admite hasta " + MovimientoDTO.LONGITUD_TIPO
+                    + " caracteres");
+        }
+        // Con varios movimientos de una cuenta en la misma transacción (lote, commit agrupado)
+        // el siguiente parte del saldo tal como se almacena, sin fracciones de centavo
+        if (valorMovimiento.stripTrailingZeros().scale() > 2) {
+            throw new BusinessException("El valor admite hasta 2 decimales");
+        }
+        if (valorMovimiento.abs().compareTo(MAXIMO) > 0) {
+            throw new BusinessException("El movimiento excede el monto máximo de la cuenta");
+        }
+        return valorMovimiento.setScale(2);
+    }
+    
+    /**
+     * Checks that the balance a movement leaves fits the saldo column; see {@link #validarValor}.
+     * 
+     * @param nuevoSaldo the balance after the movement
+     * @throws BusinessException if the balance exceeds numeric(10, 2)
+     */
+    static void validarSaldo(BigDecimal nuevoSaldo) {
+        if (nuevoSaldo.compareTo(MAXIMO) > 0) {
+            throw new BusinessException("El movimiento excede el monto máximo de la cuenta");
+        }
+    }
+    
+    /**
+     * Corrects a movement by posting a reversing movement for the opposite
+     * amount, the only way to correct the append-only ledger. The original row
+     * is never modified. Reversing a withdrawal also gives the amount back to
+     * the daily limit of the day it was withdrawn; reversing a deposit does
+     * not count as a withdrawal, but it still needs the available balance.
+     * 
+     * @param id the movement to reverse
+     * @return the reversing movement
+     * @throws BusinessException if the account is inactive, the movement is a
+     *         reversal or was already reversed, or the balance does not cover the reversal
+     */
+    public MovimientoDTO revertir(Long id) {
+        Movimiento original = movimientoRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Movimiento no encontrado con ID: " + id));
+        
+        Long cuentaId = original.getCuenta().getId();
+        motorCuentas.verificarNoGestionada(cuentaId);
+        cuentaLockManager.bloquear(cuentaId);
+        Cuenta cuenta = cuentaRepository.findByIdForUpdate(cuentaId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta no encontrada con ID: " + cuentaId));
+        
+        // Misma regla que registrar: una cuenta inactiva no recibe movimientos, tampoco reversos
+        if (!cuenta.getEstado()) {
+            metricas.rechazo(Rechazo.CUENTA_INACTIVA);
+            throw new BusinessException("La cuenta está inactiva");
+        }
+        if (original.getReversoDe() != null) {
+            throw new BusinessException("Un reverso no puede revertirse");
+        }
+        // Comprobado con la cuenta bloqueada: dos reversos simultáneos no pueden pasar ambos
+        if (movimientoRepository.existsByReversoDeAndFechaGreaterThanEqual(id, original.getFecha())) {
+            throw new BusinessException("El movimiento ya fue revertido");
+        }
+        
+        BigDecimal saldoActual = cuenta.getSaldoActual() != null
+                ? cuenta.getSaldoActual()
+                : conciliacionService.calcularSaldo(cuenta);
+        BigDecimal valor = original.getValor().negate();
+        BigDecimal nuevoSaldo = saldoActual.add(valor);
+        if (nuevoSaldo.compareTo(BigDecimal.ZERO) < 0) {
+            metricas.rechazo(Rechazo.SALDO_NO_DISPONIBLE);
+            throw new BusinessException("Saldo no disponible");
+        }
         
-        // Crear movimiento
+        Movimiento reverso = crearMovimiento(cuenta, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS),
+                TIPO_REVERSO, valor, nuevoSaldo, original.getId());
+        if (original.getValor().compareTo(BigDecimal.ZERO) < 0) {
+            retiroDiarioService.restar(cuenta, original.getFecha().toLocalDate(), original.getValor().abs());
+        }
+        return movimientoMapper.toDTO(movimientoRepository.save(reverso));
+    }
+    
+    /**
+     * Builds an accepted movement and applies it to the account: materialized
+     * balance, daily snapshot and hash chain. Everything is persisted together
+     * with the movement when the transaction commits.
+     */
+    private Movimiento crearMovimiento(Cuenta cuenta, LocalDateTime fecha, String tipoMovimiento,
+                                       BigDecimal valor, BigDecimal nuevoSaldo, Long reversoDe) {
         Movimiento movimiento = new Movimiento();
-        movimiento.setFecha(LocalDateTime.now());
-        movimiento.setTipoMovimiento(movimientoDTO.getTipoMovimiento());
-        movimiento.setValor(valorMovimiento);
+        movimiento.setFecha(fecha);
+        movimiento.setTipoMovimiento(tipoMovimiento);
+        movimiento.setValor(valor);
         movimiento.setSaldo(nuevoSaldo);
         movimiento.setCuenta(cuenta);
+        movimiento.setReversoDe(reversoDe);
         
-        Movimiento savedMovimiento = movimientoRepository.save(movimiento);
-        return convertToDTO(savedMovimiento);
+        cuenta.setSaldoActual(nuevoSaldo);
+        metricas.medir(Fase.SALDO_DIARIO, () -> saldoDiarioService.registrar(movimiento));
+        cadenaHash.encadenar(cuenta, movimiento);
+        enrutamientoLecturas.registrarEscritura(cuenta);
+        return movimiento;
     }
     
     public MovimientoDTO update(Long id, MovimientoDTO movimientoDTO) {
+        verificarModificable();
         Movimiento movimiento = movimientoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movimiento no encontrado con ID: " + id));
         
@@ -103,34 +433,34 @@ public class MovimientoService {
         movimiento.setTipoMovimiento(movimientoDTO.getTipoMovimiento());
         
         Movimiento updatedMovimiento = movimientoRepository.save(movimiento);
-        return convertToDTO(updatedMovimiento);
+        return movimientoMapper.toDTO(updatedMovimiento);
     }
     
     public void delete(Long id) {
+        verificarModificable();
         Movimiento movimiento = movimientoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movimiento no encontrado con ID: " + id));
+        
+        Long cuentaId = movimiento.getCuenta().getId();
+        motorCuentas.verificarNoGestionada(cuentaId);
+        cuentaLockManager.bloquear(cuentaId);
+        Cuenta cuenta = cuentaRepository.findByIdForUpdate(cuentaId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta no encontrada con ID: " + cuentaId));
+        
         movimientoRepository.delete(movimiento);
-    }
-    
-    private BigDecimal calcularSaldoActual(Cuenta cuenta) {
-        List<Movimiento> movimientos = movimientoRepository.findByCuentaIdOrderByFechaDesc(cuenta.getId());
         
-        if (movimientos.isEmpty()) {
-            return cuenta.getSaldoInicial();
+        if (movimiento.getValor().compareTo(BigDecimal.ZERO) < 0) {
+            retiroDiarioService.restar(cuenta, movimiento.getFecha().toLocalDate(), movimiento.getValor().abs());
         }
+        saldoDiarioService.reconstruir(cuenta, movimiento.getFecha().toLocalDate());
         
-        // El último movimiento tiene el saldo actual
-        return movimientos.get(0).getSaldo();
+        // El saldo vigente vuelve a ser el del último movimiento restante
+        conciliacionService.recalcular(cuenta);
     }
     
-    private MovimientoDTO convertToDTO(Movimiento movimiento) {
-        MovimientoDTO dto = new MovimientoDTO();
-        dto.setId(movimiento.getId());
-        dto.setFecha(movimiento.getFecha());
-        dto.setTipoMovimiento(movimiento.getTipoMovimiento());
-        dto.setValor(movimiento.getValor());
-        dto.setSaldo(movimiento.getSaldo());
-        dto.setNumeroCuenta(movimiento.getCuenta().getNumeroCuenta());
-        return dto;
+    private void verificarModificable() {
+        if (soloAnexar) {
+            throw new BusinessException("El libro de movimientos es de solo anexado; registre un reverso");
+        }
     }
 }
@@ -0,0 +1,204 @@
+package com.bank.app.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains the monthly partitions of {@code movimientos} on PostgreSQL
+ * (see V3__particiones_movimientos.sql). An insert fails when no partition
+ * covers its date, so the current month and the next
+ * {@code app.particiones.meses-adelante} months are created at startup and by
+ * the daily job.
+ *
+ * With {@code app.particiones.retencion-meses} set, older months are detached
+ * and moved to the {@code app.particiones.esquema-archivo} schema. A detached
+ * month leaves every query on movimientos, and only {@link ArchivoMovimientos}
+ * keeps history visible to reports, ledger verification and the daily balance
+ * backfill once it is out of the table. So a month is only detached when that
+ * job has already emptied its partition; a month that still has rows stays
+ * attached and is logged. On other databases (H2 in tests) the table is not
+ * partitioned and the job does nothing.
+ */
+@Service
+@Slf4j
+public class ParticionesMovimientos {
+    
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern NOMBRE = Pattern.compile("movimientos_(\\d{4})_(\\d{2})");
+    private static final Pattern IDENTIFICADOR = Pattern.compile("[a-z_][a-z0-9_]*");
+    
+    private static final String PARTICIONADA = "SELECT COUNT(*) FROM pg_partitioned_table p " +
+            "JOIN pg_class c ON c.oid = p.partrelid " +
+            "WHERE c.relname = 'movimientos' AND c.relnamespace = 'public'::regnamespace";
+    
+    private static final String PARTICIONES = "SELECT c.relname, i.inhdetachpending FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'movimientos' AND p.relnamespace = 'public'::regnamespace";
+    
+    /** A partition of movimientos; a detach interrupted halfway is still pending. */
+    record Particion(String nombre, boolean separacionPendiente) {
+    }
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final int mesesAdelante;
+    private final int retencionMeses;
+    private final String esquemaArchivo;
+    
+    private volatile boolean particionada;
+    
+    public ParticionesMovimientos(JdbcTemplate jdbcTemplate,
+                                  @Value("${app.particiones.meses-adelante:3}") int mesesAdelante,
+                                  @Value("${app.particiones.retencion-meses:0}") int retencionMeses,
+                                  @Value("${app.particiones.esquema-archivo:archivo}") String esquemaArchivo) {
+        // El esquema se concatena en el DDL
+        if (!IDENTIFICADOR.matcher(esquemaArchivo).matches()) {
+            throw new IllegalArgumentException("Invalid archive schema: " + esquemaArchivo);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.mesesAdelante = mesesAdelante;
+        this.retencionMeses = retencionMeses;
+        this.esquemaArchivo = esquemaArchivo;
+    }
+    
+    @PostConstruct
+    public void iniciar() {
+        particionada = esParticionada();
+        if (!particionada) {
+            log.info("movimientos is not partitioned, partition maintenance disabled");
+            return;
+        }
+        crearParticiones(YearMonth.now());
+    }
+    
+    /**
+     * Daily job: creates the partitions ahead and, when a retention is set,
+     * archives the months that fell out of it.
+     */
+    @Scheduled(cron = "${app.particiones.cron:0 0 1 * * *}")
+    public void mantener() {
+        if (!particionada) {
+            return;
+        }
+        YearMonth actual = YearMonth.now();
+        crearParticiones(actual);
+        if (retencionMeses > 0) {
+            archivarAnteriores(actual.minusMonths(retencionMeses));
+        }
+    }
+    
+    /**
+     * Creates the missing partitions from the given month through
+     * {@code meses-adelante} months later. Existing partitions are skipped
+     * before issuing any DDL, so a run with nothing to do takes no lock on movimientos.
+     *
+     * @param desde first month to cover
+     * @return names of the partitions created
+     */
+    public List<String> crearParticiones(YearMonth desde) {
+        Set<String> existentes = new HashSet<>();
+        particiones().forEach(particion -> existentes.add(particion.nombre()));
+        
+        List<String> creadas = new ArrayList<>();
+        for (int i = 0; i <= mesesAdelante; i++) {
+            YearMonth mes = desde.plusMonths(i);
+            String nombre = nombre(mes);
+            if (existentes.contains(nombre)) {
+                continue;
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + nombre + " PARTITION OF movimientos " +
+                    "FOR VALUES FROM ('" + mes.atDay(1) + "') TO ('" + mes.plusMonths(1).atDay(1) + "')");
+            creadas.add(nombre);
+        }
+        if (!creadas.isEmpty()) {
+            log.info("Created movimientos partitions {}", creadas);
+        }
+        return creadas;
+    }
+    
+    /**
+     * Detaches every empty partition of a month before the given one and moves
+     * it to the archive schema. The detach is concurrent, so posting is not
+     * blocked; one interrupted on a previous run is finalized.
+     *
+     * @param limite first month that stays attached
+     * @return names of the partitions archived
+     */
+    public List<String> archivarAnteriores(YearMonth limite) {
+        List<String> archivadas = new ArrayList<>();
+        List<String> conFilas = new ArrayList<>();
+        for (Particion particion : particiones()) {
+            YearMonth mes = mes(particion.nombre());
+            if (mes == null || !mes.isBefore(limite)) {
+                continue;
+            }
+            // Filas que ArchivoMovimientos no sacó aún desaparecerían de reportes y verificación
+            if (!particion.separacionPendiente() && tieneFilas(particion.nombre())) {
+                conFilas.add(particion.nombre());
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE movimientos DETACH PARTITION " + particion.nombre()
+                    + (particion.separacionPendiente() ? " FINALIZE" : " CONCURRENTLY"));
+            jdbcTemplate.execute("ALTER TABLE " + particion.nombre() + " SET SCHEMA " + esquemaArchivo);
+            archivadas.add(particion.nombre());
+        }
+        if (!archivadas.isEmpty()) {
+            log.info("Archived movimientos partitions {} to schema {}", archivadas, esquemaArchivo);
+        }
+        if (!conFilas.isEmpty()) {
+            log.warn("Kept movimientos partitions {} attached: they still have rows, run the archive job first",
+                    conFilas);
+        }
+        return archivadas;
+    }
+    
+    static String nombre(YearMonth mes) {
+        return "movimientos_" + mes.format(FORMATO_MES);
+    }
+    
+    /**
+     * Month of a partition from its name, or null when the name does not
+     * follow {@code movimientos_AAAA_MM}.
+     */
+    static YearMonth mes(String nombre) {
+        Matcher matcher = NOMBRE.matcher(nombre);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+    
+    private boolean esParticionada() {
+        String producto = jdbcTemplate.execute(
+                (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(producto)) {
+            return false;
+        }
+        Integer tablas = jdbcTemplate.queryForObject(PARTICIONADA, Integer.class);
+        return tablas != null && tablas > 0;
+    }
+    
+    private boolean tieneFilas(String particion) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + particion + ")", Boolean.class));
+    }
+    
+    private List<Particion> particiones() {
+        return jdbcTemplate.query(PARTICIONES,
+                (rs, fila) -> new Particion(rs.getString(1), rs.getBoolean(2)));
+    }
+}
@@ -1,51 +1,228 @@
 package com.bank.app.service;
 
+import com.bank.app.dto.CuentaArchivadaDTO;
+import com.bank.app.dto.FormatoReporte;
+import com.bank.app.dto.PeriodoResumen;
 import com.bank.app.dto.ReporteMovimientoDTO;
-import com.bank.app.entity.Movimiento;
+import com.bank.app.dto.ResumenSaldoDTO;
 import com.bank.app.exception.ResourceNotFoundException;
-import com.bank.app.repository.ClienteRepository;
 import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.repository.SaldoDiarioRepository;
+import com.bank.app.service.MetricasBanco.TipoReporte;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional(readOnly = true)
 public class ReporteService {
     
+    private static final String CSV_ENCABEZADO =
+            "fecha,cliente,numeroCuenta,tipo,saldoInicial,estado,movimiento,saldoDisponible";
+    
     @Autowired
     private MovimientoRepository movimientoRepository;
     
     @Autowired
-    private ClienteRepository clienteRepository;
+    private SaldoDiarioRepository saldoDiarioRepository;
+    
+    @Autowired
+    private ClienteService clienteService;
+    
+    @Autowired
+    private EscritorJson escritorJson;
+    
+    @Autowired
+    private MetricasBanco metricas;
+    
+    @Autowired
+    private LimitadorReportes limitadorReportes;
+    
+    @Autowired
+    private EnrutamientoLecturas enrutamientoLecturas;
+    
+    @Autowired
+    private ArchivoMovimientos archivoMovimientos;
     
     public List<ReporteMovimientoDTO> generarReporte(Long clienteId, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        enrutamientoLecturas.preferirPrimaria(clienteId);
         // Verificar que el cliente existe
-        clienteRepository.findById(clienteId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cliente no encontrado con ID: " + clienteId));
+        verificarCliente(clienteId);
+        
+        try (LimitadorReportes.Permiso permiso = limitadorReportes.adquirir()) {
+            return metricas.medir(TipoReporte.JSON, () -> {
+                List<ReporteMovimientoDTO> recientes =
+                        movimientoRepository.findReporteByCliente(clienteId, fechaInicio, fechaFin);
+                List<CuentaArchivadaDTO> archivadas = archivoMovimientos.cuentasArchivadas(clienteId, fechaInicio);
+                if (archivadas.isEmpty()) {
+                    return recientes;
+                }
+                try (Stream<ReporteMovimientoDTO> filas = archivoMovimientos.combinar(
+                        archivadas, fechaInicio, fechaFin, recientes.stream())) {
+                    return filas.toList();
+                }
+            });
+        }
+    }
+    
+    /**
+     * Balance and totals per account and period, read from the daily snapshots
+     * only. The cost grows with the number of days in the range, not with the
+     * number of movements, so long ranges stay cheap.
+     * 
+     * @param clienteId the client ID
+     * @param desde first day of the range (inclusive)
+     * @param hasta last day of the range (inclusive)
+     * @param periodo grouping period
+     * @return one row per account and period with movements, ordered by account and date
+     */
+    public List<ResumenSaldoDTO> generarResumen(Long clienteId, LocalDate desde, LocalDate hasta,
+                                                PeriodoResumen periodo) {
+        enrutamientoLecturas.preferirPrimaria(clienteId);
+        verificarCliente(clienteId);
         
-        List<Movimiento> movimientos = movimientoRepository.findByClienteAndFechaBetween(
+        List<ResumenSaldoDTO> dias = saldoDiarioRepository.findResumenDiario(clienteId, desde, hasta);
+        if (periodo == PeriodoResumen.DIA) {
+            return dias;
+        }
+        
+        // Las filas llegan ordenadas por cuenta y fecha: cada periodo es un tramo contiguo
+        List<ResumenSaldoDTO> periodos = new ArrayList<>();
+        ResumenSaldoDTO actual = null;
+        for (ResumenSaldoDTO dia : dias) {
+            LocalDate inicio = periodo.inicio(dia.getPeriodo());
+            if (actual == null || !actual.getNumeroCuenta().equals(dia.getNumeroCuenta())
+                    || !actual.getPeriodo().equals(inicio)) {
+                actual = new ResumenSaldoDTO(inicio, dia.getNumeroCuenta(), dia.getTipoCuenta(),
+                        dia.getSaldoApertura(), dia.getSaldoCierre(), BigDecimal.ZERO, BigDecimal.ZERO, 0);
+                periodos.add(actual);
+            }
+            actual.setSaldoCierre(dia.getSaldoCierre());
+            actual.setTotalCreditos(actual.getTotalCreditos().add(dia.getTotalCreditos()));
+            actual.setTotalDebitos(actual.getTotalDebitos().add(dia.getTotalDebitos()));
+            actual.setCantidadMovimientos(actual.getCantidadMovimientos() + dia.getCantidadMovimientos());
+        }
+        return periodos;
+    }
+    
+    /**
+     * Checks that the client exists, so a streaming report can fail with 404
+     * before the response has been committed. Served from the client cache.
+     *
+     * @param clienteId the client ID
+     * @throws ResourceNotFoundException if the client does not exist
+     */
+    public void verificarCliente(Long clienteId) {
+        clienteService.findById(clienteId);
+    }
+    
+    /**
+     * Writes the report row by row while the database cursor is read.
+     * Only the current row and the output buffer are held in memory, so the
+     * cost does not depend on how many movements the range contains. Months
+     * moved to the cold archive are merged in, one month file at a time.
+     *
+     * @param clienteId the client ID
+     * @param fechaInicio start of the range (inclusive)
+     * @param fechaFin end of the range (inclusive)
+     * @param formato output format
+     * @param salida response body; flushed but not closed
+     * @throws IOException if the client disconnects or the write fails
+     */
+    public void escribirReporte(Long clienteId, LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                FormatoReporte formato, OutputStream salida) throws IOException {
+        enrutamientoLecturas.preferirPrimaria(clienteId);
+        Timer.Sample muestra = Timer.start();
+        try (Stream<ReporteMovimientoDTO> filas = filasReporte(clienteId, fechaInicio, fechaFin)) {
+            switch (formato) {
+                case JSON -> escritorJson.escribirReporte(filas, salida);
+                case NDJSON -> escritorJson.escribirReporteNdjson(filas, salida);
+                case CSV -> escribirCsv(filas, salida);
+            }
+        } finally {
+            muestra.stop(metricas.reporte(switch (formato) {
+                case JSON -> TipoReporte.JSON;
+                case NDJSON -> TipoReporte.NDJSON;
+                case CSV -> TipoReporte.CSV;
+            }));
+        }
+    }
+    
+    private Stream<ReporteMovimientoDTO> filasReporte(Long clienteId, LocalDateTime fechaInicio,
+                                                      LocalDateTime fechaFin) {
+        Stream<ReporteMovimientoDTO> recientes = movimientoRepository.streamReporteByCliente(
                 clienteId, fechaInicio, fechaFin);
+        // Las marcas se leen después de abrir el cursor: nunca son más antiguas que sus filas
+        List<CuentaArchivadaDTO> archivadas;
+        try {
+            archivadas = archivoMovimientos.cuentasArchivadas(clienteId, fechaInicio);
+        } catch (RuntimeException ex) {
+            recientes.close();
+            throw ex;
+        }
+        return archivadas.isEmpty()
+                ? recientes
+                : archivoMovimientos.combinar(archivadas, fechaInicio, fechaFin, recientes);
+    }
+    
+    private void escribirCsv(Stream<ReporteMovimientoDTO> filas, OutputStream salida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        writer.write(CSV_ENCABEZADO);
+        writer.write('\n');
         
-        return movimientos.stream()
-                .map(this::convertToReporteDTO)
-                .collect(Collectors.toList());
-    }
-    
-    private ReporteMovimientoDTO convertToReporteDTO(Movimiento movimiento) {
-        ReporteMovimientoDTO dto = new ReporteMovimientoDTO();
-        dto.setFecha(movimiento.getFecha());
-        dto.setCliente(movimiento.getCuenta().getCliente().getNombre());
-        dto.setNumeroCuenta(movimiento.getCuenta().getNumeroCuenta());
-        dto.setTipo(movimiento.getCuenta().getTipoCuenta());
-        dto.setSaldoInicial(movimiento.getCuenta().getSaldoInicial());
-        dto.setEstado(movimiento.getCuenta().getEstado());
-        dto.setMovimiento(movimiento.getValor());
-        dto.setSaldoDisponible(movimiento.getSaldo());
-        return dto;
+        try {
+            filas.forEach(fila -> {
+                try {
+                    writer.write(toCsv(fila));
+                    writer.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        writer.flush();
+    }
+    
+    String toCsv(ReporteMovimientoDTO fila) {
+        return String.join(",",
+                String.valueOf(fila.fecha()),
+                csvTexto(fila.cliente()),
+                csvTexto(fila.numeroCuenta()),
+                csvTexto(fila.tipo()),
+                csvNumero(fila.saldoInicial()),
+                String.valueOf(fila.estado()),
+                csvNumero(fila.movimiento()),
+                csvNumero(fila.saldoDisponible()));
+    }
+    
+    private String csvTexto(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.contains(",") || valor.contains("\"") || valor.contains("\n") || valor.contains("\r")) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+        return valor;
+    }
+    
+    private String csvNumero(BigDecimal valor) {
+        return valor == null ? "" : valor.toPlainString();
     }
 }
@@ -0,0 +1,101 @@
+package com.bank.app.service;
+
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.RetiroDiario;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.repository.RetiroDiarioRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Maintains the per-account, per-day withdrawal accumulator used by the
+ * daily limit check. Every method is expected to run inside the transaction
+ * that posts or removes the movement, while the account lock is held.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+@Slf4j
+public class RetiroDiarioService {
+    
+    private final RetiroDiarioRepository retiroDiarioRepository;
+    private final MovimientoRepository movimientoRepository;
+    
+    @Value("${app.retiros-diarios.retencion-dias:7}")
+    private int retencionDias;
+    
+    /**
+     * Returns the accumulator of the given day.
+     * When the account has no withdrawals that day a new, not yet persisted
+     * accumulator with a zero total is returned.
+     * 
+     * @param cuenta the account
+     * @param fecha the day
+     * @return the day accumulator
+     */
+    public RetiroDiario acumuladoDelDia(Cuenta cuenta, LocalDate fecha) {
+        return retiroDiarioRepository.findByCuentaIdAndFecha(cuenta.getId(), fecha)
+                .orElseGet(() -> new RetiroDiario(null, fecha, BigDecimal.ZERO, cuenta));
+    }
+    
+    /**
+     * Adds an accepted withdrawal to the day accumulator.
+     * 
+     * @param acumulado accumulator returned by {@link #acumuladoDelDia}
+     * @param monto withdrawn amount (positive)
+     */
+    public void sumar(RetiroDiario acumulado, BigDecimal monto) {
+        acumulado.setTotal(acumulado.getTotal().add(monto));
+        retiroDiarioRepository.save(acumulado);
+    }
+    
+    /**
+     * Removes a withdrawal from the accumulator of the day it was posted.
+     * 
+     * @param cuenta the account
+     * @param fecha the day the withdrawal was posted
+     * @param monto withdrawn amount (positive)
+     */
+    public void restar(Cuenta cuenta, LocalDate fecha, BigDecimal monto) {
+        retiroDiarioRepository.findByCuentaIdAndFecha(cuenta.getId(), fecha).ifPresent(acumulado -> {
+            BigDecimal total = acumulado.getTotal().subtract(monto);
+            acumulado.setTotal(total.signum() < 0 ? BigDecimal.ZERO : total);
+        });
+    }
+    
+    /**
+     * Rebuilds the accumulator of a day from the movements table, counting
+     * withdrawals the way posting does: reversals are left out and reversed
+     * withdrawals no longer count.
+     * 
+     * @param cuenta the account
+     * @param fecha the day to rebuild
+     * @return the rebuilt total
+     */
+    public BigDecimal reconstruir(Cuenta cuenta, LocalDate fecha) {
+        BigDecimal total = movimientoRepository.sumWithdrawalsBetween(
+                cuenta.getId(), fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay());
+        RetiroDiario acumulado = acumuladoDelDia(cuenta, fecha);
+        if (acumulado.getId() != null || total.signum() > 0) {
+            acumulado.setTotal(total);
+            retiroDiarioRepository.save(acumulado);
+        }
+        return total;
+    }
+    
+    /**
+     * Drops accumulators of past days that can no longer affect the limit.
+     */
+    @Scheduled(cron = "${app.retiros-diarios.purga-cron:0 15 0 * * *}")
+    public void purgar() {
+        int eliminados = retiroDiarioRepository.deleteByFechaBefore(LocalDate.now().minusDays(retencionDias));
+        log.info("Purged {} daily withdrawal accumulators", eliminados);
+    }
+}
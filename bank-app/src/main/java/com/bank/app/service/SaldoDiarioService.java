@@ -0,0 +1,211 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.entity.SaldoDiario;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.repository.SaldoDiarioRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the per-account daily snapshots read by the summary report.
+ * Posting updates the snapshot of the movement's day in the same transaction
+ * and under the same account lock, so a snapshot never disagrees with the
+ * committed movements. The backfill job builds the snapshots of existing history.
+ * A transaction that posts many movements reads each day's snapshot once and
+ * writes it once, so batched posting does not turn into a query per row.
+ */
+@Service
+@Transactional
+@Slf4j
+public class SaldoDiarioService {
+    
+    // Snapshots leídos o abiertos por la transacción en curso, por cuenta y día
+    private static final Object SALDOS_DE_LA_TRANSACCION = new Object();
+    
+    private final SaldoDiarioRepository saldoDiarioRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final CuentaRepository cuentaRepository;
+    private final CuentaLockManager cuentaLockManager;
+    private final TransactionTemplate transactionTemplate;
+    
+    public SaldoDiarioService(SaldoDiarioRepository saldoDiarioRepository,
+                              MovimientoRepository movimientoRepository,
+                              CuentaRepository cuentaRepository,
+                              CuentaLockManager cuentaLockManager,
+                              PlatformTransactionManager transactionManager) {
+        this.saldoDiarioRepository = saldoDiarioRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.cuentaRepository = cuentaRepository;
+        this.cuentaLockManager = cuentaLockManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Adds an accepted movement to the snapshot of its day, opening the
+     * snapshot with the balance before the movement when it is the first of the day.
+     * The snapshot is kept for the rest of the transaction: later movements of
+     * the same account and day update it in memory, an existing row is written
+     * by the flush and a new one is inserted once, before the commit.
+     * 
+     * @param movimiento the movement being posted, with its resulting saldo
+     */
+    public void registrar(Movimiento movimiento) {
+        Cuenta cuenta = movimiento.getCuenta();
+        LocalDate fecha = movimiento.getFecha().toLocalDate();
+        SaldoDiario saldoDiario = saldosDeLaTransaccion().computeIfAbsent(clave(cuenta.getId(), fecha),
+                clave -> saldoDiarioRepository.findByCuentaIdAndFecha(cuenta.getId(), fecha)
+                        .orElseGet(() -> abrir(cuenta, fecha, movimiento.getSaldo().subtract(movimiento.getValor()))));
+        aplicar(saldoDiario, movimiento.getValor(), movimiento.getSaldo());
+    }
+    
+    private Map<String, SaldoDiario> saldosDeLaTransaccion() {
+        @SuppressWarnings("unchecked")
+        Map<String, SaldoDiario> saldos = (Map<String, SaldoDiario>) TransactionSynchronizationManager.getResource(SALDOS_DE_LA_TRANSACCION);
+        if (saldos == null) {
+            Map<String, SaldoDiario> nuevos = new HashMap<>();
+            saldos = nuevos;
+            TransactionSynchronizationManager.bindResource(SALDOS_DE_LA_TRANSACCION, nuevos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Los existentes ya están gestionados; solo los abiertos en esta transacción se insertan
+                    saldoDiarioRepository.saveAll(nuevos.values().stream().filter(s -> s.getId() == null).toList());
+                }
+                
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SALDOS_DE_LA_TRANSACCION);
+                }
+            });
+        }
+        return saldos;
+    }
+    
+    private static String clave(Long cuentaId, LocalDate fecha) {
+        return cuentaId + "|" + fecha;
+    }
+    
+    /**
+     * Rebuilds the snapshot of one day from its movements, removing it when
+     * the day has no movements left. Used after a movement is deleted.
+     * 
+     * @param cuenta the account
+     * @param fecha the day to rebuild
+     */
+    public void reconstruir(Cuenta cuenta, LocalDate fecha) {
+        saldosDeLaTransaccion().remove(clave(cuenta.getId(), fecha));
+        List<MovimientoDTO> movimientos = movimientoRepository.findDTOByCuentaIdBetween(
+                cuenta.getId(), fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay());
+        Optional<SaldoDiario> existente = saldoDiarioRepository.findByCuentaIdAndFecha(cuenta.getId(), fecha);
+        if (movimientos.isEmpty()) {
+            existente.ifPresent(saldoDiarioRepository::delete);
+            return;
+        }
+        
+        MovimientoDTO primero = movimientos.get(0);
+        SaldoDiario saldoDiario = abrir(cuenta, fecha, primero.getSaldo().subtract(primero.getValor()));
+        existente.ifPresent(s -> saldoDiario.setId(s.getId()));
+        movimientos.forEach(m -> aplicar(saldoDiario, m.getValor(), m.getSaldo()));
+        saldoDiarioRepository.save(saldoDiario);
+    }
+    
+    /**
+     * Scheduled entry point for the backfill job.
+     * Disabled unless {@code app.saldos-diarios.backfill-cron} is configured.
+     */
+    @Scheduled(cron = "${app.saldos-diarios.backfill-cron:-}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void backfillProgramado() {
+        reconstruirHistorial();
+    }
+    
+    /**
+     * Rebuilds the snapshots of every account from its full movement history;
+     * days archived to disk keep the snapshots they already have.
+     * Each account is rebuilt in its own transaction under the account lock,
+     * reading its movements as a stream, so postings to other accounts continue.
+     * 
+     * @return number of daily snapshots written
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int reconstruirHistorial() {
+        log.info("Starting daily snapshot backfill");
+        List<Long> cuentaIds = cuentaRepository.findAllIds();
+        int escritos = 0;
+        
+        for (Long cuentaId : cuentaIds) {
+            Integer dias = transactionTemplate.execute(status -> reconstruirCuenta(cuentaId));
+            escritos += dias != null ? dias : 0;
+        }
+        
+        log.info("Daily snapshot backfill finished: {} snapshots for {} cuentas", escritos, cuentaIds.size());
+        return escritos;
+    }
+    
+    private int reconstruirCuenta(Long cuentaId) {
+        cuentaLockManager.bloquear(cuentaId);
+        Cuenta cuenta = cuentaRepository.findByIdForUpdate(cuentaId).orElse(null);
+        if (cuenta == null) {
+            return 0;
+        }
+        
+        // Los días archivados ya no tienen movimientos en la tabla: sus snapshots se conservan
+        if (cuenta.getArchivadoHasta() != null) {
+            saldoDiarioRepository.deleteByCuentaIdFrom(cuentaId, cuenta.getArchivadoHasta());
+        } else {
+            saldoDiarioRepository.deleteByCuentaId(cuentaId);
+        }
+        List<SaldoDiario> dias = new ArrayList<>();
+        SaldoDiario actual = null;
+        try (Stream<MovimientoDTO> movimientos = movimientoRepository.streamDTOByCuentaId(cuentaId)) {
+            Iterator<MovimientoDTO> it = movimientos.iterator();
+            while (it.hasNext()) {
+                MovimientoDTO m = it.next();
+                LocalDate fecha = m.getFecha().toLocalDate();
+                if (actual == null || !actual.getFecha().equals(fecha)) {
+                    actual = abrir(cuenta, fecha, m.getSaldo().subtract(m.getValor()));
+                    dias.add(actual);
+                }
+                aplicar(actual, m.getValor(), m.getSaldo());
+            }
+        }
+        saldoDiarioRepository.saveAll(dias);
+        return dias.size();
+    }
+    
+    private SaldoDiario abrir(Cuenta cuenta, LocalDate fecha, BigDecimal saldoApertura) {
+        return new SaldoDiario(null, fecha, saldoApertura, saldoApertura, BigDecimal.ZERO, BigDecimal.ZERO, 0, cuenta);
+    }
+    
+    private void aplicar(SaldoDiario saldoDiario, BigDecimal valor, BigDecimal saldoResultante) {
+        // Créditos son positivos, débitos son negativos
+        if (valor.signum() < 0) {
+            saldoDiario.setTotalDebitos(saldoDiario.getTotalDebitos().add(valor.abs()));
+        } else {
+            saldoDiario.setTotalCreditos(saldoDiario.getTotalCreditos().add(valor));
+        }
+        saldoDiario.setCantidadMovimientos(saldoDiario.getCantidadMovimientos() + 1);
+        saldoDiario.setSaldoCierre(saldoResultante);
+    }
+}
@@ -0,0 +1,415 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoHashDTO;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archived movements of one account and month, stored by column.
+ *
+ * The file starts with a directory (row count and, per column, its encoded
+ * and compressed length and a CRC32C) followed by one Deflate block per
+ * column. Within a block values are varints: ids and dates as deltas from
+ * the previous row, amounts as cents and the running balance as its change,
+ * so a month of movements compresses to a few bytes per row. Rows are in
+ * chain order (fecha, id).
+ *
+ * The file is read through a memory mapping and only the requested columns
+ * are inflated: a report touches four of the seven.
+ */
+public final class SegmentoArchivo {
+    
+    /** Stored columns, in file order. */
+    public enum Columna {
+        ID, FECHA, TIPO, VALOR, SALDO, REVERSO, HASH
+    }
+    
+    /** Columns a report row is built from. */
+    public static final Set<Columna> REPORTE = EnumSet.of(Columna.ID, Columna.FECHA, Columna.VALOR, Columna.SALDO);
+    
+    private static final int MAGIA = 0x4D415231;
+    private static final int ESCALA = 2;
+    private static final int LONGITUD_HASH = 32;
+    private static final int DIRECTORIO = Integer.BYTES * 2 + Integer.BYTES * 3 * Columna.values().length;
+    
+    private final int filas;
+    private final long[] ids;
+    private final long[] fechas;
+    private final String[] tipos;
+    private final long[] valores;
+    private final long[] saldos;
+    private final long[] reversos;
+    private final byte[][] hashes;
+    
+    private SegmentoArchivo(int filas, Map<Columna, Object> columnas) {
+        this.filas = filas;
+        this.ids = (long[]) columnas.get(Columna.ID);
+        this.fechas = (long[]) columnas.get(Columna.FECHA);
+        this.tipos = (String[]) columnas.get(Columna.TIPO);
+        this.valores = (long[]) columnas.get(Columna.VALOR);
+        this.saldos = (long[]) columnas.get(Columna.SALDO);
+        this.reversos = (long[]) columnas.get(Columna.REVERSO);
+        this.hashes = (byte[][]) columnas.get(Columna.HASH);
+    }
+    
+    /**
+     * Writes the rows under a temporary name and renames the file once it is
+     * on disk, so a reader never sees a partial segment. The rename is only
+     * durable once the directory is forced with {@link #sincronizarDirectorio}.
+     *
+     * @param archivo destination file
+     * @param movimientos rows of one account and month in chain order
+     */
+    public static void escribir(Path archivo, List<MovimientoHashDTO> movimientos) throws IOException {
+        List<byte[]> bloques = new ArrayList<>();
+        List<Integer> originales = new ArrayList<>();
+        for (Columna columna : Columna.values()) {
+            byte[] codificada = codificar(columna, movimientos);
+            originales.add(codificada.length);
+            bloques.add(comprimir(codificada));
+        }
+        
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal)));
+            salida.writeInt(MAGIA);
+            salida.writeInt(movimientos.size());
+            CRC32C crc = new CRC32C();
+            for (int i = 0; i < bloques.size(); i++) {
+                crc.reset();
+                crc.update(bloques.get(i));
+                salida.writeInt(originales.get(i));
+                salida.writeInt(bloques.get(i).length);
+                salida.writeInt((int) crc.getValue());
+            }
+            for (byte[] bloque : bloques) {
+                salida.write(bloque);
+            }
+            salida.flush();
+            canal.force(true);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * Forces a directory to disk, so the files created or renamed in it
+     * survive a crash.
+     *
+     * @param directorio the directory
+     */
+    public static void sincronizarDirectorio(Path directorio) throws IOException {
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        }
+    }
+    
+    /**
+     * Maps a segment and inflates the requested columns.
+     *
+     * @param archivo segment file
+     * @param columnas columns to read; the others are left null
+     * @return the decoded columns
+     * @throws IllegalStateException if the file or a requested column is damaged
+     */
+    public static SegmentoArchivo leer(Path archivo, Set<Columna> columnas) throws IOException {
+        MappedByteBuffer datos;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            // El mapeo sigue siendo válido después de cerrar el canal
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        if (datos.capacity() < DIRECTORIO || datos.getInt(0) != MAGIA) {
+            throw new IllegalStateException("Segmento de archivo con formato desconocido: " + archivo);
+        }
+        
+        int filas = datos.getInt(Integer.BYTES);
+        Map<Columna, Object> leidas = new EnumMap<>(Columna.class);
+        int directorio = Integer.BYTES * 2;
+        int bloque = DIRECTORIO;
+        CRC32C crc = new CRC32C();
+        for (Columna columna : Columna.values()) {
+            int original = datos.getInt(directorio);
+            int comprimida = datos.getInt(directorio + Integer.BYTES);
+            int suma = datos.getInt(directorio + Integer.BYTES * 2);
+            directorio += Integer.BYTES * 3;
+            if (bloque + comprimida > datos.capacity()) {
+                throw new IllegalStateException("Segmento de archivo truncado: " + archivo);
+            }
+            if (columnas.contains(columna)) {
+                ByteBuffer contenido = datos.slice(bloque, comprimida);
+                crc.reset();
+                crc.update(contenido.duplicate());
+                if ((int) crc.getValue() != suma) {
+                    throw new IllegalStateException("Columna " + columna + " dañada en " + archivo);
+                }
+                leidas.put(columna, decodificar(columna, ByteBuffer.wrap(descomprimir(contenido, original)), filas));
+            }
+            bloque += comprimida;
+        }
+        return new SegmentoArchivo(filas, leidas);
+    }
+    
+    private static byte[] codificar(Columna columna, List<MovimientoHashDTO> movimientos) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(movimientos.size() * 4);
+        long anterior = 0;
+        switch (columna) {
+            case ID -> {
+                for (MovimientoHashDTO m : movimientos) {
+                    varint(salida, zigzag(m.id() - anterior));
+                    anterior = m.id();
+                }
+            }
+            case FECHA -> {
+                for (MovimientoHashDTO m : movimientos) {
+                    long micros = micros(m.fecha());
+                    varint(salida, zigzag(micros - anterior));
+                    anterior = micros;
+                }
+            }
+            case TIPO -> {
+                // Diccionario: pocos tipos distintos, un índice por fila
+                Map<String, Integer> indices = new HashMap<>();
+                List<String> diccionario = new ArrayList<>();
+                for (MovimientoHashDTO m : movimientos) {
+                    indices.computeIfAbsent(m.tipoMovimiento(), tipo -> {
+                        diccionario.add(tipo);
+                        return diccionario.size() - 1;
+                    });
+                }
+                varint(salida, diccionario.size());
+                for (String tipo : diccionario) {
+                    byte[] bytes = tipo.getBytes(StandardCharsets.UTF_8);
+                    varint(salida, bytes.length);
+                    salida.writeBytes(bytes);
+                }
+                for (MovimientoHashDTO m : movimientos) {
+                    varint(salida, indices.get(m.tipoMovimiento()));
+                }
+            }
+            case VALOR -> {
+                for (MovimientoHashDTO m : movimientos) {
+                    varint(salida, zigzag(centavos(m.valor())));
+                }
+            }
+            case SALDO -> {
+                for (MovimientoHashDTO m : movimientos) {
+                    long saldo = centavos(m.saldo());
+                    varint(salida, zigzag(saldo - anterior));
+                    anterior = saldo;
+                }
+            }
+            case REVERSO -> {
+                for (MovimientoHashDTO m : movimientos) {
+                    varint(salida, m.reversoDe() == null ? 0 : m.reversoDe() + 1);
+                }
+            }
+            case HASH -> {
+                for (MovimientoHashDTO m : movimientos) {
+                    if (m.hash() == null) {
+                        salida.write(0);
+                    } else {
+                        salida.write(1);
+                        salida.writeBytes(HexFormat.of().parseHex(m.hash()));
+                    }
+                }
+            }
+        }
+        return salida.toByteArray();
+    }
+    
+    private static Object decodificar(Columna columna, ByteBuffer entrada, int filas) {
+        long anterior = 0;
+        switch (columna) {
+            case ID, FECHA, SALDO -> {
+                long[] valores = new long[filas];
+                for (int i = 0; i < filas; i++) {
+                    anterior += unzigzag(varint(entrada));
+                    valores[i] = anterior;
+                }
+                return valores;
+            }
+            case TIPO -> {
+                String[] diccionario = new String[(int) varint(entrada)];
+                for (int i = 0; i < diccionario.length; i++) {
+                    byte[] bytes = new byte[(int) varint(entrada)];
+                    entrada.get(bytes);
+                    diccionario[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+                String[] tipos = new String[filas];
+                for (int i = 0; i < filas; i++) {
+                    tipos[i] = diccionario[(int) varint(entrada)];
+                }
+                return tipos;
+            }
+            case VALOR -> {
+                long[] valores = new long[filas];
+                for (int i = 0; i < filas; i++) {
+                    valores[i] = unzigzag(varint(entrada));
+                }
+                return valores;
+            }
+            case REVERSO -> {
+                long[] reversos = new long[filas];
+                for (int i = 0; i < filas; i++) {
+                    reversos[i] = varint(entrada) - 1;
+                }
+                return reversos;
+            }
+            case HASH -> {
+                byte[][] hashes = new byte[filas][];
+                for (int i = 0; i < filas; i++) {
+                    if (entrada.get() != 0) {
+                        hashes[i] = new byte[LONGITUD_HASH];
+                        entrada.get(hashes[i]);
+                    }
+                }
+                return hashes;
+            }
+        }
+        throw new IllegalArgumentException("Columna desconocida: " + columna);
+    }
+    
+    private static byte[] comprimir(byte[] datos) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(datos);
+            deflater.finish();
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(64, datos.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                salida.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return salida.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static byte[] descomprimir(ByteBuffer datos, int longitud) {
+        // Lee directamente de la región mapeada, sin copiarla al heap
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(datos);
+            byte[] salida = new byte[longitud];
+            int leidos = 0;
+            while (leidos < longitud && !inflater.finished()) {
+                int n = inflater.inflate(salida, leidos, longitud - leidos);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                leidos += n;
+            }
+            if (leidos != longitud) {
+                throw new IllegalStateException("Columna del archivo incompleta");
+            }
+            return salida;
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Columna del archivo dañada", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    private static void varint(ByteArrayOutputStream salida, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            salida.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        salida.write((int) valor);
+    }
+    
+    private static long varint(ByteBuffer entrada) {
+        long valor = 0;
+        for (int desplazamiento = 0; ; desplazamiento += 7) {
+            byte b = entrada.get();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+    }
+    
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+    
+    private static long unzigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+    
+    private static long micros(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + fecha.getNano() / 1_000;
+    }
+    
+    private static long centavos(BigDecimal valor) {
+        // Columnas DECIMAL(10,2): la escala nunca redondea
+        return valor.setScale(ESCALA).unscaledValue().longValueExact();
+    }
+    
+    public int filas() {
+        return filas;
+    }
+    
+    public long id(int fila) {
+        return ids[fila];
+    }
+    
+    public LocalDateTime fecha(int fila) {
+        long micros = fechas[fila];
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+    
+    public String tipoMovimiento(int fila) {
+        return tipos[fila];
+    }
+    
+    public BigDecimal valor(int fila) {
+        return BigDecimal.valueOf(valores[fila], ESCALA);
+    }
+    
+    public BigDecimal saldo(int fila) {
+        return BigDecimal.valueOf(saldos[fila], ESCALA);
+    }
+    
+    public Long reversoDe(int fila) {
+        return reversos[fila] < 0 ? null : reversos[fila];
+    }
+    
+    public String hash(int fila) {
+        return hashes[fila] == null ? null : HexFormat.of().formatHex(hashes[fila]);
+    }
+    
+    /** The whole row; requires every column to have been read. */
+    public MovimientoHashDTO movimiento(int fila) {
+        return new MovimientoHashDTO(id(fila), fecha(fila), tipoMovimiento(fila), valor(fila), saldo(fila),
+                reversoDe(fila), hash(fila));
+    }
+}
@@ -0,0 +1,173 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.TransferenciaDTO;
+import com.bank.app.dto.TransferenciaResultadoDTO;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.exception.ServiceUnavailableException;
+import com.bank.app.mapper.MovimientoMapper;
+import com.bank.app.repository.MovimientoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers between two accounts. The debit and the credit are posted in one
+ * transaction with the same balance and daily-limit rules as any other
+ * movement, so either both legs are committed or neither is. Both accounts
+ * are locked in ascending order; transfers between unrelated accounts do not
+ * wait for each other.
+ *
+ * Asynchronous transfers are queued to a bounded pool and their status is
+ * kept in memory for {@code app.transferencias.retencion}. A full queue is
+ * rejected immediately instead of growing without limit.
+ */
+@Service
+@Slf4j
+public class TransferenciaService {
+    
+    public static final String TIPO_ENVIADA = "Transferencia enviada";
+    public static final String TIPO_RECIBIDA = "Transferencia recibida";
+    
+    private final MovimientoService movimientoService;
+    private final MovimientoRepository movimientoRepository;
+    private final MovimientoMapper movimientoMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, TransferenciaResultadoDTO> estados;
+    
+    public TransferenciaService(MovimientoService movimientoService,
+                                MovimientoRepository movimientoRepository,
+                                MovimientoMapper movimientoMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.transferencias.hilos:4}") int hilos,
+                                @Value("${app.transferencias.cola:1000}") int capacidadCola,
+                                @Value("${app.transferencias.retencion:1h}") Duration retencion) {
+        this.movimientoService = movimientoService;
+        this.movimientoRepository = movimientoRepository;
+        this.movimientoMapper = movimientoMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Each worker holds one connection while it posts: keep hilos below the pool size
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                Thread.ofPlatform().name("transferencia-", 0).daemon(true).factory());
+        this.estados = Caffeine.newBuilder()
+                .expireAfterWrite(retencion)
+                .build();
+    }
+    
+    /**
+     * Posts a transfer and waits for the result.
+     *
+     * @param transferenciaDTO origin, destination and amount
+     * @return the completed transfer with both movements
+     * @throws BusinessException if a business rule rejects either leg
+     * @throws ResourceNotFoundException if an account does not exist
+     */
+    public TransferenciaResultadoDTO transferir(TransferenciaDTO transferenciaDTO) {
+        validar(transferenciaDTO);
+        TransferenciaResultadoDTO resultado = ejecutar(UUID.randomUUID().toString(), transferenciaDTO, LocalDateTime.now());
+        estados.put(resultado.getId(), resultado);
+        return resultado;
+    }
+    
+    /**
+     * Queues a transfer and returns at once; the status is read with {@link #estado}.
+     *
+     * @param transferenciaDTO origin, destination and amount
+     * @return the pending transfer
+     * @throws BusinessException if the request is invalid
+     * @throws ServiceUnavailableException if the queue is full
+     */
+    public TransferenciaResultadoDTO encolar(TransferenciaDTO transferenciaDTO) {
+        validar(transferenciaDTO);
+        String id = UUID.randomUUID().toString();
+        LocalDateTime solicitada = LocalDateTime.now();
+        TransferenciaResultadoDTO pendiente = new TransferenciaResultadoDTO(
+                id, TransferenciaResultadoDTO.PENDIENTE, solicitada, transferenciaDTO, null, null, null);
+        estados.put(id, pendiente);
+        
+        try {
+            executor.execute(() -> estados.put(id, procesar(id, transferenciaDTO, solicitada)));
+        } catch (RejectedExecutionException ex) {
+            estados.invalidate(id);
+            throw new ServiceUnavailableException("Demasiadas transferencias en cola, intente nuevamente");
+        }
+        return pendiente;
+    }
+    
+    public TransferenciaResultadoDTO estado(String id) {
+        TransferenciaResultadoDTO resultado = estados.getIfPresent(id);
+        if (resultado == null) {
+            throw new ResourceNotFoundException("Transferencia no encontrada con ID: " + id);
+        }
+        return resultado;
+    }
+    
+    private TransferenciaResultadoDTO procesar(String id, TransferenciaDTO transferenciaDTO, LocalDateTime solicitada) {
+        try {
+            return ejecutar(id, transferenciaDTO, solicitada);
+        } catch (BusinessException | ResourceNotFoundException ex) {
+            return new TransferenciaResultadoDTO(id, TransferenciaResultadoDTO.RECHAZADA, solicitada,
+                    transferenciaDTO, null, null, ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.error("Transfer {} failed", id, ex);
+            return new TransferenciaResultadoDTO(id, TransferenciaResultadoDTO.FALLIDA, solicitada,
+                    transferenciaDTO, null, null, "Error al procesar la transferencia, intente nuevamente");
+        }
+    }
+    
+    private TransferenciaResultadoDTO ejecutar(String id, TransferenciaDTO transferenciaDTO, LocalDateTime solicitada) {
+        // Una excepción en cualquiera de los dos tramos revierte la transacción completa
+        return transactionTemplate.execute(status -> {
+            List<Cuenta> cuentas = movimientoService.bloquearCuentas(List.of(
+                    transferenciaDTO.getNumeroCuentaOrigen(), transferenciaDTO.getNumeroCuentaDestino()));
+            Cuenta origen = cuentas.get(0);
+            Cuenta destino = cuentas.get(1);
+            if (!destino.getEstado()) {
+                throw new BusinessException("La cuenta de destino está inactiva");
+            }
+            
+            Movimiento debito = movimientoService.registrar(origen, TIPO_ENVIADA, transferenciaDTO.getValor().negate());
+            Movimiento credito = movimientoService.registrar(destino, TIPO_RECIBIDA, transferenciaDTO.getValor());
+            movimientoRepository.saveAll(List.of(debito, credito));
+            
+            return new TransferenciaResultadoDTO(id, TransferenciaResultadoDTO.COMPLETADA, solicitada, transferenciaDTO,
+                    movimientoMapper.toDTO(debito), movimientoMapper.toDTO(credito), null);
+        });
+    }
+    
+    private void validar(TransferenciaDTO transferenciaDTO) {
+        if (transferenciaDTO.getNumeroCuentaOrigen().equals(transferenciaDTO.getNumeroCuentaDestino())) {
+            throw new BusinessException("La cuenta de origen y la de destino deben ser diferentes");
+        }
+    }
+    
+    /**
+     * Stops taking transfers and lets the queued ones finish.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} queued transfers were not processed before shutdown", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.InconsistenciaLedgerDTO;
+import com.bank.app.dto.MovimientoHashDTO;
+import com.bank.app.dto.VerificacionLedgerDTO;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Audits the movement ledger: every account's hash chain and running balance
+ * are recomputed from its first movement. Accounts are independent chains, so
+ * they are verified in parallel, one read-only snapshot transaction per
+ * account. Nothing is locked; postings continue while the audit runs and
+ * movements committed after an account's snapshot are checked on the next run.
+ * Months moved to the cold archive are read from their files first, so an
+ * archived chain is verified end to end.
+ */
+@Service
+@Slf4j
+public class VerificacionLedgerService {
+    
+    private final CuentaRepository cuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final CuentaLockManager cuentaLockManager;
+    private final CadenaHash cadenaHash;
+    private final ArchivoMovimientos archivoMovimientos;
+    private final TransactionTemplate lectura;
+    private final TransactionTemplate escritura;
+    private final int hilos;
+    private final int loteSellado;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    public VerificacionLedgerService(CuentaRepository cuentaRepository,
+                                     MovimientoRepository movimientoRepository,
+                                     CuentaLockManager cuentaLockManager,
+                                     CadenaHash cadenaHash,
+                                     ArchivoMovimientos archivoMovimientos,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.ledger.verificacion-hilos:0}") int hilos,
+                                     @Value("${app.ledger.sellado-lote:1000}") int loteSellado) {
+        this.cuentaRepository = cuentaRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.cuentaLockManager = cuentaLockManager;
+        this.cadenaHash = cadenaHash;
+        this.archivoMovimientos = archivoMovimientos;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        // The account row and its movements are read from the same snapshot
+        this.lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.escritura = new TransactionTemplate(transactionManager);
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.loteSellado = loteSellado;
+    }
+    
+    /**
+     * Scheduled entry point for the verification job.
+     * Disabled unless {@code app.ledger.verificacion-cron} is configured.
+     */
+    @Scheduled(cron = "${app.ledger.verificacion-cron:-}")
+    public void verificacionProgramada() {
+        VerificacionLedgerDTO resultado = verificar();
+        if (!resultado.getInconsistencias().isEmpty()) {
+            log.error("Ledger verification found {} inconsistent cuentas: {}",
+                    resultado.getInconsistencias().size(), resultado.getInconsistencias());
+        }
+    }
+    
+    /**
+     * Verifies the whole ledger.
+     * 
+     * @return totals and the first inconsistency of each inconsistent account
+     */
+    public VerificacionLedgerDTO verificar() {
+        long inicio = System.nanoTime();
+        List<Long> cuentaIds = cuentaRepository.findAllIds();
+        LongAdder movimientos = new LongAdder();
+        List<InconsistenciaLedgerDTO> inconsistencias = new ArrayList<>();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<InconsistenciaLedgerDTO>> resultados = new ArrayList<>(cuentaIds.size());
+            for (Long cuentaId : cuentaIds) {
+                resultados.add(executor.submit(() -> lectura.execute(status -> verificarCuenta(cuentaId, movimientos))));
+            }
+            for (Future<InconsistenciaLedgerDTO> resultado : resultados) {
+                InconsistenciaLedgerDTO inconsistencia = resultado.get();
+                if (inconsistencia != null) {
+                    inconsistencias.add(inconsistencia);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Verificación del libro interrumpida", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Error al verificar el libro", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        inconsistencias.sort(Comparator.comparing(InconsistenciaLedgerDTO::getCuentaId));
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("Ledger verification finished: {} movimientos in {} cuentas, {} inconsistent, {} ms with {} threads",
+                movimientos.sum(), cuentaIds.size(), inconsistencias.size(), duracionMs, hilos);
+        return new VerificacionLedgerDTO(cuentaIds.size(), movimientos.sum(), hilos, duracionMs, inconsistencias);
+    }
+    
+    private InconsistenciaLedgerDTO verificarCuenta(Long cuentaId, LongAdder contador) {
+        Cuenta cuenta = cuentaRepository.findById(cuentaId).orElse(null);
+        if (cuenta == null) {
+            return null;
+        }
+        
+        String anterior = CadenaHash.GENESIS;
+        BigDecimal saldo = cuenta.getSaldoInicial();
+        // La marca de archivo sale de la misma instantánea que las filas de la tabla
+        try (Stream<MovimientoHashDTO> filas = Stream.concat(archivoMovimientos.cadena(cuenta),
+                movimientoRepository.streamCadenaByCuentaId(cuentaId))) {
+            Iterator<MovimientoHashDTO> it = filas.iterator();
+            while (it.hasNext()) {
+                MovimientoHashDTO m = it.next();
+                contador.increment();
+                if (m.hash() == null) {
+                    return inconsistencia(cuenta, m.id(), "Movimiento sin sellar en la cadena de hash");
+                }
+                String esperado = cadenaHash.calcular(cuentaId, anterior, m.fecha(), m.valor(),
+                        m.saldo(), m.reversoDe(), m.tipoMovimiento());
+                if (!esperado.equals(m.hash())) {
+                    return inconsistencia(cuenta, m.id(), "El hash no coincide con la cadena");
+                }
+                saldo = saldo.add(m.valor());
+                if (saldo.compareTo(m.saldo()) != 0) {
+                    return inconsistencia(cuenta, m.id(), "El saldo no es el saldo anterior más el valor");
+                }
+                anterior = m.hash();
+            }
+        }
+        
+        // Detecta movimientos eliminados al final de la cadena
+        String ultimo = cuenta.getHashUltimoMovimiento() != null ? cuenta.getHashUltimoMovimiento() : CadenaHash.GENESIS;
+        if (!ultimo.equals(anterior)) {
+            return inconsistencia(cuenta, null, "El último hash de la cuenta no coincide con sus movimientos");
+        }
+        return null;
+    }
+    
+    private InconsistenciaLedgerDTO inconsistencia(Cuenta cuenta, Long movimientoId, String motivo) {
+        return new InconsistenciaLedgerDTO(cuenta.getId(), cuenta.getNumeroCuenta(), movimientoId, motivo);
+    }
+    
+    /**
+     * Scheduled entry point for sealing pre-existing history.
+     * Disabled unless {@code app.ledger.sellado-cron} is configured.
+     */
+    @Scheduled(cron = "${app.ledger.sellado-cron:-}")
+    public void selladoProgramado() {
+        sellarHistorial();
+    }
+    
+    /**
+     * Seals the movements posted before the ledger was chained: every account
+     * that still has movements without a hash gets its whole chain computed
+     * from its first movement. Runs once after migrating an existing database;
+     * accounts that are already fully sealed are left untouched. Movements are
+     * read, hashed and written {@code app.ledger.sellado-lote} at a time and the
+     * persistence context is cleared after each block, so an account with
+     * millions of movements never has them all in memory.
+     * 
+     * @return number of movements sealed
+     */
+    public int sellarHistorial() {
+        int sellados = 0;
+        // Desde la primaria: con réplica una cuenta recién creada quedaría sin sellar
+        for (Long cuentaId : escritura.execute(status -> cuentaRepository.findAllIds())) {
+            Integer cantidad = escritura.execute(status -> sellarCuenta(cuentaId));
+            sellados += cantidad != null ? cantidad : 0;
+        }
+        log.info("Sealed {} movimientos into the ledger hash chain", sellados);
+        return sellados;
+    }
+    
+    private int sellarCuenta(Long cuentaId) {
+        if (!movimientoRepository.existsByCuentaIdAndHashIsNull(cuentaId)) {
+            return 0;
+        }
+        cuentaLockManager.bloquear(cuentaId);
+        Cuenta cuenta = cuentaRepository.findByIdForUpdate(cuentaId).orElse(null);
+        if (cuenta == null) {
+            return 0;
+        }
+        
+        // Una cuenta con meses archivados continúa la cadena desde el último hash del archivo
+        String anterior;
+        try (Stream<MovimientoHashDTO> archivados = archivoMovimientos.cadena(cuenta)) {
+            anterior = archivados.reduce((primero, segundo) -> segundo)
+                    .map(MovimientoHashDTO::hash)
+                    .orElse(CadenaHash.GENESIS);
+        }
+        
+        int sellados = 0;
+        List<Movimiento> bloque = movimientoRepository.findByCuentaIdOrderByFechaAscIdAsc(cuentaId, Limit.of(loteSellado));
+        while (!bloque.isEmpty()) {
+            for (Movimiento m : bloque) {
+                m.setHash(cadenaHash.calcular(cuentaId, anterior, m.getFecha(), m.getValor(),
+                        m.getSaldo(), m.getReversoDe(), m.getTipoMovimiento()));
+                anterior = m.getHash();
+            }
+            sellados += bloque.size();
+            Movimiento ultimo = bloque.getLast();
+            entityManager.flush();
+            entityManager.clear();
+            bloque = bloque.size() < loteSellado
+                    ? List.of()
+                    : movimientoRepository.findSiguientesEnCadena(cuentaId, ultimo.getFecha(), ultimo.getId(),
+                            Limit.of(loteSellado));
+        }
+        
+        // La cuenta quedó desasociada con el clear; el bloqueo de fila sigue en la transacción
+        String hashUltimo = anterior;
+        cuentaRepository.findById(cuentaId).ifPresent(c -> c.setHashUltimoMovimiento(hashUltimo));
+        return sellados;
+    }
+}
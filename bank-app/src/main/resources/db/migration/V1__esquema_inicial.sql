@@ -0,0 +1,89 @@
+-- V1: esquema base (equivale a BaseDatos.sql antes de las migraciones versionadas).
+-- Las bases existentes se registran en esta versión sin ejecutarla (spring.flyway.baseline-on-migrate).
+
+-- Tabla Clientes (hereda de Persona)
+CREATE TABLE IF NOT EXISTS clientes (
+    cliente_id BIGSERIAL PRIMARY KEY,
+    nombre VARCHAR(255) NOT NULL,
+    genero VARCHAR(50) NOT NULL,
+    edad INTEGER NOT NULL,
+    identificacion VARCHAR(50) NOT NULL UNIQUE,
+    direccion VARCHAR(255) NOT NULL,
+    telefono VARCHAR(50) NOT NULL,
+    contrasena VARCHAR(255) NOT NULL,
+    estado BOOLEAN NOT NULL
+);
+
+-- Tabla Cuentas
+CREATE TABLE IF NOT EXISTS cuentas (
+    id BIGSERIAL PRIMARY KEY,
+    numero_cuenta VARCHAR(50) NOT NULL UNIQUE,
+    tipo_cuenta VARCHAR(50) NOT NULL,
+    saldo_inicial DECIMAL(10,2) NOT NULL,
+    saldo_actual DECIMAL(10,2),
+    hash_ultimo_movimiento VARCHAR(64),
+    version BIGINT NOT NULL DEFAULT 0,
+    estado BOOLEAN NOT NULL,
+    cliente_id BIGINT NOT NULL,
+    CONSTRAINT fk_cliente FOREIGN KEY (cliente_id) REFERENCES clientes(cliente_id) ON DELETE CASCADE
+);
+
+-- Secuencia de movimientos (incremento 50 = allocationSize de JPA, permite INSERT por lotes)
+CREATE SEQUENCE IF NOT EXISTS movimientos_seq START WITH 1 INCREMENT BY 50;
+
+-- Tabla Movimientos
+CREATE TABLE IF NOT EXISTS movimientos (
+    id BIGSERIAL PRIMARY KEY,
+    fecha TIMESTAMP NOT NULL,
+    tipo_movimiento VARCHAR(50) NOT NULL,
+    valor DECIMAL(10,2) NOT NULL,
+    saldo DECIMAL(10,2) NOT NULL,
+    cuenta_id BIGINT NOT NULL,
+    reverso_de BIGINT UNIQUE,
+    hash VARCHAR(64),
+    CONSTRAINT fk_cuenta FOREIGN KEY (cuenta_id) REFERENCES cuentas(id) ON DELETE CASCADE
+);
+
+-- Tabla Retiros Diarios (acumulado de retiros por cuenta y día para el cupo diario)
+CREATE TABLE IF NOT EXISTS retiros_diarios (
+    id BIGSERIAL PRIMARY KEY,
+    fecha DATE NOT NULL,
+    total DECIMAL(10,2) NOT NULL,
+    cuenta_id BIGINT NOT NULL,
+    CONSTRAINT fk_retiros_diarios_cuenta FOREIGN KEY (cuenta_id) REFERENCES cuentas(id) ON DELETE CASCADE,
+    CONSTRAINT uk_retiros_diarios_cuenta_fecha UNIQUE (cuenta_id, fecha)
+);
+
+-- Tabla Saldos Diarios (snapshot por cuenta y día para los reportes de resumen)
+CREATE TABLE IF NOT EXISTS saldos_diarios (
+    id BIGSERIAL PRIMARY KEY,
+    fecha DATE NOT NULL,
+    saldo_apertura DECIMAL(10,2) NOT NULL,
+    saldo_cierre DECIMAL(10,2) NOT NULL,
+    total_creditos DECIMAL(12,2) NOT NULL,
+    total_debitos DECIMAL(12,2) NOT NULL,
+    cantidad_movimientos INTEGER NOT NULL,
+    cuenta_id BIGINT NOT NULL,
+    CONSTRAINT fk_saldos_diarios_cuenta FOREIGN KEY (cuenta_id) REFERENCES cuentas(id) ON DELETE CASCADE,
+    CONSTRAINT uk_saldos_diarios_cuenta_fecha UNIQUE (cuenta_id, fecha)
+);
+
+-- Tabla Claves de Idempotencia (reintentos de POST /movimientos con Idempotency-Key)
+CREATE TABLE IF NOT EXISTS claves_idempotencia (
+    clave VARCHAR(100) PRIMARY KEY,
+    huella VARCHAR(255) NOT NULL,
+    movimiento_id BIGINT NOT NULL,
+    creada_en TIMESTAMP NOT NULL,
+    CONSTRAINT fk_claves_idempotencia_movimiento FOREIGN KEY (movimiento_id) REFERENCES movimientos(id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_claves_idempotencia_creada ON claves_idempotencia(creada_en);
+
+-- Índices para mejorar el rendimiento
+CREATE INDEX IF NOT EXISTS idx_clientes_identificacion ON clientes(identificacion);
+CREATE INDEX IF NOT EXISTS idx_cuentas_numero ON cuentas(numero_cuenta);
+CREATE INDEX IF NOT EXISTS idx_cuentas_cliente ON cuentas(cliente_id);
+CREATE INDEX IF NOT EXISTS idx_movimientos_cuenta ON movimientos(cuenta_id);
+CREATE INDEX IF NOT EXISTS idx_movimientos_fecha ON movimientos(fecha);
+-- Paginación por cursor: (fecha, id) descendente, global y por cuenta
+CREATE INDEX IF NOT EXISTS idx_movimientos_fecha_id ON movimientos(fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_movimientos_cuenta_fecha_id ON movimientos(cuenta_id, fecha DESC, id DESC);
@@ -0,0 +1,31 @@
+-- V2: índices alineados con las consultas frecuentes.
+-- Idempotente: también deja en el mismo estado las bases creadas por ddl-auto y registradas en V1.
+
+-- Extracto y listado por cuenta (findByCuentaIdOrderByFechaDesc, findDTOByCuentaId, paginación por cursor)
+-- y el lado movimientos del reporte por cliente: igualdad en cuenta_id, rango y orden por fecha.
+-- INCLUDE cubre las columnas leídas, de modo que el plan es un Index Only Scan sin visitar la tabla.
+DROP INDEX IF EXISTS idx_movimientos_cuenta_fecha_id;
+CREATE INDEX IF NOT EXISTS idx_movimientos_cuenta_fecha_id
+    ON movimientos(cuenta_id, fecha DESC, id DESC) INCLUDE (tipo_movimiento, valor, saldo);
+
+-- Listado global por cursor
+CREATE INDEX IF NOT EXISTS idx_movimientos_fecha_id ON movimientos(fecha DESC, id DESC);
+
+-- Suma de retiros del día (sumWithdrawalsBetween, reconstrucción del cupo diario):
+-- índice parcial solo con débitos, por cuenta y fecha, con el valor incluido
+CREATE INDEX IF NOT EXISTS idx_movimientos_retiros_cuenta_fecha
+    ON movimientos(cuenta_id, fecha) INCLUDE (valor) WHERE valor < 0;
+
+-- Reporte por cliente: cuentas del cliente con las columnas que devuelve el reporte
+DROP INDEX IF EXISTS idx_cuentas_cliente;
+CREATE INDEX IF NOT EXISTS idx_cuentas_cliente
+    ON cuentas(cliente_id) INCLUDE (numero_cuenta, tipo_cuenta, saldo_inicial, estado);
+
+-- Índices redundantes: duplican una restricción UNIQUE o son prefijo de un índice compuesto,
+-- y solo encarecen cada INSERT de movimiento
+DROP INDEX IF EXISTS idx_clientes_identificacion;
+DROP INDEX IF EXISTS idx_cuentas_numero;
+DROP INDEX IF EXISTS idx_movimientos_cuenta;
+DROP INDEX IF EXISTS idx_movimientos_fecha;
+
+CREATE INDEX IF NOT EXISTS idx_claves_idempotencia_creada ON claves_idempotencia(creada_en);
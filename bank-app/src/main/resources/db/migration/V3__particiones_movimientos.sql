@@ -0,0 +1,63 @@
+-- V3: movimientos particionada por rango mensual de fecha (movimientos_AAAA_MM).
+-- Las consultas con rango de fecha (reporte por cliente, suma de retiros del día, extracto del mes)
+-- solo leen las particiones del rango, de modo que su costo no crece con los años de historial.
+-- ParticionesMovimientos crea los meses siguientes y separa los antiguos al esquema archivo.
+-- Idempotente: una base creada con BaseDatos.sql ya tiene la tabla particionada y no se modifica.
+
+CREATE SCHEMA IF NOT EXISTS archivo;
+
+-- La clave de una tabla particionada debe incluir la columna de partición: ninguna restricción
+-- puede apuntar solo a movimientos(id). La clave de idempotencia se purga con su ventana y el
+-- reverso único se comprueba con la cuenta bloqueada (MovimientoService.revertir).
+ALTER TABLE claves_idempotencia DROP CONSTRAINT IF EXISTS fk_claves_idempotencia_movimiento;
+
+DO $$
+DECLARE
+    mes DATE;
+    ultimo DATE := (date_trunc('month', now()) + INTERVAL '4 months')::date;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid
+               WHERE c.relname = 'movimientos' AND c.relnamespace = 'public'::regnamespace) THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE movimientos RENAME TO movimientos_heredada;
+
+    CREATE TABLE movimientos (
+        id BIGINT NOT NULL,
+        fecha TIMESTAMP NOT NULL,
+        tipo_movimiento VARCHAR(50) NOT NULL,
+        valor DECIMAL(10,2) NOT NULL,
+        saldo DECIMAL(10,2) NOT NULL,
+        cuenta_id BIGINT NOT NULL,
+        reverso_de BIGINT,
+        hash VARCHAR(64),
+        CONSTRAINT pk_movimientos PRIMARY KEY (id, fecha),
+        CONSTRAINT fk_movimientos_cuenta FOREIGN KEY (cuenta_id) REFERENCES cuentas(id) ON DELETE CASCADE
+    ) PARTITION BY RANGE (fecha);
+
+    -- Un mes por partición desde el movimiento más antiguo hasta tres meses después del actual.
+    -- Sin partición DEFAULT: con ella el planificador no puede recorrer los meses en orden.
+    SELECT date_trunc('month', COALESCE(MIN(fecha), now()))::date INTO mes FROM movimientos_heredada;
+    WHILE mes < ultimo LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF movimientos FOR VALUES FROM (%L) TO (%L)',
+                       'movimientos_' || to_char(mes, 'YYYY_MM'), mes, (mes + INTERVAL '1 month')::date);
+        mes := (mes + INTERVAL '1 month')::date;
+    END LOOP;
+
+    INSERT INTO movimientos (id, fecha, tipo_movimiento, valor, saldo, cuenta_id, reverso_de, hash)
+    SELECT id, fecha, tipo_movimiento, valor, saldo, cuenta_id, reverso_de, hash FROM movimientos_heredada;
+
+    DROP TABLE movimientos_heredada;
+END $$;
+
+-- Índices de V2 sobre la tabla particionada: cada partición, también las futuras, tiene el suyo
+CREATE INDEX IF NOT EXISTS idx_movimientos_cuenta_fecha_id
+    ON movimientos(cuenta_id, fecha DESC, id DESC) INCLUDE (tipo_movimiento, valor, saldo);
+CREATE INDEX IF NOT EXISTS idx_movimientos_fecha_id ON movimientos(fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_movimientos_retiros_cuenta_fecha
+    ON movimientos(cuenta_id, fecha) INCLUDE (valor) WHERE valor < 0;
+-- Reverso ya registrado (existsByReversoDeAndFechaGreaterThanEqual), antes cubierto por el UNIQUE
+CREATE INDEX IF NOT EXISTS idx_movimientos_reverso_de ON movimientos(reverso_de) WHERE reverso_de IS NOT NULL;
+
+ANALYZE movimientos;
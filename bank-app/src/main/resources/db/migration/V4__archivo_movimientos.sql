@@ -0,0 +1,4 @@
+-- V4: archivo de movimientos antiguos en disco (ArchivoMovimientos).
+-- Los movimientos de una cuenta anteriores a archivado_hasta están en archivos columnares
+-- por cuenta y mes y ya no en la tabla; null mientras la cuenta no tenga nada archivado.
+ALTER TABLE cuentas ADD COLUMN IF NOT EXISTS archivado_hasta DATE;
@@ -1,6 +1,8 @@
 package com.bank.app.controller;
 
 import com.bank.app.dto.ClienteDTO;
+import com.bank.app.dto.ClienteImportacionResultadoDTO;
+import com.bank.app.service.AltaClientesService;
 import com.bank.app.service.ClienteService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -27,6 +30,9 @@ class ClienteControllerTest {
     @Mock
     private ClienteService clienteService;
     
+    @Mock
+    private AltaClientesService altaClientesService;
+    
     @InjectMocks
     private ClienteController clienteController;
     
@@ -74,9 +80,9 @@ class ClienteControllerTest {
     
     @Test
     void createCliente_ShouldReturnCreatedCliente() {
-        when(clienteService.save(any(ClienteDTO.class))).thenReturn(clienteDTO);
+        when(altaClientesService.crear(any(ClienteDTO.class))).thenReturn(CompletableFuture.completedFuture(clienteDTO));
         
-        ResponseEntity<ClienteDTO> response = clienteController.createCliente(clienteDTO);
+        ResponseEntity<ClienteDTO> response = clienteController.createCliente(clienteDTO).join();
         
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -87,15 +93,29 @@ class ClienteControllerTest {
     @Test
     void updateCliente_ShouldReturnUpdatedCliente() {
         clienteDTO.setTelefono("099999999");
-        when(clienteService.update(eq(1L), any(ClienteDTO.class))).thenReturn(clienteDTO);
+        when(altaClientesService.actualizar(eq(1L), any(ClienteDTO.class)))
+                .thenReturn(CompletableFuture.completedFuture(clienteDTO));
         
-        ResponseEntity<ClienteDTO> response = clienteController.updateCliente(1L, clienteDTO);
+        ResponseEntity<ClienteDTO> response = clienteController.updateCliente(1L, clienteDTO).join();
         
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals("099999999", response.getBody().getTelefono());
     }
     
+    @Test
+    void importarClientes_ShouldReturnOneResultPerRow() {
+        List<ClienteDTO> clientes = List.of(clienteDTO);
+        when(altaClientesService.importar(clientes)).thenReturn(List.of(
+                new ClienteImportacionResultadoDTO(0, ClienteImportacionResultadoDTO.REGISTRADO, clienteDTO, null)));
+        
+        ResponseEntity<List<ClienteImportacionResultadoDTO>> response = clienteController.importarClientes(clientes);
+        
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(ClienteImportacionResultadoDTO.REGISTRADO, response.getBody().get(0).getEstado());
+    }
+    
     @Test
     void deleteCliente_ShouldReturnNoContent() {
         ResponseEntity<Void> response = clienteController.deleteCliente(1L);
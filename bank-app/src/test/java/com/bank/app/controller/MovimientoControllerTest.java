@@ -1,6 +1,8 @@
 package com.bank.app.controller;
 
 import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.service.AgrupadorMovimientos;
+import com.bank.app.service.MotorCuentas;
 import com.bank.app.service.MovimientoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,12 +11,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -28,6 +31,12 @@ class MovimientoControllerTest {
     @Mock
     private MovimientoService movimientoService;
     
+    @Mock
+    private MotorCuentas motorCuentas;
+    
+    @Mock
+    private AgrupadorMovimientos agrupadorMovimientos;
+    
     @InjectMocks
     private MovimientoController movimientoController;
     
@@ -45,18 +54,16 @@ class MovimientoControllerTest {
     }
     
     @Test
-    void getAllMovimientos_ShouldReturnListOfMovimientos() {
-        List<MovimientoDTO> movimientos = Arrays.asList(movimientoDTO);
-        when(movimientoService.findAll()).thenReturn(movimientos);
-        
-        ResponseEntity<List<MovimientoDTO>> response = movimientoController.getAllMovimientos();
+    void getAllMovimientos_ShouldStreamMovimientos() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = movimientoController.getAllMovimientos();
         
         assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
         assertNotNull(response.getBody());
-        assertEquals(1, response.getBody().size());
-        assertEquals("Retiro", response.getBody().get(0).getTipoMovimiento());
-        assertEquals("478758", response.getBody().get(0).getNumeroCuenta());
-        verify(movimientoService, times(1)).findAll();
+        
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        response.getBody().writeTo(salida);
+        verify(movimientoService, times(1)).escribirTodos(salida);
     }
     
     @Test
@@ -73,9 +80,9 @@ class MovimientoControllerTest {
     
     @Test
     void createMovimiento_ShouldReturnCreatedMovimiento() {
-        when(movimientoService.save(any(MovimientoDTO.class))).thenReturn(movimientoDTO);
+        when(agrupadorMovimientos.registrar(any(MovimientoDTO.class))).thenReturn(movimientoDTO);
         
-        ResponseEntity<MovimientoDTO> response = movimientoController.createMovimiento(movimientoDTO);
+        ResponseEntity<MovimientoDTO> response = movimientoController.createMovimiento(null, movimientoDTO);
         
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -83,6 +90,19 @@ class MovimientoControllerTest {
         assertEquals(new BigDecimal("1425.00"), response.getBody().getSaldo());
     }
     
+    @Test
+    void createMovimiento_EngineAccount_ShouldReturnAccepted() {
+        movimientoDTO.setId(null);
+        when(motorCuentas.gestiona("478758")).thenReturn(true);
+        when(motorCuentas.registrar(movimientoDTO)).thenReturn(movimientoDTO);
+        
+        ResponseEntity<MovimientoDTO> response = movimientoController.createMovimiento(null, movimientoDTO);
+        
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertNull(response.getBody().getId());
+        verify(agrupadorMovimientos, times(0)).registrar(any(MovimientoDTO.class));
+    }
+    
     @Test
     void deleteMovimiento_ShouldReturnNoContent() {
         ResponseEntity<Void> response = movimientoController.deleteMovimiento(1L);
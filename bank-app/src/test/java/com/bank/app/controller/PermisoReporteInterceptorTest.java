@@ -0,0 +1,66 @@
+package com.bank.app.controller;
+
+import com.bank.app.exception.ServiceUnavailableException;
+import com.bank.app.service.LimitadorReportes;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PermisoReporteInterceptor.
+ * A report slot must come back even when the streaming body never runs.
+ */
+@DisplayName("PermisoReporteInterceptor Tests")
+class PermisoReporteInterceptorTest {
+    
+    private final LimitadorReportes limitador = new LimitadorReportes(1, 10);
+    private final PermisoReporteInterceptor interceptor = new PermisoReporteInterceptor();
+    
+    @Test
+    @DisplayName("Should release the slot when the request ends before going async")
+    void afterCompletion_NotAsync_ReleasesSlot() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        interceptor.retener(request, limitador.adquirir());
+        assertThrows(ServiceUnavailableException.class, limitador::adquirir);
+        
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, new IllegalStateException("headers"));
+        
+        assertDoesNotThrow(() -> limitador.adquirir().close());
+    }
+    
+    @Test
+    @DisplayName("Should release the slot when the executor rejects the streaming body")
+    void asyncCompletion_BodyRejected_ReleasesSlot() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+        asyncManager.setTaskExecutor(new SimpleAsyncTaskExecutor() {
+            @Override
+            public <T> Future<T> submit(Callable<T> task) {
+                throw new RejectedExecutionException("saturado");
+            }
+        });
+        
+        interceptor.retener(request, limitador.adquirir());
+        asyncManager.startCallableProcessing(() -> {
+            fail("the body must not run");
+            return null;
+        });
+        request.getAsyncContext().complete();
+        
+        assertDoesNotThrow(() -> limitador.adquirir().close());
+    }
+}
@@ -0,0 +1,133 @@
+package com.bank.app.repository;
+
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.support.CapturaSql;
+import com.bank.app.support.DatosPrueba;
+import com.bank.app.support.PostgresPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost of the date-bounded movement queries as the history grows, on the
+ * monthly partitions of V3. The plan of the SQL each repository method
+ * generates must read only the partitions of the queried month, with one
+ * year of history and again after six older years are added.
+ * Each test runs in a transaction that is rolled back, partitions included.
+ */
+@Transactional
+@DisplayName("History growth Tests")
+class CrecimientoHistorialTest extends PostgresPrueba {
+    
+    // Un movimiento cada 6 horas: 2025 completo y luego 2019-2024
+    private static final int MOVIMIENTOS_2025 = 365 * 4;
+    private static final int MOVIMIENTOS_2019_2024 = 2192 * 4;
+    private static final Set<String> JUNIO_2025 = Set.of("movimientos_2025_06");
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    private Cliente cliente;
+    private Cuenta cuenta;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        cliente = clienteRepository.save(DatosPrueba.cliente("HI-" + sufijo));
+        
+        cuenta = DatosPrueba.cuenta(cliente, "HI" + sufijo, new BigDecimal("100.00"));
+        cuentaRepository.saveAndFlush(cuenta);
+        
+        // Las migraciones solo crean el mes actual y los siguientes
+        for (YearMonth mes = YearMonth.of(2019, 1); mes.isBefore(YearMonth.of(2026, 1)); mes = mes.plusMonths(1)) {
+            jdbcTemplate.execute(String.format("CREATE TABLE IF NOT EXISTS movimientos_%d_%02d " +
+                    "PARTITION OF movimientos FOR VALUES FROM ('%s') TO ('%s')",
+                    mes.getYear(), mes.getMonthValue(), mes.atDay(1), mes.plusMonths(1).atDay(1)));
+        }
+        
+        sembrar(2_000_000_000L, LocalDateTime.of(2025, 1, 1, 0, 0), MOVIMIENTOS_2025);
+    }
+    
+    private void sembrar(long primerId, LocalDateTime desde, int cantidad) {
+        jdbcTemplate.update("INSERT INTO movimientos (id, fecha, tipo_movimiento, valor, saldo, cuenta_id) " +
+                "SELECT " + primerId + " + x, CAST(? AS timestamp) + make_interval(hours => 6 * x), 'Deposito', " +
+                "CASE WHEN x % 2 = 0 THEN -1.00 ELSE 2.00 END, 100.00 + x, ? " +
+                "FROM generate_series(0, " + (cantidad - 1) + ") x", desde, cuenta.getId());
+        jdbcTemplate.execute("ANALYZE movimientos");
+    }
+    
+    private void sembrarAnteriores() {
+        sembrar(3_000_000_000L, LocalDateTime.of(2019, 1, 1, 0, 0), MOVIMIENTOS_2019_2024);
+        assertEquals(MOVIMIENTOS_2025 + MOVIMIENTOS_2019_2024, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM movimientos WHERE cuenta_id = ?", Integer.class, cuenta.getId()));
+    }
+    
+    @Test
+    @DisplayName("Client report of one month should read one partition with seven years of history")
+    void findReporteByCliente_ReadsOnlyTheQueriedMonth() {
+        LocalDateTime desde = LocalDateTime.of(2025, 6, 1, 0, 0);
+        LocalDateTime hasta = LocalDateTime.of(2025, 6, 30, 23, 59, 59);
+        String sql = CapturaSql.consulta(() -> movimientoRepository.findReporteByCliente(
+                cliente.getClienteId(), desde, hasta));
+        
+        String plan = plan(sql, cliente.getClienteId(), desde, hasta);
+        assertEquals(JUNIO_2025, particiones(plan, "m1"), plan);
+        
+        sembrarAnteriores();
+        
+        plan = plan(sql, cliente.getClienteId(), desde, hasta);
+        assertEquals(JUNIO_2025, particiones(plan, "m1"), plan);
+    }
+    
+    @Test
+    @DisplayName("Daily withdrawal sum should read one partition with seven years of history")
+    void sumWithdrawalsBetween_ReadsOnlyTheQueriedMonth() {
+        LocalDateTime desde = LocalDateTime.of(2025, 6, 15, 0, 0);
+        LocalDateTime hasta = LocalDateTime.of(2025, 6, 16, 0, 0);
+        String sql = CapturaSql.consulta(() -> movimientoRepository.sumWithdrawalsBetween(
+                cuenta.getId(), desde, hasta));
+        
+        // Solo se comprueban los retiros (m1); el NOT EXISTS del reverso se poda al ejecutar
+        String plan = plan(sql, cuenta.getId(), desde, hasta);
+        assertEquals(JUNIO_2025, particiones(plan, "m1"), plan);
+        
+        sembrarAnteriores();
+        
+        plan = plan(sql, cuenta.getId(), desde, hasta);
+        assertEquals(JUNIO_2025, particiones(plan, "m1"), plan);
+    }
+    
+    @Test
+    @DisplayName("Monthly statement of an account should read one partition with seven years of history")
+    void findDTOByCuentaIdBetween_ReadsOnlyTheQueriedMonth() {
+        LocalDateTime desde = LocalDateTime.of(2025, 6, 1, 0, 0);
+        LocalDateTime hasta = LocalDateTime.of(2025, 7, 1, 0, 0);
+        String sql = CapturaSql.consulta(() -> movimientoRepository.findDTOByCuentaIdBetween(
+                cuenta.getId(), desde, hasta));
+        
+        String plan = plan(sql, cuenta.getId(), desde, hasta);
+        assertEquals(JUNIO_2025, particiones(plan, "m1"), plan);
+        
+        sembrarAnteriores();
+        
+        plan = plan(sql, cuenta.getId(), desde, hasta);
+        assertEquals(JUNIO_2025, particiones(plan, "m1"), plan);
+    }
+}
@@ -0,0 +1,124 @@
+package com.bank.app.repository;
+
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.support.CapturaSql;
+import com.bank.app.support.DatosPrueba;
+import com.bank.app.support.PostgresPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query plans of the hot repository queries on the schema built by the
+ * Flyway migrations (V2 indexes, V3 partitions) on PostgreSQL.
+ * Sequential scans are disabled, so each test fails when no index of the
+ * migrations matches the SQL the repository generates, whatever the table size.
+ * Each test runs in a transaction that is rolled back.
+ */
+@Transactional
+@DisplayName("Query index Tests")
+class IndicesConsultaTest extends PostgresPrueba {
+    
+    private static final int MOVIMIENTOS = 5000;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    private Cliente cliente;
+    private Cuenta cuenta;
+    private LocalDateTime inicioMes;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        cliente = clienteRepository.save(DatosPrueba.cliente("PL-" + sufijo));
+        
+        cuenta = DatosPrueba.cuenta(cliente, "PL" + sufijo, new BigDecimal("100.00"));
+        cuentaRepository.saveAndFlush(cuenta);
+        
+        // El mes actual siempre tiene partición (ParticionesMovimientos la crea al arrancar)
+        inicioMes = YearMonth.now().atDay(1).atStartOfDay();
+        jdbcTemplate.update("INSERT INTO movimientos (id, fecha, tipo_movimiento, valor, saldo, cuenta_id) " +
+                "SELECT 1000000000 + x, CAST(? AS timestamp) + make_interval(mins => x), 'Deposito', " +
+                "CASE WHEN x % 2 = 0 THEN -1.00 ELSE 2.00 END, 100.00 + x, ? " +
+                "FROM generate_series(1, " + MOVIMIENTOS + ") x", inicioMes, cuenta.getId());
+        jdbcTemplate.execute("ANALYZE movimientos");
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+    
+    @Test
+    @DisplayName("Account statement should read the (cuenta_id, fecha, id) index")
+    void findByCuentaIdOrderByFechaDesc_UsesCompositeIndex() {
+        String sql = CapturaSql.consulta(() -> movimientoRepository.findByCuentaIdOrderByFechaDesc(cuenta.getId()));
+        
+        String plan = plan(sql, cuenta.getId());
+        assertTrue(indices(plan).contains("idx_movimientos_cuenta_fecha_id"), plan);
+    }
+    
+    @Test
+    @DisplayName("Cursor page of an account should seek the composite index")
+    void findPaginaPorCuenta_UsesCompositeIndex() {
+        LocalDateTime cursor = inicioMes.plusDays(1);
+        String sql = CapturaSql.consulta(() -> movimientoRepository.findPagina(
+                cuenta.getId(), null, null, null, cursor, Long.MAX_VALUE, 50));
+        
+        String plan = plan(sql, cuenta.getId(), cursor, cursor, Long.MAX_VALUE, 50);
+        assertTrue(indices(plan).contains("idx_movimientos_cuenta_fecha_id"), plan);
+    }
+    
+    @Test
+    @DisplayName("Client report should reach movements through the client's accounts")
+    void findReporteByCliente_UsesClientAndAccountIndexes() {
+        LocalDateTime desde = inicioMes;
+        LocalDateTime hasta = inicioMes.plusDays(1);
+        String sql = CapturaSql.consulta(() -> movimientoRepository.findReporteByCliente(
+                cliente.getClienteId(), desde, hasta));
+        
+        String plan = plan(sql, cliente.getClienteId(), desde, hasta);
+        Set<String> indices = indices(plan);
+        assertTrue(indices.contains("idx_cuentas_cliente"), plan);
+        assertTrue(indices.contains("idx_movimientos_cuenta_fecha_id"), plan);
+    }
+    
+    @Test
+    @DisplayName("Daily withdrawal sum should read the partial withdrawals index")
+    void sumWithdrawalsBetween_UsesPartialIndex() {
+        LocalDateTime desde = inicioMes.plusDays(1);
+        LocalDateTime hasta = inicioMes.plusDays(2);
+        String sql = CapturaSql.consulta(() -> movimientoRepository.sumWithdrawalsBetween(
+                cuenta.getId(), desde, hasta));
+        
+        String plan = plan(sql, cuenta.getId(), desde, hasta);
+        Set<String> indices = indices(plan);
+        assertTrue(indices.contains("idx_movimientos_retiros_cuenta_fecha"), plan);
+        // El NOT EXISTS del reverso solo lee el índice parcial de reversos
+        assertTrue(indices.contains("idx_movimientos_reverso_de"), plan);
+    }
+    
+    @Test
+    @DisplayName("Global cursor listing should read the (fecha, id) index")
+    void findPaginaGlobal_UsesFechaIdIndex() {
+        String sql = CapturaSql.consulta(() -> movimientoRepository.findPagina(
+                null, null, null, null, null, null, 50));
+        
+        String plan = plan(sql, 50);
+        assertTrue(indices(plan).contains("idx_movimientos_fecha_id"), plan);
+    }
+}
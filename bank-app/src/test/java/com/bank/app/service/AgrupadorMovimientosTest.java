@@ -0,0 +1,261 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.exception.ServiceUnavailableException;
+import com.bank.app.mapper.MovimientoMapper;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Group commit on embedded H2.
+ * Concurrent posts to a few accounts share transactions; every balance must
+ * still follow its history, the daily limit must hold, and a post to a
+ * missing account must fail alone without taking its group down.
+ * A group that dies on an Error, or a commit that takes too long, must still
+ * answer every caller.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Group commit Tests")
+class AgrupadorMovimientosTest {
+    
+    private static final int HILOS = 32;
+    private static final int OPERACIONES_POR_HILO = 40;
+    private static final int CUENTAS = 3;
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("500.00");
+    
+    @Autowired
+    private AgrupadorMovimientos agrupadorMovimientos;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    @Autowired
+    private MovimientoMapper movimientoMapper;
+    
+    @Autowired
+    private MetricasBanco metricas;
+    
+    @Value("${app.daily-withdrawal-limit}")
+    private BigDecimal dailyWithdrawalLimit;
+    
+    private final List<Cuenta> cuentas = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("GC-" + sufijo));
+        
+        for (int i = 0; i < CUENTAS; i++) {
+            Cuenta cuenta = DatosPrueba.cuenta(cliente, "GC" + sufijo + i, SALDO_INICIAL);
+            cuentas.add(cuentaRepository.save(cuenta));
+        }
+    }
+    
+    /** One committer over mocks, so a test decides how the group transaction behaves. */
+    private AgrupadorMovimientos aislado(MovimientoService movimientoService,
+                                         MovimientoRepository repositorio,
+                                         Duration esperaMaxima) {
+        AgrupadorMovimientos agrupador = new AgrupadorMovimientos(movimientoService, repositorio, movimientoMapper,
+                metricas, mock(PlatformTransactionManager.class), 64, Duration.ofMillis(2), 1, 100, esperaMaxima);
+        agrupador.iniciar();
+        return agrupador;
+    }
+    
+    @Test
+    @DisplayName("Should keep balances and limits consistent when posts share a commit")
+    void concurrentPosts_ShareCommitsWithoutDrift() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        AtomicInteger rechazos = new AtomicInteger();
+        AtomicInteger inexistentes = new AtomicInteger();
+        List<Future<?>> tareas = new ArrayList<>();
+        
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+                    // Una cuenta inexistente en medio del grupo solo debe fallar ella
+                    String numeroCuenta = i % 10 == 9
+                            ? "NO-EXISTE" : cuentas.get((hilo + i) % CUENTAS).getNumeroCuenta();
+                    MovimientoDTO dto = DatosPrueba.movimiento(numeroCuenta, i % 3 != 0 ? "-15.00" : "20.00");
+                    
+                    try {
+                        assertNotNull(agrupadorMovimientos.registrar(dto).getId());
+                    } catch (ResourceNotFoundException ex) {
+                        inexistentes.incrementAndGet();
+                    } catch (BusinessException ex) {
+                        rechazos.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        
+        int registrados = 0;
+        for (Cuenta cuenta : cuentas) {
+            List<Movimiento> movimientos = new ArrayList<>(
+                    movimientoRepository.findByCuentaIdOrderByFechaDesc(cuenta.getId()));
+            movimientos.sort(Comparator.comparing(Movimiento::getId));
+            
+            BigDecimal saldo = SALDO_INICIAL;
+            BigDecimal retiros = BigDecimal.ZERO;
+            for (Movimiento movimiento : movimientos) {
+                saldo = saldo.add(movimiento.getValor());
+                assertEquals(0, saldo.compareTo(movimiento.getSaldo()),
+                        "Saldo chain broken at movimiento " + movimiento.getId());
+                assertTrue(saldo.signum() >= 0, "Negative balance on cuenta " + cuenta.getNumeroCuenta());
+                if (movimiento.getValor().signum() < 0) {
+                    retiros = retiros.add(movimiento.getValor().abs());
+                }
+            }
+            
+            Cuenta actual = cuentaRepository.findById(cuenta.getId()).orElseThrow();
+            assertEquals(0, saldo.compareTo(actual.getSaldoActual()),
+                    "Materialized balance drifted on cuenta " + cuenta.getNumeroCuenta());
+            assertTrue(retiros.compareTo(dailyWithdrawalLimit) <= 0,
+                    "Daily limit exceeded on cuenta " + cuenta.getNumeroCuenta());
+            registrados += movimientos.size();
+        }
+        
+        assertEquals(HILOS * (OPERACIONES_POR_HILO / 10), inexistentes.get());
+        assertEquals(HILOS * OPERACIONES_POR_HILO, registrados + rechazos.get() + inexistentes.get());
+    }
+    
+    @Test
+    @DisplayName("Should answer a group that fails with an Error and keep committing")
+    void groupFailingWithError_AnswersCallersAndKeepsCommitting() throws Exception {
+        MovimientoService movimientoService = mock(MovimientoService.class);
+        MovimientoRepository repositorio = mock(MovimientoRepository.class);
+        when(movimientoService.cuentasExistentes(anyCollection())).thenReturn(Set.of(cuentas.get(0).getNumeroCuenta()));
+        when(movimientoService.bloquearCuentas(anyList()))
+                .thenThrow(new StackOverflowError("prueba"))
+                .thenReturn(List.of(cuentas.get(0)));
+        when(movimientoService.registrar(any(), anyString(), any())).thenReturn(new Movimiento());
+        when(repositorio.saveAll(anyList())).thenAnswer(invocacion -> invocacion.getArgument(0));
+        
+        AgrupadorMovimientos agrupador = aislado(movimientoService, repositorio, Duration.ofSeconds(10));
+        MovimientoDTO deposito = DatosPrueba.movimiento(cuentas.get(0).getNumeroCuenta(), "20.00");
+        try {
+            assertThrows(ServiceUnavailableException.class, () -> agrupador.registrar(deposito));
+            // El mismo hilo sigue confirmando grupos
+            assertNotNull(agrupador.registrar(deposito));
+        } finally {
+            agrupador.detener();
+        }
+    }
+    
+    @Test
+    @DisplayName("Should stop waiting after espera-maxima and never post what no group took")
+    void slowGroup_CallersGiveUpAndQueuedPostIsDropped() throws Exception {
+        MovimientoService movimientoService = mock(MovimientoService.class);
+        MovimientoRepository repositorio = mock(MovimientoRepository.class);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(movimientoService.cuentasExistentes(anyCollection())).thenReturn(Set.of(cuentas.get(0).getNumeroCuenta()));
+        when(movimientoService.bloquearCuentas(anyList())).thenAnswer(invocacion -> {
+            liberar.await();
+            return List.of(cuentas.get(0));
+        });
+        when(movimientoService.registrar(any(), anyString(), any())).thenReturn(new Movimiento());
+        when(repositorio.saveAll(anyList())).thenAnswer(invocacion -> invocacion.getArgument(0));
+        
+        AgrupadorMovimientos agrupador = aislado(movimientoService, repositorio, Duration.ofMillis(300));
+        MovimientoDTO deposito = DatosPrueba.movimiento(cuentas.get(0).getNumeroCuenta(), "20.00");
+        try {
+            // El único hilo toma el primero y queda bloqueado; el segundo sigue en la cola
+            ServiceUnavailableException enGrupo =
+                    assertThrows(ServiceUnavailableException.class, () -> agrupador.registrar(deposito));
+            assertTrue(enGrupo.getMessage().contains("consulte los movimientos"));
+            ServiceUnavailableException enCola =
+                    assertThrows(ServiceUnavailableException.class, () -> agrupador.registrar(deposito));
+            assertTrue(enCola.getMessage().startsWith("Demasiados movimientos"));
+        } finally {
+            liberar.countDown();
+            agrupador.detener();
+        }
+        
+        verify(movimientoService, times(1)).registrar(any(), anyString(), any());
+    }
+    
+    @Test
+    @DisplayName("Should answer 404 to a post to a missing account without failing its group")
+    void missingAccount_FailsAloneWithoutOneByOneRetry() throws Exception {
+        MovimientoService movimientoService = mock(MovimientoService.class);
+        MovimientoRepository repositorio = mock(MovimientoRepository.class);
+        when(movimientoService.cuentasExistentes(anyCollection())).thenReturn(Set.of(cuentas.get(0).getNumeroCuenta()));
+        when(movimientoService.bloquearCuentas(anyList())).thenReturn(List.of(cuentas.get(0)));
+        when(movimientoService.registrar(any(), anyString(), any())).thenReturn(new Movimiento());
+        when(repositorio.saveAll(anyList())).thenAnswer(invocacion -> invocacion.getArgument(0));
+        
+        AgrupadorMovimientos agrupador = aislado(movimientoService, repositorio, Duration.ofSeconds(10));
+        MovimientoDTO deposito = DatosPrueba.movimiento(cuentas.get(0).getNumeroCuenta(), "20.00");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<MovimientoDTO> fallido = executor.submit(
+                    () -> agrupador.registrar(DatosPrueba.movimiento("NO-EXISTE", "20.00")));
+            Future<MovimientoDTO> registrado = executor.submit(() -> agrupador.registrar(deposito));
+            
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> fallido.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(ResourceNotFoundException.class, ex.getCause());
+            assertNotNull(registrado.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+            agrupador.detener();
+        }
+        
+        // La cuenta inexistente nunca llega al bloqueo, así que ningún grupo cae al reintento uno a uno
+        verify(movimientoService, never()).bloquearCuentas(argThat(numeros -> numeros.contains("NO-EXISTE")));
+        verify(movimientoService, never()).save(any());
+    }
+}
@@ -0,0 +1,112 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.ClienteDTO;
+import com.bank.app.dto.ClienteImportacionResultadoDTO;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Client onboarding on embedded H2.
+ * Passwords are hashed off the request thread and stored encoded, and an
+ * import accepts or rejects each row on its own.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Client onboarding Tests")
+class AltaClientesTest {
+    
+    @Autowired
+    private AltaClientesService altaClientesService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    private ClienteDTO cliente(String identificacion, String contrasena) {
+        ClienteDTO dto = new ClienteDTO();
+        dto.setNombre("Cliente Alta");
+        dto.setGenero("Masculino");
+        dto.setEdad(35);
+        dto.setIdentificacion(identificacion);
+        dto.setDireccion("Quito");
+        dto.setTelefono("0966666666");
+        dto.setContrasena(contrasena);
+        dto.setEstado(true);
+        return dto;
+    }
+    
+    private String identificacion() {
+        return "AL-" + DatosPrueba.sufijo();
+    }
+    
+    @Test
+    @DisplayName("Should store the hash of the password, never the password")
+    void crear_StoresEncodedPassword() {
+        ClienteDTO creado = altaClientesService.crear(cliente(identificacion(), "secreta")).join();
+        
+        String almacenada = clienteRepository.findById(creado.getClienteId()).orElseThrow().getContrasena();
+        assertNotEquals("secreta", almacenada);
+        assertTrue(passwordEncoder.matches("secreta", almacenada));
+    }
+    
+    @Test
+    @DisplayName("Should reject an existing identification before hashing")
+    void crear_WhenIdentificacionExists_ThrowsBusinessException() {
+        String identificacion = identificacion();
+        altaClientesService.crear(cliente(identificacion, "secreta")).join();
+        
+        assertThrows(BusinessException.class,
+                () -> altaClientesService.crear(cliente(identificacion, "otra")));
+    }
+    
+    @Test
+    @DisplayName("Should import valid rows and report each rejected row")
+    void importar_MixedRows_ReturnsOneResultPerRow() {
+        String existente = identificacion();
+        altaClientesService.crear(cliente(existente, "secreta")).join();
+        String repetida = identificacion();
+        
+        List<ClienteDTO> filas = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            filas.add(cliente(identificacion(), "clave-" + i));
+        }
+        filas.add(cliente(existente, "clave"));
+        filas.add(cliente(repetida, "clave"));
+        filas.add(cliente(repetida, "clave"));
+        filas.add(cliente(identificacion(), null));
+        ClienteDTO sinNombre = cliente(identificacion(), "clave");
+        sinNombre.setNombre(null);
+        filas.add(sinNombre);
+        
+        List<ClienteImportacionResultadoDTO> resultados = altaClientesService.importar(filas);
+        
+        assertEquals(filas.size(), resultados.size());
+        for (int i = 0; i < 20; i++) {
+            ClienteImportacionResultadoDTO resultado = resultados.get(i);
+            assertEquals(i, resultado.getIndice());
+            assertEquals(ClienteImportacionResultadoDTO.REGISTRADO, resultado.getEstado());
+            String almacenada = clienteRepository.findById(resultado.getCliente().getClienteId())
+                    .orElseThrow().getContrasena();
+            assertTrue(passwordEncoder.matches("clave-" + i, almacenada));
+        }
+        assertEquals(ClienteImportacionResultadoDTO.RECHAZADO, resultados.get(20).getEstado());
+        assertEquals(ClienteImportacionResultadoDTO.REGISTRADO, resultados.get(21).getEstado());
+        assertEquals(ClienteImportacionResultadoDTO.RECHAZADO, resultados.get(22).getEstado());
+        assertEquals("La contraseña es obligatoria", resultados.get(23).getError());
+        assertTrue(resultados.get(24).getError().startsWith("nombre"));
+    }
+}
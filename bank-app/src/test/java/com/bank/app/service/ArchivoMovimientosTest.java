@@ -0,0 +1,167 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.FormatoReporte;
+import com.bank.app.dto.InconsistenciaLedgerDTO;
+import com.bank.app.dto.ReporteMovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cold archive on embedded H2.
+ * Archiving whole months must leave reports, statements and the ledger
+ * verification exactly as they were, while the rows leave the table.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Cold archive Tests")
+class ArchivoMovimientosTest {
+    
+    private static final LocalDate CORTE = LocalDate.of(2025, 4, 1);
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2025, 12, 31, 23, 59, 59);
+    
+    @Autowired
+    private ArchivoMovimientos archivoMovimientos;
+    
+    @Autowired
+    private ReporteService reporteService;
+    
+    @Autowired
+    private VerificacionLedgerService verificacionLedgerService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private Cliente cliente;
+    private Cuenta ahorro;
+    private Cuenta corriente;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        cliente = clienteRepository.save(DatosPrueba.cliente("AR-" + sufijo));
+        
+        ahorro = cuenta("AA" + sufijo, "Ahorro");
+        corriente = cuenta("AC" + sufijo, "Corriente");
+        
+        // Ahorro: enero a abril; corriente: febrero y marzo, así que marzo queda en la tabla
+        sembrar(ahorro, LocalDateTime.of(2025, 1, 2, 9, 0), 55);
+        sembrar(corriente, LocalDateTime.of(2025, 2, 1, 11, 17), 28);
+        verificacionLedgerService.sellarHistorial();
+    }
+    
+    private Cuenta cuenta(String numero, String tipo) {
+        return cuentaRepository.save(DatosPrueba.cuenta(cliente, numero, tipo, new BigDecimal("100.00")));
+    }
+    
+    /**
+     * Inserts a movement every two days with its running balance, as history
+     * migrated before the hash chain: a reversal every seventh row and two
+     * movements at the same time, ordered by id.
+     */
+    private void sembrar(Cuenta cuenta, LocalDateTime desde, int cantidad) {
+        long primerId = 4_000_000_000L + cuenta.getId() * 1_000L;
+        BigDecimal saldo = cuenta.getSaldoInicial();
+        BigDecimal anterior = BigDecimal.ZERO;
+        for (int i = 0; i < cantidad; i++) {
+            boolean reverso = i % 7 == 6;
+            BigDecimal valor = reverso ? anterior.negate() : new BigDecimal(i % 2 == 0 ? "80.00" : "-35.25");
+            LocalDateTime fecha = desde.plusDays(2L * (i == 11 ? i - 1 : i));
+            saldo = saldo.add(valor);
+            jdbcTemplate.update("INSERT INTO movimientos (id, fecha, tipo_movimiento, valor, saldo, cuenta_id, reverso_de) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", primerId + i, fecha,
+                    reverso ? MovimientoService.TIPO_REVERSO : (valor.signum() > 0 ? "Deposito" : "Retiro"),
+                    valor, saldo, cuenta.getId(), reverso ? primerId + i - 1 : null);
+            anterior = valor;
+        }
+        jdbcTemplate.update("UPDATE cuentas SET saldo_actual = ? WHERE id = ?", saldo, cuenta.getId());
+    }
+    
+    private String csv(LocalDateTime inicio, LocalDateTime fin) throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        reporteService.escribirReporte(cliente.getClienteId(), inicio, fin, FormatoReporte.CSV, salida);
+        return salida.toString();
+    }
+    
+    private int filasEnTabla(Cuenta cuenta) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movimientos WHERE cuenta_id = ?",
+                Integer.class, cuenta.getId());
+    }
+    
+    private List<InconsistenciaLedgerDTO> inconsistencias() {
+        return verificacionLedgerService.verificar().getInconsistencias().stream()
+                .filter(i -> i.getCuentaId().equals(ahorro.getId()) || i.getCuentaId().equals(corriente.getId()))
+                .toList();
+    }
+    
+    @Test
+    @DisplayName("Reports should be identical before and after archiving")
+    void archivar_ReportsUnchanged() throws Exception {
+        List<ReporteMovimientoDTO> lista = reporteService.generarReporte(cliente.getClienteId(), INICIO, FIN);
+        String todo = csv(INICIO, FIN);
+        LocalDateTime marzo = LocalDateTime.of(2025, 3, 5, 0, 0);
+        LocalDateTime abril = LocalDateTime.of(2025, 4, 20, 23, 59, 59);
+        String tramo = csv(marzo, abril);
+        
+        assertTrue(archivoMovimientos.archivar(CORTE) > 0);
+        
+        assertEquals(CORTE, cuentaRepository.findById(ahorro.getId()).orElseThrow().getArchivadoHasta());
+        assertEquals(LocalDate.of(2025, 3, 1),
+                cuentaRepository.findById(corriente.getId()).orElseThrow().getArchivadoHasta());
+        assertTrue(filasEnTabla(ahorro) < 55);
+        assertTrue(filasEnTabla(corriente) < 28);
+        
+        assertEquals(lista, reporteService.generarReporte(cliente.getClienteId(), INICIO, FIN));
+        assertEquals(todo, csv(INICIO, FIN));
+        assertEquals(tramo, csv(marzo, abril));
+    }
+    
+    @Test
+    @DisplayName("Ledger verification should walk the archived chain")
+    void archivar_LedgerStillVerifies() {
+        archivoMovimientos.archivar(CORTE);
+        
+        assertTrue(inconsistencias().isEmpty());
+        
+        // Sin filas nuevas anteriores al corte, repetir no archiva nada
+        assertEquals(0, archivoMovimientos.archivar(CORTE));
+        assertTrue(inconsistencias().isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Should keep an account with unsealed movements in the table")
+    void archivar_UnsealedAccount_Skipped() {
+        jdbcTemplate.update("UPDATE movimientos SET hash = NULL WHERE cuenta_id = ?", corriente.getId());
+        
+        archivoMovimientos.archivar(CORTE);
+        
+        assertNull(cuentaRepository.findById(corriente.getId()).orElseThrow().getArchivadoHasta());
+        assertEquals(28, filasEnTabla(corriente));
+        assertEquals(CORTE, cuentaRepository.findById(ahorro.getId()).orElseThrow().getArchivadoHasta());
+    }
+}
@@ -0,0 +1,56 @@
+package com.bank.app.service;
+
+import com.bank.app.service.BitacoraMovimientos.Registro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BitacoraMovimientos.
+ * Tests that an append that fails halfway leaves nothing to replay.
+ */
+@DisplayName("BitacoraMovimientos Tests")
+class BitacoraMovimientosTest {
+    
+    @TempDir
+    Path directorio;
+    
+    private Registro registro(int i, String tipo) {
+        return new Registro(0, 7L, LocalDateTime.of(2026, 3, 1, 9, 0).plusSeconds(i), tipo,
+                new BigDecimal("1.00"), new BigDecimal(i + 1).setScale(2));
+    }
+    
+    @Test
+    @DisplayName("Should cut a failed append off the log and reuse its sequence numbers")
+    void anexar_Failure_LeavesNothingToReplay() throws Exception {
+        try (BitacoraMovimientos bitacora = new BitacoraMovimientos(directorio)) {
+            bitacora.leerDesde(0);
+            bitacora.rotar();
+            bitacora.anexar(List.of(registro(0, "Deposito")));
+            
+            // Bastantes registros para que parte del grupo llegue al archivo antes del que falla
+            List<Registro> grupo = new ArrayList<>();
+            for (int i = 1; i <= 6000; i++) {
+                grupo.add(registro(i, "Deposito"));
+            }
+            grupo.add(registro(6001, "X".repeat(300_000)));
+            assertThrows(BufferOverflowException.class, () -> bitacora.anexar(grupo));
+            
+            assertEquals(2, bitacora.anexar(List.of(registro(1, "Deposito"))).getFirst().secuencia());
+        }
+        
+        try (BitacoraMovimientos reabierta = new BitacoraMovimientos(directorio)) {
+            List<Registro> registros = reabierta.leerDesde(0);
+            assertEquals(List.of(1L, 2L), registros.stream().map(Registro::secuencia).toList());
+        }
+    }
+}
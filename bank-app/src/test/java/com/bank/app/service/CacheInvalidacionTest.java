@@ -0,0 +1,117 @@
+package com.bank.app.service;
+
+import com.bank.app.config.CacheConfig;
+import com.bank.app.dto.ClienteDTO;
+import com.bank.app.dto.CuentaDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Read cache for accounts and clients on embedded H2.
+ * Tests read-through, eviction on writes and that a cached account can never
+ * let an inactive account accept movements.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Account and client cache Tests")
+class CacheInvalidacionTest {
+    
+    @Autowired
+    private CuentaService cuentaService;
+    
+    @Autowired
+    private ClienteService clienteService;
+    
+    @Autowired
+    private MovimientoService movimientoService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    private Cliente cliente;
+    private Cuenta cuenta;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        cliente = clienteRepository.save(DatosPrueba.cliente("CA-" + sufijo));
+        
+        cuenta = DatosPrueba.cuenta(cliente, "CA" + sufijo, new BigDecimal("100.00"));
+        cuentaRepository.save(cuenta);
+    }
+    
+    @Test
+    @DisplayName("Should serve repeated reads from the cache and evict them on update")
+    void findById_IsCachedAndEvictedOnUpdate() {
+        CuentaDTO primera = cuentaService.findById(cuenta.getId());
+        assertSame(primera, cuentaService.findById(cuenta.getId()));
+        
+        CuentaDTO cambios = new CuentaDTO();
+        cambios.setTipoCuenta("Corriente");
+        cambios.setSaldoInicial(cuenta.getSaldoInicial());
+        cambios.setEstado(true);
+        cuentaService.update(cuenta.getId(), cambios);
+        
+        assertNull(cacheManager.getCache(CacheConfig.CUENTAS).get(cuenta.getId()));
+        assertEquals("Corriente", cuentaService.findById(cuenta.getId()).getTipoCuenta());
+    }
+    
+    @Test
+    @DisplayName("Should reject movements on an account deactivated after its id was cached")
+    void save_AfterDeactivation_RejectsMovement() {
+        movimientoService.save(DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "10.00"));
+        assertNotNull(cacheManager.getCache(CacheConfig.CUENTA_ID_POR_NUMERO).get(cuenta.getNumeroCuenta()));
+        
+        CuentaDTO cambios = new CuentaDTO();
+        cambios.setTipoCuenta(cuenta.getTipoCuenta());
+        cambios.setSaldoInicial(cuenta.getSaldoInicial());
+        cambios.setEstado(false);
+        cuentaService.update(cuenta.getId(), cambios);
+        
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> movimientoService.save(DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "10.00")));
+        assertEquals("La cuenta está inactiva", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Should evict the client and the accounts that embed its name when the client changes")
+    void clienteUpdate_EvictsClientAndAccountEntries() {
+        cuentaService.findByNumeroCuenta(cuenta.getNumeroCuenta());
+        ClienteDTO actual = clienteService.findById(cliente.getClienteId());
+        
+        ClienteDTO cambios = new ClienteDTO();
+        cambios.setNombre("Cliente Renombrado");
+        cambios.setGenero(actual.getGenero());
+        cambios.setEdad(actual.getEdad());
+        cambios.setDireccion(actual.getDireccion());
+        cambios.setTelefono(actual.getTelefono());
+        cambios.setEstado(true);
+        clienteService.update(cliente.getClienteId(), cambios, null);
+        
+        assertEquals("Cliente Renombrado", clienteService.findById(cliente.getClienteId()).getNombre());
+        assertEquals("Cliente Renombrado",
+                cuentaService.findByNumeroCuenta(cuenta.getNumeroCuenta()).getClienteNombre());
+    }
+}
@@ -0,0 +1,77 @@
+package com.bank.app.service;
+
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CadenaHash.
+ * Tests that the hash is stable across amount scales and bound to the previous link.
+ */
+@DisplayName("CadenaHash Tests")
+class CadenaHashTest {
+    
+    private final CadenaHash cadenaHash = new CadenaHash();
+    
+    private final LocalDateTime fecha = LocalDateTime.of(2026, 2, 10, 9, 30, 15, 123_456_000);
+    
+    @Test
+    @DisplayName("Should hash the stored form of the amounts")
+    void calcular_SameAmountDifferentScale_SameHash() {
+        String posteado = cadenaHash.calcular(1L, CadenaHash.GENESIS, fecha,
+                new BigDecimal("-575"), new BigDecimal("1425.0"), null, "Retiro");
+        String leido = cadenaHash.calcular(1L, CadenaHash.GENESIS, fecha,
+                new BigDecimal("-575.00"), new BigDecimal("1425.00"), null, "Retiro");
+        
+        assertEquals(posteado, leido);
+        assertEquals(64, posteado.length());
+    }
+    
+    @Test
+    @DisplayName("Should change the hash when the previous link or any field changes")
+    void calcular_DifferentInput_DifferentHash() {
+        String base = cadenaHash.calcular(1L, CadenaHash.GENESIS, fecha,
+                new BigDecimal("100.00"), new BigDecimal("200.00"), null, "Deposito");
+        
+        assertNotEquals(base, cadenaHash.calcular(1L, "a".repeat(64), fecha,
+                new BigDecimal("100.00"), new BigDecimal("200.00"), null, "Deposito"));
+        assertNotEquals(base, cadenaHash.calcular(1L, CadenaHash.GENESIS, fecha,
+                new BigDecimal("100.01"), new BigDecimal("200.00"), null, "Deposito"));
+        assertNotEquals(base, cadenaHash.calcular(1L, CadenaHash.GENESIS, fecha,
+                new BigDecimal("100.00"), new BigDecimal("200.00"), 7L, "Deposito"));
+    }
+    
+    @Test
+    @DisplayName("Should chain each movement to the account's previous hash")
+    void encadenar_AdvancesAccountTail() {
+        Cuenta cuenta = new Cuenta();
+        cuenta.setId(1L);
+        Movimiento primero = movimiento(cuenta, "100.00", "100.00");
+        Movimiento segundo = movimiento(cuenta, "-40.00", "60.00");
+        
+        cadenaHash.encadenar(cuenta, primero);
+        cadenaHash.encadenar(cuenta, segundo);
+        
+        assertEquals(cadenaHash.calcular(1L, CadenaHash.GENESIS, fecha, primero.getValor(),
+                primero.getSaldo(), null, "Deposito"), primero.getHash());
+        assertEquals(cadenaHash.calcular(1L, primero.getHash(), fecha, segundo.getValor(),
+                segundo.getSaldo(), null, "Deposito"), segundo.getHash());
+        assertEquals(segundo.getHash(), cuenta.getHashUltimoMovimiento());
+    }
+    
+    private Movimiento movimiento(Cuenta cuenta, String valor, String saldo) {
+        Movimiento movimiento = new Movimiento();
+        movimiento.setFecha(fecha);
+        movimiento.setTipoMovimiento("Deposito");
+        movimiento.setValor(new BigDecimal(valor));
+        movimiento.setSaldo(new BigDecimal(saldo));
+        movimiento.setCuenta(cuenta);
+        return movimiento;
+    }
+}
@@ -4,6 +4,8 @@ import com.bank.app.dto.ClienteDTO;
 import com.bank.app.entity.Cliente;
 import com.bank.app.exception.BusinessException;
 import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.mapper.ClienteMapper;
+import com.bank.app.mapper.ClienteMapperImpl;
 import com.bank.app.repository.ClienteRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,8 +13,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Arrays;
 import java.util.List;
@@ -25,7 +27,7 @@ import static org.mockito.Mockito.*;
 
 /**
  * Unit tests for ClienteService.
- * Tests business logic, validations, and password encryption.
+ * Tests business logic, validations, and storage of encoded passwords.
  */
 @ExtendWith(MockitoExtension.class)
 @DisplayName("ClienteService Tests")
@@ -35,7 +37,13 @@ class ClienteServiceTest {
     private ClienteRepository clienteRepository;
     
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private InvalidacionCache invalidacionCache;
+    
+    @Mock
+    private EnrutamientoLecturas enrutamientoLecturas;
+    
+    @Spy
+    private ClienteMapper clienteMapper = new ClienteMapperImpl();
     
     @InjectMocks
     private ClienteService clienteService;
@@ -114,23 +122,21 @@ class ClienteServiceTest {
     }
     
     @Test
-    @DisplayName("Should save new cliente with encrypted password")
-    void save_WhenNewCliente_ShouldEncryptPasswordAndSave() {
+    @DisplayName("Should save new cliente with the encoded password")
+    void save_WhenNewCliente_ShouldStoreEncodedPassword() {
         // Arrange
         clienteDTO.setClienteId(null); // Mark as new cliente
         when(clienteRepository.existsByIdentificacion(anyString())).thenReturn(false);
-        when(passwordEncoder.encode(anyString())).thenReturn("$2a$10$encodedPassword");
         when(clienteRepository.save(any(Cliente.class))).thenReturn(cliente);
         
         // Act
-        ClienteDTO result = clienteService.save(clienteDTO);
+        ClienteDTO result = clienteService.save(clienteDTO, "$2a$10$encodedPassword");
         
         // Assert
         assertNotNull(result);
         assertEquals("Jose Lema", result.getNombre());
         assertNull(result.getContrasena(), "Password should not be exposed");
-        verify(passwordEncoder, times(1)).encode("1234");
-        verify(clienteRepository, times(1)).save(any(Cliente.class));
+        verify(clienteRepository, times(1)).save(argThat(c -> "$2a$10$encodedPassword".equals(c.getContrasena())));
     }
     
     @Test
@@ -142,45 +148,41 @@ class ClienteServiceTest {
         
         // Act & Assert
         assertThrows(BusinessException.class, () -> {
-            clienteService.save(clienteDTO);
+            clienteService.save(clienteDTO, "$2a$10$encodedPassword");
         });
         verify(clienteRepository, never()).save(any());
     }
     
     @Test
-    @DisplayName("Should update cliente and encrypt new password")
-    void update_WhenPasswordProvided_ShouldEncryptAndUpdate() {
+    @DisplayName("Should update cliente with the new encoded password")
+    void update_WhenPasswordProvided_ShouldStoreEncodedPassword() {
         // Arrange
         when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
-        when(passwordEncoder.encode("newPassword")).thenReturn("$2a$10$newEncodedPassword");
         when(clienteRepository.save(any(Cliente.class))).thenReturn(cliente);
         
-        clienteDTO.setContrasena("newPassword");
-        
         // Act
-        ClienteDTO result = clienteService.update(1L, clienteDTO);
+        ClienteDTO result = clienteService.update(1L, clienteDTO, "$2a$10$newEncodedPassword");
         
         // Assert
         assertNotNull(result);
-        verify(passwordEncoder, times(1)).encode("newPassword");
+        assertEquals("$2a$10$newEncodedPassword", cliente.getContrasena());
         verify(clienteRepository, times(1)).save(any(Cliente.class));
     }
     
     @Test
-    @DisplayName("Should not update password when empty string provided")
-    void update_WhenPasswordEmpty_ShouldNotEncrypt() {
+    @DisplayName("Should keep the current password when no new one is given")
+    void update_WhenNoEncodedPassword_ShouldKeepCurrent() {
         // Arrange
+        String actual = cliente.getContrasena();
         when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
         when(clienteRepository.save(any(Cliente.class))).thenReturn(cliente);
         
-        clienteDTO.setContrasena("");
-        
         // Act
-        ClienteDTO result = clienteService.update(1L, clienteDTO);
+        ClienteDTO result = clienteService.update(1L, clienteDTO, null);
         
         // Assert
         assertNotNull(result);
-        verify(passwordEncoder, never()).encode(anyString());
+        assertEquals(actual, cliente.getContrasena());
         verify(clienteRepository, times(1)).save(any(Cliente.class));
     }
     
@@ -0,0 +1,85 @@
+package com.bank.app.service;
+
+import com.bank.app.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for CodificadorContrasenas.
+ * Tests parallel hashing order and the bound of the hashing queue.
+ */
+@DisplayName("CodificadorContrasenas Tests")
+class CodificadorContrasenasTest {
+    
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private CodificadorContrasenas codificador;
+    
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        codificador.detener();
+    }
+    
+    @Test
+    @DisplayName("Should hash every password in request order across threads")
+    void codificarTodas_KeepsOrder() {
+        codificador = new CodificadorContrasenas(passwordEncoder, 4, 10);
+        List<String> contrasenas = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            contrasenas.add("clave-" + i);
+        }
+        
+        List<String> codificadas = codificador.codificarTodas(contrasenas);
+        
+        assertEquals(10, codificadas.size());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(passwordEncoder.matches("clave-" + i, codificadas.get(i)));
+        }
+    }
+    
+    @Test
+    @DisplayName("Should keep missing passwords as null")
+    void codificarTodas_NullStaysNull() {
+        codificador = new CodificadorContrasenas(passwordEncoder, 2, 10);
+        
+        List<String> codificadas = codificador.codificarTodas(Arrays.asList("uno", null, "tres"));
+        
+        assertTrue(passwordEncoder.matches("uno", codificadas.get(0)));
+        assertNull(codificadas.get(1));
+        assertTrue(passwordEncoder.matches("tres", codificadas.get(2)));
+    }
+    
+    @Test
+    @DisplayName("Should reject with 503 when the hashing queue is full")
+    void codificar_WhenQueueFull_ThrowsServiceUnavailable() {
+        CountDownLatch liberar = new CountDownLatch(1);
+        PasswordEncoder lento = mock(PasswordEncoder.class);
+        when(lento.encode(any())).thenAnswer(invocation -> {
+            liberar.await();
+            return "hash";
+        });
+        codificador = new CodificadorContrasenas(lento, 1, 1);
+        
+        // Uno en el hilo y uno en la cola
+        CompletableFuture<String> enHilo = codificador.codificar("a");
+        CompletableFuture<String> enCola = codificador.codificar("b");
+        assertThrows(ServiceUnavailableException.class, () -> codificador.codificar("c"));
+        
+        liberar.countDown();
+        assertEquals("hash", enHilo.join());
+        assertEquals("hash", enCola.join());
+    }
+}
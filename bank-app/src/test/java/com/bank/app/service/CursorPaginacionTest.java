@@ -0,0 +1,62 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.PaginaDTO;
+import com.bank.app.exception.BusinessException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CursorPaginacion.
+ * Tests cursor round trips, page size limits and next-page detection.
+ */
+@DisplayName("CursorPaginacion Tests")
+class CursorPaginacionTest {
+    
+    private final CursorPaginacion cursorPaginacion = new CursorPaginacion(50, 500);
+    
+    @Test
+    @DisplayName("Should decode the same key parts that were encoded")
+    void codificar_RoundTrip() {
+        LocalDateTime fecha = LocalDateTime.of(2026, 3, 1, 10, 15, 30, 123000000);
+        
+        String cursor = cursorPaginacion.codificar(fecha, 42L);
+        String[] partes = cursorPaginacion.decodificar(cursor, 2);
+        
+        assertEquals(fecha, cursorPaginacion.leer(partes[0], LocalDateTime::parse));
+        assertEquals(42L, cursorPaginacion.leer(partes[1], Long::valueOf));
+    }
+    
+    @Test
+    @DisplayName("Should reject malformed cursors")
+    void decodificar_Invalid_ThrowsBusinessException() {
+        assertThrows(BusinessException.class, () -> cursorPaginacion.decodificar("%%%", 1));
+        assertThrows(BusinessException.class,
+                () -> cursorPaginacion.decodificar(cursorPaginacion.codificar(1L), 2));
+        assertThrows(BusinessException.class, () -> cursorPaginacion.leer("abc", Long::valueOf));
+    }
+    
+    @Test
+    @DisplayName("Should apply the default and maximum page sizes")
+    void tamano_AppliesLimits() {
+        assertEquals(50, cursorPaginacion.tamano(null));
+        assertEquals(10, cursorPaginacion.tamano(10));
+        assertEquals(500, cursorPaginacion.tamano(10_000));
+        assertThrows(BusinessException.class, () -> cursorPaginacion.tamano(0));
+    }
+    
+    @Test
+    @DisplayName("Should only return a next cursor when the query found an extra row")
+    void pagina_DetectsNextPage() {
+        PaginaDTO<Long> ultima = cursorPaginacion.pagina(List.of(1L, 2L), 2, id -> cursorPaginacion.codificar(id));
+        PaginaDTO<Long> intermedia = cursorPaginacion.pagina(List.of(1L, 2L, 3L), 2, id -> cursorPaginacion.codificar(id));
+        
+        assertNull(ultima.getSiguienteCursor());
+        assertEquals(List.of(1L, 2L), intermedia.getContenido());
+        assertEquals("2", cursorPaginacion.decodificar(intermedia.getSiguienteCursor(), 1)[0]);
+    }
+}
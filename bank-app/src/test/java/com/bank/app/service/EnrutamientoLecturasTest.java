@@ -0,0 +1,142 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.repository.ClaveIdempotenciaRepository;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Read/write routing on embedded H2.
+ * The replica is a second pool over the same in-memory database, so it never
+ * lags; the tests check where each transaction was sent, through the routing
+ * counters. Reads that decide a write, such as the stored Idempotency-Key of
+ * a retried post, must never be sent to the replica.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicadb;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.replica.url=jdbc:h2:mem:replicadb;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.replica.hikari.maximum-pool-size=4",
+        "app.replica.retraso-maximo=1h"
+})
+@ActiveProfiles("test")
+@DisplayName("Read/write routing Tests")
+class EnrutamientoLecturasTest {
+    
+    @Autowired
+    private ReporteService reporteService;
+    
+    @Autowired
+    private MovimientoService movimientoService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    @Autowired
+    private ClaveIdempotenciaRepository claveIdempotenciaRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replica;
+    
+    private Cuenta crearCuenta() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("RP-" + sufijo));
+        
+        return cuentaRepository.save(DatosPrueba.cuenta(cliente, "RP" + sufijo, "Corriente", new BigDecimal("300.00")));
+    }
+    
+    private double conexiones(String motivo) {
+        return meterRegistry.get("banco.datasource.conexiones").tag("motivo", motivo).counter().count();
+    }
+    
+    private void reporte(Cuenta cuenta) {
+        reporteService.generarReporte(cuenta.getCliente().getClienteId(),
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+    }
+    
+    @Test
+    @DisplayName("Should serve a read-only report from the replica pool")
+    void reporte_WithoutRecentWrites_GoesToReplica() {
+        Cuenta cuenta = crearCuenta();
+        double lecturas = conexiones("lectura");
+        double recientes = conexiones("escritura_reciente");
+        
+        reporte(cuenta);
+        
+        assertTrue(conexiones("lectura") > lecturas);
+        assertEquals(recientes, conexiones("escritura_reciente"));
+        assertEquals("replica", replica.getPoolName());
+        assertTrue(replica.isReadOnly());
+    }
+    
+    @Test
+    @DisplayName("Should keep a report on the primary right after a post of the same client")
+    void reporte_AfterPost_StaysOnPrimary() {
+        Cuenta cuenta = crearCuenta();
+        MovimientoDTO dto = DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "25.00");
+        double escrituras = conexiones("escritura");
+        movimientoService.save(dto);
+        assertTrue(conexiones("escritura") > escrituras);
+        
+        double lecturas = conexiones("lectura");
+        double recientes = conexiones("escritura_reciente");
+        reporte(cuenta);
+        
+        assertTrue(conexiones("escritura_reciente") > recientes);
+        assertEquals(lecturas, conexiones("lectura"));
+    }
+    
+    @Test
+    @DisplayName("Should read the stored Idempotency-Key of a retry from the primary")
+    void reintentoConClave_ReadsStoredKeyFromPrimary() {
+        Cuenta cuenta = crearCuenta();
+        MovimientoDTO dto = DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "25.00");
+        String clave = "RP-" + DatosPrueba.sufijo();
+        MovimientoDTO original = idempotenciaService.registrar(clave, dto);
+        
+        // Otra instancia (o esta tras reiniciar) no tiene la clave en memoria: solo la base la conoce
+        IdempotenciaService otraInstancia = new IdempotenciaService(movimientoService, movimientoRepository,
+                claveIdempotenciaRepository, transactionManager, Duration.ofHours(24), 1000, 10_000);
+        double lecturas = conexiones("lectura");
+        MovimientoDTO reintento = otraInstancia.registrar(clave, dto);
+        
+        assertEquals(original.getId(), reintento.getId());
+        assertEquals(lecturas, conexiones("lectura"));
+        assertEquals(1, movimientoRepository.findByCuentaIdOrderByFechaDesc(cuenta.getId()).size());
+    }
+}
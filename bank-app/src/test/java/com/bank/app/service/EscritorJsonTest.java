@@ -0,0 +1,107 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.CuentaDTO;
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.dto.ReporteMovimientoDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EscritorJson.
+ * The streamed output must be the same JSON that databind writes for the DTOs,
+ * including null fields, so clients cannot tell the two paths apart.
+ */
+@DisplayName("EscritorJson Tests")
+class EscritorJsonTest {
+    
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final EscritorJson escritorJson = new EscritorJson(objectMapper);
+    
+    private final List<MovimientoDTO> movimientos = List.of(
+            new MovimientoDTO(1L, LocalDateTime.of(2026, 2, 10, 9, 30), "Retiro",
+                    new BigDecimal("-575.00"), new BigDecimal("1425.00"), "478758"),
+            new MovimientoDTO(2L, LocalDateTime.of(2026, 2, 10, 9, 30, 15, 123_000_000), "Depósito \"especial\"",
+                    new BigDecimal("1E+3"), null, "478758"),
+            new MovimientoDTO());
+    
+    private final List<ReporteMovimientoDTO> filas = List.of(
+            new ReporteMovimientoDTO(LocalDateTime.of(2026, 2, 10, 9, 30), "Marianela Montalvo", "225487",
+                    "Corriente", new BigDecimal("100.00"), true, new BigDecimal("600.00"), new BigDecimal("700.00")),
+            new ReporteMovimientoDTO(null, null, null, null, null, null, null, null));
+    
+    private String escribir(Consumer<ByteArrayOutputStream> escritura) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        escritura.accept(salida);
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    @DisplayName("Movements should match the databind output")
+    void escribirMovimientos_MatchesDatabind() {
+        String json = escribir(salida -> escritorJson.escribirMovimientos(movimientos.stream(), salida));
+        
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(movimientos)), objectMapper.readTree(json));
+        assertTrue(json.contains("\"valor\":-575.00"));
+    }
+    
+    @Test
+    @DisplayName("Accounts should match the databind output")
+    void escribirCuentas_MatchesDatabind() {
+        List<CuentaDTO> cuentas = List.of(
+                new CuentaDTO(1L, "478758", "Ahorro", new BigDecimal("2000.00"), true, 5L, "Jose Lema"),
+                new CuentaDTO());
+        
+        String json = escribir(salida -> escritorJson.escribirCuentas(cuentas.stream(), salida));
+        
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(cuentas)), objectMapper.readTree(json));
+    }
+    
+    @Test
+    @DisplayName("Report rows should match the databind output")
+    void escribirReporte_MatchesDatabind() {
+        String json = escribir(salida -> escritorJson.escribirReporte(filas.stream(), salida));
+        
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(filas)), objectMapper.readTree(json));
+    }
+    
+    @Test
+    @DisplayName("NDJSON should write one databind-equivalent object per line")
+    void escribirReporteNdjson_OneObjectPerLine() {
+        String ndjson = escribir(salida -> escritorJson.escribirReporteNdjson(filas.stream(), salida));
+        
+        String[] lineas = ndjson.split("\n");
+        assertEquals(2, lineas.length);
+        assertTrue(ndjson.endsWith("\n"));
+        for (int i = 0; i < lineas.length; i++) {
+            assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(filas.get(i))),
+                    objectMapper.readTree(lineas[i]));
+        }
+    }
+    
+    @Test
+    @DisplayName("An empty listing should be an empty array and leave the output open")
+    void escribirMovimientos_Empty_WritesEmptyArray() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                fail("The response body must not be closed by the writer");
+            }
+        };
+        
+        escritorJson.escribirMovimientos(Stream.empty(), salida);
+        
+        assertEquals("[]", salida.toString(StandardCharsets.UTF_8));
+    }
+}
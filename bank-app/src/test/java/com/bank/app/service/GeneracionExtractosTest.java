@@ -0,0 +1,140 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.FormatoReporte;
+import com.bank.app.dto.GeneracionExtractosDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Month-end statement job on embedded H2.
+ * Every client gets its own file, and a second run of the same range only
+ * writes the clients whose file is missing.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Statement job Tests")
+class GeneracionExtractosTest {
+    
+    // Rango propio: los movimientos de otras pruebas no aparecen en los archivos
+    private static final LocalDateTime INICIO = LocalDateTime.of(2031, 3, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2031, 3, 31, 23, 59, 59);
+    
+    @Autowired
+    private GeneracionExtractosService generacionExtractosService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    private Cliente conMovimientos;
+    private Cliente sinMovimientos;
+    private Path directorio;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        conMovimientos = crearCliente(3);
+        sinMovimientos = crearCliente(0);
+        
+        directorio = Path.of(System.getProperty("java.io.tmpdir"), "bank-app-extractos",
+                "20310301T000000-20310331T235959");
+        FileSystemUtils.deleteRecursively(directorio);
+    }
+    
+    private Cliente crearCliente(int movimientos) {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("EX-" + sufijo));
+        
+        Cuenta cuenta = DatosPrueba.cuenta(cliente, "EX" + sufijo, BigDecimal.ZERO);
+        cuentaRepository.save(cuenta);
+        
+        List<Movimiento> lista = new ArrayList<>();
+        for (int m = 0; m < movimientos; m++) {
+            Movimiento movimiento = new Movimiento();
+            movimiento.setFecha(INICIO.plusDays(m + 1));
+            movimiento.setTipoMovimiento("Deposito");
+            movimiento.setValor(BigDecimal.TEN);
+            movimiento.setSaldo(BigDecimal.TEN.multiply(BigDecimal.valueOf(m + 1)));
+            movimiento.setCuenta(cuenta);
+            lista.add(movimiento);
+        }
+        movimientoRepository.saveAll(lista);
+        return cliente;
+    }
+    
+    private GeneracionExtractosDTO esperar(GeneracionExtractosDTO iniciada) throws InterruptedException {
+        GeneracionExtractosDTO generacion = iniciada;
+        long limite = System.currentTimeMillis() + 30_000;
+        while (GeneracionExtractosDTO.EN_CURSO.equals(generacion.getEstado())
+                && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+            generacion = generacionExtractosService.estado(iniciada.getId());
+        }
+        return generacion;
+    }
+    
+    private Path archivo(Cliente cliente) {
+        return directorio.resolve("extracto-" + cliente.getClienteId() + ".csv");
+    }
+    
+    @Test
+    @DisplayName("Should write one statement file per client")
+    void iniciar_WritesOneFilePerClient() throws Exception {
+        GeneracionExtractosDTO generacion = esperar(
+                generacionExtractosService.iniciar(INICIO, FIN, FormatoReporte.CSV));
+        
+        assertEquals(GeneracionExtractosDTO.COMPLETADA, generacion.getEstado());
+        assertEquals(generacion.getTotalClientes(), generacion.getGenerados());
+        assertEquals(0, generacion.getFallidos());
+        assertTrue(generacion.getClientesPorSegundo() > 0);
+        
+        List<String> lineas = Files.readAllLines(archivo(conMovimientos));
+        assertEquals(4, lineas.size());
+        assertTrue(lineas.get(0).startsWith("fecha,cliente,numeroCuenta"));
+        assertEquals(1, Files.readAllLines(archivo(sinMovimientos)).size());
+    }
+    
+    @Test
+    @DisplayName("Should resume with the clients whose statement is missing")
+    void iniciar_SecondRun_OnlyWritesMissingFiles() throws Exception {
+        esperar(generacionExtractosService.iniciar(INICIO, FIN, FormatoReporte.CSV));
+        Files.delete(archivo(conMovimientos));
+        // Archivo a medio escribir de una ejecución interrumpida
+        Files.writeString(directorio.resolve("extracto-" + conMovimientos.getClienteId() + ".csv.tmp"), "fecha");
+        
+        GeneracionExtractosDTO segunda = esperar(
+                generacionExtractosService.iniciar(INICIO, FIN, FormatoReporte.CSV));
+        
+        assertEquals(GeneracionExtractosDTO.COMPLETADA, segunda.getEstado());
+        assertEquals(1, segunda.getGenerados());
+        assertEquals(segunda.getTotalClientes() - 1, segunda.getOmitidos());
+        assertEquals(4, Files.readAllLines(archivo(conMovimientos)).size());
+        assertFalse(Files.exists(directorio.resolve("extracto-" + conMovimientos.getClienteId() + ".csv.tmp")));
+    }
+}
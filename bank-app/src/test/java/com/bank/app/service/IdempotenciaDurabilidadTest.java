@@ -0,0 +1,86 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.repository.ClaveIdempotenciaRepository;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Idempotency keys on embedded H2.
+ * A key committed before a restart (an empty in-memory window) must still
+ * return the original movement and leave no second movement behind.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Idempotency durability Tests")
+class IdempotenciaDurabilidadTest {
+    
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+    
+    @Autowired
+    private MovimientoService movimientoService;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    @Autowired
+    private ClaveIdempotenciaRepository claveIdempotenciaRepository;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private Cuenta cuenta;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("ID-" + sufijo));
+        
+        cuenta = DatosPrueba.cuenta(cliente, "ID" + sufijo, new BigDecimal("1000.00"));
+        cuentaRepository.save(cuenta);
+    }
+    
+    @Test
+    @DisplayName("Should return the stored movement for a key committed before a restart")
+    void registrar_AfterRestart_ReturnsStoredMovement() {
+        String clave = "transferencia-" + cuenta.getNumeroCuenta();
+        MovimientoDTO dto = DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "250.00");
+        
+        MovimientoDTO original = idempotenciaService.registrar(clave, dto);
+        assertTrue(claveIdempotenciaRepository.existsById(clave));
+        
+        // Una instancia nueva no tiene la clave en memoria
+        IdempotenciaService reiniciado = new IdempotenciaService(movimientoService, movimientoRepository,
+                claveIdempotenciaRepository, transactionManager, Duration.ofHours(24), 1000, 5000);
+        MovimientoDTO reintento = reiniciado.registrar(clave, dto);
+        
+        assertEquals(original.getId(), reintento.getId());
+        assertEquals(1, movimientoRepository.findDTOByCuentaId(cuenta.getId()).size());
+        assertEquals(0, new BigDecimal("1250.00")
+                .compareTo(cuentaRepository.findById(cuenta.getId()).orElseThrow().getSaldoActual()));
+    }
+}
@@ -0,0 +1,165 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.ClaveIdempotencia;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.repository.ClaveIdempotenciaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for IdempotenciaService.
+ * Tests replays from memory and from stored keys, key reuse with another request and concurrent copies.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("IdempotenciaService Tests")
+class IdempotenciaServiceTest {
+    
+    @Mock
+    private MovimientoService movimientoService;
+    
+    @Mock
+    private MovimientoRepository movimientoRepository;
+    
+    @Mock
+    private ClaveIdempotenciaRepository claveIdempotenciaRepository;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private IdempotenciaService idempotenciaService;
+    
+    private MovimientoDTO guardado;
+    
+    @BeforeEach
+    void setUp() {
+        idempotenciaService = new IdempotenciaService(movimientoService, movimientoRepository,
+                claveIdempotenciaRepository, transactionManager, Duration.ofHours(24), 1000, 5000);
+        
+        guardado = DatosPrueba.movimiento("478758", "-100.00");
+        guardado.setId(42L);
+        guardado.setSaldo(new BigDecimal("900.00"));
+    }
+    
+    @Test
+    @DisplayName("Should return the original movement on a retry without posting again")
+    void registrar_Retry_ReturnsOriginalFromMemory() {
+        when(movimientoService.save(any(MovimientoDTO.class))).thenReturn(guardado);
+        
+        MovimientoDTO primero = idempotenciaService.registrar("pago-1", DatosPrueba.movimiento("478758", "-100.00"));
+        MovimientoDTO reintento = idempotenciaService.registrar("pago-1", DatosPrueba.movimiento("478758", "-100.0"));
+        
+        assertSame(primero, reintento);
+        verify(movimientoService, times(1)).save(any(MovimientoDTO.class));
+        verify(claveIdempotenciaRepository, times(1)).saveAndFlush(any(ClaveIdempotencia.class));
+    }
+    
+    @Test
+    @DisplayName("Should reject a key reused with a different request")
+    void registrar_SameKeyOtherRequest_ThrowsBusinessException() {
+        when(movimientoService.save(any(MovimientoDTO.class))).thenReturn(guardado);
+        idempotenciaService.registrar("pago-2", DatosPrueba.movimiento("478758", "-100.00"));
+        
+        assertThrows(BusinessException.class,
+                () -> idempotenciaService.registrar("pago-2", DatosPrueba.movimiento("478758", "-200.00")));
+        verify(movimientoService, times(1)).save(any(MovimientoDTO.class));
+    }
+    
+    @Test
+    @DisplayName("Should post once when two copies of a request arrive at the same time")
+    void registrar_ConcurrentCopies_PostOnce() throws Exception {
+        CountDownLatch enSave = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(movimientoService.save(any(MovimientoDTO.class))).thenAnswer(inv -> {
+            enSave.countDown();
+            assertTrue(liberar.await(5, TimeUnit.SECONDS));
+            return guardado;
+        });
+        
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<MovimientoDTO> primero = executor.submit(
+                    () -> idempotenciaService.registrar("pago-3", DatosPrueba.movimiento("478758", "-100.00")));
+            assertTrue(enSave.await(5, TimeUnit.SECONDS));
+            Future<MovimientoDTO> copia = executor.submit(
+                    () -> idempotenciaService.registrar("pago-3", DatosPrueba.movimiento("478758", "-100.00")));
+            
+            // La copia espera a la primera solicitud en lugar de registrar otro movimiento
+            Thread.sleep(100);
+            assertFalse(copia.isDone());
+            liberar.countDown();
+            
+            assertEquals(42L, primero.get(5, TimeUnit.SECONDS).getId());
+            assertEquals(42L, copia.get(5, TimeUnit.SECONDS).getId());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(movimientoService, times(1)).save(any(MovimientoDTO.class));
+    }
+    
+    @Test
+    @DisplayName("Should let a retry post again after a business rejection")
+    void registrar_RejectedRequest_IsNotRemembered() {
+        when(movimientoService.save(any(MovimientoDTO.class)))
+                .thenThrow(new BusinessException("Saldo no disponible"))
+                .thenReturn(guardado);
+        
+        assertThrows(BusinessException.class,
+                () -> idempotenciaService.registrar("pago-4", DatosPrueba.movimiento("478758", "-100.00")));
+        MovimientoDTO reintento = idempotenciaService.registrar("pago-4", DatosPrueba.movimiento("478758", "-100.00"));
+        
+        assertEquals(42L, reintento.getId());
+        verify(movimientoService, times(2)).save(any(MovimientoDTO.class));
+    }
+    
+    @Test
+    @DisplayName("Should return the stored movement for a key missing from memory without posting")
+    void registrar_StoredKey_ReturnsOriginalWithoutPosting() {
+        when(claveIdempotenciaRepository.findById("pago-5")).thenReturn(Optional.of(
+                new ClaveIdempotencia("pago-5", "478758|Retiro|-100", 42L, LocalDateTime.now())));
+        when(movimientoRepository.findDTOById(42L)).thenReturn(Optional.of(guardado));
+        
+        MovimientoDTO reintento = idempotenciaService.registrar("pago-5", DatosPrueba.movimiento("478758", "-100.00"));
+        
+        assertSame(guardado, reintento);
+        verify(movimientoService, never()).save(any(MovimientoDTO.class));
+        verify(claveIdempotenciaRepository, never()).saveAndFlush(any(ClaveIdempotencia.class));
+    }
+    
+    @Test
+    @DisplayName("Should post again for a stored key older than the window, purged or not")
+    void registrar_StoredKeyOutsideWindow_PostsAgain() {
+        when(claveIdempotenciaRepository.findById("pago-6")).thenReturn(Optional.of(
+                new ClaveIdempotencia("pago-6", "478758|Retiro|-100", 7L, LocalDateTime.now().minusHours(25))));
+        when(movimientoService.save(any(MovimientoDTO.class))).thenReturn(guardado);
+        
+        MovimientoDTO resultado = idempotenciaService.registrar("pago-6", DatosPrueba.movimiento("478758", "-100.00"));
+        
+        assertEquals(42L, resultado.getId());
+        verify(claveIdempotenciaRepository).deleteVencida(eq("pago-6"), any(LocalDateTime.class));
+        verify(movimientoRepository, never()).findDTOById(7L);
+        verify(movimientoService, times(1)).save(any(MovimientoDTO.class));
+    }
+}
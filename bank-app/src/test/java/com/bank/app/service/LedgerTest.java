@@ -0,0 +1,202 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.InconsistenciaLedgerDTO;
+import com.bank.app.dto.MovimientoBatchResultadoDTO;
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.repository.RetiroDiarioRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Append-only ledger on embedded H2.
+ * Corrections go through reversals, and the verification job must accept an
+ * untouched chain and pinpoint a tampered or unsealed movement.
+ */
+@SpringBootTest(properties = {"app.ledger.solo-anexar=true", "app.ledger.sellado-lote=2"})
+@ActiveProfiles("test")
+@DisplayName("Append-only ledger Tests")
+class LedgerTest {
+    
+    @Autowired
+    private MovimientoService movimientoService;
+    
+    @Autowired
+    private VerificacionLedgerService verificacionLedgerService;
+    
+    @Autowired
+    private MovimientoBatchService movimientoBatchService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    @Autowired
+    private RetiroDiarioService retiroDiarioService;
+    
+    @Autowired
+    private RetiroDiarioRepository retiroDiarioRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private Cuenta cuenta;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("LG-" + sufijo));
+        
+        cuenta = DatosPrueba.cuenta(cliente, "LG" + sufijo, "Corriente", new BigDecimal("500.00"));
+        cuentaRepository.save(cuenta);
+    }
+    
+    private MovimientoDTO post(String valor) {
+        return movimientoService.save(DatosPrueba.movimiento(cuenta.getNumeroCuenta(), valor));
+    }
+    
+    private Optional<InconsistenciaLedgerDTO> inconsistenciaDeLaCuenta() {
+        return verificacionLedgerService.verificar().getInconsistencias().stream()
+                .filter(i -> i.getCuentaId().equals(cuenta.getId()))
+                .findFirst();
+    }
+    
+    @Test
+    @DisplayName("Should correct a movement only through a single reversal")
+    void revertir_ShouldPostOppositeMovementOnce() {
+        MovimientoDTO retiro = post("-120.5");
+        
+        MovimientoDTO reverso = movimientoService.revertir(retiro.getId());
+        
+        assertEquals(MovimientoService.TIPO_REVERSO, reverso.getTipoMovimiento());
+        assertEquals(0, new BigDecimal("120.50").compareTo(reverso.getValor()));
+        assertEquals(0, new BigDecimal("500.00").compareTo(reverso.getSaldo()));
+        assertEquals(retiro.getId(), movimientoRepository.findById(reverso.getId()).orElseThrow().getReversoDe());
+        
+        assertThrows(BusinessException.class, () -> movimientoService.revertir(retiro.getId()));
+        assertThrows(BusinessException.class, () -> movimientoService.revertir(reverso.getId()));
+        assertThrows(BusinessException.class, () -> movimientoService.update(retiro.getId(), retiro));
+        assertThrows(BusinessException.class, () -> movimientoService.delete(retiro.getId()));
+        
+        assertTrue(inconsistenciaDeLaCuenta().isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Should pinpoint a movement edited outside the application")
+    void verificar_TamperedMovement_IsReported() {
+        post("300.00");
+        MovimientoDTO alterado = post("-50.00");
+        post("25.00");
+        assertTrue(inconsistenciaDeLaCuenta().isEmpty());
+        
+        jdbcTemplate.update("UPDATE movimientos SET valor = -5.00, saldo = 795.00 WHERE id = ?", alterado.getId());
+        
+        InconsistenciaLedgerDTO inconsistencia = inconsistenciaDeLaCuenta().orElseThrow();
+        assertEquals(alterado.getId(), inconsistencia.getMovimientoId());
+        assertEquals("El hash no coincide con la cadena", inconsistencia.getMotivo());
+    }
+    
+    @Test
+    @DisplayName("Should reject a reversal on an inactive account")
+    void revertir_InactiveAccount_ThrowsBusinessException() {
+        MovimientoDTO retiro = post("-100.00");
+        Cuenta inactiva = cuentaRepository.findById(cuenta.getId()).orElseThrow();
+        inactiva.setEstado(false);
+        cuentaRepository.save(inactiva);
+        
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> movimientoService.revertir(retiro.getId()));
+        
+        assertEquals("La cuenta está inactiva", exception.getMessage());
+        assertEquals(1, movimientoRepository.findDTOByCuentaId(cuenta.getId()).size());
+    }
+    
+    @Test
+    @DisplayName("Should rebuild the daily withdrawals with the same reversal rule as posting")
+    void reconstruir_Reversals_MatchPostedAccumulator() {
+        MovimientoDTO retiro = post("-100.00");
+        MovimientoDTO deposito = post("50.00");
+        post("-30.00");
+        movimientoService.revertir(retiro.getId());
+        movimientoService.revertir(deposito.getId());
+        LocalDate hoy = LocalDate.now();
+        BigDecimal acumulado = retiroDiarioRepository.findByCuentaIdAndFecha(cuenta.getId(), hoy).orElseThrow().getTotal();
+        
+        BigDecimal reconstruido = retiroDiarioService.reconstruir(cuenta, hoy);
+        
+        assertEquals(0, new BigDecimal("30.00").compareTo(acumulado));
+        assertEquals(0, acumulado.compareTo(reconstruido));
+    }
+    
+    @Test
+    @DisplayName("Should seal movements posted before the hash chain existed, one block at a time")
+    void sellarHistorial_LegacyMovements_AreSealed() {
+        movimientoRepository.saveAll(List.of(
+                legado(LocalDateTime.of(2025, 12, 1, 10, 0), "100.00", "600.00"),
+                legado(LocalDateTime.of(2025, 12, 2, 10, 0), "50.00", "650.00"),
+                legado(LocalDateTime.of(2025, 12, 3, 10, 0), "-25.00", "625.00")));
+        
+        assertEquals("Movimiento sin sellar en la cadena de hash", inconsistenciaDeLaCuenta().orElseThrow().getMotivo());
+        
+        assertEquals(3, verificacionLedgerService.sellarHistorial());
+        
+        assertTrue(inconsistenciaDeLaCuenta().isEmpty());
+        List<Movimiento> movimientos = movimientoRepository.findByCuentaIdOrderByFechaAscIdAsc(cuenta.getId(), Limit.unlimited());
+        assertTrue(movimientos.stream().allMatch(m -> m.getHash() != null));
+    }
+    
+    @Test
+    @DisplayName("Should reject sub-cent amounts in a batch and keep the chain verifiable")
+    void procesarLote_SubCentAmounts_KeepVerifiableChain() {
+        List<MovimientoBatchResultadoDTO> resultados = movimientoBatchService.procesar(List.of(
+                DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "0.005"),
+                DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "0.005"),
+                DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "0.01"),
+                DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "0.010")));
+        
+        assertEquals(List.of(MovimientoBatchResultadoDTO.RECHAZADO, MovimientoBatchResultadoDTO.RECHAZADO,
+                        MovimientoBatchResultadoDTO.REGISTRADO, MovimientoBatchResultadoDTO.REGISTRADO),
+                resultados.stream().map(MovimientoBatchResultadoDTO::getEstado).toList());
+        assertEquals(0, new BigDecimal("500.02").compareTo(resultados.get(3).getMovimiento().getSaldo()));
+        assertEquals(0, new BigDecimal("500.02").compareTo(
+                cuentaRepository.findById(cuenta.getId()).orElseThrow().getSaldoActual()));
+        assertTrue(inconsistenciaDeLaCuenta().isEmpty());
+    }
+    
+    private Movimiento legado(LocalDateTime fecha, String valor, String saldo) {
+        Movimiento legado = new Movimiento();
+        legado.setFecha(fecha);
+        legado.setTipoMovimiento(valor.startsWith("-") ? "Retiro" : "Deposito");
+        legado.setValor(new BigDecimal(valor));
+        legado.setSaldo(new BigDecimal(saldo));
+        legado.setCuenta(cuenta);
+        return legado;
+    }
+}
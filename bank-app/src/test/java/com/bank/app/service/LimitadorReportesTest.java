@@ -0,0 +1,39 @@
+package com.bank.app.service;
+
+import com.bank.app.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LimitadorReportes.
+ * Tests the concurrency cap and the release of report slots.
+ */
+@DisplayName("LimitadorReportes Tests")
+class LimitadorReportesTest {
+    
+    @Test
+    @DisplayName("Should reject a report when every slot is taken")
+    void adquirir_NoSlotsLeft_ThrowsServiceUnavailable() {
+        LimitadorReportes limitador = new LimitadorReportes(1, 10);
+        
+        try (LimitadorReportes.Permiso permiso = limitador.adquirir()) {
+            assertThrows(ServiceUnavailableException.class, limitador::adquirir);
+        }
+        
+        assertEquals(1, limitador.disponibles());
+    }
+    
+    @Test
+    @DisplayName("Should release a slot only once when closed twice")
+    void cerrar_Twice_ReleasesOnce() {
+        LimitadorReportes limitador = new LimitadorReportes(2, 10);
+        
+        LimitadorReportes.Permiso permiso = limitador.adquirir();
+        permiso.close();
+        permiso.close();
+        
+        assertEquals(2, limitador.disponibles());
+    }
+}
@@ -0,0 +1,273 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.InconsistenciaLedgerDTO;
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.repository.RetiroDiarioRepository;
+import com.bank.app.service.BitacoraMovimientos.Registro;
+import com.bank.app.support.DatosPrueba;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * In-memory engine on embedded H2.
+ * The same movements are posted to an engine account and to a regular
+ * account; after a crash and a replay of the log, both must have the same
+ * rows, balances, daily withdrawals and a valid hash chain.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("In-memory engine Tests")
+class MotorCuentasTest {
+    
+    private static final List<String> VALORES = List.of("500.00", "-300.00", "-2000.00", "-400.00", "125.75",
+            "-350.00", "-299.99", "40.10", "12.345", "99999999.00");
+    
+    @Autowired
+    private MovimientoService movimientoService;
+    
+    @Autowired
+    private VerificacionLedgerService verificacionLedgerService;
+    
+    @Autowired
+    private ConciliacionService conciliacionService;
+    
+    @Autowired
+    private RetiroDiarioService retiroDiarioService;
+    
+    @Autowired
+    private SaldoDiarioService saldoDiarioService;
+    
+    @Autowired
+    private CuentaLockManager cuentaLockManager;
+    
+    @Autowired
+    private CadenaHash cadenaHash;
+    
+    @Autowired
+    private EnrutamientoLecturas enrutamientoLecturas;
+    
+    @Autowired
+    private MetricasBanco metricas;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    @Autowired
+    private RetiroDiarioRepository retiroDiarioRepository;
+    
+    @TempDir
+    private Path directorio;
+    
+    private Cuenta cuentaMotor;
+    
+    private Cuenta cuentaJpa;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("MT-" + sufijo));
+        
+        cuentaMotor = cuenta("MA" + sufijo, cliente);
+        cuentaJpa = cuenta("MB" + sufijo, cliente);
+    }
+    
+    private Cuenta cuenta(String numero, Cliente cliente) {
+        return cuentaRepository.save(DatosPrueba.cuenta(cliente, numero, new BigDecimal("1000.00")));
+    }
+    
+    /** Engine over the motor account; with Long.MAX_VALUE rows are only inserted on start and stop. */
+    private MotorCuentas motor(long persistenciaMillis) throws IOException {
+        return motor(persistenciaMillis, List.of(cuentaMotor.getNumeroCuenta()));
+    }
+    
+    private MotorCuentas motor(long persistenciaMillis, List<String> numerosCuenta) throws IOException {
+        MotorCuentas motor = new MotorCuentas(cuentaRepository, movimientoRepository, conciliacionService,
+                retiroDiarioService, saldoDiarioService, cuentaLockManager, cadenaHash, enrutamientoLecturas, metricas,
+                new SimpleMeterRegistry(), transactionManager, numerosCuenta,
+                directorio, 1000, 3, persistenciaMillis, Duration.ofHours(1), new BigDecimal("1000"));
+        motor.iniciar();
+        return motor;
+    }
+    
+    /** Posts the same movements to both accounts; both paths must accept and reject the same ones. */
+    private void postearAmbas(MotorCuentas motor, List<String> valores) {
+        for (String valor : valores) {
+            BusinessException rechazoMotor = null;
+            BusinessException rechazoJpa = null;
+            try {
+                MovimientoDTO aceptado = motor.registrar(DatosPrueba.movimiento(cuentaMotor.getNumeroCuenta(), valor));
+                assertNull(aceptado.getId());
+            } catch (BusinessException ex) {
+                rechazoMotor = ex;
+            }
+            try {
+                movimientoService.save(DatosPrueba.movimiento(cuentaJpa.getNumeroCuenta(), valor));
+            } catch (BusinessException ex) {
+                rechazoJpa = ex;
+            }
+            assertEquals(rechazoJpa == null ? null : rechazoJpa.getMessage(),
+                    rechazoMotor == null ? null : rechazoMotor.getMessage(), "valor " + valor);
+        }
+    }
+    
+    private void assertMismoLibro() {
+        List<Movimiento> motor = movimientoRepository.findByCuentaIdOrderByFechaAscIdAsc(cuentaMotor.getId(), Limit.unlimited());
+        List<Movimiento> jpa = movimientoRepository.findByCuentaIdOrderByFechaAscIdAsc(cuentaJpa.getId(), Limit.unlimited());
+        assertEquals(jpa.size(), motor.size());
+        for (int i = 0; i < jpa.size(); i++) {
+            assertEquals(jpa.get(i).getTipoMovimiento(), motor.get(i).getTipoMovimiento());
+            assertEquals(0, jpa.get(i).getValor().compareTo(motor.get(i).getValor()));
+            assertEquals(0, jpa.get(i).getSaldo().compareTo(motor.get(i).getSaldo()));
+        }
+        
+        Cuenta motorGuardada = cuentaRepository.findById(cuentaMotor.getId()).orElseThrow();
+        Cuenta jpaGuardada = cuentaRepository.findById(cuentaJpa.getId()).orElseThrow();
+        assertEquals(0, jpaGuardada.getSaldoActual().compareTo(motorGuardada.getSaldoActual()));
+        assertEquals(motor.getLast().getHash(), motorGuardada.getHashUltimoMovimiento());
+        
+        LocalDate hoy = LocalDate.now();
+        assertEquals(0, retiroDiarioRepository.findByCuentaIdAndFecha(cuentaJpa.getId(), hoy).orElseThrow().getTotal()
+                .compareTo(retiroDiarioRepository.findByCuentaIdAndFecha(cuentaMotor.getId(), hoy).orElseThrow().getTotal()));
+        
+        Optional<InconsistenciaLedgerDTO> inconsistencia = verificacionLedgerService.verificar().getInconsistencias()
+                .stream()
+                .filter(i -> i.getCuentaId().equals(cuentaMotor.getId()))
+                .findFirst();
+        assertTrue(inconsistencia.isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Should replay a crashed engine's log into the same ledger as the regular path")
+    void iniciar_AfterCrash_ReplaysLogIntoSameLedger() throws Exception {
+        MotorCuentas caido = motor(Long.MAX_VALUE);
+        postearAmbas(caido, VALORES);
+        // Nada llegó a la base: solo la bitácora tiene los movimientos
+        assertTrue(movimientoRepository.findByCuentaIdOrderByFechaAscIdAsc(cuentaMotor.getId(), Limit.unlimited()).isEmpty());
+        
+        // Un registro a medio escribir al final de la bitácora nunca fue confirmado
+        Path ultimo;
+        try (Stream<Path> segmentos = Files.list(directorio)) {
+            ultimo = segmentos.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList().getLast();
+        }
+        Files.write(ultimo, new byte[] {0, 0, 0, 60, 1, 2, 3}, StandardOpenOption.APPEND);
+        
+        MotorCuentas recuperado = motor(Long.MAX_VALUE);
+        try {
+            assertMismoLibro();
+            
+            // Sigue aceptando movimientos desde el estado reproducido
+            postearAmbas(recuperado, List.of("10.00", "-20.00"));
+        } finally {
+            recuperado.detener();
+        }
+        assertMismoLibro();
+    }
+    
+    @Test
+    @DisplayName("Should insert in batches in the background and restart from the snapshot")
+    void detener_ThenRestart_ContinuesFromSnapshot() throws Exception {
+        MotorCuentas motor = motor(20);
+        postearAmbas(motor, VALORES);
+        motor.detener();
+        assertMismoLibro();
+        
+        MotorCuentas reiniciado = motor(20);
+        try {
+            postearAmbas(reiniciado, List.of("-50.00", "75.25"));
+        } finally {
+            reiniciado.detener();
+        }
+        assertMismoLibro();
+    }
+    
+    @Test
+    @DisplayName("Should hold back only the account of a logged row that cannot be inserted")
+    void iniciar_RowThatCannotBeInserted_HoldsBackOnlyItsAccount() throws Exception {
+        Cuenta otra = cuenta("MC" + DatosPrueba.sufijo(), cuentaMotor.getCliente());
+        List<String> numeros = List.of(cuentaMotor.getNumeroCuenta(), otra.getNumeroCuenta());
+        MotorCuentas caido = motor(Long.MAX_VALUE, numeros);
+        caido.registrar(DatosPrueba.movimiento(cuentaMotor.getNumeroCuenta(), "100.00"));
+        caido.registrar(DatosPrueba.movimiento(otra.getNumeroCuenta(), "100.00"));
+        
+        // Un tipo más largo que la columna, registrado antes de que el motor validara el largo
+        LocalDateTime fecha = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        try (BitacoraMovimientos bitacora = new BitacoraMovimientos(directorio)) {
+            bitacora.leerDesde(0);
+            bitacora.rotar();
+            bitacora.anexar(List.of(
+                    new Registro(0, cuentaMotor.getId(), fecha, "X".repeat(60),
+                            new BigDecimal("50.00"), new BigDecimal("1150.00")),
+                    new Registro(0, otra.getId(), fecha.plusNanos(1000), "Deposito",
+                            new BigDecimal("10.00"), new BigDecimal("1110.00"))));
+        }
+        
+        // El arranque no se detiene y la otra cuenta se inserta completa
+        MotorCuentas recuperado = motor(Long.MAX_VALUE, numeros);
+        try {
+            assertEquals(1, movimientoRepository.findByCuentaIdOrderByFechaAscIdAsc(
+                    cuentaMotor.getId(), Limit.unlimited()).size());
+            assertEquals(2, movimientoRepository.findByCuentaIdOrderByFechaAscIdAsc(
+                    otra.getId(), Limit.unlimited()).size());
+            
+            // La cuenta retenida sigue desde la fila retenida, no desde la base
+            assertEquals(0, new BigDecimal("1160.00").compareTo(
+                    recuperado.registrar(DatosPrueba.movimiento(cuentaMotor.getNumeroCuenta(), "10.00")).getSaldo()));
+            MovimientoDTO tipoLargo = DatosPrueba.movimiento(cuentaMotor.getNumeroCuenta(), "10.00");
+            tipoLargo.setTipoMovimiento("X".repeat(MovimientoDTO.LONGITUD_TIPO + 1));
+            assertThrows(BusinessException.class, () -> recuperado.registrar(tipoLargo));
+        } finally {
+            recuperado.detener();
+        }
+        
+        // Sin instantánea nueva: las filas retenidas vuelven a reproducirse en el siguiente arranque
+        MotorCuentas reiniciado = motor(Long.MAX_VALUE, numeros);
+        try {
+            assertEquals(0, new BigDecimal("1170.00").compareTo(
+                    reiniciado.registrar(DatosPrueba.movimiento(cuentaMotor.getNumeroCuenta(), "10.00")).getSaldo()));
+        } finally {
+            reiniciado.detener();
+        }
+        assertEquals(1, movimientoRepository.findByCuentaIdOrderByFechaAscIdAsc(
+                cuentaMotor.getId(), Limit.unlimited()).size());
+    }
+}
@@ -0,0 +1,148 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoBatchResultadoDTO;
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.mapper.MovimientoMapperImpl;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MovimientoBatchService.
+ * Tests per-account ordering, per-row results and isolation of rejected rows.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MovimientoBatchService Tests")
+class MovimientoBatchServiceTest {
+    
+    @Mock
+    private MovimientoService movimientoService;
+    
+    @Mock
+    private MovimientoRepository movimientoRepository;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private MovimientoBatchService movimientoBatchService;
+    
+    private Cuenta cuentaA;
+    private Cuenta cuentaB;
+    
+    @BeforeEach
+    void setUp() {
+        movimientoBatchService = new MovimientoBatchService(movimientoService, movimientoRepository,
+                new MovimientoMapperImpl(), Validation.buildDefaultValidatorFactory().getValidator(),
+                transactionManager, 2);
+        
+        cuentaA = new Cuenta();
+        cuentaA.setId(1L);
+        cuentaA.setNumeroCuenta("478758");
+        cuentaB = new Cuenta();
+        cuentaB.setId(2L);
+        cuentaB.setNumeroCuenta("225487");
+    }
+    
+    private Movimiento movimiento(Cuenta cuenta, BigDecimal valor) {
+        Movimiento movimiento = new Movimiento();
+        movimiento.setFecha(LocalDateTime.now());
+        movimiento.setTipoMovimiento("Deposito");
+        movimiento.setValor(valor);
+        movimiento.setSaldo(valor);
+        movimiento.setCuenta(cuenta);
+        return movimiento;
+    }
+    
+    @Test
+    @DisplayName("Should post rows per account in arrival order and report each row")
+    void procesar_ShouldKeepOrderAndIsolateRejectedRows() {
+        when(movimientoService.bloquearCuenta("478758")).thenReturn(cuentaA);
+        when(movimientoService.bloquearCuenta("225487")).thenReturn(cuentaB);
+        when(movimientoService.registrar(any(Cuenta.class), anyString(), any(BigDecimal.class)))
+                .thenAnswer(inv -> movimiento(inv.getArgument(0), inv.getArgument(2)));
+        when(movimientoService.registrar(cuentaB, "Retiro", new BigDecimal("-5000.00")))
+                .thenThrow(new BusinessException("Saldo no disponible"));
+        when(movimientoRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        
+        List<MovimientoBatchResultadoDTO> resultados = movimientoBatchService.procesar(Arrays.asList(
+                DatosPrueba.movimiento("478758", "100.00"),
+                DatosPrueba.movimiento("225487", "-5000.00"),
+                DatosPrueba.movimiento("478758", "-50.00"),
+                DatosPrueba.movimiento("225487", "20.00")));
+        
+        assertEquals(4, resultados.size());
+        assertEquals(MovimientoBatchResultadoDTO.REGISTRADO, resultados.get(0).getEstado());
+        assertEquals(MovimientoBatchResultadoDTO.RECHAZADO, resultados.get(1).getEstado());
+        assertEquals("Saldo no disponible", resultados.get(1).getError());
+        assertEquals(MovimientoBatchResultadoDTO.REGISTRADO, resultados.get(2).getEstado());
+        assertEquals(MovimientoBatchResultadoDTO.REGISTRADO, resultados.get(3).getEstado());
+        assertEquals("225487", resultados.get(3).getMovimiento().getNumeroCuenta());
+        
+        InOrder orden = inOrder(movimientoService);
+        orden.verify(movimientoService).registrar(cuentaA, "Deposito", new BigDecimal("100.00"));
+        orden.verify(movimientoService).registrar(cuentaA, "Retiro", new BigDecimal("-50.00"));
+        verify(transactionManager, times(2)).commit(any());
+    }
+    
+    @Test
+    @DisplayName("Should reject invalid and unreadable rows without posting them")
+    void procesar_ShouldRejectInvalidRows() {
+        MovimientoDTO sinValor = DatosPrueba.movimiento("478758", "10.00");
+        sinValor.setValor(null);
+        
+        List<MovimientoBatchResultadoDTO> resultados = movimientoBatchService.procesar(Arrays.asList(sinValor, null));
+        
+        assertEquals(MovimientoBatchResultadoDTO.RECHAZADO, resultados.get(0).getEstado());
+        assertTrue(resultados.get(0).getError().contains("valor"));
+        assertEquals(MovimientoBatchResultadoDTO.RECHAZADO, resultados.get(1).getEstado());
+        verify(movimientoService, never()).bloquearCuenta(anyString());
+    }
+    
+    @Test
+    @DisplayName("Should reject every row of an unknown account and split large groups into chunks")
+    void procesar_ShouldRejectUnknownAccountAndChunkLargeGroups() {
+        when(movimientoService.bloquearCuenta("000000"))
+                .thenThrow(new ResourceNotFoundException("Cuenta no encontrada con número: 000000"));
+        when(movimientoService.bloquearCuenta("478758")).thenReturn(cuentaA);
+        when(movimientoService.registrar(eq(cuentaA), anyString(), any(BigDecimal.class)))
+                .thenAnswer(inv -> movimiento(inv.getArgument(0), inv.getArgument(2)));
+        when(movimientoRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        
+        List<MovimientoBatchResultadoDTO> resultados = movimientoBatchService.procesar(Arrays.asList(
+                DatosPrueba.movimiento("000000", "10.00"),
+                DatosPrueba.movimiento("478758", "1.00"),
+                DatosPrueba.movimiento("478758", "2.00"),
+                DatosPrueba.movimiento("478758", "3.00")));
+        
+        assertEquals(MovimientoBatchResultadoDTO.RECHAZADO, resultados.get(0).getEstado());
+        assertTrue(resultados.subList(1, 4).stream()
+                .allMatch(r -> MovimientoBatchResultadoDTO.REGISTRADO.equals(r.getEstado())));
+        // Chunk size is 2: three rows of the same account need two transactions
+        verify(movimientoService, times(2)).bloquearCuenta("478758");
+        verify(movimientoRepository, times(2)).saveAll(anyList());
+    }
+}
@@ -0,0 +1,138 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test for the per-account posting engine on embedded H2.
+ * Many threads hammer a handful of accounts; afterwards every balance must
+ * match its movement history exactly and no daily limit may be exceeded.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("MovimientoService Concurrency Tests")
+class MovimientoConcurrencyTest {
+    
+    private static final int HILOS = 16;
+    private static final int OPERACIONES_POR_HILO = 50;
+    private static final int CUENTAS = 4;
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("500.00");
+    
+    @Autowired
+    private MovimientoService movimientoService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    @Value("${app.daily-withdrawal-limit}")
+    private BigDecimal dailyWithdrawalLimit;
+    
+    private final List<Cuenta> cuentas = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("CC-" + sufijo));
+        
+        for (int i = 0; i < CUENTAS; i++) {
+            Cuenta cuenta = DatosPrueba.cuenta(cliente, "CC" + sufijo + i, SALDO_INICIAL);
+            cuentas.add(cuentaRepository.save(cuenta));
+        }
+    }
+    
+    @Test
+    @DisplayName("Should keep every balance consistent when many threads post to the same accounts")
+    void concurrentPosts_ShouldNotDriftBalances() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        AtomicInteger rechazos = new AtomicInteger();
+        List<Future<?>> tareas = new ArrayList<>();
+        
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+                    Cuenta cuenta = cuentas.get((hilo + i) % CUENTAS);
+                    String valor = i % 3 != 0 ? "-15.00" : "20.00";
+                    MovimientoDTO dto = DatosPrueba.movimiento(cuenta.getNumeroCuenta(), valor);
+                    
+                    try {
+                        movimientoService.save(dto);
+                    } catch (BusinessException ex) {
+                        rechazos.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        
+        int registrados = 0;
+        for (Cuenta cuenta : cuentas) {
+            List<Movimiento> movimientos = new ArrayList<>(
+                    movimientoRepository.findByCuentaIdOrderByFechaDesc(cuenta.getId()));
+            movimientos.sort(Comparator.comparing(Movimiento::getId));
+            
+            BigDecimal saldo = SALDO_INICIAL;
+            BigDecimal retiros = BigDecimal.ZERO;
+            for (Movimiento movimiento : movimientos) {
+                saldo = saldo.add(movimiento.getValor());
+                assertEquals(0, saldo.compareTo(movimiento.getSaldo()),
+                        "Saldo chain broken at movimiento " + movimiento.getId());
+                assertTrue(saldo.signum() >= 0, "Negative balance on cuenta " + cuenta.getNumeroCuenta());
+                if (movimiento.getValor().signum() < 0) {
+                    retiros = retiros.add(movimiento.getValor().abs());
+                }
+            }
+            
+            Cuenta actual = cuentaRepository.findById(cuenta.getId()).orElseThrow();
+            assertEquals(0, saldo.compareTo(actual.getSaldoActual()),
+                    "Materialized balance drifted on cuenta " + cuenta.getNumeroCuenta());
+            assertTrue(retiros.compareTo(dailyWithdrawalLimit) <= 0,
+                    "Daily limit exceeded on cuenta " + cuenta.getNumeroCuenta());
+            registrados += movimientos.size();
+        }
+        
+        assertEquals(HILOS * OPERACIONES_POR_HILO, registrados + rechazos.get());
+    }
+}
@@ -0,0 +1,116 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.dto.PaginaDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset pagination of movements on embedded H2.
+ * Walking every page must return each movement exactly once, newest first,
+ * including rows that share the same fecha.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Movimiento keyset pagination Tests")
+class MovimientoPaginacionTest {
+    
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 5, 1, 8, 0);
+    
+    @Autowired
+    private MovimientoService movimientoService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    private Cuenta cuenta;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("PG-" + sufijo));
+        
+        cuenta = DatosPrueba.cuenta(cliente, "PG" + sufijo, BigDecimal.ZERO);
+        cuentaRepository.save(cuenta);
+        
+        List<Movimiento> movimientos = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            Movimiento movimiento = new Movimiento();
+            // Tres movimientos por hora: fechas repetidas para probar el desempate por id
+            movimiento.setFecha(BASE.plusHours(i / 3));
+            movimiento.setTipoMovimiento(i % 2 == 0 ? "Deposito" : "Retiro");
+            movimiento.setValor(BigDecimal.ONE);
+            movimiento.setSaldo(BigDecimal.valueOf(i + 1));
+            movimiento.setCuenta(cuenta);
+            movimientos.add(movimiento);
+        }
+        movimientoRepository.saveAll(movimientos);
+    }
+    
+    @Test
+    @DisplayName("Should return every movement exactly once across pages, newest first")
+    void findPagina_WalksAllPages() {
+        Set<Long> vistos = new HashSet<>();
+        MovimientoDTO anterior = null;
+        String cursor = null;
+        int paginas = 0;
+        
+        do {
+            PaginaDTO<MovimientoDTO> pagina = movimientoService.findPagina(
+                    cuenta.getId(), null, null, null, cursor, 5);
+            for (MovimientoDTO movimiento : pagina.getContenido()) {
+                assertTrue(vistos.add(movimiento.getId()), "Duplicated movimiento " + movimiento.getId());
+                if (anterior != null) {
+                    int orden = movimiento.getFecha().compareTo(anterior.getFecha());
+                    assertTrue(orden < 0 || (orden == 0 && movimiento.getId() < anterior.getId()));
+                }
+                anterior = movimiento;
+            }
+            cursor = pagina.getSiguienteCursor();
+            paginas++;
+        } while (cursor != null);
+        
+        assertEquals(23, vistos.size());
+        assertEquals(5, paginas);
+    }
+    
+    @Test
+    @DisplayName("Should apply the date range and type filters")
+    void findPagina_AppliesFilters() {
+        PaginaDTO<MovimientoDTO> pagina = movimientoService.findPagina(
+                cuenta.getId(), BASE.plusHours(1), BASE.plusHours(2), "Retiro", null, 50);
+        
+        assertNull(pagina.getSiguienteCursor());
+        assertFalse(pagina.getContenido().isEmpty());
+        assertTrue(pagina.getContenido().stream().allMatch(m -> "Retiro".equals(m.getTipoMovimiento())
+                && !m.getFecha().isBefore(BASE.plusHours(1))
+                && !m.getFecha().isAfter(BASE.plusHours(2))));
+    }
+}
@@ -0,0 +1,216 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.entity.RetiroDiario;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.mapper.MovimientoMapper;
+import com.bank.app.mapper.MovimientoMapperImpl;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MovimientoService.
+ * Tests balance calculation, business rules and the materialized saldo.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MovimientoService Tests")
+class MovimientoServiceTest {
+    
+    @Mock
+    private MovimientoRepository movimientoRepository;
+    
+    @Mock
+    private CuentaRepository cuentaRepository;
+    
+    @Mock
+    private ConciliacionService conciliacionService;
+    
+    @Mock
+    private CuentaLockManager cuentaLockManager;
+    
+    @Mock
+    private RetiroDiarioService retiroDiarioService;
+    
+    @Mock
+    private SaldoDiarioService saldoDiarioService;
+    
+    @Mock
+    private CadenaHash cadenaHash;
+    
+    @Mock
+    private MotorCuentas motorCuentas;
+    
+    @Mock
+    private EnrutamientoLecturas enrutamientoLecturas;
+    
+    @Spy
+    private MovimientoMapper movimientoMapper = new MovimientoMapperImpl();
+    
+    @InjectMocks
+    private MovimientoService movimientoService;
+    
+    private Cuenta cuenta;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(movimientoService, "dailyWithdrawalLimit", new BigDecimal("1000"));
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(movimientoService, "metricas", new MetricasBanco(meterRegistry));
+        
+        cuenta = new Cuenta();
+        cuenta.setId(1L);
+        cuenta.setNumeroCuenta("478758");
+        cuenta.setTipoCuenta("Ahorro");
+        cuenta.setSaldoInicial(new BigDecimal("2000.00"));
+        cuenta.setSaldoActual(new BigDecimal("1425.00"));
+        cuenta.setEstado(true);
+    }
+    
+    @Test
+    @DisplayName("Should post a deposit from the materialized balance without reading history")
+    void save_Deposit_UsesMaterializedBalance() {
+        when(cuentaRepository.findIdByNumeroCuenta("478758")).thenReturn(Optional.of(1L));
+        when(cuentaRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cuenta));
+        when(movimientoRepository.saveAndFlush(any(Movimiento.class))).thenAnswer(inv -> inv.getArgument(0));
+        
+        MovimientoDTO result = movimientoService.save(DatosPrueba.movimiento("478758", "600.00"));
+        
+        assertEquals(new BigDecimal("2025.00"), result.getSaldo());
+        assertEquals(new BigDecimal("2025.00"), cuenta.getSaldoActual());
+        verify(cuentaLockManager, times(1)).bloquear(1L);
+        verify(movimientoRepository, never()).findByCuentaIdOrderByFechaDesc(anyLong());
+        verify(conciliacionService, never()).calcularSaldo(any());
+    }
+    
+    @Test
+    @DisplayName("Should reject movements that do not fit the columns, as the in-memory engine does")
+    void save_OutsideColumns_ThrowsBusinessException() {
+        when(cuentaRepository.findIdByNumeroCuenta("478758")).thenReturn(Optional.of(1L));
+        when(cuentaRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cuenta));
+        MovimientoDTO tipoLargo = DatosPrueba.movimiento("478758", "10.00");
+        tipoLargo.setTipoMovimiento("X".repeat(MovimientoDTO.LONGITUD_TIPO + 1));
+        
+        assertThrows(BusinessException.class,
+                () -> movimientoService.save(DatosPrueba.movimiento("478758", "0.005")));
+        assertThrows(BusinessException.class,
+                () -> movimientoService.save(DatosPrueba.movimiento("478758", "100000000.00")));
+        assertThrows(BusinessException.class,
+                () -> movimientoService.save(DatosPrueba.movimiento("478758", "99999999.00")));
+        assertThrows(BusinessException.class, () -> movimientoService.save(tipoLargo));
+        assertEquals(new BigDecimal("1425.00"), cuenta.getSaldoActual());
+        verify(movimientoRepository, never()).saveAndFlush(any(Movimiento.class));
+    }
+    
+    @Test
+    @DisplayName("Should rebuild the balance when the account has no materialized saldo")
+    void save_WithoutMaterializedBalance_FallsBackToReconciliation() {
+        cuenta.setSaldoActual(null);
+        when(cuentaRepository.findIdByNumeroCuenta("478758")).thenReturn(Optional.of(1L));
+        when(cuentaRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cuenta));
+        when(conciliacionService.calcularSaldo(cuenta)).thenReturn(new BigDecimal("1425.00"));
+        when(movimientoRepository.saveAndFlush(any(Movimiento.class))).thenAnswer(inv -> inv.getArgument(0));
+        
+        MovimientoDTO result = movimientoService.save(DatosPrueba.movimiento("478758", "75.00"));
+        
+        assertEquals(new BigDecimal("1500.00"), result.getSaldo());
+        assertEquals(new BigDecimal("1500.00"), cuenta.getSaldoActual());
+    }
+    
+    @Test
+    @DisplayName("Should reject a withdrawal larger than the available balance")
+    void save_WithdrawalAboveBalance_ThrowsBusinessException() {
+        when(cuentaRepository.findIdByNumeroCuenta("478758")).thenReturn(Optional.of(1L));
+        when(cuentaRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cuenta));
+        
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> movimientoService.save(DatosPrueba.movimiento("478758", "-1500.00")));
+        
+        assertEquals("Saldo no disponible", exception.getMessage());
+        assertEquals(new BigDecimal("1425.00"), cuenta.getSaldoActual());
+        verify(movimientoRepository, never()).saveAndFlush(any(Movimiento.class));
+        assertEquals(1.0, meterRegistry.get("banco.movimiento.rechazos")
+                .tag("motivo", "saldo_no_disponible").counter().count());
+        assertEquals(1L, meterRegistry.get("banco.movimiento.registro")
+                .tag("resultado", "rechazado").timer().count());
+    }
+    
+    @Test
+    @DisplayName("Should reject a withdrawal above the daily limit using the day accumulator")
+    void save_WithdrawalAboveDailyLimit_ThrowsBusinessException() {
+        when(cuentaRepository.findIdByNumeroCuenta("478758")).thenReturn(Optional.of(1L));
+        when(cuentaRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cuenta));
+        RetiroDiario acumulado = new RetiroDiario(5L, LocalDate.now(), new BigDecimal("900.00"), cuenta);
+        when(retiroDiarioService.acumuladoDelDia(eq(cuenta), any(LocalDate.class))).thenReturn(acumulado);
+        
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> movimientoService.save(DatosPrueba.movimiento("478758", "-200.00")));
+        
+        assertEquals("Cupo diario Excedido", exception.getMessage());
+        verify(retiroDiarioService, never()).sumar(any(), any());
+        verify(movimientoRepository, never()).saveAndFlush(any(Movimiento.class));
+        assertEquals(1.0, meterRegistry.get("banco.movimiento.rechazos")
+                .tag("motivo", "cupo_diario_excedido").counter().count());
+        assertEquals(0.0, meterRegistry.get("banco.movimiento.rechazos")
+                .tag("motivo", "saldo_no_disponible").counter().count());
+    }
+    
+    @Test
+    @DisplayName("Should add an accepted withdrawal to the day accumulator")
+    void save_Withdrawal_UpdatesDailyAccumulator() {
+        when(cuentaRepository.findIdByNumeroCuenta("478758")).thenReturn(Optional.of(1L));
+        when(cuentaRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cuenta));
+        RetiroDiario acumulado = new RetiroDiario(5L, LocalDate.now(), new BigDecimal("100.00"), cuenta);
+        when(retiroDiarioService.acumuladoDelDia(eq(cuenta), any(LocalDate.class))).thenReturn(acumulado);
+        when(movimientoRepository.saveAndFlush(any(Movimiento.class))).thenAnswer(inv -> inv.getArgument(0));
+        
+        MovimientoDTO result = movimientoService.save(DatosPrueba.movimiento("478758", "-200.00"));
+        
+        assertEquals(new BigDecimal("1225.00"), result.getSaldo());
+        verify(retiroDiarioService, times(1)).sumar(acumulado, new BigDecimal("200.00"));
+    }
+    
+    @Test
+    @DisplayName("Should rebuild the balance and the day accumulator after deleting a movement")
+    void delete_RecalculatesBalance() {
+        LocalDateTime fecha = LocalDateTime.now();
+        Movimiento existente = new Movimiento();
+        existente.setId(10L);
+        existente.setFecha(fecha);
+        existente.setValor(new BigDecimal("-100.00"));
+        existente.setCuenta(cuenta);
+        when(movimientoRepository.findById(10L)).thenReturn(Optional.of(existente));
+        when(cuentaRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cuenta));
+        
+        movimientoService.delete(10L);
+        
+        verify(movimientoRepository, times(1)).delete(existente);
+        verify(retiroDiarioService, times(1)).restar(cuenta, fecha.toLocalDate(), new BigDecimal("100.00"));
+        verify(conciliacionService, times(1)).recalcular(cuenta);
+    }
+}
@@ -0,0 +1,134 @@
+package com.bank.app.service;
+
+import com.bank.app.service.ParticionesMovimientos.Particion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ParticionesMovimientos.
+ * Tests the DDL issued for missing months, the archival of old months that
+ * are already empty and that nothing runs against a database without partitions.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ParticionesMovimientos Tests")
+class ParticionesMovimientosTest {
+    
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    
+    private ParticionesMovimientos particionesMovimientos;
+    
+    @BeforeEach
+    void setUp() {
+        particionesMovimientos = new ParticionesMovimientos(jdbcTemplate, 3, 6, "archivo");
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void existentes(Particion... particiones) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(List.of(particiones));
+    }
+    
+    @Test
+    @DisplayName("Should create only the missing months with month bounds")
+    void crearParticiones_CreatesMissingMonths() {
+        existentes(new Particion("movimientos_2026_11", false), new Particion("movimientos_2026_12", false));
+        
+        List<String> creadas = particionesMovimientos.crearParticiones(YearMonth.of(2026, 11));
+        
+        assertEquals(List.of("movimientos_2027_01", "movimientos_2027_02"), creadas);
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS movimientos_2027_01 PARTITION OF movimientos " +
+                "FOR VALUES FROM ('2027-01-01') TO ('2027-02-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS movimientos_2027_02 PARTITION OF movimientos " +
+                "FOR VALUES FROM ('2027-02-01') TO ('2027-03-01')");
+        verify(jdbcTemplate, times(2)).execute(anyString());
+    }
+    
+    @Test
+    @DisplayName("Should issue no DDL when every month ahead exists")
+    void crearParticiones_AllPresent_DoesNothing() {
+        existentes(new Particion("movimientos_2026_10", false), new Particion("movimientos_2026_11", false),
+                new Particion("movimientos_2026_12", false), new Particion("movimientos_2027_01", false));
+        
+        assertTrue(particionesMovimientos.crearParticiones(YearMonth.of(2026, 10)).isEmpty());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+    
+    @Test
+    @DisplayName("Should detach months before the limit and move them to the archive schema")
+    void archivarAnteriores_DetachesOldMonths() {
+        existentes(new Particion("movimientos_2026_03", false), new Particion("movimientos_2026_04", true),
+                new Particion("movimientos_2026_05", false), new Particion("movimientos_otra", false));
+        when(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM movimientos_2026_03)", Boolean.class))
+                .thenReturn(false);
+        
+        List<String> archivadas = particionesMovimientos.archivarAnteriores(YearMonth.of(2026, 5));
+        
+        assertEquals(List.of("movimientos_2026_03", "movimientos_2026_04"), archivadas);
+        verify(jdbcTemplate).execute("ALTER TABLE movimientos DETACH PARTITION movimientos_2026_03 CONCURRENTLY");
+        verify(jdbcTemplate).execute("ALTER TABLE movimientos_2026_03 SET SCHEMA archivo");
+        // Una separación interrumpida en una ejecución anterior se completa
+        verify(jdbcTemplate).execute("ALTER TABLE movimientos DETACH PARTITION movimientos_2026_04 FINALIZE");
+        verify(jdbcTemplate).execute("ALTER TABLE movimientos_2026_04 SET SCHEMA archivo");
+        verify(jdbcTemplate, times(4)).execute(anyString());
+    }
+    
+    @Test
+    @DisplayName("Should keep attached an old month the archive job has not emptied")
+    void archivarAnteriores_MonthWithRows_StaysAttached() {
+        existentes(new Particion("movimientos_2026_02", false), new Particion("movimientos_2026_03", false));
+        when(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM movimientos_2026_02)", Boolean.class))
+                .thenReturn(true);
+        when(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM movimientos_2026_03)", Boolean.class))
+                .thenReturn(false);
+        
+        List<String> archivadas = particionesMovimientos.archivarAnteriores(YearMonth.of(2026, 5));
+        
+        assertEquals(List.of("movimientos_2026_03"), archivadas);
+        verify(jdbcTemplate, never())
+                .execute("ALTER TABLE movimientos DETACH PARTITION movimientos_2026_02 CONCURRENTLY");
+        verify(jdbcTemplate, times(2)).execute(anyString());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Should skip maintenance on a database without partitions")
+    void iniciar_NotPostgreSQL_DoesNothing() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+        
+        particionesMovimientos.iniciar();
+        particionesMovimientos.mantener();
+        
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class));
+    }
+    
+    @Test
+    @DisplayName("Should parse the month from the partition name")
+    void mes_ParsesPartitionName() {
+        assertEquals(YearMonth.of(2025, 7), ParticionesMovimientos.mes("movimientos_2025_07"));
+        assertEquals("movimientos_2025_07", ParticionesMovimientos.nombre(YearMonth.of(2025, 7)));
+        assertNull(ParticionesMovimientos.mes("movimientos_heredada"));
+    }
+    
+    @Test
+    @DisplayName("Should reject an archive schema that is not a plain identifier")
+    void constructor_InvalidSchema_Throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParticionesMovimientos(jdbcTemplate, 3, 6, "archivo; DROP TABLE cuentas"));
+    }
+}
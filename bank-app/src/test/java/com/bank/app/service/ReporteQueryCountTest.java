@@ -0,0 +1,124 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.ReporteMovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Regression test for N+1 lazy loads on the read paths.
+ * The number of SQL statements issued for a report or a movement listing
+ * must not depend on how many rows are returned.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Report query count Tests")
+class ReporteQueryCountTest {
+    
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2026, 12, 31, 23, 59);
+    
+    @Autowired
+    private ReporteService reporteService;
+    
+    @Autowired
+    private MovimientoService movimientoService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    private Cliente crearCliente(int cuentas, int movimientosPorCuenta) {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("QC-" + sufijo));
+        
+        for (int i = 0; i < cuentas; i++) {
+            Cuenta cuenta = DatosPrueba.cuenta(cliente, "QC" + sufijo + i, BigDecimal.ZERO);
+            cuentaRepository.save(cuenta);
+            
+            List<Movimiento> movimientos = new ArrayList<>();
+            for (int m = 0; m < movimientosPorCuenta; m++) {
+                Movimiento movimiento = new Movimiento();
+                movimiento.setFecha(INICIO.plusDays(m + 1));
+                movimiento.setTipoMovimiento("Deposito");
+                movimiento.setValor(BigDecimal.TEN);
+                movimiento.setSaldo(BigDecimal.TEN.multiply(BigDecimal.valueOf(m + 1)));
+                movimiento.setCuenta(cuenta);
+                movimientos.add(movimiento);
+            }
+            movimientoRepository.saveAll(movimientos);
+        }
+        return cliente;
+    }
+    
+    private long sentenciasDeReporte(Cliente cliente, int filasEsperadas) {
+        statistics.clear();
+        List<ReporteMovimientoDTO> reporte = reporteService.generarReporte(cliente.getClienteId(), INICIO, FIN);
+        assertEquals(filasEsperadas, reporte.size());
+        assertEquals(cliente.getNombre(), reporte.get(0).cliente());
+        return statistics.getPrepareStatementCount();
+    }
+    
+    @Test
+    @DisplayName("Should issue the same number of statements for a small and a large report")
+    void generarReporte_StatementCountIsConstant() {
+        Cliente pequeno = crearCliente(1, 3);
+        Cliente grande = crearCliente(4, 60);
+        
+        long sentenciasPequeno = sentenciasDeReporte(pequeno, 3);
+        long sentenciasGrande = sentenciasDeReporte(grande, 240);
+        
+        assertEquals(sentenciasPequeno, sentenciasGrande);
+        assertTrue(sentenciasGrande <= 2, "Report issued " + sentenciasGrande + " statements");
+        // Solo el cliente, para verificar que existe; ningún movimiento ni cuenta
+        assertTrue(statistics.getEntityLoadCount() <= 1, "Report should not load movement entities");
+    }
+    
+    @Test
+    @DisplayName("Should list movements with a single statement regardless of the number of accounts")
+    void findAll_UsesSingleStatement() {
+        crearCliente(5, 4);
+        
+        statistics.clear();
+        movimientoService.findAll();
+        
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
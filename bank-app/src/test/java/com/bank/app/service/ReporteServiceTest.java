@@ -0,0 +1,128 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.FormatoReporte;
+import com.bank.app.dto.ReporteMovimientoDTO;
+import com.bank.app.exception.ResourceNotFoundException;
+import com.bank.app.repository.MovimientoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ReporteService.
+ * Tests the streaming JSON, NDJSON and CSV writers.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ReporteService Tests")
+class ReporteServiceTest {
+    
+    @Mock
+    private MovimientoRepository movimientoRepository;
+    
+    @Mock
+    private ClienteService clienteService;
+    
+    @Mock
+    private EnrutamientoLecturas enrutamientoLecturas;
+    
+    @Mock
+    private ArchivoMovimientos archivoMovimientos;
+    
+    @InjectMocks
+    private ReporteService reporteService;
+    
+    private final LocalDateTime inicio = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private final LocalDateTime fin = LocalDateTime.of(2026, 12, 31, 23, 59);
+    
+    private ReporteMovimientoDTO fila;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reporteService, "escritorJson", new EscritorJson(JsonMapper.builder().build()));
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(reporteService, "metricas", new MetricasBanco(meterRegistry));
+        
+        fila = new ReporteMovimientoDTO(LocalDateTime.of(2026, 2, 10, 9, 30), "Marianela, Montalvo",
+                "225487", "Corriente", new BigDecimal("100.00"), true,
+                new BigDecimal("600.00"), new BigDecimal("700.00"));
+    }
+    
+    @Test
+    @DisplayName("Should write one CSV line per row and close the cursor")
+    void escribirReporte_Csv_WritesHeaderAndRows() throws Exception {
+        AtomicBoolean cerrado = new AtomicBoolean();
+        when(movimientoRepository.streamReporteByCliente(1L, inicio, fin))
+                .thenReturn(Stream.of(fila, fila).onClose(() -> cerrado.set(true)));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        
+        reporteService.escribirReporte(1L, inicio, fin, FormatoReporte.CSV, salida);
+        
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lineas.length);
+        assertTrue(lineas[0].startsWith("fecha,cliente,numeroCuenta"));
+        assertEquals("2026-02-10T09:30,\"Marianela, Montalvo\",225487,Corriente,100.00,true,600.00,700.00", lineas[1]);
+        assertTrue(cerrado.get());
+        assertEquals(1L, meterRegistry.get("banco.reporte.generacion").tag("formato", "csv").timer().count());
+    }
+    
+    @Test
+    @DisplayName("Should write one JSON object per line in NDJSON format")
+    void escribirReporte_Ndjson_WritesOneObjectPerLine() throws Exception {
+        when(movimientoRepository.streamReporteByCliente(1L, inicio, fin)).thenReturn(Stream.of(fila));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        
+        reporteService.escribirReporte(1L, inicio, fin, FormatoReporte.NDJSON, salida);
+        
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, lineas.length);
+        assertTrue(lineas[0].startsWith("{"));
+        assertTrue(lineas[0].contains("\"numeroCuenta\":\"225487\""));
+        assertTrue(lineas[0].contains("\"saldoDisponible\":700.00"));
+    }
+    
+    @Test
+    @DisplayName("Should write a JSON array and close the cursor")
+    void escribirReporte_Json_WritesArray() throws Exception {
+        AtomicBoolean cerrado = new AtomicBoolean();
+        when(movimientoRepository.streamReporteByCliente(1L, inicio, fin))
+                .thenReturn(Stream.of(fila, fila).onClose(() -> cerrado.set(true)));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        
+        reporteService.escribirReporte(1L, inicio, fin, FormatoReporte.JSON, salida);
+        
+        String json = salida.toString(StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[{"));
+        assertTrue(json.endsWith("}]"));
+        assertTrue(json.contains("\"fecha\":\"2026-02-10T09:30:00\""));
+        assertTrue(cerrado.get());
+        assertEquals(1L, meterRegistry.get("banco.reporte.generacion").tag("formato", "json").timer().count());
+    }
+    
+    @Test
+    @DisplayName("Should reject a report for a client that does not exist")
+    void verificarCliente_NotFound_ThrowsException() {
+        when(clienteService.findById(99L))
+                .thenThrow(new ResourceNotFoundException("Cliente no encontrado con ID: 99"));
+        
+        assertThrows(ResourceNotFoundException.class, () -> reporteService.verificarCliente(99L));
+    }
+}
@@ -0,0 +1,182 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.dto.PeriodoResumen;
+import com.bank.app.dto.ResumenSaldoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.entity.Movimiento;
+import com.bank.app.entity.SaldoDiario;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.repository.SaldoDiarioRepository;
+import com.bank.app.support.DatosPrueba;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Daily account snapshots on embedded H2.
+ * Snapshots kept by posting must match the ones rebuilt from history, and the
+ * summary report must be answered from them.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("SaldoDiario snapshot Tests")
+class SaldoDiarioTest {
+    
+    @Autowired
+    private MovimientoService movimientoService;
+    
+    @Autowired
+    private SaldoDiarioService saldoDiarioService;
+    
+    @Autowired
+    private ReporteService reporteService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    @Autowired
+    private SaldoDiarioRepository saldoDiarioRepository;
+    
+    @Autowired
+    private MovimientoBatchService movimientoBatchService;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Cliente cliente;
+    private Cuenta cuenta;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        cliente = clienteRepository.save(DatosPrueba.cliente("SD-" + sufijo));
+        
+        cuenta = DatosPrueba.cuenta(cliente, "SD" + sufijo, new BigDecimal("1000.00"));
+        cuentaRepository.save(cuenta);
+        
+        // Historial anterior a los snapshots, como en una base existente
+        movimientoRepository.saveAll(List.of(
+                movimiento(LocalDateTime.of(2026, 3, 10, 9, 0), "500.00", "1500.00"),
+                movimiento(LocalDateTime.of(2026, 3, 10, 15, 0), "-100.00", "1400.00"),
+                movimiento(LocalDateTime.of(2026, 3, 11, 10, 0), "-400.00", "1000.00")));
+    }
+    
+    private Movimiento movimiento(LocalDateTime fecha, String valor, String saldo) {
+        Movimiento movimiento = new Movimiento();
+        movimiento.setFecha(fecha);
+        movimiento.setTipoMovimiento(valor.startsWith("-") ? "Retiro" : "Deposito");
+        movimiento.setValor(new BigDecimal(valor));
+        movimiento.setSaldo(new BigDecimal(saldo));
+        movimiento.setCuenta(cuenta);
+        return movimiento;
+    }
+    
+    private MovimientoDTO post(String valor) {
+        return movimientoService.save(DatosPrueba.movimiento(cuenta.getNumeroCuenta(), valor));
+    }
+    
+    private SaldoDiario snapshotDeHoy() {
+        return saldoDiarioRepository.findByCuentaIdAndFecha(cuenta.getId(), LocalDate.now()).orElseThrow();
+    }
+    
+    @Test
+    @DisplayName("Should keep the snapshot of the day in step with posting and deletion")
+    void save_ShouldMaintainTodaySnapshot() {
+        post("200.00");
+        post("-50.00");
+        MovimientoDTO ultimo = post("-30.00");
+        
+        SaldoDiario hoy = snapshotDeHoy();
+        assertEquals(0, new BigDecimal("1000.00").compareTo(hoy.getSaldoApertura()));
+        assertEquals(0, new BigDecimal("1120.00").compareTo(hoy.getSaldoCierre()));
+        assertEquals(0, new BigDecimal("200.00").compareTo(hoy.getTotalCreditos()));
+        assertEquals(0, new BigDecimal("80.00").compareTo(hoy.getTotalDebitos()));
+        assertEquals(3, hoy.getCantidadMovimientos());
+        
+        movimientoService.delete(ultimo.getId());
+        
+        hoy = snapshotDeHoy();
+        assertEquals(0, new BigDecimal("1150.00").compareTo(hoy.getSaldoCierre()));
+        assertEquals(0, new BigDecimal("50.00").compareTo(hoy.getTotalDebitos()));
+        assertEquals(2, hoy.getCantidadMovimientos());
+    }
+    
+    @Test
+    @DisplayName("Should backfill existing history and summarize it per month from the snapshots")
+    void reconstruirHistorial_ShouldBackfillAndSummarizePerMonth() {
+        post("200.00");
+        SaldoDiario antes = snapshotDeHoy();
+        
+        saldoDiarioService.reconstruirHistorial();
+        
+        SaldoDiario despues = snapshotDeHoy();
+        assertEquals(0, antes.getSaldoCierre().compareTo(despues.getSaldoCierre()));
+        assertEquals(antes.getCantidadMovimientos(), despues.getCantidadMovimientos());
+        
+        List<ResumenSaldoDTO> dias = reporteService.generarResumen(cliente.getClienteId(),
+                LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31), PeriodoResumen.DIA);
+        assertEquals(2, dias.size());
+        assertEquals(LocalDate.of(2026, 3, 10), dias.get(0).getPeriodo());
+        assertEquals(0, new BigDecimal("1400.00").compareTo(dias.get(0).getSaldoCierre()));
+        
+        List<ResumenSaldoDTO> meses = reporteService.generarResumen(cliente.getClienteId(),
+                LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31), PeriodoResumen.MES);
+        assertEquals(1, meses.size());
+        ResumenSaldoDTO marzo = meses.get(0);
+        assertEquals(LocalDate.of(2026, 3, 1), marzo.getPeriodo());
+        assertEquals(0, new BigDecimal("1000.00").compareTo(marzo.getSaldoApertura()));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(marzo.getSaldoCierre()));
+        assertEquals(0, new BigDecimal("500.00").compareTo(marzo.getTotalCreditos()));
+        assertEquals(0, new BigDecimal("500.00").compareTo(marzo.getTotalDebitos()));
+        assertEquals(3, marzo.getCantidadMovimientos());
+    }
+    
+    @Test
+    @DisplayName("Should write the day's snapshot once for a batch of movements")
+    void procesarBatch_ShouldInsertSnapshotOnce() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        
+        movimientoBatchService.procesar(List.of(
+                DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "200.00"),
+                DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "-50.00"),
+                DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "-30.00"),
+                DatosPrueba.movimiento(cuenta.getNumeroCuenta(), "10.00")));
+        
+        EntityStatistics saldos = statistics.getEntityStatistics(SaldoDiario.class.getName());
+        assertEquals(1, saldos.getInsertCount());
+        assertEquals(0, saldos.getUpdateCount());
+        
+        SaldoDiario hoy = snapshotDeHoy();
+        assertEquals(0, new BigDecimal("1000.00").compareTo(hoy.getSaldoApertura()));
+        assertEquals(0, new BigDecimal("1130.00").compareTo(hoy.getSaldoCierre()));
+        assertEquals(0, new BigDecimal("210.00").compareTo(hoy.getTotalCreditos()));
+        assertEquals(0, new BigDecimal("80.00").compareTo(hoy.getTotalDebitos()));
+        assertEquals(4, hoy.getCantidadMovimientos());
+    }
+}
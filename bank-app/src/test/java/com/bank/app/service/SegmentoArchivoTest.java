@@ -0,0 +1,121 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.MovimientoHashDTO;
+import com.bank.app.service.SegmentoArchivo.Columna;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SegmentoArchivo.
+ * Tests the round trip of every column, reading a subset of the columns,
+ * the checksum of a damaged column and the size of a compressed month.
+ */
+@DisplayName("SegmentoArchivo Tests")
+class SegmentoArchivoTest {
+    
+    @TempDir
+    Path directorio;
+    
+    /** A sealed month: one movement every 6 hours with a reversal every tenth row. */
+    private List<MovimientoHashDTO> mes(int cantidad) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        List<MovimientoHashDTO> filas = new ArrayList<>();
+        BigDecimal saldo = new BigDecimal("100.00");
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 1, 8, 15, 30, 123_456_000);
+        for (int i = 0; i < cantidad; i++) {
+            boolean reverso = i % 10 == 9;
+            BigDecimal valor = reverso ? new BigDecimal("12.50") : new BigDecimal(i % 2 == 0 ? "250.00" : "-12.50");
+            saldo = saldo.add(valor);
+            filas.add(new MovimientoHashDTO(5_000L + i * 3L, inicio.plusHours(6L * i),
+                    reverso ? MovimientoService.TIPO_REVERSO : (i % 2 == 0 ? "Deposito" : "Retiro"),
+                    valor, saldo, reverso ? 5_000L + (i - 1) * 3L : null,
+                    HexFormat.of().formatHex(sha256.digest(String.valueOf(i).getBytes(StandardCharsets.UTF_8)))));
+        }
+        return filas;
+    }
+    
+    @Test
+    @DisplayName("Should read back every column of every row")
+    void escribir_RoundTrip() throws Exception {
+        List<MovimientoHashDTO> filas = mes(120);
+        Path archivo = directorio.resolve("2025-03.seg");
+        
+        SegmentoArchivo.escribir(archivo, filas);
+        SegmentoArchivo segmento = SegmentoArchivo.leer(archivo, EnumSet.allOf(Columna.class));
+        
+        assertEquals(filas.size(), segmento.filas());
+        assertEquals(filas, IntStream.range(0, segmento.filas()).mapToObj(segmento::movimiento).toList());
+        assertFalse(Files.exists(directorio.resolve("2025-03.seg.tmp")));
+    }
+    
+    @Test
+    @DisplayName("Should read only the requested columns")
+    void leer_ColumnSubset() throws Exception {
+        List<MovimientoHashDTO> filas = mes(30);
+        Path archivo = directorio.resolve("2025-03.seg");
+        SegmentoArchivo.escribir(archivo, filas);
+        
+        SegmentoArchivo segmento = SegmentoArchivo.leer(archivo, SegmentoArchivo.REPORTE);
+        
+        assertEquals(filas.get(7).id(), segmento.id(7));
+        assertEquals(filas.get(7).fecha(), segmento.fecha(7));
+        assertEquals(filas.get(7).valor(), segmento.valor(7));
+        assertEquals(filas.get(7).saldo(), segmento.saldo(7));
+        assertThrows(NullPointerException.class, () -> segmento.hash(7));
+    }
+    
+    @Test
+    @DisplayName("Should detect a damaged column only when it is read")
+    void leer_DamagedColumn_Throws() throws Exception {
+        Path archivo = directorio.resolve("2025-03.seg");
+        SegmentoArchivo.escribir(archivo, mes(60));
+        
+        // El último byte pertenece al bloque de la columna HASH
+        byte[] datos = Files.readAllBytes(archivo);
+        datos[datos.length - 1] ^= 0x5A;
+        Files.write(archivo, datos);
+        
+        assertEquals(60, SegmentoArchivo.leer(archivo, SegmentoArchivo.REPORTE).filas());
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> SegmentoArchivo.leer(archivo, EnumSet.of(Columna.HASH)));
+        assertTrue(ex.getMessage().contains("HASH"));
+    }
+    
+    @Test
+    @DisplayName("Should store a month in a fraction of its row size")
+    void escribir_Compresses() throws Exception {
+        List<MovimientoHashDTO> filas = mes(120);
+        Path archivo = directorio.resolve("2025-03.seg");
+        
+        SegmentoArchivo.escribir(archivo, filas);
+        
+        // id, fecha, tipo, valor y saldo de 8 bytes y el hash en 64 caracteres, como en la tabla
+        long sinComprimir = filas.size() * (8L * 5 + 64);
+        assertTrue(Files.size(archivo) < sinComprimir / 2, "size " + Files.size(archivo));
+    }
+    
+    @Test
+    @DisplayName("Should reject a file that is not a segment")
+    void leer_UnknownFormat_Throws() throws Exception {
+        Path archivo = directorio.resolve("2025-03.seg");
+        Files.writeString(archivo, "no es un segmento de archivo, solo texto plano de relleno");
+        
+        assertThrows(IllegalStateException.class,
+                () -> SegmentoArchivo.leer(archivo, EnumSet.allOf(Columna.class)));
+    }
+}
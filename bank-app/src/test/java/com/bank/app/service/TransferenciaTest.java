@@ -0,0 +1,193 @@
+package com.bank.app.service;
+
+import com.bank.app.dto.TransferenciaDTO;
+import com.bank.app.dto.TransferenciaResultadoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+import com.bank.app.exception.BusinessException;
+import com.bank.app.repository.ClienteRepository;
+import com.bank.app.repository.CuentaRepository;
+import com.bank.app.repository.MovimientoRepository;
+import com.bank.app.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Transfers on embedded H2.
+ * Both legs commit together or not at all, and opposite transfers between
+ * the same accounts must not deadlock.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Transfer Tests")
+class TransferenciaTest {
+    
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("500.00");
+    
+    @Autowired
+    private TransferenciaService transferenciaService;
+    
+    @Autowired
+    private ClienteRepository clienteRepository;
+    
+    @Autowired
+    private CuentaRepository cuentaRepository;
+    
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+    
+    private Cuenta origen;
+    private Cuenta destino;
+    
+    @BeforeEach
+    void setUp() {
+        String sufijo = DatosPrueba.sufijo();
+        
+        Cliente cliente = clienteRepository.save(DatosPrueba.cliente("TR-" + sufijo));
+        
+        origen = cuenta(cliente, "TRA" + sufijo);
+        destino = cuenta(cliente, "TRB" + sufijo);
+    }
+    
+    private Cuenta cuenta(Cliente cliente, String numero) {
+        return cuentaRepository.save(DatosPrueba.cuenta(cliente, numero, SALDO_INICIAL));
+    }
+    
+    private TransferenciaDTO transferencia(Cuenta desde, Cuenta hacia, String valor) {
+        return new TransferenciaDTO(desde.getNumeroCuenta(), hacia.getNumeroCuenta(), new BigDecimal(valor));
+    }
+    
+    private BigDecimal saldo(Cuenta cuenta) {
+        return cuentaRepository.findById(cuenta.getId()).orElseThrow().getSaldoActual();
+    }
+    
+    @Test
+    @DisplayName("Should post the debit and the credit together")
+    void transferir_PostsBothLegs() {
+        TransferenciaResultadoDTO resultado = transferenciaService.transferir(transferencia(origen, destino, "120.00"));
+        
+        assertEquals(TransferenciaResultadoDTO.COMPLETADA, resultado.getEstado());
+        assertEquals(0, new BigDecimal("-120.00").compareTo(resultado.getDebito().getValor()));
+        assertEquals(0, new BigDecimal("380.00").compareTo(resultado.getDebito().getSaldo()));
+        assertEquals(0, new BigDecimal("620.00").compareTo(resultado.getCredito().getSaldo()));
+        assertEquals(0, new BigDecimal("380.00").compareTo(saldo(origen)));
+        assertEquals(0, new BigDecimal("620.00").compareTo(saldo(destino)));
+        assertSame(resultado, transferenciaService.estado(resultado.getId()));
+    }
+    
+    @Test
+    @DisplayName("Should post neither leg when the destination rejects the credit")
+    void transferir_InactiveDestination_RollsBackDebit() {
+        Cuenta inactiva = cuentaRepository.findById(destino.getId()).orElseThrow();
+        inactiva.setEstado(false);
+        cuentaRepository.save(inactiva);
+        
+        assertThrows(BusinessException.class,
+                () -> transferenciaService.transferir(transferencia(origen, destino, "120.00")));
+        
+        assertEquals(0, SALDO_INICIAL.compareTo(saldo(origen)));
+        assertTrue(movimientoRepository.findDTOByCuentaId(origen.getId()).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Should reject a transfer the origin balance does not cover")
+    void transferir_InsufficientBalance_ThrowsBusinessException() {
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> transferenciaService.transferir(transferencia(origen, destino, "900.00")));
+        
+        assertEquals("Saldo no disponible", ex.getMessage());
+        assertEquals(0, SALDO_INICIAL.compareTo(saldo(destino)));
+        assertTrue(movimientoRepository.findDTOByCuentaId(destino.getId()).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Should not deadlock on opposite transfers between the same accounts")
+    void transferir_OppositeDirections_KeepTotal() throws Exception {
+        int hilos = 8;
+        int porHilo = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        
+        for (int h = 0; h < hilos; h++) {
+            boolean ida = h % 2 == 0;
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                for (int i = 0; i < porHilo; i++) {
+                    transferenciaService.transferir(ida
+                            ? transferencia(origen, destino, "1.00")
+                            : transferencia(destino, origen, "1.00"));
+                }
+                return null;
+            }));
+        }
+        
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        
+        // Mismo número de transferencias en cada sentido: los saldos vuelven al inicial
+        assertEquals(0, SALDO_INICIAL.compareTo(saldo(origen)));
+        assertEquals(0, SALDO_INICIAL.compareTo(saldo(destino)));
+        assertEquals(hilos * porHilo, movimientoRepository.findDTOByCuentaId(origen.getId()).size());
+    }
+    
+    @Test
+    @DisplayName("Should queue an async transfer and expose its final status")
+    void encolar_CompletesInBackground() throws Exception {
+        TransferenciaResultadoDTO pendiente = transferenciaService.encolar(transferencia(origen, destino, "50.00"));
+        assertEquals(TransferenciaResultadoDTO.PENDIENTE, pendiente.getEstado());
+        
+        TransferenciaResultadoDTO resultado = pendiente;
+        long limite = System.currentTimeMillis() + 10_000;
+        while (TransferenciaResultadoDTO.PENDIENTE.equals(resultado.getEstado())
+                && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+            resultado = transferenciaService.estado(pendiente.getId());
+        }
+        
+        assertEquals(TransferenciaResultadoDTO.COMPLETADA, resultado.getEstado());
+        assertEquals(0, new BigDecimal("550.00").compareTo(saldo(destino)));
+    }
+    
+    @Test
+    @DisplayName("Should report a rejected async transfer in its status")
+    void encolar_Rejected_ReportsError() throws Exception {
+        TransferenciaResultadoDTO pendiente = transferenciaService.encolar(transferencia(origen, destino, "900.00"));
+        
+        TransferenciaResultadoDTO resultado = pendiente;
+        long limite = System.currentTimeMillis() + 10_000;
+        while (TransferenciaResultadoDTO.PENDIENTE.equals(resultado.getEstado())
+                && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+            resultado = transferenciaService.estado(pendiente.getId());
+        }
+        
+        assertEquals(TransferenciaResultadoDTO.RECHAZADA, resultado.getEstado());
+        assertEquals("Saldo no disponible", resultado.getError());
+    }
+    
+    @Test
+    @DisplayName("Should reject a transfer to the same account")
+    void transferir_SameAccount_ThrowsBusinessException() {
+        assertThrows(BusinessException.class,
+                () -> transferenciaService.transferir(transferencia(origen, origen, "10.00")));
+    }
+}
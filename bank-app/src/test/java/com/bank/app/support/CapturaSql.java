@@ -0,0 +1,49 @@
+package com.bank.app.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Records the SQL Hibernate sends on the calling thread, so a test can run
+ * EXPLAIN on the exact statement a repository method generates.
+ * Registered with {@code hibernate.session_factory.statement_inspector}.
+ */
+public class CapturaSql implements StatementInspector {
+    
+    private static final ThreadLocal<List<String>> CAPTURADAS = new ThreadLocal<>();
+    
+    @Override
+    public String inspect(String sql) {
+        List<String> capturadas = CAPTURADAS.get();
+        if (capturadas != null) {
+            capturadas.add(sql);
+        }
+        return sql;
+    }
+    
+    /**
+     * Runs a repository call and returns the first SELECT it sent: the query
+     * itself, before any lazy load it triggers.
+     *
+     * @param consulta the repository call
+     * @return the generated SQL, with {@code ?} for every bind parameter
+     */
+    public static String consulta(Runnable consulta) {
+        List<String> capturadas = new ArrayList<>();
+        CAPTURADAS.set(capturadas);
+        try {
+            consulta.run();
+        } finally {
+            CAPTURADAS.remove();
+        }
+        for (String sql : capturadas) {
+            if (sql.stripLeading().toLowerCase(Locale.ROOT).startsWith("select")) {
+                return sql;
+            }
+        }
+        throw new IllegalStateException("La consulta no ejecutó ningún SELECT: " + capturadas);
+    }
+}
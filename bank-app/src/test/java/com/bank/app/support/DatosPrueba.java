@@ -0,0 +1,66 @@
+package com.bank.app.support;
+
+import com.bank.app.dto.MovimientoDTO;
+import com.bank.app.entity.Cliente;
+import com.bank.app.entity.Cuenta;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Shared fixture for the integration tests.
+ * Builds unsaved clients and accounts with unique identifiers, so tests that
+ * share the embedded database never collide on the unique columns, and the
+ * movement requests posted to them.
+ */
+public final class DatosPrueba {
+    
+    private DatosPrueba() {
+    }
+    
+    /** Short random suffix for identifications and account numbers */
+    public static String sufijo() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    public static Cliente cliente(String identificacion) {
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Cliente " + identificacion);
+        cliente.setGenero("Femenino");
+        cliente.setEdad(35);
+        cliente.setIdentificacion(identificacion);
+        cliente.setDireccion("Quito");
+        cliente.setTelefono("0999999999");
+        cliente.setContrasena("hash");
+        cliente.setEstado(true);
+        return cliente;
+    }
+    
+    public static Cuenta cuenta(Cliente cliente, String numeroCuenta, String tipoCuenta, BigDecimal saldoInicial) {
+        Cuenta cuenta = new Cuenta();
+        cuenta.setNumeroCuenta(numeroCuenta);
+        cuenta.setTipoCuenta(tipoCuenta);
+        cuenta.setSaldoInicial(saldoInicial);
+        cuenta.setSaldoActual(saldoInicial);
+        cuenta.setEstado(true);
+        cuenta.setCliente(cliente);
+        return cuenta;
+    }
+    
+    public static Cuenta cuenta(Cliente cliente, String numeroCuenta, BigDecimal saldoInicial) {
+        return cuenta(cliente, numeroCuenta, "Ahorro", saldoInicial);
+    }
+    
+    public static MovimientoDTO movimiento(String numeroCuenta, String valor, String tipoMovimiento) {
+        MovimientoDTO movimiento = new MovimientoDTO();
+        movimiento.setNumeroCuenta(numeroCuenta);
+        movimiento.setTipoMovimiento(tipoMovimiento);
+        movimiento.setValor(new BigDecimal(valor));
+        return movimiento;
+    }
+    
+    /** A withdrawal when the amount is negative, a deposit otherwise */
+    public static MovimientoDTO movimiento(String numeroCuenta, String valor) {
+        return movimiento(numeroCuenta, valor, valor.startsWith("-") ? "Retiro" : "Deposito");
+    }
+}
@@ -0,0 +1,94 @@
+package com.bank.app.support;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Base of the tests that read query plans on the production schema: a
+ * PostgreSQL container migrated by Flyway (partitions and partial indexes
+ * included) instead of the H2 schema generated from the entities.
+ * One container serves every subclass, so the cached Spring context stays
+ * valid between test classes. Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.bank.app.support.CapturaSql"
+})
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresPrueba {
+    
+    // Misma versión que docker-compose.yml
+    @ServiceConnection
+    static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer("postgres:15-alpine");
+    
+    static {
+        POSTGRES.start();
+    }
+    
+    private static final Pattern INDICE = Pattern.compile("(?:using|Bitmap Index Scan on) (\\w+)");
+    private static final Pattern PARTICION = Pattern.compile(" on (movimientos_\\d{4}_\\d{2}) (\\w+)");
+    
+    private static final String INDICE_PADRE = "SELECT COALESCE(p.relname, c.relname) FROM pg_class c " +
+            "LEFT JOIN pg_inherits i ON i.inhrelid = c.oid " +
+            "LEFT JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE c.relname = ? AND c.relkind IN ('i', 'I')";
+    
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    
+    /**
+     * EXPLAIN of a statement with its bind parameters.
+     *
+     * @param sql statement as generated by Hibernate (see {@link CapturaSql})
+     * @param parametros one value per {@code ?}, in order
+     * @return the plan as text
+     */
+    protected String plan(String sql, Object... parametros) {
+        assertEquals(sql.chars().filter(c -> c == '?').count(), parametros.length, sql);
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parametros));
+    }
+    
+    /**
+     * Indexes read by a plan. A partition reads its own copy of an index
+     * declared on movimientos; it is reported with the declared name.
+     */
+    protected Set<String> indices(String plan) {
+        Set<String> indices = new TreeSet<>();
+        Matcher matcher = INDICE.matcher(plan);
+        while (matcher.find()) {
+            indices.add(jdbcTemplate.queryForObject(INDICE_PADRE, String.class, matcher.group(1)));
+        }
+        return indices;
+    }
+    
+    /**
+     * Partitions of movimientos a plan reads for one table alias of the
+     * query ({@code m1} matches the scans {@code m1_0}, {@code m1_1}...).
+     */
+    protected Set<String> particiones(String plan, String alias) {
+        Set<String> particiones = new TreeSet<>();
+        Matcher matcher = PARTICION.matcher(plan);
+        while (matcher.find()) {
+            if (matcher.group(2).startsWith(alias + "_")) {
+                particiones.add(matcher.group(1));
+            }
+        }
+        return particiones;
+    }
+}
@@ -36,7 +36,7 @@ describe('ApiService', () => {
         expect(clientes).toEqual(mockClientes);
       });
 
-      const req = httpMock.expectOne(`${baseUrl}/clientes`);
+      const req = httpMock.expectOne(`${baseUrl}/clientes?todos=true`);
       expect(req.request.method).toBe('GET');
       req.flush(mockClientes);
     });
@@ -108,7 +108,7 @@ describe('ApiService', () => {
         expect(cuentas).toEqual(mockCuentas);
       });
 
-      const req = httpMock.expectOne(`${baseUrl}/cuentas`);
+      const req = httpMock.expectOne(`${baseUrl}/cuentas?todos=true`);
       expect(req.request.method).toBe('GET');
       req.flush(mockCuentas);
     });
@@ -126,7 +126,7 @@ describe('ApiService', () => {
         expect(movimientos).toEqual(mockMovimientos);
       });
 
-      const req = httpMock.expectOne(`${baseUrl}/movimientos`);
+      const req = httpMock.expectOne(`${baseUrl}/movimientos?todos=true`);
       expect(req.request.method).toBe('GET');
       req.flush(mockMovimientos);
     });
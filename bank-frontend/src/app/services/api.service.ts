@@ -24,10 +24,12 @@ export class ApiService {
   
   /**
    * Obtiene la lista completa de clientes
+   * @remarks Sin `todos=true` el backend responde con una página por cursor
    * @returns Observable con array de clientes
    */
   getClientes(): Observable<Cliente[]> {
-    return this.http.get<Cliente[]>(`${this.baseUrl}/clientes`);
+    const params = new HttpParams().set('todos', 'true');
+    return this.http.get<Cliente[]>(`${this.baseUrl}/clientes`, { params });
   }
 
   /**
@@ -71,10 +73,12 @@ export class ApiService {
   
   /**
    * Obtiene la lista completa de cuentas
+   * @remarks Sin `todos=true` el backend responde con una página por cursor
    * @returns Observable con array de cuentas
    */
   getCuentas(): Observable<Cuenta[]> {
-    return this.http.get<Cuenta[]>(`${this.baseUrl}/cuentas`);
+    const params = new HttpParams().set('todos', 'true');
+    return this.http.get<Cuenta[]>(`${this.baseUrl}/cuentas`, { params });
   }
 
   /**
@@ -127,10 +131,12 @@ export class ApiService {
   
   /**
    * Obtiene la lista completa de movimientos
+   * @remarks Sin `todos=true` el backend responde con una página por cursor
    * @returns Observable con array de movimientos
    */
   getMovimientos(): Observable<Movimiento[]> {
-    return this.http.get<Movimiento[]>(`${this.baseUrl}/movimientos`);
+    const params = new HttpParams().set('todos', 'true');
+    return this.http.get<Movimiento[]>(`${this.baseUrl}/movimientos`, { params });
   }
 
   /**